@@ -4,14 +4,16 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Deque;
 import java.util.EnumSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Random;
-import java.util.Vector;
 
+import support.ActHistory;
+import support.ActHistoryFile;
+import support.ActionSpace;
 import support.Command;
+import support.MotionTable;
+import support.RoundRobin;
 import enumerate.Action;
-import enumerate.AttackAction;
 import enumerate.Position;
 import enumerate.State;
 import simulator.Simulator;
@@ -48,6 +50,16 @@ public class JerryMizunoAI implements AIInterface {
 	private static final int K_DISTANCE = 50;
 	private static final double K_THRESHOLD = 0.3;
 	private static final int THRESHOLD = 3;
+	// the attacks kept per position relationship, the oldest being evicted first
+	private static final int HISTORY_CAPACITY = Integer.getInteger("jerrymizunoai.historyCapacity", 1024);
+	// the frames the weight of an attack in k-nn halves in (no weighting by default), and the weight of the newest one
+	private static final int RECENCY_HALF_LIFE = Integer.getInteger("jerrymizunoai.recencyHalfLife", 0);
+	private static final int RECENCY_WEIGHT = 16;
+	// keep the histories between matches against the same opponent, and the opponent's AI name when the command line does not give it
+	private static final boolean PERSIST_HISTORY = Boolean.parseBoolean(System.getProperty("jerrymizunoai.persistHistory", "true"));
+	private static final String OPPONENT_AI = System.getProperty("jerrymizunoai.opponentAi");
+	// the threads the round robin is spread over (sequential by default)
+	private static final int THREADS = Integer.getInteger("jerrymizunoai.threads", 1);
 	private static final int DELAY = 14;
 	// player's boolean number, P1 = true, P2 = false
 	boolean p;
@@ -61,17 +73,27 @@ public class JerryMizunoAI implements AIInterface {
 	
 	Position pos;
 	
-	// deque for retaining ActData the opponent conducted
-	Deque<ActData> oppActData_GG;
-	Deque<ActData> oppActData_GA;
-	Deque<ActData> oppActData_AG;
-	Deque<ActData> oppActData_AA;
+	// the attacks the opponent conducted, indexed by Position ordinal
+	ActHistory[] oppActHistory;
+	// the file the histories are kept in between matches, and whether it is still being loaded
+	ActHistoryFile historyFile;
+	boolean historyLoading;
+	// the actions and the frames of the nearest attacks selected by k-nn
+	Action[] nearestAct;
+	int[] nearestFrame;
 	
-	// deque for retaining Ground and Air Actions
-	Deque<Action> G_Act;
-	Deque<Action> A_Act;
+	// action classes and energy costs of each character
+	ActionSpace myActionSpace;
+	ActionSpace oppActionSpace;
+	
+	// Ground and Air Actions, usable ones found by energy cost
+	ActionSpace.Moves G_Act;
+	ActionSpace.Moves A_Act;
 	
 	Deque<Action> myAct;
+	// the moves and the number of them currently set to myAct
+	ActionSpace.Moves myMoves;
+	int myLegalCount;
 	Deque<Action> oppAct;
 	int[] checkAct;
 	
@@ -79,12 +101,16 @@ public class JerryMizunoAI implements AIInterface {
 	
 	Command cc;
 	Simulator simulator;
+	// the round robin, simulated by HorizonSimulator which stops once the exchange is over
+	RoundRobin roundRobin;
 	
 	Action preOppAct;
 	Action nowOppAct;
 	
 	int preRound;
 	int nowRound;
+	// the frames received since initialize(), which the attacks are recorded at
+	int frameCount;
 	
 	long time;
 	
@@ -105,15 +131,31 @@ public class JerryMizunoAI implements AIInterface {
 		nowRound = 0;
 
 		simulator = gd.getSimulator();
+		roundRobin = new RoundRobin(gd, this.p, THREADS);
 		this.inputLog = new LinkedList<KeyData>();
-		this.oppActData_GG = new LinkedList<ActData>();
-		this.oppActData_GA = new LinkedList<ActData>();
-		this.oppActData_AG = new LinkedList<ActData>();
-		this.oppActData_AA = new LinkedList<ActData>();
+		this.oppActHistory = new ActHistory[Position.values().length];
+		for(int i = 0 ; i < oppActHistory.length ; i++){
+			oppActHistory[i] = new ActHistory(HISTORY_CAPACITY, K_DISTANCE, THRESHOLD);
+		}
+		this.nearestAct = new Action[THRESHOLD];
+		this.nearestFrame = new int[THRESHOLD];
+		frameCount = 0;
+		if(PERSIST_HISTORY){
+			String opponentAi = (OPPONENT_AI != null)? OPPONENT_AI : ActHistoryFile.getOpponentAiName(this.p);
+			// the attacks of an opponent whose AI is not known would be mixed with the ones of other AIs, so they are not saved
+			historyFile = (opponentAi != null)? new ActHistoryFile(ActHistoryFile.getFile("JerryMizunoAI", opponentAi, gd.getOpponentName(this.p))) : null;
+			loadOppActHistory(ActHistoryFile.find("JerryMizunoAI", opponentAi, gd.getOpponentName(this.p)));
+		}
 		this.myAct = new LinkedList<Action>();
 		this.oppAct = new LinkedList<Action>();
 		checkAct = new int[EnumSet.allOf(Action.class).size()];
 		
+		// GameData copies the motions on every call, so they are compiled once
+		MotionTable p1Motion = new MotionTable(gd.getPlayerOneMotion());
+		MotionTable p2Motion = new MotionTable(gd.getPlayerTwoMotion());
+		myActionSpace = new ActionSpace(this.p? p1Motion:p2Motion);
+		oppActionSpace = new ActionSpace(this.p? p2Motion:p1Motion);
+		myMoves = null;
 		setAirGroundAction();
 		System.out.println("this.p = " + this.p);
 		
@@ -133,18 +175,14 @@ public class JerryMizunoAI implements AIInterface {
 			opp = fd.getP1();
 		}
 		if(fd.getKeyData() != null) inputLog.addLast(fd.getKeyData());
+		if(!fd.getEmptyFlag()) frameCount++;
 		
 		for(int i = 0 ; i < EnumSet.allOf(Action.class).size() ; i++){
 			checkAct[i] = 0;
 		}
 		
+		// the histories are bounded, so they are kept over the rounds
 		nowRound = fd.getRound();
-		if(nowRound != preRound && nowRound != 0 && nowRound%3 == 0){
-			oppActData_GG.clear();
-			oppActData_GA.clear();
-			oppActData_AG.clear();
-			oppActData_AA.clear();
-		}
 	}
 
 	@Override
@@ -156,20 +194,11 @@ public class JerryMizunoAI implements AIInterface {
 			if(fd.getRemainingTime() > 0){
 				
 				nowOppAct = opp.getAction();
-				Vector<MotionData> oppMotion = this.p? gd.getPlayerTwoMotion():gd.getPlayerOneMotion();
-
-				if(oppMotion.elementAt(opp.getAction().ordinal()).getFrameNumber() == opp.getRemainingFrame()){
-					try{
-							AttackAction.valueOf(nowOppAct.name());
-							
-							if(my.isFront()){
-								ActData act = new ActData(opp.getX()-my.getX(),opp.getY()-my.getY(),nowOppAct);
-								setOppAttackData(act);
-							}else{
-								ActData act = new ActData(my.getX()-opp.getX(),my.getY()-opp.getY(),nowOppAct);
-								setOppAttackData(act);
-							}
-						}catch (Exception e){
+				if(oppActionSpace.getFrameNumber(nowOppAct) == opp.getRemainingFrame() && oppActionSpace.isAttack(nowOppAct)){
+					if(my.isFront()){
+						setOppAttackData(opp.getX()-my.getX(),opp.getY()-my.getY(),nowOppAct);
+					}else{
+						setOppAttackData(my.getX()-opp.getX(),my.getY()-opp.getY(),nowOppAct);
 					}
 				}
 					
@@ -195,47 +224,31 @@ public class JerryMizunoAI implements AIInterface {
 						Action act = Action.CROUCH_GUARD;
 						
 						// decide whether to use mizunoAI or not
-						int oppData = (opp.getState() == State.AIR)? oppActData_GA.size():oppActData_GG.size();
+						int oppData = oppActHistory[(opp.getState() == State.AIR)? Position.Ground_Air.ordinal():Position.Ground_Ground.ordinal()].size();
 						double decision_useMizunoAI = (double) (oppData - minOppData) / (upperOppData - minOppData);
 						
 						if (!useFuzzy || (useFuzzy && (Math.random() < decision_useMizunoAI))){
 							// use knn prediction and simulation
-							if(calculateActDistance(getOppAttackData(),opp.getX()-my.getX(),opp.getY()-my.getY())){
-								Deque<Action> myAction = new LinkedList<Action> ();
-								Deque<Action> opAction = new LinkedList<Action> ();
-								
-								// hp before simulation
-								int my_original_hp = my.getHp();
-								int op_original_hp = opp.getHp();
+							if(calculateActDistance(getOppAttackHistory(),opp.getX()-my.getX(),opp.getY()-my.getY())){
+								Action[] myActions = myAct.toArray(new Action[myAct.size()]);
+								Action[] opActions = oppAct.toArray(new Action[oppAct.size()]);
 								
-								Action nowAction;
+								// evaluation values are relative to the hp before simulation
+								roundRobin.setFrameData(sim_fd, my, opp);
 								
-								// frameData after the simulation
-								FrameData simulatedFrame;
 								// evaluated value calculated by the difference of HP after simulation
 								int best_score = 0;
-								int temp_score = 0;
 								
 								// simulate a situation when this AI conducts an action against the predicted action by k-nn.
-								// execute the simulation by a round robin
-								for(Iterator<Action> i = myAct.iterator();i.hasNext();){
-									myAction.clear();
-									nowAction = i.next();
-									myAction.add(nowAction);
-									for(Iterator<Action> j = oppAct.iterator();j.hasNext();){
-										opAction.clear();
-										opAction.add(j.next());
-										
-										// simulate the game for 60 frames
-										simulatedFrame = simulator.simulate(sim_fd, this.p, myAction, opAction, 60);
-										// calculate the evaluation value by the difference of two character's HP
-										temp_score = (this.p)? (simulatedFrame.getP1().hp - my_original_hp) - (simulatedFrame.getP2().hp - op_original_hp) :
-													 (simulatedFrame.getP2().hp - my_original_hp) - (simulatedFrame.getP1().hp - op_original_hp);
-										
-										// conduct an action with highest evaluation value
-										if(temp_score > best_score){
-											act = nowAction;
-											best_score = temp_score;
+								// execute the simulation by a round robin, simulating the game for up to 60 frames and calculating the evaluation value by the difference of two character's HP
+								int[][] score = roundRobin.simulate(myActions, opActions, 60);
+								
+								// conduct an action with highest evaluation value, the first one in the order of the round robin among equal ones
+								for(int i = 0 ; i < myActions.length ; i++){
+									for(int j = 0 ; j < opActions.length ; j++){
+										if(score[i][j] > best_score){
+											act = myActions[i];
+											best_score = score[i][j];
 										}
 									}
 								}
@@ -342,10 +355,9 @@ public class JerryMizunoAI implements AIInterface {
 
 	@Override
 	public synchronized void close() {
-		oppActData_GG.clear();
-		oppActData_GA.clear();
-		oppActData_AG.clear();
-		oppActData_AA.clear();
+		if(PERSIST_HISTORY) saveOppActHistory();
+		clearOppActHistory();
+		roundRobin.close();
 	}
 	
 	private synchronized void fin(){
@@ -354,80 +366,36 @@ public class JerryMizunoAI implements AIInterface {
 		oppAct.clear();
 	}
 	
-	private synchronized boolean calculateActDistance(Deque<ActData> actData , int x, int y){
-		int threshold = (int)(actData.size()*K_THRESHOLD + 1);
-		Deque<ActData> temp = new LinkedList<ActData>();
-		ActData[] array;
+	private synchronized boolean calculateActDistance(ActHistory history, int x, int y){
+		int threshold = Math.min((int)(history.size()*K_THRESHOLD + 1), THRESHOLD);
 		
-		for(Iterator<ActData> i = actData.iterator() ; i.hasNext() ; ){
-			ActData act = new ActData(i.next());
-			if(my.isFront()) act.setDistance((int)Math.sqrt((act.getX()-x)*(act.getX()-x)+(act.getY()-y)*(act.getY()-y)));
-			else act.setDistance((int)Math.sqrt((act.getX()+x)*(act.getX()+x)+(act.getY()+y)*(act.getY()+y)));
-			if( act.getDistance() < K_DISTANCE) temp.add(act);
-		}
-		if(temp.size() < Math.min(threshold,THRESHOLD)) return false;		
+		// the data are recorded relative to the front of my character, so the current position is mirrored when it faces left
+		int found = my.isFront() ? history.nearest(x, y, threshold, nearestAct, nearestFrame) : history.nearest(-x, -y, threshold, nearestAct, nearestFrame);
+		if(found < threshold) return false;
 		
-		array = new ActData[temp.size()];
-		array = actSort(temp);
-		setOppAct(array, Math.min(threshold,THRESHOLD));
+		setOppAct(nearestAct, nearestFrame, threshold);
 		
 		return true;
 	}
 	
-	private synchronized ActData[] actSort(Deque<ActData> actData){
-		ActData[] array = new ActData[actData.size()];
-		
-		for(int i = 0 ; i < array.length ; i ++){
-			array[i] = new ActData(actData.pop());
-		}
-		sort(array);
+	private synchronized void setMyAct(){
+		ActionSpace.Moves moves = (my.getState() == State.AIR)? A_Act : G_Act;
+		int count = moves.getLegalCount(my.getEnergy());
 		
-		return array;
-	}
-	
-	private synchronized void merge(ActData[] a1,ActData[] a2,ActData[] a){
-		int i=0,j=0;
-		while(i<a1.length || j<a2.length){
-			if(j>=a2.length || (i<a1.length && a1[i].getDistance()<a2[j].getDistance())){
-				a[i+j].setMenber(a1[i]);
-				i++;
-			}
-			else{
-				a[i+j].setMenber(a2[j]);
-				j++;
-			}
+		// the usable actions depend only on their number, so myAct is rebuilt only when it changes
+		if(moves != myMoves || count != myLegalCount){
+			moves.copyTo(count, myAct);
+			myMoves = moves;
+			myLegalCount = count;
 		}
 	}
-
-	private synchronized void mergeSort(ActData[] a){
-		if(a.length>1){
-			int m=a.length/2;
-			int n=a.length-m;
-			ActData[] a1=new ActData[m];
-			ActData[] a2=new ActData[n];
-			for(int i=0;i<m;i++) a1[i] = new ActData(a[i]);
-			for(int i=0;i<n;i++) a2[i] = new ActData(a[m+i]);
-			mergeSort(a1);
-			mergeSort(a2);
-			merge(a1,a2,a);
-		}
-	}
-
-	private synchronized void sort(ActData[] a){
-		mergeSort(a);
-	}
 	
-	private synchronized void setMyAct(){
-		if(my.getState() == State.AIR) myAct = A_Act;
-		else myAct = G_Act;		
-	}
-	
-	private synchronized void setOppAct(ActData[] array,int threshold){
+	private synchronized void setOppAct(Action[] nearest,int[] frames,int threshold){
 		Action[] subAct = Action.values();
 		int max = 1;
 		
 		for(int i = 0 ; i < threshold ; i++){
-			checkAct[array[i].getAct().ordinal()] ++;
+			checkAct[nearest[i].ordinal()] += getRecencyWeight(frames[i]);
 		}
 		
 		for(int i = 0 ; i < EnumSet.allOf(Action.class).size() ; i++){
@@ -452,59 +420,90 @@ public class JerryMizunoAI implements AIInterface {
 		}
 	}
 	
-	private synchronized Deque<ActData> getOppAttackData(){
-		switch(pos){
-		case Air_Air: return oppActData_AA;
-		case Air_Ground: return oppActData_AG;
-		case Ground_Air: return oppActData_GA;
-		case Ground_Ground: return oppActData_GG;
+	// the weight of an attack recorded at the frame, halving every RECENCY_HALF_LIFE frames and at least 1
+	private synchronized int getRecencyWeight(int frame){
+		if(RECENCY_HALF_LIFE <= 0) return 1;
+		return Math.max((int)Math.round(RECENCY_WEIGHT*Math.pow(0.5, (double)(frameCount - frame)/RECENCY_HALF_LIFE)), 1);
+	}
+	
+	private synchronized ActHistory getOppAttackHistory(){
+		return oppActHistory[pos.ordinal()];
+	}
+	
+	// load the histories of the previous matches against the opponent, or the ones built from replays, in the background, as the file can be large
+	private synchronized void loadOppActHistory(final ActHistoryFile source){
+		if(source == null) return;
+		historyLoading = true;
+		Thread loader = new Thread(new Runnable(){
+			@Override
+			public void run(){
+				ActHistory[] loaded = null;
+				try{
+					loaded = source.load(HISTORY_CAPACITY, K_DISTANCE, THRESHOLD);
+					if(loaded.length != Position.values().length) throw new IOException(source.getFile() + " has " + loaded.length + " histories, not " + Position.values().length);
+				}catch(IOException e){
+					System.out.println("opponent history: " + e);
+					loaded = null;
+				}finally{
+					setLoadedHistory(source, loaded);
+				}
+			}
+		}, "JerryMizunoAI history loader");
+		loader.setDaemon(true);
+		loader.start();
+	}
+	
+	// put the loaded histories before the attacks recorded since initialize(), or keep the file if it cannot be loaded
+	private synchronized void setLoadedHistory(ActHistoryFile source,ActHistory[] loaded){
+		if(loaded == null){
+			// saving over a file that cannot be loaded would lose the matches in it
+			if(historyFile != null && source.getFile().equals(historyFile.getFile())){
+				System.out.println("opponent history: " + source.getFile() + " is kept, the attacks of this match are not saved");
+				historyFile = null;
+			}
+		}else{
+			for(int i = 0 ; i < loaded.length ; i++){
+				loaded[i].addAll(oppActHistory[i]);
+				oppActHistory[i] = loaded[i];
+			}
+		}
+		historyLoading = false;
+		notifyAll();
+	}
+	
+	// save the histories once they are loaded, not to drop the previous matches
+	private synchronized void saveOppActHistory(){
+		try{
+			while(historyLoading) wait();
+			if(historyFile == null) return;
+			historyFile.save(oppActHistory, frameCount);
+		}catch(InterruptedException e){
+			System.out.println("opponent history: not saved, interrupted while loading");
+		}catch(IOException e){
+			System.out.println("opponent history: " + e);
 		}
-		return oppActData_GG;
 	}
 	
-	private synchronized void setOppAttackData(ActData act){
-		switch(pos){
-		case Air_Air: oppActData_AA.add(act); break;
-		case Air_Ground: oppActData_AG.add(act); break;
-		case Ground_Air: oppActData_GA.add(act); break;
-		case Ground_Ground :oppActData_GG.add(act);break;
+	private synchronized void clearOppActHistory(){
+		for(ActHistory history : oppActHistory){
+			history.clear();
 		}
 	}
 	
+	private synchronized void setOppAttackData(int x, int y, Action act){
+		oppActHistory[pos.ordinal()].add(x, y, act, frameCount);
+	}
+	
 	private synchronized void setAirGroundAction(){
-		this.G_Act = new LinkedList<Action>();
-		this.A_Act = new LinkedList<Action>();
-		
-		G_Act.add(Action.CROUCH_GUARD);
-		G_Act.add(Action.CROUCH_FA);
-		G_Act.add(Action.CROUCH_FB);
-		G_Act.add(Action.STAND_FA);
-		G_Act.add(Action.CROUCH_A);
-		G_Act.add(Action.CROUCH_B);
-		G_Act.add(Action.STAND_A);
-		G_Act.add(Action.STAND_B);
-		G_Act.add(Action.THROW_B);
-		G_Act.add(Action.THROW_A);
-		G_Act.add(Action.FOR_JUMP);
-		G_Act.add(Action.JUMP);
-		G_Act.add(Action.BACK_STEP);
-		G_Act.add(Action.STAND_D_DF_FA);
-		G_Act.add(Action.STAND_D_DF_FB);
-		G_Act.add(Action.STAND_F_D_DFA);
-		G_Act.add(Action.STAND_F_D_DFB);
-		G_Act.add(Action.STAND_D_DB_BA);
-		G_Act.add(Action.STAND_D_DB_BB);
-		G_Act.add(Action.STAND_D_DF_FC);
-
-		A_Act.add(Action.AIR_GUARD);
-		A_Act.add(Action.AIR_A);
-		A_Act.add(Action.AIR_DA);
-		A_Act.add(Action.AIR_FA);
-		A_Act.add(Action.AIR_UA);
-		A_Act.add(Action.AIR_D_DF_FA);
-		A_Act.add(Action.AIR_F_D_DFA);
-		A_Act.add(Action.AIR_D_DB_BA);	
-		
+		G_Act = myActionSpace.compile(myActionSpace.getGround(),
+				Action.CROUCH_GUARD, Action.CROUCH_FA, Action.CROUCH_FB, Action.STAND_FA, Action.CROUCH_A,
+				Action.CROUCH_B, Action.STAND_A, Action.STAND_B, Action.THROW_B, Action.THROW_A,
+				Action.FOR_JUMP, Action.JUMP, Action.BACK_STEP, Action.STAND_D_DF_FA, Action.STAND_D_DF_FB,
+				Action.STAND_F_D_DFA, Action.STAND_F_D_DFB, Action.STAND_D_DB_BA, Action.STAND_D_DB_BB,
+				Action.STAND_D_DF_FC);
+		A_Act = myActionSpace.compile(myActionSpace.getAir(),
+				Action.AIR_GUARD, Action.AIR_A, Action.AIR_DA, Action.AIR_FA, Action.AIR_UA, Action.AIR_D_DF_FA,
+				Action.AIR_F_D_DFA, Action.AIR_D_DB_BA);
 	}
 	
 	@Override
@@ -0,0 +1,158 @@
+package support;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import enumerate.Action;
+
+/**
+ * A file keeping the opponent's attack histories of every Position between matches (data/aiData/[AI]/[opponent AI]_[character].dat).<br>
+ * The file starts with a magic number, the number of actions and the number of histories.
+ * Each history follows as its size and its columns, oldest first: x and y as shorts, the action ordinals as bytes and the ages as ints.<br>
+ * The age of an attack is the frames from it to the end of the match it was recorded in, so the loaded attacks are older than any of the current match.<br>
+ * Only opponents whose AI is known have a file of their own, as the attacks of different unknown AIs would be mixed in one.<br>
+ * The histories built from replays by ReplayHistoryBuilder are kept in the same format under data/aiData/replays.
+ */
+public class ActHistoryFile {
+	private static final int MAGIC = 0x4d5a4148;
+	private static final int HEADER_SIZE = 12;
+	/** the bytes of one attack in the columns*/
+	private static final int ATTACK_SIZE = 2 + 2 + 1 + 4;
+
+	/** the directory in data/aiData the histories built from replays are kept in, and the AI name of the histories of every AI playing a character*/
+	public static final String REPLAY_AI = "replays";
+	public static final String ANY_AI = "any";
+
+	private final File file;
+
+	public ActHistoryFile(File file){
+		this.file = file;
+	}
+
+	/**
+	 * Returns the file of the AI for the opponent, the names being made safe for a file name.
+	 * @param opponentAiName the AI name of the opponent, not null
+	 */
+	public static File getFile(String aiName, String opponentAiName, String opponentCharacterName){
+		if(opponentAiName == null) throw new IllegalArgumentException("no file for an unknown opponent AI");
+		return new File("data/aiData/" + aiName, toFileName(opponentAiName) + "_" + toFileName(opponentCharacterName) + ".dat");
+	}
+
+	/**
+	 * Returns the file the history against the opponent starts from: the one the AI saved if there is,
+	 * or else the one built from the replays of the opponent, or of any AI playing the character.
+	 * @param opponentAiName the AI name of the opponent, or null if it is not known, for which only the replays of any AI are used
+	 * @return null if there is no file
+	 */
+	public static ActHistoryFile find(String aiName, String opponentAiName, String opponentCharacterName){
+		File[] files = opponentAiName == null ? new File[]{getFile(REPLAY_AI, ANY_AI, opponentCharacterName)}
+				: new File[]{getFile(aiName, opponentAiName, opponentCharacterName),
+				getFile(REPLAY_AI, opponentAiName, opponentCharacterName), getFile(REPLAY_AI, ANY_AI, opponentCharacterName)};
+		for(File file : files){
+			if(file.isFile()) return new ActHistoryFile(file);
+		}
+		return null;
+	}
+
+	private static String toFileName(String name){
+		return name.replaceAll("[^A-Za-z0-9._-]", "_");
+	}
+
+	/**
+	 * Returns the AI name of the opponent, or null if it is not known.<br>
+	 * The game does not give it to the AIs, so it is taken from the --a1 and --a2 arguments of the game's command line, which the JVM keeps in sun.java.command.
+	 * @param player the player of the AI asking, P1 being true
+	 */
+	public static String getOpponentAiName(boolean player){
+		String command = System.getProperty("sun.java.command");
+		if(command == null) return null;
+		String[] arguments = command.trim().split("\\s+");
+		String option = player ? "--a2" : "--a1";
+		for(int i = 0 ; i < arguments.length - 1 ; i++){
+			if(arguments[i].equals(option)) return arguments[i+1];
+		}
+		return null;
+	}
+
+	public File getFile(){
+		return file;
+	}
+
+	public boolean exists(){
+		return file.isFile();
+	}
+
+	/**
+	 * Writes the histories, replacing the file only once they are all written.
+	 * @param frame the current frame, which the ages of the attacks are counted to
+	 */
+	public void save(ActHistory[] histories, int frame) throws IOException{
+		File directory = file.getAbsoluteFile().getParentFile();
+		if(!directory.isDirectory() && !directory.mkdirs()) throw new IOException("cannot create " + directory);
+		File temp = new File(directory, file.getName() + ".tmp");
+
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+		try{
+			output.writeInt(MAGIC);
+			output.writeInt(Action.values().length);
+			output.writeInt(histories.length);
+			for(ActHistory history : histories){
+				int size = history.size();
+				output.writeInt(size);
+				for(int i = 0 ; i < size ; i++) output.writeShort(toShort(history.getX(i)));
+				for(int i = 0 ; i < size ; i++) output.writeShort(toShort(history.getY(i)));
+				for(int i = 0 ; i < size ; i++) output.writeByte(history.getAction(i).ordinal());
+				for(int i = 0 ; i < size ; i++) output.writeInt(frame - history.getFrame(i));
+			}
+		}finally{
+			output.close();
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static short toShort(int value){
+		return (short)Math.max(Short.MIN_VALUE, Math.min(value, Short.MAX_VALUE));
+	}
+
+	/**
+	 * Reads the histories from the file, into histories of the capacity given.
+	 * A history longer than the capacity keeps its newest attacks, and the older ones are skipped.<br>
+	 * The file is read at once and closed before the histories are built, so save() can replace it.
+	 * @return the histories with the frames of the attacks set to minus their ages
+	 * @throws IOException if the file cannot be read or was not written by save() for the same actions and histories
+	 */
+	public ActHistory[] load(int capacity, int radius, int depth) throws IOException{
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+
+		if(buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) throw new IOException(file + " is not an attack history file");
+		Action[] actions = Action.values();
+		if(buffer.getInt() != actions.length) throw new IOException(file + " was written for other actions");
+		int historyNumber = buffer.getInt();
+		if(historyNumber < 0 || historyNumber > 64) throw new IOException(file + " has " + historyNumber + " histories");
+		ActHistory[] histories = new ActHistory[historyNumber];
+
+		for(int h = 0 ; h < histories.length ; h++){
+			if(buffer.remaining() < 4) throw new IOException(file + " is cut off");
+			int size = buffer.getInt();
+			if(size < 0 || (long)size*ATTACK_SIZE > buffer.remaining()) throw new IOException(file + " is cut off");
+
+			// the columns are read in place, and the attacks older than the capacity are skipped
+			int start = buffer.position();
+			int first = Math.max(size - capacity, 0);
+			histories[h] = new ActHistory(capacity, radius, depth);
+			for(int i = first ; i < size ; i++){
+				int action = buffer.get(start + 4*size + i);
+				if(action < 0 || action >= actions.length) throw new IOException(file + " has an unknown action " + action);
+				histories[h].add(buffer.getShort(start + 2*i), buffer.getShort(start + 2*size + 2*i), actions[action], -buffer.getInt(start + 5*size + 4*i));
+			}
+			buffer.position(start + ATTACK_SIZE*size);
+		}
+		return histories;
+	}
+}
@@ -0,0 +1,160 @@
+package support;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Vector;
+
+import structs.MotionData;
+import enumerate.Action;
+
+/**
+ * Action classes and energy costs of one character, compiled once from its MotionTable.<br>
+ * Ground, air and attack actions are kept as BitSets indexed by Action ordinal.<br>
+ * Candidate actions are compiled into Moves, whose costs are also kept sorted, so the usable ones are found by one binary search.
+ */
+public class ActionSpace {
+	/** actions the game enters by itself, which cannot be input*/
+	private static final EnumSet<Action> REACTIONS = EnumSet.of(Action.AIR,
+			Action.STAND_GUARD_RECOV, Action.CROUCH_GUARD_RECOV, Action.AIR_GUARD_RECOV,
+			Action.STAND_RECOV, Action.CROUCH_RECOV, Action.AIR_RECOV, Action.CHANGE_DOWN, Action.DOWN,
+			Action.RISE, Action.LANDING, Action.THROW_HIT, Action.THROW_SUFFER);
+	
+	private static final Action[] ACTIONS = Action.values();
+	
+	/** energy cost indexed by ordinal, the energy the action needs to be performed (a start energy gain costs nothing)*/
+	private final int[] energyCost;
+	/** motion frame number indexed by ordinal*/
+	private final int[] frameNumber;
+	/** actions that can be input on the ground*/
+	private final BitSet ground;
+	/** actions that can be input in the air*/
+	private final BitSet air;
+	/** actions that have an attack hit box*/
+	private final BitSet attack;
+	
+	public ActionSpace(Vector<MotionData> motion){
+		this(new MotionTable(motion));
+	}
+	
+	public ActionSpace(MotionTable motion){
+		this.energyCost = new int[ACTIONS.length];
+		this.frameNumber = new int[ACTIONS.length];
+		this.ground = new BitSet(ACTIONS.length);
+		this.air = new BitSet(ACTIONS.length);
+		this.attack = new BitSet(ACTIONS.length);
+		
+		for(Action action : ACTIONS){
+			int i = action.ordinal();
+			if(!motion.defined[i]) continue;
+			
+			energyCost[i] = Math.max(-motion.attackStartAddEnergy[i], 0);
+			frameNumber[i] = motion.frameNumber[i];
+			
+			if(motion.attackHitDamage[i] > 0) attack.set(i);
+			// the game accepts AIR_ actions only in the air, and the others only on the ground
+			if(!REACTIONS.contains(action)){
+				if(action.name().startsWith("AIR_")) air.set(i);
+				else ground.set(i);
+			}
+		}
+	}
+	
+	public boolean isGround(Action action){
+		return ground.get(action.ordinal());
+	}
+	
+	public boolean isAir(Action action){
+		return air.get(action.ordinal());
+	}
+	
+	public boolean isAttack(Action action){
+		return attack.get(action.ordinal());
+	}
+	
+	public BitSet getGround(){
+		return (BitSet) ground.clone();
+	}
+	
+	public BitSet getAir(){
+		return (BitSet) air.clone();
+	}
+	
+	public BitSet getAttack(){
+		return (BitSet) attack.clone();
+	}
+	
+	public int getEnergyCost(Action action){
+		return energyCost[action.ordinal()];
+	}
+	
+	public int getFrameNumber(Action action){
+		return frameNumber[action.ordinal()];
+	}
+	
+	/** keep the candidates in the given class, in the candidate order*/
+	public Moves compile(BitSet actionClass, Action... candidates){
+		Action[] actions = new Action[candidates.length];
+		int[] costs = new int[candidates.length];
+		int size = 0;
+		
+		for(Action action : candidates){
+			if(!actionClass.get(action.ordinal())) continue;
+			
+			actions[size] = action;
+			costs[size] = energyCost[action.ordinal()];
+			size++;
+		}
+		
+		return new Moves(actions, costs, size);
+	}
+	
+	/** actions in the candidate order, with their energy costs also sorted for the binary search*/
+	public static class Moves {
+		private final Action[] actions;
+		private final int[] costs;
+		private final int[] sortedCosts;
+		private final int size;
+		
+		private Moves(Action[] actions, int[] costs, int size){
+			this.actions = actions;
+			this.costs = costs;
+			this.sortedCosts = Arrays.copyOf(costs, size);
+			Arrays.sort(sortedCosts);
+			this.size = size;
+		}
+		
+		/** return the number of actions usable with the given energy*/
+		public int getLegalCount(int energy){
+			int low = 0;
+			int high = size;
+			while(low < high){
+				int mid = (low + high) >>> 1;
+				if(sortedCosts[mid] <= energy) low = mid + 1;
+				else high = mid;
+			}
+			return low;
+		}
+		
+		/** clear out and add the count cheapest actions to it in the candidate order, count being given by getLegalCount()*/
+		public void copyTo(int count, Collection<? super Action> out){
+			out.clear();
+			if(count == 0) return;
+			
+			// the count cheapest actions are all the ones costing at most the count-th cost
+			int limit = sortedCosts[count-1];
+			for(int i = 0 ; i < size ; i++){
+				if(costs[i] <= limit) out.add(actions[i]);
+			}
+		}
+		
+		public Action get(int index){
+			return actions[index];
+		}
+		
+		public int size(){
+			return size;
+		}
+	}
+}
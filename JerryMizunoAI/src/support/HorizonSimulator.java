@@ -0,0 +1,103 @@
+package support;
+
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Vector;
+
+import simulator.SimFighting;
+import structs.CharacterData;
+import structs.FrameData;
+import structs.GameData;
+import structs.KeyData;
+import structs.MotionData;
+import enumerate.Action;
+import fighting.Attack;
+
+/**
+ * Simulator for the round robin, which stops as soon as the exchange is over.<br>
+ * Once both inputs are consumed, no attack or projectile remains and both characters are in a controllable motion without an attack,
+ * no hit can occur any more, so the HP difference after the remaining frames is already known.<br>
+ * The toolkit's SimFighting only shows its state through getFrameData(), which costs about half a simulated frame,
+ * so the state is checked every QUIESCENCE_INTERVAL frames once the inputs are consumed.
+ */
+public class HorizonSimulator {
+	private static final int QUIESCENCE_INTERVAL = 4;
+
+	private final GameData gameData;
+	private final boolean player;
+	/** the actions of P1 and P2 that have an attack hit box*/
+	private final BitSet[] attackActions;
+
+	private FrameData frameData;
+	/** passed to getFrameData(), which does not accept null*/
+	private KeyData keyData;
+	private int myOriginalHp;
+	private int oppOriginalHp;
+
+	/** the number of frames not simulated thanks to the early stop*/
+	private long skippedFrames;
+
+	public HorizonSimulator(GameData gameData, boolean player){
+		this.gameData = gameData;
+		this.player = player;
+		this.attackActions = new BitSet[]{getAttackActions(gameData.getPlayerOneMotion()), getAttackActions(gameData.getPlayerTwoMotion())};
+	}
+
+	/** the actions whose motion deals damage, as ActionSpace.isAttack()*/
+	private static BitSet getAttackActions(Vector<MotionData> motion){
+		BitSet attack = new BitSet(Action.values().length);
+		for(int i = 0 ; i < motion.size() ; i++){
+			if(motion.elementAt(i) != null && motion.elementAt(i).getAttackHitDamage() > 0) attack.set(i);
+		}
+		return attack;
+	}
+
+	/** set the FrameData the simulations start from, and the HP the evaluation value is relative to*/
+	public void setFrameData(FrameData frameData, CharacterData my, CharacterData opp){
+		// SimFighting takes the projectiles out and puts them back, so simulate on a copy
+		this.frameData = new FrameData(frameData);
+		this.keyData = this.frameData.getKeyData();
+		this.myOriginalHp = my.getHp();
+		this.oppOriginalHp = opp.getHp();
+	}
+
+	/** simulate for up to limit frames and return the difference of two character's HP changes. The actions are consumed like Simulator.simulate()*/
+	public int simulate(Deque<Action> myAction, Deque<Action> oppAction, int limit){
+		SimFighting fighting = new SimFighting(gameData, frameData, player, myAction, oppAction);
+		int frameNumber = frameData.getFrameNumber();
+		int idle = 0;
+		for(int i = 0 ; i < limit ; i++){
+			fighting.processingFight(frameNumber + i);
+			if(myAction.isEmpty() && oppAction.isEmpty() && ++idle % QUIESCENCE_INTERVAL == 0 && i + 1 < limit){
+				FrameData state = fighting.getFrameData(frameData.getRemainingTime(), keyData);
+				if(isQuiescent(state)){
+					skippedFrames += limit - 1 - i;
+					return getScore(state);
+				}
+			}
+		}
+		return getScore(fighting.getFrameData(frameData.getRemainingTime(), keyData));
+	}
+
+	private boolean isQuiescent(FrameData state){
+		CharacterData[] characters = {state.getP1(), state.getP2()};
+		for(int i = 0 ; i < characters.length ; i++){
+			if(!characters[i].isControl() || isDamaging(characters[i].getAttack()) || attackActions[i].get(characters[i].getAction().ordinal())) return false;
+		}
+		return state.getAttack().isEmpty();
+	}
+
+	/** the characters copied by getFrameData() keep the empty attack of a motion without one, which cannot change the HP*/
+	private static boolean isDamaging(Attack attack){
+		return attack != null && (attack.getHitDamage() != 0 || attack.getGuardDamage() != 0);
+	}
+
+	private int getScore(FrameData state){
+		int p1Hp = state.getP1().getHp(), p2Hp = state.getP2().getHp();
+		return player ? (p1Hp - myOriginalHp) - (p2Hp - oppOriginalHp) : (p2Hp - myOriginalHp) - (p1Hp - oppOriginalHp);
+	}
+
+	public long getSkippedFrames(){
+		return skippedFrames;
+	}
+}
@@ -0,0 +1,132 @@
+package support;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import structs.CharacterData;
+import structs.FrameData;
+import structs.GameData;
+import enumerate.Action;
+
+/**
+ * The round robin of my actions against the opponent's actions predicted by k-nn, simulated by HorizonSimulator.<br>
+ * With more than one thread the pairs are spread over a fixed pool, in blocks of the sequential order, and every thread simulates with a HorizonSimulator of its own.
+ * A pair is simulated the same way whichever thread simulates it, so the evaluation values are the same as the sequential ones.<br>
+ * If the calling thread is interrupted while waiting for the pool, the pool is given up and the round robin goes on sequentially,
+ * since the tasks cancelled may still be running on the simulators of the pool.
+ */
+public class RoundRobin {
+	/** the simulator of the calling thread, for sequential simulation*/
+	private final HorizonSimulator simulator;
+	/** a simulator for each thread of the pool, and the pool, null for sequential simulation*/
+	private HorizonSimulator[] workers;
+	private ExecutorService executor;
+
+	/**
+	 * @param threads the threads, 1 or less for sequential simulation
+	 */
+	public RoundRobin(GameData gameData, boolean player, int threads){
+		simulator = new HorizonSimulator(gameData, player);
+		if(threads <= 1) return;
+
+		workers = new HorizonSimulator[threads];
+		for(int i = 0 ; i < workers.length ; i++) workers[i] = new HorizonSimulator(gameData, player);
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory(){
+			@Override
+			public Thread newThread(Runnable runnable){
+				// the pool must not keep the game running after the AI is closed
+				Thread thread = new Thread(runnable, "JerryMizunoAI round robin");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/** set the FrameData the simulations start from, and the HP the evaluation values are relative to*/
+	public void setFrameData(FrameData frameData, CharacterData my, CharacterData opp){
+		simulator.setFrameData(frameData, my, opp);
+		if(workers == null) return;
+		for(HorizonSimulator worker : workers) worker.setFrameData(frameData, my, opp);
+	}
+
+	/**
+	 * Simulates every pair of my actions and the opponent's actions for up to limit frames.
+	 * @return result[i][j] is the evaluation value of myActions[i] against oppActions[j]
+	 */
+	public int[][] simulate(Action[] myActions, Action[] oppActions, final int limit){
+		final int[][] result = new int[myActions.length][oppActions.length];
+		int pairs = myActions.length * oppActions.length;
+		if(executor == null || pairs < 2){
+			simulate(simulator, myActions, oppActions, 0, pairs, limit, result);
+			return result;
+		}
+
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		int blocks = Math.min(workers.length, pairs);
+		for(int k = 0 ; k < blocks ; k++){
+			final HorizonSimulator worker = workers[k];
+			final int from = (int)((long)pairs * k / blocks);
+			final int to = (int)((long)pairs * (k + 1) / blocks);
+			final Action[] my = myActions;
+			final Action[] opp = oppActions;
+			tasks.add(new Callable<Void>(){
+				@Override
+				public Void call(){
+					simulate(worker, my, opp, from, to, limit, result);
+					return null;
+				}
+			});
+		}
+		try{
+			for(Future<Void> future : executor.invokeAll(tasks)) future.get();
+		}catch(InterruptedException e){
+			// the game thread is being stopped. The tasks cancelled may still be simulating on the workers and writing to result,
+			// so the pool is given up and the pairs are simulated here into a result of their own
+			Thread.currentThread().interrupt();
+			close();
+			int[][] own = new int[myActions.length][oppActions.length];
+			simulate(simulator, myActions, oppActions, 0, pairs, limit, own);
+			return own;
+		}catch(ExecutionException e){
+			if(e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			if(e.getCause() instanceof Error) throw (Error) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+		return result;
+	}
+
+	/** the number of frames the simulator of the calling thread did not simulate thanks to the early stop*/
+	public long getSkippedFrames(){
+		return simulator.getSkippedFrames();
+	}
+
+	/** simulate the pairs from the from-th to the to-th, counting the pairs of myActions[0] as the first ones*/
+	private static void simulate(HorizonSimulator simulator, Action[] myActions, Action[] oppActions, int from, int to, int limit, int[][] result){
+		Deque<Action> myAction = new LinkedList<Action>();
+		Deque<Action> oppAction = new LinkedList<Action>();
+		for(int pair = from ; pair < to ; pair++){
+			int i = pair / oppActions.length;
+			int j = pair % oppActions.length;
+			myAction.clear();
+			myAction.add(myActions[i]);
+			oppAction.clear();
+			oppAction.add(oppActions[j]);
+			result[i][j] = simulator.simulate(myAction, oppAction, limit);
+		}
+	}
+
+	/** stop the threads, the round robin being sequential from then on*/
+	public void close(){
+		if(executor != null) executor.shutdownNow();
+		executor = null;
+		workers = null;
+	}
+}
@@ -0,0 +1,202 @@
+package support;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.Random;
+import java.util.Vector;
+
+import structs.CharacterData;
+import structs.FrameData;
+import structs.GameData;
+import structs.Key;
+import structs.KeyData;
+import enumerate.Action;
+import enumerate.State;
+import fighting.Attack;
+
+/**
+ * Checks that the sequential round robin, which stops the simulations early, gives the evaluation values of the toolkit's Simulator over all the frames,
+ * and that the round robin spread over several threads gives the values of the sequential one, for both players.<br>
+ * A round robin whose thread is interrupted while waiting for its pool has to give the sequential values too, and keep giving them without the pool.<br>
+ * The states are reached by the simulator of AIToolKit from characters standing at random positions, so they have characters in the air,
+ * in the middle of actions and under attacks. GameData and CharacterData can only be made by the game, so their fields are set on instances made without a constructor.<br>
+ * It is run from the project directory with the classes of src and test, AIToolKit.jar and the game's libraries on the class path:
+ * java support.RoundRobinCheck. Motion.csv is read from ../FightingICE/data, or from the directory of the system property jerrymizunoai.test.data.
+ */
+public class RoundRobinCheck {
+	private static final String[] CHARACTERS = {"ZEN", "GARNET", "LUD"};
+	private static final int[] THREADS = {2, 3, 5};
+	private static final int LIMIT = 60;
+	private static final Action[] ACTIONS = Action.values();
+
+	public static void main(String[] args) throws Exception{
+		Random random = new Random(25);
+		File data = new File(System.getProperty("jerrymizunoai.test.data", "../FightingICE/data"));
+		int states = 0, rounds = 0, interrupted = 0, abandonedPools = 0, damaging = 0;
+		long skipped = 0;
+		for(String playerOne : CHARACTERS){
+			for(String playerTwo : CHARACTERS){
+				GameData gameData = createGameData(data, playerOne, playerTwo);
+				for(int side = 0 ; side < 2 ; side++){
+					boolean player = side == 0;
+					RoundRobin sequential = new RoundRobin(gameData, player, 1);
+					RoundRobin[] parallel = new RoundRobin[THREADS.length];
+					for(int i = 0 ; i < parallel.length ; i++) parallel[i] = new RoundRobin(gameData, player, THREADS[i]);
+					// given up after the first interrupt, so sequential for the rest of the states
+					RoundRobin abandoned = new RoundRobin(gameData, player, 4);
+					boolean pooled = true;
+
+					for(int n = 0 ; n < 10 ; n++){
+						FrameData frameData = createState(gameData, random);
+						CharacterData my = player ? frameData.getP1() : frameData.getP2();
+						CharacterData opp = player ? frameData.getP2() : frameData.getP1();
+						states++;
+						Action[] myActions = pick(random, 1 + random.nextInt(20));
+						Action[] oppActions = pick(random, 1 + random.nextInt(4));
+						sequential.setFrameData(frameData, my, opp);
+						int[][] expected = sequential.simulate(myActions, oppActions, LIMIT);
+						for(int[] row : expected) for(int value : row) if(value != 0) damaging++;
+
+						for(int i = 0 ; i < parallel.length ; i++){
+							parallel[i].setFrameData(frameData, my, opp);
+							check(playerOne + " vs " + playerTwo + " P" + (player ? 1 : 2) + " on " + THREADS[i] + " threads", expected, parallel[i].simulate(myActions, oppActions, LIMIT));
+							rounds++;
+						}
+
+						abandoned.setFrameData(frameData, my, opp);
+						// the first round robin of several pairs is interrupted while the pool simulates it
+						boolean interrupt = (pooled && myActions.length * oppActions.length >= 2) || random.nextInt(4) == 0;
+						if(interrupt && pooled && myActions.length * oppActions.length >= 2){
+							pooled = false;
+							abandonedPools++;
+						}
+						if(interrupt) Thread.currentThread().interrupt();
+						int[][] values = abandoned.simulate(myActions, oppActions, LIMIT);
+						if(interrupt){
+							if(!Thread.interrupted()) fail("the round robin cleared the interrupt of its thread");
+							interrupted++;
+						}
+						check(playerOne + " vs " + playerTwo + " P" + (player ? 1 : 2) + (interrupt ? " interrupted" : pooled ? " on its pool" : " after its pool was given up"), expected, values);
+					}
+					skipped += sequential.getSkippedFrames();
+					sequential.close();
+					for(RoundRobin roundRobin : parallel) roundRobin.close();
+					abandoned.close();
+				}
+			}
+		}
+		if(abandonedPools == 0) fail("no pool was interrupted");
+		if(damaging == 0) fail("no pair dealt damage");
+		if(skipped == 0) fail("no simulation was stopped early");
+		System.out.println("OK: " + states + " states, " + rounds + " parallel round robins, " + interrupted + " interrupted ones (" + abandonedPools + " pools given up), " + damaging + " pairs dealing damage, " + skipped + " frames skipped by the sequential one");
+	}
+
+	/** the evaluation values of the round robin simulated by the toolkit's Simulator over all the frames*/
+	private static int[][] simulate(GameData gameData, FrameData frameData, boolean player, Action[] myActions, Action[] oppActions){
+		int myHp = (player ? frameData.getP1() : frameData.getP2()).getHp();
+		int oppHp = (player ? frameData.getP2() : frameData.getP1()).getHp();
+		int[][] values = new int[myActions.length][oppActions.length];
+		for(int i = 0 ; i < myActions.length ; i++){
+			for(int j = 0 ; j < oppActions.length ; j++){
+				Deque<Action> my = new LinkedList<Action>();
+				Deque<Action> opp = new LinkedList<Action>();
+				my.add(myActions[i]);
+				opp.add(oppActions[j]);
+				FrameData simulated = gameData.getSimulator().simulate(frameData, player, my, opp, LIMIT);
+				values[i][j] = (simulated.getMyCharacter(player).getHp() - myHp) - (simulated.getOpponentCharacter(player).getHp() - oppHp);
+			}
+		}
+		return values;
+	}
+
+	/** a state reached by the simulator of AIToolKit from two characters standing at random positions, with random inputs*/
+	private static FrameData createState(GameData gameData, Random random){
+		int x1 = 50 + random.nextInt(500);
+		int x2 = x1 + 60 + random.nextInt(350);
+		CharacterData one = createCharacter(x1, true, 300 + random.nextInt(100), random.nextInt(400));
+		CharacterData two = createCharacter(x2, false, 300 + random.nextInt(100), random.nextInt(400));
+		FrameData state = new FrameData(one, two, 60000, 1, new LinkedList<Attack>(), new KeyData(new Key[]{new Key(), new Key()}));
+		state = gameData.getSimulator().simulate(state, true, createInputs(random), createInputs(random), 8 + random.nextInt(40));
+		return new FrameData(state.getP1(), state.getP2(), 60000 - random.nextInt(50000), 1, state.getAttack(), state.getKeyData());
+	}
+
+	private static Deque<Action> createInputs(Random random){
+		Deque<Action> inputs = new LinkedList<Action>();
+		for(int i = random.nextInt(4) ; i >= 0 ; i--) inputs.add(ACTIONS[random.nextInt(ACTIONS.length)]);
+		return inputs;
+	}
+
+	private static GameData createGameData(File data, String playerOne, String playerTwo) throws Exception{
+		GameData gameData = allocate(GameData.class);
+		set(gameData, "stageXMax", 960);
+		set(gameData, "stageYMax", 640);
+		set(gameData, "playerOneMaxEnergy", 1000);
+		set(gameData, "playerTwoMaxEnergy", 1000);
+		set(gameData, "playerOneMotion", MotionTable.read(new File(data, "character/" + playerOne + "/Motion.csv")));
+		set(gameData, "playerTwoMotion", MotionTable.read(new File(data, "character/" + playerTwo + "/Motion.csv")));
+		set(gameData, "characterName", new String[]{playerOne, playerTwo});
+		ArrayList<Vector<?>> comboTable = new ArrayList<Vector<?>>();
+		comboTable.add(new Vector<Object>());
+		comboTable.add(new Vector<Object>());
+		set(gameData, "comboTable", comboTable);
+		set(gameData, "simulator", new simulator.Simulator(gameData));
+		return gameData;
+	}
+
+	/** a character standing still at x*/
+	private static CharacterData createCharacter(int x, boolean front, int hp, int energy){
+		CharacterData character = allocate(CharacterData.class);
+		set(character, "currentCombo", new Vector<Object>());
+		character.hp = hp;
+		character.energy = energy;
+		character.x = x;
+		character.y = 335;
+		character.front = front;
+		character.action = Action.STAND;
+		character.state = State.STAND;
+		character.remainingFrame = 10;
+		character.control = true;
+		return character;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T allocate(Class<T> type){
+		try{
+			Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			Object unsafe = field.get(null);
+			return (T) unsafe.getClass().getMethod("allocateInstance", Class.class).invoke(unsafe, type);
+		}catch(Exception e){
+			throw new UnsupportedOperationException("cannot create " + type.getName() + " outside the game", e);
+		}
+	}
+
+	private static void set(Object object, String name, Object value){
+		try{
+			Field field = object.getClass().getDeclaredField(name);
+			field.setAccessible(true);
+			field.set(object, value);
+		}catch(Exception e){
+			throw new UnsupportedOperationException("cannot set " + name + " of " + object.getClass().getName(), e);
+		}
+	}
+
+	private static void check(String name, int[][] expected, int[][] values){
+		if(!Arrays.deepEquals(expected, values)) fail(name + ": " + Arrays.deepToString(values) + " instead of " + Arrays.deepToString(expected));
+	}
+
+	private static Action[] pick(Random random, int count){
+		Action[] actions = new Action[count];
+		for(int i = 0 ; i < count ; i++) actions[i] = ACTIONS[random.nextInt(ACTIONS.length)];
+		return actions;
+	}
+
+	private static void fail(String message){
+		System.out.println("FAILED: " + message);
+		System.exit(1);
+	}
+}
@@ -0,0 +1,201 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Vector;
+
+import structs.MotionData;
+
+import enumerate.Action;
+
+/**
+ * キャラクターごとのActionの分類と消費エネルギー<br>
+ * initialize()で1度だけMotionDataから作り、地上・空中・攻撃のActionをordinalで引けるBitSetとして持つ<br>
+ * 候補のActionは候補の順のまま、消費エネルギーを並べ替えた配列と共にMovesにしておくので、使えるActionは二分探索1回で求まる
+ *
+ * @author Taichi Miyazaki
+ */
+public class ActionSpace {
+
+  /** ゲームが自動で遷移させるActionで、入力しても出せないもの */
+  private static final EnumSet<Action> REACTIONS = EnumSet.of(Action.AIR,
+      Action.STAND_GUARD_RECOV, Action.CROUCH_GUARD_RECOV, Action.AIR_GUARD_RECOV,
+      Action.STAND_RECOV, Action.CROUCH_RECOV, Action.AIR_RECOV, Action.CHANGE_DOWN, Action.DOWN,
+      Action.RISE, Action.LANDING, Action.THROW_HIT, Action.THROW_SUFFER);
+
+  private static final Action[] ACTIONS = Action.values();
+
+  /** 消費エネルギー(ordinalで引く) */
+  private final int[] energyCost;
+
+  /** モーションのフレーム数(ordinalで引く) */
+  private final int[] frameNumber;
+
+  /** 地上で出せるAction */
+  private final BitSet ground;
+
+  /** 空中で出せるAction */
+  private final BitSet air;
+
+  /** 攻撃判定を持つAction */
+  private final BitSet attack;
+
+  /**
+   * @param motion キャラクターのMotionData(GameData.getPlayerOneMotion()など)
+   */
+  public ActionSpace(Vector<MotionData> motion) {
+    this.energyCost = new int[ACTIONS.length];
+    this.frameNumber = new int[ACTIONS.length];
+    this.ground = new BitSet(ACTIONS.length);
+    this.air = new BitSet(ACTIONS.length);
+    this.attack = new BitSet(ACTIONS.length);
+
+    for (Action action : ACTIONS) {
+      int i = action.ordinal();
+      MotionData motionData = i < motion.size() ? motion.elementAt(i) : null;
+      if (motionData == null) {
+        continue;
+      }
+
+      energyCost[i] = Math.abs(motionData.getAttackStartAddEnergy());
+      frameNumber[i] = motionData.getFrameNumber();
+
+      if (motionData.getAttackHitDamage() > 0) {
+        attack.set(i);
+      }
+      // AIR_で始まるActionは空中でのみ、それ以外は地上でのみ出せる
+      if (!REACTIONS.contains(action)) {
+        if (action.name().startsWith("AIR_")) {
+          air.set(i);
+        } else {
+          ground.set(i);
+        }
+      }
+    }
+  }
+
+  public boolean isGround(Action action) {
+    return ground.get(action.ordinal());
+  }
+
+  public boolean isAir(Action action) {
+    return air.get(action.ordinal());
+  }
+
+  public boolean isAttack(Action action) {
+    return attack.get(action.ordinal());
+  }
+
+  public BitSet getGround() {
+    return (BitSet) ground.clone();
+  }
+
+  public BitSet getAir() {
+    return (BitSet) air.clone();
+  }
+
+  public BitSet getAttack() {
+    return (BitSet) attack.clone();
+  }
+
+  public int getEnergyCost(Action action) {
+    return energyCost[action.ordinal()];
+  }
+
+  public int getFrameNumber(Action action) {
+    return frameNumber[action.ordinal()];
+  }
+
+  /**
+   * 候補のActionのうち、分類に含まれるものを候補の順のまま取り出す
+   *
+   * @param actionClass 地上・空中などの分類(getGround()など)
+   * @param candidates 候補のAction
+   * @return 候補の順のAction
+   */
+  public Moves compile(BitSet actionClass, Action... candidates) {
+    Action[] actions = new Action[candidates.length];
+    int[] costs = new int[candidates.length];
+    int size = 0;
+
+    for (Action action : candidates) {
+      if (!actionClass.get(action.ordinal())) {
+        continue;
+      }
+
+      actions[size] = action;
+      costs[size] = energyCost[action.ordinal()];
+      size++;
+    }
+
+    return new Moves(actions, costs, size);
+  }
+
+  /**
+   * 候補の順のActionと、二分探索のために並べ替えた消費エネルギー
+   */
+  public static class Moves {
+
+    private final Action[] actions;
+    private final int[] costs;
+    private final int[] sortedCosts;
+    private final int size;
+
+    private Moves(Action[] actions, int[] costs, int size) {
+      this.actions = actions;
+      this.costs = costs;
+      this.sortedCosts = Arrays.copyOf(costs, size);
+      Arrays.sort(sortedCosts);
+      this.size = size;
+    }
+
+    /**
+     * 今のエネルギーで出せるActionの数を返す
+     *
+     * @param energy 今のエネルギー
+     * @return 出せるActionの数
+     */
+    public int getLegalCount(int energy) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (sortedCosts[mid] <= energy) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * 消費エネルギーが少ない方からcount個のActionを、候補の順でoutに設定する
+     *
+     * @param count 設定するActionの数(getLegalCount()が返したもの)
+     * @param out 設定先(中身は消される)
+     */
+    public void copyTo(int count, Collection<? super Action> out) {
+      out.clear();
+      if (count == 0) {
+        return;
+      }
+
+      // 少ない方からcount個のActionは、count番目の消費エネルギー以下のAction全て
+      int limit = sortedCosts[count - 1];
+      for (int i = 0; i < size; i++) {
+        if (costs[i] <= limit) {
+          out.add(actions[i]);
+        }
+      }
+    }
+
+    public Action get(int index) {
+      return actions[index];
+    }
+
+    public int size() {
+      return size;
+    }
+  }
+}
@@ -3,14 +3,12 @@ import enumerate.State;
 import gameInterface.AIInterface;
 
 import java.util.LinkedList;
-import java.util.Vector;
 
 import simulator.Simulator;
 import structs.CharacterData;
 import structs.FrameData;
 import structs.GameData;
 import structs.Key;
-import structs.MotionData;
 
 import commandcenter.CommandCenter;
 
@@ -48,23 +46,88 @@ public class MctsAi implements AIInterface {
   
   private static final int FRAME_AHEAD = 14;
 
-  private Vector<MotionData> myMotion;
-
-  private Vector<MotionData> oppMotion;
-
   private Action[] actionAir;
 
   private Action[] actionGround;
 
   private Action spSkill;
 
-  private Node rootNode;
+  /** 自分のActionの分類と消費エネルギー */
+  private ActionSpace myActionSpace;
+
+  /** 相手のActionの分類と消費エネルギー */
+  private ActionSpace oppActionSpace;
+
+  /** 空中・地上で選択できるAction(出せるものは消費エネルギーから求める) */
+  private ActionSpace.Moves myAirMoves;
+  private ActionSpace.Moves myGroundMoves;
+  private ActionSpace.Moves oppAirMoves;
+  private ActionSpace.Moves oppGroundMoves;
+
+  /** myActions・oppActionsに設定しているActionの並びと数 */
+  private ActionSpace.Moves myMoves;
+  private int myLegalCount;
+  private ActionSpace.Moves oppMoves;
+  private int oppLegalCount;
+
+  /** ルート並列化したMCTS */
+  private RootParallelMcts rootParallelMcts;
+
+  /** 木並列化したMCTS */
+  private TreeParallelMcts treeParallelMcts;
+
+  /** フレームごとの探索時間を決める */
+  private TimeManager timeManager;
+
+  /** 専用のスレッドで探索を続けるMCTS(先読みしないときはnull) */
+  private Ponderer ponderer;
+
+  /** UCTの実行時間 */
+  public static final int UCT_TIME = 165 * 100000;
+
+  /** UCB1の定数Cの値 */
+  public static final double UCB_C = 3;
+
+  /** 探索する木の深さ */
+  public static final int UCT_TREE_DEPTH = 2;
+
+  /** ノードを生成する閾値 */
+  public static final int UCT_CREATE_NODE_THRESHOULD = 10;
+
+  /** シミュレーションを行う最大の時間(`-Dmctsai.horizon=N`で指定、決着が付いた時点で打ち切る) */
+  public static final int SIMULATION_TIME = Integer.getInteger("mctsai.horizon", 60);
+
+  /** 再利用する木の探索を始める状態が変わったときに、統計量に掛ける割引率 */
+  public static final double UCT_REUSE_DISCOUNT = 0.5;
+
+  /** 探索に利用するスレッド数(1ならシングルスレッドで探索する) */
+  public static final int UCT_THREAD_NUMBER = Integer.getInteger("mctsai.threads", Runtime
+      .getRuntime().availableProcessors());
+
+  /** 並列化の方法("root"ならルート並列化、"tree"なら木並列化) */
+  public static final String UCT_PARALLEL_MODE = System.getProperty("mctsai.parallel", "root");
+
+  /** ルート並列化したMCTSで共有するパスの統計量のキャッシュのエントリの数(0ならキャッシュを使わない) */
+  public static final int UCT_CACHE_SIZE = Integer.getInteger("mctsai.cachesize", 1 << 16);
+
+  /** 専用のスレッドで探索を続けるか(processing()では探索せず、最善のActionを読むだけにする) */
+  public static final boolean PONDER_MODE = Boolean.getBoolean("mctsai.ponder");
 
  
   public static final boolean DEBUG_MODE = false;
 
   @Override
-  public void close() {}
+  public void close() {
+    if (ponderer != null) {
+      ponderer.shutdown();
+    }
+    if (rootParallelMcts != null) {
+      rootParallelMcts.shutdown();
+    }
+    if (treeParallelMcts != null) {
+      treeParallelMcts.shutdown();
+    }
+  }
 
   @Override
   public String getCharacter() {
@@ -73,10 +136,15 @@ public class MctsAi implements AIInterface {
 
   @Override
   public void getInformation(FrameData frameData) {
+    timeManager.startFrame();
+
     this.frameData = frameData;
     this.commandCenter.setFrameData(this.frameData, playerNumber);
 
-    if (playerNumber) {
+    if (ponderer != null) {
+      // キャラクターの情報は探索のスレッドが予測した状態から求めるので、ここでは渡すだけにする
+      ponderer.setFrameData(frameData);
+    } else if (playerNumber) {
       myCharacter = frameData.getP1();
       oppCharacter = frameData.getP2();
     } else {
@@ -98,6 +166,11 @@ public class MctsAi implements AIInterface {
     this.oppActions = new LinkedList<Action>();
 
     simulator = gameData.getSimulator();
+    if (UCT_PARALLEL_MODE.equals("tree")) {
+      treeParallelMcts = new TreeParallelMcts(UCT_THREAD_NUMBER, gameData, playerNumber);
+    } else {
+      rootParallelMcts = new RootParallelMcts(UCT_THREAD_NUMBER, gameData, playerNumber, UCT_CACHE_SIZE);
+    }
 
     actionAir =
         new Action[] {Action.AIR_GUARD, Action.AIR_A, Action.AIR_B, Action.AIR_DA, Action.AIR_DB,
@@ -113,110 +186,192 @@ public class MctsAi implements AIInterface {
             Action.STAND_F_D_DFB, Action.STAND_D_DB_BB};
     spSkill = Action.STAND_D_DF_FC;
 
-    myMotion = this.playerNumber ? gameData.getPlayerOneMotion() : gameData.getPlayerTwoMotion();
-    oppMotion = this.playerNumber ? gameData.getPlayerTwoMotion() : gameData.getPlayerOneMotion();
+    myActionSpace =
+        new ActionSpace(this.playerNumber ? gameData.getPlayerOneMotion() : gameData
+            .getPlayerTwoMotion());
+    oppActionSpace =
+        new ActionSpace(this.playerNumber ? gameData.getPlayerTwoMotion() : gameData
+            .getPlayerOneMotion());
+
+    Action[] groundCandidates = new Action[actionGround.length + 1];
+    groundCandidates[0] = spSkill;
+    System.arraycopy(actionGround, 0, groundCandidates, 1, actionGround.length);
+
+    myAirMoves = myActionSpace.compile(myActionSpace.getAir(), actionAir);
+    myGroundMoves = myActionSpace.compile(myActionSpace.getGround(), groundCandidates);
+    oppAirMoves = oppActionSpace.compile(oppActionSpace.getAir(), actionAir);
+    oppGroundMoves = oppActionSpace.compile(oppActionSpace.getGround(), groundCandidates);
+    myMoves = null;
+    oppMoves = null;
+
+    timeManager = new TimeManager(myActionSpace.getEnergyCost(spSkill));
+
+    if (PONDER_MODE) {
+      ponderer = new Ponderer(this, playerNumber, rootParallelMcts, treeParallelMcts);
+    }
 
     return 0;
   }
 
   @Override
   public Key input() {
+    timeManager.endFrame();
     return key;
   }
 
   @Override
   public void processing() {
 
-    if (canProcessing()) {
+    if (ponderer != null) {
+      ponderProcessing();
+    } else if (canProcessing()) {
       if (commandCenter.getskillFlag()) {
         key = commandCenter.getSkillKey();
+
+        // 技の入力中は、実行中のActionの部分木の探索を進めておく
+        mctsPrepare();
+        long deadline = timeManager.getDeadline(frameData, playerNumber);
+        if (treeParallelMcts != null) {
+          treeParallelMcts.search(simulatorAheadFrameData, myActions, oppActions, playerNumber,
+              deadline);
+        } else {
+          rootParallelMcts.search(simulatorAheadFrameData, myActions, oppActions, deadline);
+        }
+        timeManager.endSearch();
       } else {
         key.empty();
         commandCenter.skillCancel();
 
         mctsPrepare(); // MCTSã�®ä¸‹æº–å‚™ã‚’è¡Œã�†
-        rootNode =
-            new Node(simulatorAheadFrameData, null, myActions, oppActions, gameData, playerNumber,
-                commandCenter);
-        rootNode.createNode();
-
-        Action bestAction = rootNode.mcts(); // MCTSã�®å®Ÿè¡Œ
+        // フレームの残り時間と緊迫度から探索時間を決め、その時刻までに探索を打ち切る
+        long deadline = timeManager.getDeadline(frameData, playerNumber);
+        Action bestAction;
+        if (treeParallelMcts != null) {
+          bestAction =
+              treeParallelMcts.mcts(simulatorAheadFrameData, myActions, oppActions, playerNumber,
+                  deadline); // MCTSの実行
+          if (MctsAi.DEBUG_MODE) {
+            treeParallelMcts.getRootNode().printNode(treeParallelMcts.getRootNode());
+          }
+        } else {
+          bestAction =
+              rootParallelMcts.mcts(simulatorAheadFrameData, myActions, oppActions, deadline); // MCTSの実行
+          if (MctsAi.DEBUG_MODE) {
+            rootParallelMcts.getNodePool().printNode(0);
+          }
+        }
+        timeManager.endSearch();
         if (MctsAi.DEBUG_MODE) {
-          rootNode.printNode(rootNode);
+          System.out.println("緊迫度:" + timeManager.getLastCriticality());
         }
 
         commandCenter.commandCall(bestAction.name()); // MCTSã�§é�¸æŠžã�•ã‚Œã�Ÿè¡Œå‹•ã‚’å®Ÿè¡Œã�™ã‚‹
+
+        // 実行したActionの部分木を次のフレームの探索で再利用する
+        if (treeParallelMcts != null) {
+          treeParallelMcts.advance(bestAction);
+        } else {
+          rootParallelMcts.advance(bestAction);
+        }
+      }
+    } else {
+      // ラウンドの切り替わりなどで木が古くなるので破棄する
+      if (treeParallelMcts != null) {
+        treeParallelMcts.reset();
+      } else {
+        rootParallelMcts.reset();
       }
     }
   }
 
 
+  /**
+   * 先読みするときのprocessing()<br>
+   * 探索は探索のスレッドに任せ、技の入力か探索済みの最善のActionの実行だけを行う
+   */
+  private void ponderProcessing() {
+    if (!canProcessing()) {
+      ponderer.reset();
+      return;
+    }
+
+    if (commandCenter.getskillFlag()) {
+      key = commandCenter.getSkillKey();
+    } else {
+      key.empty();
+      commandCenter.skillCancel();
+
+      // まだ最新の木を探索していなければ、このフレームでは何もしない
+      Action bestAction = ponderer.getBestAction();
+      if (bestAction != null) {
+        commandCenter.commandCall(bestAction.name());
+        ponderer.advance(bestAction);
+      }
+    }
+  }
+
   public boolean canProcessing() {
     return !frameData.getEmptyFlag() && frameData.getRemainingTime() > 0;
   }
 
 
   public void mctsPrepare() {
-    simulatorAheadFrameData = simulator.simulate(frameData, playerNumber, null, null, FRAME_AHEAD);
+    simulatorAheadFrameData = mctsPrepare(frameData);
+  }
 
-    myCharacter = playerNumber ? simulatorAheadFrameData.getP1() : simulatorAheadFrameData.getP2();
-    oppCharacter = playerNumber ? simulatorAheadFrameData.getP2() : simulatorAheadFrameData.getP1();
+  /**
+   * FRAME_AHEADだけ先の状態を予測し、その状態で選択できるActionを設定する
+   *
+   * @param frameData 予測を始めるFrameData
+   * @return 予測した状態のFrameData
+   */
+  public FrameData mctsPrepare(FrameData frameData) {
+    FrameData aheadFrameData =
+        simulator.simulate(frameData, playerNumber, null, null, FRAME_AHEAD);
+
+    myCharacter = playerNumber ? aheadFrameData.getP1() : aheadFrameData.getP2();
+    oppCharacter = playerNumber ? aheadFrameData.getP2() : aheadFrameData.getP1();
 
     setMyAction();
     setOppAction();
+
+    return aheadFrameData;
   }
 
-  public void setMyAction() {
-    myActions.clear();
+  public LinkedList<Action> getMyActions() {
+    return myActions;
+  }
 
-    int energy = myCharacter.getEnergy();
+  public LinkedList<Action> getOppActions() {
+    return oppActions;
+  }
 
-    if (myCharacter.getState() == State.AIR) {
-      for (int i = 0; i < actionAir.length; i++) {
-        if (Math.abs(myMotion.elementAt(Action.valueOf(actionAir[i].name()).ordinal()).getAttackStartAddEnergy()) <= energy) {
-          myActions.add(actionAir[i]);
-        }
-      }
-    } else {
-      if (Math.abs(myMotion.elementAt(Action.valueOf(spSkill.name()).ordinal())
-          .getAttackStartAddEnergy()) <= energy) {
-        myActions.add(spSkill);
-      }
+  /**
+   * 自分が選択できるActionを設定する<br>
+   * 出せるActionは二分探索で求めた数だけで決まるので、前のフレームと同じ数ならmyActionsは作り直さない
+   */
+  public void setMyAction() {
+    ActionSpace.Moves moves = myCharacter.getState() == State.AIR ? myAirMoves : myGroundMoves;
+    int count = moves.getLegalCount(myCharacter.getEnergy());
 
-      for (int i = 0; i < actionGround.length; i++) {
-        if (Math.abs(myMotion.elementAt(Action.valueOf(actionGround[i].name()).ordinal())
-            .getAttackStartAddEnergy()) <= energy) {
-          myActions.add(actionGround[i]);
-        }
-      }
+    if (moves != myMoves || count != myLegalCount) {
+      moves.copyTo(count, myActions);
+      myMoves = moves;
+      myLegalCount = count;
     }
-
   }
 
+  /**
+   * 相手が選択できるActionを設定する
+   */
   public void setOppAction() {
-    oppActions.clear();
+    ActionSpace.Moves moves = oppCharacter.getState() == State.AIR ? oppAirMoves : oppGroundMoves;
+    int count = moves.getLegalCount(oppCharacter.getEnergy());
 
-    int energy = oppCharacter.getEnergy();
-
-    if (oppCharacter.getState() == State.AIR) {
-      for (int i = 0; i < actionAir.length; i++) {
-        if (Math.abs(oppMotion.elementAt(Action.valueOf(actionAir[i].name()).ordinal())
-            .getAttackStartAddEnergy()) <= energy) {
-          oppActions.add(actionAir[i]);
-        }
-      }
-    } else {
-      if (Math.abs(oppMotion.elementAt(Action.valueOf(spSkill.name()).ordinal())
-          .getAttackStartAddEnergy()) <= energy) {
-        oppActions.add(spSkill);
-      }
-
-      for (int i = 0; i < actionGround.length; i++) {
-        if (Math.abs(oppMotion.elementAt(Action.valueOf(actionGround[i].name()).ordinal())
-            .getAttackStartAddEnergy()) <= energy) {
-          oppActions.add(actionGround[i]);
-        }
-      }
+    if (moves != oppMoves || count != oppLegalCount) {
+      moves.copyTo(count, oppActions);
+      oppMoves = moves;
+      oppLegalCount = count;
     }
   }
 }
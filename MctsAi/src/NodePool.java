@@ -0,0 +1,471 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.Random;
+
+import structs.FrameData;
+import structs.GameData;
+
+import enumerate.Action;
+
+/**
+ * MCTSの木を配列で保持するノードプール<br>
+ * UCTを行うが、ノードごとのオブジェクトを生成せず、訪問回数・評価値・親などをプリミティブ型の配列に持つ<br>
+ * ノードの番号0が常にルートで、兄弟ノードは連続した番号に並ぶ。探索時に選んだ自分のActionは、ordinalを1つ8bitでlongに詰めて持つ<br>
+ * PathStatisticsCacheを渡したときは、生成した子ノードに同じ状態から同じActionの列で探索した平均評価値を事前分布として与え、探索を終えるたびに全ノードの統計量を書き込む<br>
+ * 事前分布はUCB値を求めるときだけ使い、訪問回数には数えない(行動の選択やキャッシュに書き込む統計量は、このプールで行ったプレイアウトだけから求める)
+ *
+ * @author Taichi Miyazaki
+ */
+public class NodePool {
+
+  /** プールに確保するノードの数 */
+  public static final int MAX_NODE = 4096;
+
+  /** 選択できるActionの数の上限 */
+  private static final int MAX_ACTION = 64;
+
+  /** 親ノードや子ノードが無いことを表す */
+  private static final int NONE = -1;
+
+  /** ordinalからActionを引くための表 */
+  private static final Action[] ACTIONS = Action.values();
+
+  /** ノードが探索された回数 */
+  private final int[] games;
+
+  /** 評価値 */
+  private final double[] score;
+
+  /** キャッシュから引き継いだ事前の訪問回数(UCB値を求めるときだけ使う) */
+  private final int[] priorGames;
+
+  /** キャッシュから引き継いだ事前の評価値の合計 */
+  private final double[] priorScore;
+
+  /** 子ノードの事前の訪問回数の合計(UCB値の全試行回数に加える) */
+  private final int[] childPriorGames;
+
+  /** 親ノードの番号 */
+  private final int[] parent;
+
+  /** ノードの深さ */
+  private final int[] depth;
+
+  /** 先頭の子ノードの番号(子ノードが無ければNONE) */
+  private final int[] firstChild;
+
+  /** 探索時に選んだ自分のAction(1つ目が下位8bit) */
+  private final long[] path;
+
+  /** 木の再利用時に、古い番号から新しい番号を引くための作業領域 */
+  private final int[] remap;
+
+  /** 使用中のノードの数 */
+  private int nodeCount;
+
+  /** 選択できる自分の全Action */
+  private final Action[] myActions;
+  private int myActionCount;
+
+  /** 選択できる相手の全Action */
+  private final Action[] oppActions;
+  private int oppActionCount;
+
+  /** シミュレーションするときに利用する */
+  private final PlayoutSimulator simulator;
+
+  /** 乱数を利用するときに使う */
+  private final Random rnd;
+
+  private final Deque<Action> mAction;
+  private final Deque<Action> oppAction;
+
+  /** スレッド間で共有するパスの統計量のキャッシュ(使わなければnull) */
+  private final PathStatisticsCache cache;
+
+  /** 探索を始める状態のハッシュ値 */
+  private long rootHash;
+
+  /** advance()でルートを移してから、まだ探索していないか */
+  private boolean rootMoved;
+
+  private final boolean playerNumber;
+
+  public NodePool(GameData gameData, boolean playerNumber) {
+    this(gameData, playerNumber, null);
+  }
+
+  public NodePool(GameData gameData, boolean playerNumber, PathStatisticsCache cache) {
+    this.games = new int[MAX_NODE];
+    this.score = new double[MAX_NODE];
+    this.priorGames = new int[MAX_NODE];
+    this.priorScore = new double[MAX_NODE];
+    this.childPriorGames = new int[MAX_NODE];
+    this.parent = new int[MAX_NODE];
+    this.depth = new int[MAX_NODE];
+    this.firstChild = new int[MAX_NODE];
+    this.path = new long[MAX_NODE];
+    this.remap = new int[MAX_NODE];
+
+    this.myActions = new Action[MAX_ACTION];
+    this.oppActions = new Action[MAX_ACTION];
+
+    this.simulator = new PlayoutSimulator(gameData, playerNumber);
+    this.rnd = new Random();
+    this.mAction = new ArrayDeque<Action>(8);
+    this.oppAction = new ArrayDeque<Action>(8);
+
+    this.cache = cache;
+    this.playerNumber = playerNumber;
+  }
+
+  /**
+   * 探索の準備を行う<br>
+   * 木を残していて自分のAction候補が変わっていなければ、その木を使う。そうでなければプールをリセットしてルートだけにする<br>
+   * 残した木の統計量は前の状態から探索したものなので、ルートを移したときや探索を始める状態のハッシュ値が変わったときは(技の入力中や先読みで新しいFrameDataになったときも)UCT_REUSE_DISCOUNTを掛ける
+   *
+   * @param frameData 探索を始めるFrameData
+   * @param myActions 選択できる自分の全Action
+   * @param oppActions 選択できる相手の全Action
+   */
+  public void prepare(FrameData frameData, LinkedList<Action> myActions,
+      LinkedList<Action> oppActions) {
+    boolean sameActions = nodeCount > 0 && myActionCount == myActions.size();
+    int i = 0;
+    for (Action act : myActions) {
+      if (sameActions && this.myActions[i] != act) {
+        sameActions = false;
+      }
+      this.myActions[i++] = act;
+    }
+    myActionCount = i;
+
+    i = 0;
+    for (Action act : oppActions) {
+      this.oppActions[i++] = act;
+    }
+    oppActionCount = i;
+
+    simulator.setFrameData(frameData);
+    long hash = StateHash.hash(frameData, playerNumber);
+
+    if (!sameActions) {
+      reset();
+    } else if (rootMoved || hash != rootHash) {
+      discount();
+    }
+    rootHash = hash;
+    rootMoved = false;
+    if (firstChild[0] == NONE) {
+      createNode(0);
+    }
+  }
+
+  /**
+   * プールをリセットし、ルートノードだけにする
+   */
+  public void reset() {
+    nodeCount = 1;
+    games[0] = 0;
+    score[0] = 0;
+    priorGames[0] = 0;
+    priorScore[0] = 0;
+    childPriorGames[0] = 0;
+    parent[0] = NONE;
+    depth[0] = 0;
+    firstChild[0] = NONE;
+    path[0] = 0;
+  }
+
+  /**
+   * 全ノードの訪問回数と評価値にUCT_REUSE_DISCOUNTを掛ける(平均評価値は変えない)
+   */
+  private void discount() {
+    for (int i = 0; i < nodeCount; i++) {
+      int discounted = (int) (games[i] * MctsAi.UCT_REUSE_DISCOUNT);
+      score[i] = discounted == 0 ? 0 : score[i] * discounted / games[i];
+      games[i] = discounted;
+    }
+  }
+
+  /**
+   * 木を破棄する(次の探索ではAction候補に関わらずプールをリセットする)
+   */
+  public void clear() {
+    nodeCount = 0;
+  }
+
+  /**
+   * 指定した時刻まで、UCTを繰り返す
+   *
+   * @param deadline 探索を終了する時刻(System.nanoTime()基準)
+   */
+  public void searchUntil(long deadline) {
+    for (; System.nanoTime() - deadline <= 0;) {
+      uct(0);
+    }
+
+    // 事前分布は書き込まず、このプールで行ったプレイアウトの統計量だけを書き込む
+    if (cache != null) {
+      for (int i = 1; i < nodeCount; i++) {
+        cache.store(PathStatisticsCache.key(rootHash, path[i], depth[i]), games[i], score[i]);
+      }
+    }
+  }
+
+  /**
+   * プレイアウト(シミュレーション)を行う
+   *
+   * @param node ノードの番号
+   * @return プレイアウト結果の評価値
+   */
+  public double playout(int node) {
+
+    mAction.clear();
+    oppAction.clear();
+
+    int selected = depth[node];
+    long actions = path[node];
+    for (int i = 0; i < selected; i++) {
+      mAction.add(ACTIONS[(int) (actions & 0xFF)]);
+      actions >>>= 8;
+    }
+
+    for (int i = 0; i < 5 - selected; i++) {
+      mAction.add(myActions[rnd.nextInt(myActionCount)]);
+    }
+
+    for (int i = 0; i < 5; i++) {
+      oppAction.add(oppActions[rnd.nextInt(oppActionCount)]);
+    }
+
+    return simulator.playout(mAction, oppAction, MctsAi.SIMULATION_TIME); // シミュレーションを実行
+  }
+
+  /**
+   * UCTを行う <br>
+   *
+   * @param node ノードの番号
+   * @return 評価値
+   */
+  public double uct(int node) {
+
+    int selectedNode = NONE;
+    double bestUcb = -99999;
+
+    int first = firstChild[node];
+    int allGames = games[node] + childPriorGames[node];
+    for (int child = first; child < first + myActionCount; child++) {
+      double ucb;
+      int childGames = games[child] + priorGames[child];
+      if (childGames == 0) {
+        ucb = 9999 + rnd.nextInt(50);
+      } else {
+        ucb = getUcb((score[child] + priorScore[child]) / childGames, allGames, childGames);
+      }
+
+      if (bestUcb < ucb) {
+        selectedNode = child;
+        bestUcb = ucb;
+      }
+    }
+
+    double score = 0;
+    if (games[selectedNode] == 0) {
+      score = playout(selectedNode);
+    } else {
+      if (firstChild[selectedNode] == NONE) {
+        if (depth[selectedNode] < MctsAi.UCT_TREE_DEPTH
+            && MctsAi.UCT_CREATE_NODE_THRESHOULD <= games[selectedNode]
+            && nodeCount + myActionCount <= MAX_NODE) {
+          createNode(selectedNode);
+          score = uct(selectedNode);
+        } else {
+          score = playout(selectedNode);
+        }
+      } else {
+        score = uct(selectedNode);
+      }
+    }
+
+    games[selectedNode]++;
+    this.score[selectedNode] += score;
+
+    if (depth[node] == 0) {
+      games[node]++;
+    }
+
+    return score;
+  }
+
+  /**
+   * 子ノードを生成する(プールの末尾から連続した番号を割り当てる)
+   *
+   * @param node ノードの番号
+   */
+  private void createNode(int node) {
+    int first = nodeCount;
+    int childDepth = depth[node] + 1;
+    int shift = 8 * depth[node];
+
+    int allPriorGames = 0;
+    for (int i = 0; i < myActionCount; i++) {
+      int child = first + i;
+      games[child] = 0;
+      score[child] = 0;
+      priorGames[child] = 0;
+      priorScore[child] = 0;
+      childPriorGames[child] = 0;
+      parent[child] = node;
+      depth[child] = childDepth;
+      firstChild[child] = NONE;
+      path[child] = path[node] | ((long) myActions[i].ordinal() << shift);
+
+      if (cache != null) {
+        // 同じ状態で探索した統計量があれば、MAX_PRIOR_GAMES回分までの重みの事前分布にする
+        long d = cache.probe(PathStatisticsCache.key(rootHash, path[child], childDepth));
+        if (d != 0) {
+          int prior = Math.min(PathStatisticsCache.getGames(d), PathStatisticsCache.MAX_PRIOR_GAMES);
+          priorGames[child] = prior;
+          priorScore[child] = PathStatisticsCache.getMeanScore(d) * prior;
+          allPriorGames += prior;
+        }
+      }
+    }
+
+    childPriorGames[node] = allPriorGames;
+    firstChild[node] = first;
+    nodeCount += myActionCount;
+  }
+
+  /**
+   * 実行したActionの部分木を、次の探索のルートとして残す<br>
+   * 部分木のノードは番号順を保ったままプールの先頭に詰め直す。統計量には次のprepare()でUCT_REUSE_DISCOUNTを掛ける
+   *
+   * @param action 実行したAction
+   */
+  public void advance(Action action) {
+    int root = NONE;
+    if (nodeCount > 0 && firstChild[0] != NONE) {
+      for (int i = 0; i < myActionCount; i++) {
+        if (myActions[i] == action) {
+          root = firstChild[0] + i;
+        }
+      }
+    }
+    if (root == NONE) {
+      clear();
+      return;
+    }
+
+    // 子ノードは親ノードより後ろの番号にあるので、1回の走査で部分木に含まれるかが分かる
+    int count = 0;
+    for (int i = 0; i < nodeCount; i++) {
+      if (i == root || (i > root && parent[i] != NONE && remap[parent[i]] != NONE)) {
+        remap[i] = count++;
+      } else {
+        remap[i] = NONE;
+      }
+    }
+
+    // 新しい番号は古い番号以下になるので、前から順に写せば上書きされる前に読める
+    for (int i = root; i < nodeCount; i++) {
+      int j = remap[i];
+      if (j == NONE) {
+        continue;
+      }
+
+      games[j] = games[i];
+      score[j] = score[i];
+      priorGames[j] = priorGames[i];
+      priorScore[j] = priorScore[i];
+      childPriorGames[j] = childPriorGames[i];
+      parent[j] = i == root ? NONE : remap[parent[i]];
+      firstChild[j] = firstChild[i] == NONE ? NONE : remap[firstChild[i]];
+      depth[j] = depth[i] - 1;
+      path[j] = path[i] >>> 8;
+    }
+
+    nodeCount = count;
+    rootMoved = true;
+  }
+
+  /**
+   * 複数のプールのルートの子ノードの訪問回数を合算し、最多訪問回数のActionを返す<br>
+   * 全てのプールが同じ自分のAction候補で探索している必要がある。キャッシュの事前分布は訪問回数に含めない
+   *
+   * @param pools 別々のスレッドで探索したプール
+   * @return 合算した訪問回数が最も多いAction
+   */
+  public static Action getBestVisitAction(NodePool[] pools) {
+    NodePool root = pools[0];
+
+    int selected = -1;
+    double bestGames = -9999;
+    int allGames = 0;
+
+    for (int i = 0; i < root.myActionCount; i++) {
+      int games = 0;
+      double score = 0;
+      for (NodePool pool : pools) {
+        games += pool.games[pool.firstChild[0] + i];
+        score += pool.score[pool.firstChild[0] + i];
+      }
+      allGames += games;
+
+      if (MctsAi.DEBUG_MODE) {
+        System.out.println("評価値:" + score / games + ",試行回数:" + games + ",Action:"
+            + root.myActions[i]);
+      }
+
+      if (bestGames < games) {
+        bestGames = games;
+        selected = i;
+      }
+    }
+
+    if (MctsAi.DEBUG_MODE) {
+      System.out.println(root.myActions[selected] + ",全試行回数:" + allGames);
+      System.out.println("");
+    }
+
+    return root.myActions[selected];
+  }
+
+  /**
+   * これまでに行ったプレイアウトの回数を返す
+   *
+   * @return プレイアウトの回数
+   */
+  public long getPlayoutCount() {
+    return simulator.getPlayoutCount();
+  }
+
+  /**
+   * 評価値と全プレイアウト試行回数とそのActionのプレイアウト試行回数からUCB1値を返す
+   *
+   * @param score 評価値
+   * @param n 全プレイアウト試行回数
+   * @param ni そのActionのプレイアウト試行回数
+   * @return UCB1値
+   */
+  public double getUcb(double score, int n, int ni) {
+    return score + MctsAi.UCB_C * Math.sqrt((2 * Math.log(n)) / ni);
+  }
+
+  public void printNode(int node) {
+    System.out.println("全試行回数:" + games[node]);
+    int first = firstChild[node];
+    for (int i = 0; i < myActionCount; i++) {
+      System.out.println(i + ",回数:" + games[first + i] + ",深さ:" + depth[first + i] + ",score:"
+          + score[first + i] / games[first + i]);
+    }
+    System.out.println("");
+    for (int i = 0; i < myActionCount; i++) {
+      if (firstChild[first + i] != NONE) {
+        printNode(first + i);
+      }
+    }
+  }
+}
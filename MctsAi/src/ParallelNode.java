@@ -0,0 +1,385 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import structs.FrameData;
+import structs.GameData;
+
+import enumerate.Action;
+
+/**
+ * 木並列化したMCTSで利用するNode<br>
+ * 複数のスレッドが1つの木を共有して探索するため、訪問回数と評価値はアトミックに更新し、子ノードの生成はCASで公開する
+ *
+ * @author Taichi Miyazaki
+ */
+public class ParallelNode {
+
+  /** 探索中のスレッド1つあたりに加える仮想的な敗北の評価値 */
+  public static final double VIRTUAL_LOSS = 10;
+
+  private static final AtomicReferenceFieldUpdater<ParallelNode, ParallelNode[]> CHILDREN =
+      AtomicReferenceFieldUpdater.newUpdater(ParallelNode.class, ParallelNode[].class, "children");
+
+  /** 親ノード */
+  private ParallelNode parent;
+
+  /** 子ノード(生成したスレッドがCASで一度だけ公開する) */
+  private volatile ParallelNode[] children;
+
+  /** ノードの深さ */
+  private int depth;
+
+  /** ノードが探索された回数 */
+  private final AtomicInteger games;
+
+  /** 評価値 */
+  private final DoubleAdder score;
+
+  /** このノードを探索中のスレッドの数 */
+  private final AtomicInteger virtualLoss;
+
+  /** 選択できる自分の全Action(i番目の子ノードがi番目のAction) */
+  private Action[] myActions;
+
+  /** 選択できる相手の全Action */
+  private Action[] oppActions;
+
+  /** 探索時に選んだ自分のAction(ルートを移すと先頭を除いた配列に置き換える) */
+  private Action[] selectedMyActions;
+
+  private FrameData frameData;
+  private final boolean playerNumber;
+
+  public ParallelNode(FrameData frameData, Action[] myActions, Action[] oppActions,
+      boolean playerNumber) {
+    this(frameData, null, myActions, oppActions, playerNumber, new Action[0]);
+  }
+
+  private ParallelNode(FrameData frameData, ParallelNode parent, Action[] myActions,
+      Action[] oppActions, boolean playerNumber, Action[] selectedMyActions) {
+    this.frameData = frameData;
+    this.parent = parent;
+    this.myActions = myActions;
+    this.oppActions = oppActions;
+    this.playerNumber = playerNumber;
+    this.selectedMyActions = selectedMyActions;
+
+    this.games = new AtomicInteger();
+    this.score = new DoubleAdder();
+    this.virtualLoss = new AtomicInteger();
+
+    this.depth = this.parent != null ? this.parent.depth + 1 : 0;
+  }
+
+  /**
+   * スレッドごとに持つ探索用の状態<br>
+   * シミュレータとRandomとプレイアウト用のActionの列はスレッド間で共有しない
+   */
+  public static class Worker {
+    private final PlayoutSimulator simulator;
+    private final Random rnd;
+    private final Deque<Action> mAction;
+    private final Deque<Action> oppAction;
+
+    public Worker(GameData gameData, boolean playerNumber) {
+      this.simulator = new PlayoutSimulator(gameData, playerNumber);
+      this.rnd = new Random();
+      this.mAction = new ArrayDeque<Action>(8);
+      this.oppAction = new ArrayDeque<Action>(8);
+    }
+
+    /**
+     * 探索を始めるFrameDataを設定する
+     *
+     * @param frameData 探索を始めるFrameData
+     */
+    public void setFrameData(FrameData frameData) {
+      simulator.setFrameData(frameData);
+    }
+  }
+
+  /**
+   * 指定した時刻まで、UCTを繰り返す
+   *
+   * @param worker 呼び出したスレッドの探索用の状態
+   * @param deadline 探索を終了する時刻(System.nanoTime()基準)
+   */
+  public void searchUntil(Worker worker, long deadline) {
+    for (; System.nanoTime() - deadline <= 0;) {
+      uct(worker);
+    }
+  }
+
+  /**
+   * プレイアウト(シミュレーション)を行う
+   *
+   * @param worker 呼び出したスレッドの探索用の状態
+   * @return プレイアウト結果の評価値
+   */
+  public double playout(Worker worker) {
+    Deque<Action> mAction = worker.mAction;
+    Deque<Action> oppAction = worker.oppAction;
+
+    mAction.clear();
+    oppAction.clear();
+
+    for (Action act : selectedMyActions) {
+      mAction.add(act);
+    }
+
+    for (int i = 0; i < 5 - selectedMyActions.length; i++) {
+      mAction.add(myActions[worker.rnd.nextInt(myActions.length)]);
+    }
+
+    for (int i = 0; i < 5; i++) {
+      oppAction.add(oppActions[worker.rnd.nextInt(oppActions.length)]);
+    }
+
+    return worker.simulator.playout(mAction, oppAction, MctsAi.SIMULATION_TIME); // シミュレーションを実行
+  }
+
+  /**
+   * UCTを行う <br>
+   * 選んだ子ノードには探索が終わるまで仮想的な敗北を加え、他のスレッドが同じ子ノードを選びにくくする
+   *
+   * @param worker 呼び出したスレッドの探索用の状態
+   * @return 評価値
+   */
+  public double uct(Worker worker) {
+    ParallelNode[] children = this.children;
+    ParallelNode selectedNode = null;
+    double bestUcb = -99999;
+
+    int n = games.get() + virtualLoss.get();
+
+    for (ParallelNode child : children) {
+      int childLoss = child.virtualLoss.get();
+      int ni = child.games.get() + childLoss;
+
+      double ucb;
+      if (ni == 0) {
+        ucb = 9999 + worker.rnd.nextInt(50);
+      } else {
+        ucb = getUcb((child.score.sum() - childLoss * VIRTUAL_LOSS) / ni, Math.max(n, 1), ni);
+      }
+
+      if (bestUcb < ucb) {
+        selectedNode = child;
+        bestUcb = ucb;
+      }
+    }
+
+    selectedNode.virtualLoss.incrementAndGet();
+
+    double score;
+    try {
+      if (selectedNode.games.get() == 0) {
+        score = selectedNode.playout(worker);
+      } else if (selectedNode.depth < MctsAi.UCT_TREE_DEPTH) {
+        if (selectedNode.children != null) {
+          score = selectedNode.uct(worker);
+        } else if (MctsAi.UCT_CREATE_NODE_THRESHOULD <= selectedNode.games.get()) {
+          selectedNode.createNode();
+          score = selectedNode.uct(worker);
+        } else {
+          score = selectedNode.playout(worker);
+        }
+      } else {
+        score = selectedNode.playout(worker);
+      }
+    } finally {
+      selectedNode.virtualLoss.decrementAndGet();
+    }
+
+    selectedNode.score.add(score);
+    selectedNode.games.incrementAndGet();
+
+    if (depth == 0) {
+      games.incrementAndGet();
+    }
+
+    return score;
+  }
+
+  /**
+   * ノードを生成する<br>
+   * 複数のスレッドが同時に呼び出しても、公開される子ノードは最初にCASに成功した1つだけになる
+   */
+  public void createNode() {
+    if (children != null) {
+      return;
+    }
+
+    ParallelNode[] created = new ParallelNode[myActions.length];
+
+    for (int i = 0; i < created.length; i++) {
+      Action[] my = Arrays.copyOf(selectedMyActions, selectedMyActions.length + 1);
+      my[selectedMyActions.length] = myActions[i];
+
+      created[i] = new ParallelNode(frameData, this, myActions, oppActions, playerNumber, my);
+    }
+
+    CHILDREN.compareAndSet(this, null, created);
+  }
+
+  /**
+   * 指定したActionの子ノードを返す
+   *
+   * @param action 自分のAction
+   * @return Actionに対応する子ノード(子ノードが無ければnull)
+   */
+  public ParallelNode getChild(Action action) {
+    ParallelNode[] children = this.children;
+    if (children == null) {
+      return null;
+    }
+
+    for (int i = 0; i < children.length; i++) {
+      if (myActions[i] == action) {
+        return children[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * 実行したActionの子ノードを、次のフレームの探索のルートにする<br>
+   * 探索していない間に呼び出す必要がある
+   */
+  public void detach() {
+    parent = null;
+    shift();
+  }
+
+  private void shift() {
+    depth--;
+    if (selectedMyActions.length > 0) {
+      selectedMyActions = Arrays.copyOfRange(selectedMyActions, 1, selectedMyActions.length);
+    }
+
+    if (children != null) {
+      for (ParallelNode child : children) {
+        child.shift();
+      }
+    }
+  }
+
+  /**
+   * 部分木の全ノードの訪問回数と評価値にUCT_REUSE_DISCOUNTを掛ける(平均評価値は変えない)<br>
+   * 探索していない間に呼び出す必要がある
+   */
+  public void discount() {
+    int before = games.get();
+    int discounted = (int) (before * MctsAi.UCT_REUSE_DISCOUNT);
+    double sum = score.sum();
+    score.reset();
+    if (discounted != 0) {
+      score.add(sum * discounted / before);
+    }
+    games.set(discounted);
+
+    if (children != null) {
+      for (ParallelNode child : children) {
+        child.discount();
+      }
+    }
+  }
+
+  /**
+   * 再利用する木を最新のFrameDataで探索し直せるようにする<br>
+   * 探索していない間に呼び出す必要がある
+   *
+   * @param frameData 最新のFrameData
+   * @param myActions 選択できる自分の全Action
+   * @param oppActions 選択できる相手の全Action
+   */
+  public void refresh(FrameData frameData, Action[] myActions, Action[] oppActions) {
+    if (!Arrays.equals(this.myActions, myActions)) {
+      this.myActions = myActions;
+      this.children = null;
+      this.games.set(0);
+      this.score.reset();
+    }
+
+    update(frameData, this.myActions, oppActions);
+
+    if (children == null) {
+      createNode();
+    }
+  }
+
+  private void update(FrameData frameData, Action[] myActions, Action[] oppActions) {
+    this.frameData = frameData;
+    this.myActions = myActions;
+    this.oppActions = oppActions;
+
+    if (children != null) {
+      for (ParallelNode child : children) {
+        child.update(frameData, myActions, oppActions);
+      }
+    }
+  }
+
+  /**
+   * 最多訪問回数のノードのActionを返す
+   *
+   * @return 最多訪問回数のノードのAction
+   */
+  public Action getBestVisitAction() {
+
+    int selected = -1;
+    double bestGames = -9999;
+
+    for (int i = 0; i < children.length; i++) {
+
+      if (MctsAi.DEBUG_MODE) {
+        System.out.println("評価値:" + children[i].score.sum() / children[i].games.get() + ",試行回数:"
+            + children[i].games.get() + ",Action:" + myActions[i]);
+      }
+
+      if (bestGames < children[i].games.get()) {
+        bestGames = children[i].games.get();
+        selected = i;
+      }
+    }
+
+    if (MctsAi.DEBUG_MODE) {
+      System.out.println(myActions[selected] + ",全試行回数:" + games.get());
+      System.out.println("");
+    }
+
+    return this.myActions[selected];
+  }
+
+  /**
+   * 評価値と全プレイアウト試行回数とそのActionのプレイアウト試行回数からUCB1値を返す
+   *
+   * @param score 評価値
+   * @param n 全プレイアウト試行回数
+   * @param ni そのActionのプレイアウト試行回数
+   * @return UCB1値
+   */
+  public double getUcb(double score, int n, int ni) {
+    return score + MctsAi.UCB_C * Math.sqrt((2 * Math.log(n)) / ni);
+  }
+
+  public void printNode(ParallelNode node) {
+    System.out.println("全試行回数:" + node.games.get());
+    for (int i = 0; i < node.children.length; i++) {
+      System.out.println(i + ",回数:" + node.children[i].games.get() + ",深さ:"
+          + node.children[i].depth + ",score:" + node.children[i].score.sum()
+          / node.children[i].games.get());
+    }
+    System.out.println("");
+    for (int i = 0; i < node.children.length; i++) {
+      if (node.children[i].children != null) {
+        printNode(node.children[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,149 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * MCTSのノードの訪問回数と評価値を、探索を始めた状態と選んだActionの列をキーに残しておく固定サイズのキャッシュ<br>
+ * キーは探索を始めた状態のハッシュ値(StateHash)とActionの列なので、置換表とは違い、違う順番のActionで同じ状態に至ったノードは共有しない(木の途中の状態はシミュレーションしないため)。
+ * 同じ状態から探索し直したとき(ルート並列の他のスレッドの木や、同じ状態の次の探索)に統計量を引き継ぐためのもの<br>
+ * 1つのエントリはキーとデータの2つのlongで、キーにはデータとの排他的論理和を書くので、ロックを使わずに読み書きしても壊れたエントリは読まれない<br>
+ * 2つのエントリを1つのバケットとし、置き換えるときは古い探索のもの、次に訪問回数が少ないものを優先する
+ *
+ * @author Taichi Miyazaki
+ */
+public class PathStatisticsCache {
+
+  /** キャッシュから引き継ぐ事前分布の重み(訪問回数)の上限 */
+  public static final int MAX_PRIOR_GAMES = MctsAi.UCT_CREATE_NODE_THRESHOULD;
+
+  /** データの訪問回数の位置(上位24bit) */
+  private static final int GAMES_SHIFT = 40;
+
+  /** データの探索の世代の位置(次の8bit、下位32bitは平均評価値のfloat) */
+  private static final int AGE_SHIFT = 32;
+
+  private static final int MAX_GAMES = (1 << 24) - 1;
+
+  private final AtomicLongArray keys;
+  private final AtomicLongArray data;
+  private final int mask;
+
+  /** 探索の世代(探索ごとに1つ進める) */
+  private volatile int age;
+
+  /**
+   * @param size エントリの数(2のべき乗に切り上げる)
+   */
+  public PathStatisticsCache(int size) {
+    int capacity = Integer.highestOneBit(Math.max(2, size - 1)) << 1;
+    this.keys = new AtomicLongArray(capacity);
+    this.data = new AtomicLongArray(capacity);
+    this.mask = capacity - 1;
+  }
+
+  /**
+   * 探索の世代を進める(同じ状態の探索でも、前の世代のエントリは置き換えやすくなる)
+   */
+  public void nextAge() {
+    age = (age + 1) & 0xFF;
+  }
+
+  /**
+   * ノードのキーを返す
+   *
+   * @param rootHash 探索を始めた状態のハッシュ値
+   * @param path 選んだ自分のAction(NodePoolと同じく、ordinalを1つ8bitで詰めたもの)
+   * @param depth ノードの深さ
+   * @return キー
+   */
+  public static long key(long rootHash, long path, int depth) {
+    return StateHash.mix(StateHash.mix(rootHash, path), depth);
+  }
+
+  /**
+   * エントリを探す
+   *
+   * @param key キー
+   * @return エントリのデータ(見つからなければ0)
+   */
+  public long probe(long key) {
+    int bucket = (int) key & mask & ~1;
+    for (int i = bucket; i < bucket + 2; i++) {
+      long d = data.get(i);
+      if (d != 0 && (keys.get(i) ^ d) == key) {
+        return d;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * エントリを書き込む
+   *
+   * @param key キー
+   * @param games 訪問回数
+   * @param score 評価値の合計
+   */
+  public void store(long key, int games, double score) {
+    if (games <= 0) {
+      return;
+    }
+
+    int currentAge = age;
+    long d =
+        ((long) Math.min(games, MAX_GAMES) << GAMES_SHIFT) | ((long) currentAge << AGE_SHIFT)
+            | (Float.floatToRawIntBits((float) (score / games)) & 0xFFFFFFFFL);
+
+    int bucket = (int) key & mask & ~1;
+    int victim = -1;
+    long victimPriority = Long.MAX_VALUE;
+    for (int i = bucket; i < bucket + 2; i++) {
+      long old = data.get(i);
+      if (old == 0 || (keys.get(i) ^ old) == key) {
+        victim = i;
+        victimPriority = -1;
+        break;
+      }
+
+      long priority = getPriority(old, currentAge);
+      if (priority < victimPriority) {
+        victim = i;
+        victimPriority = priority;
+      }
+    }
+
+    // 同じ世代で訪問回数が多いエントリは残す
+    if (victimPriority > getPriority(d, currentAge)) {
+      return;
+    }
+
+    data.set(victim, d);
+    keys.set(victim, key ^ d);
+  }
+
+  private static long getPriority(long d, int currentAge) {
+    return (getAge(d) == currentAge ? 1L << 24 : 0) + getGames(d);
+  }
+
+  /**
+   * エントリの訪問回数を返す
+   *
+   * @param d エントリのデータ
+   * @return 訪問回数
+   */
+  public static int getGames(long d) {
+    return (int) (d >>> GAMES_SHIFT);
+  }
+
+  /**
+   * エントリの平均評価値を返す
+   *
+   * @param d エントリのデータ
+   * @return 平均評価値
+   */
+  public static double getMeanScore(long d) {
+    return Float.intBitsToFloat((int) d);
+  }
+
+  private static int getAge(long d) {
+    return (int) (d >>> AGE_SHIFT) & 0xFF;
+  }
+}
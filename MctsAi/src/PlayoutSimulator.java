@@ -0,0 +1,157 @@
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Vector;
+
+import simulator.SimFighting;
+import structs.CharacterData;
+import structs.FrameData;
+import structs.GameData;
+import structs.KeyData;
+import structs.MotionData;
+
+import enumerate.Action;
+import fighting.Attack;
+
+/**
+ * プレイアウト専用のシミュレータ<br>
+ * スレッドごとに1つ持ち、探索を始めるFrameDataは探索ごとに1回だけ複製する<br>
+ * 入力するActionが両方とも無くなった後、攻撃・飛び道具が無く、両キャラクターが攻撃でないモーションで操作可能になればHPはそれ以上変わらないので、その時点でシミュレーションを打ち切る。
+ * AIToolKitのSimFightingは状態をgetFrameData()でしか返さないので、入力が無くなってからQUIESCENCE_INTERVALフレームごとに確かめる
+ *
+ * @author Taichi Miyazaki
+ */
+public class PlayoutSimulator {
+
+  /** 打ち切れるかを確かめる間隔のフレーム数(getFrameData()は1フレームのシミュレーションの半分ほどの時間がかかる) */
+  private static final int QUIESCENCE_INTERVAL = 4;
+
+  private final GameData gameData;
+
+  private final boolean playerNumber;
+
+  /** P1とP2の、ダメージを与えるAction */
+  private final BitSet[] attackActions;
+
+  /** 探索を始めるFrameDataの複製 */
+  private FrameData frameData;
+
+  /** getFrameData()に渡すKeyData */
+  private KeyData keyData;
+
+  /** 探索を始める時点の自分と相手のHP */
+  private int myOriginalHp;
+  private int oppOriginalHp;
+
+  /** これまでに行ったプレイアウトの回数 */
+  private long playoutCount;
+
+  /** 打ち切ったためにシミュレーションしなかったフレーム数 */
+  private long skippedFrames;
+
+  public PlayoutSimulator(GameData gameData, boolean playerNumber) {
+    this.gameData = gameData;
+    this.playerNumber = playerNumber;
+    this.attackActions =
+        new BitSet[] {getAttackActions(gameData.getPlayerOneMotion()),
+            getAttackActions(gameData.getPlayerTwoMotion())};
+  }
+
+  private static BitSet getAttackActions(Vector<MotionData> motion) {
+    BitSet attack = new BitSet(Action.values().length);
+    for (int i = 0; i < motion.size(); i++) {
+      if (motion.elementAt(i) != null && motion.elementAt(i).getAttackHitDamage() > 0) {
+        attack.set(i);
+      }
+    }
+    return attack;
+  }
+
+  /**
+   * 探索を始めるFrameDataを設定する
+   *
+   * @param frameData 探索を始めるFrameData
+   */
+  public void setFrameData(FrameData frameData) {
+    // SimFightingは飛び道具を取り出して戻すので、スレッドごとの複製をシミュレーションする
+    this.frameData = new FrameData(frameData);
+    this.keyData = this.frameData.getKeyData();
+    this.myOriginalHp = frameData.getMyCharacter(playerNumber).getHp();
+    this.oppOriginalHp = frameData.getOpponentCharacter(playerNumber).getHp();
+  }
+
+  /**
+   * プレイアウトを行い、評価値を返す
+   *
+   * @param myActions 自分が入力するActionの列(シミュレーション中に取り出される)
+   * @param oppActions 相手が入力するActionの列(シミュレーション中に取り出される)
+   * @param simulationTime シミュレーションする最大のフレーム数
+   * @return 自分のHPの変化から相手のHPの変化を引いた評価値
+   */
+  public int playout(Deque<Action> myActions, Deque<Action> oppActions, int simulationTime) {
+    playoutCount++;
+
+    SimFighting fighting = new SimFighting(gameData, frameData, playerNumber, myActions, oppActions);
+    int frameNumber = frameData.getFrameNumber();
+    int idle = 0;
+    for (int i = 0; i < simulationTime; i++) {
+      fighting.processingFight(frameNumber + i);
+
+      if (myActions.isEmpty() && oppActions.isEmpty() && ++idle % QUIESCENCE_INTERVAL == 0
+          && i + 1 < simulationTime) {
+        FrameData state = fighting.getFrameData(frameData.getRemainingTime(), keyData);
+        if (isQuiescent(state)) {
+          skippedFrames += simulationTime - 1 - i;
+          return getScore(state);
+        }
+      }
+    }
+
+    return getScore(fighting.getFrameData(frameData.getRemainingTime(), keyData));
+  }
+
+  /**
+   * 攻撃・飛び道具が無く、両キャラクターが攻撃でないモーションで操作可能か(それ以降HPは変わらない)
+   */
+  private boolean isQuiescent(FrameData state) {
+    CharacterData[] characters = {state.getP1(), state.getP2()};
+    for (int i = 0; i < characters.length; i++) {
+      CharacterData character = characters[i];
+      if (!character.isControl() || isDamaging(character.getAttack())
+          || attackActions[i].get(character.getAction().ordinal())) {
+        return false;
+      }
+    }
+    return state.getAttack().isEmpty();
+  }
+
+  /**
+   * ダメージを与える攻撃か(getFrameData()が複製するキャラクターは、攻撃の無いモーションでもダメージ0の攻撃を持つ)
+   */
+  private static boolean isDamaging(Attack attack) {
+    return attack != null && (attack.getHitDamage() != 0 || attack.getGuardDamage() != 0);
+  }
+
+  private int getScore(FrameData state) {
+    CharacterData my = state.getMyCharacter(playerNumber);
+    CharacterData opp = state.getOpponentCharacter(playerNumber);
+    return (my.getHp() - myOriginalHp) - (opp.getHp() - oppOriginalHp);
+  }
+
+  /**
+   * これまでに行ったプレイアウトの回数を返す
+   *
+   * @return プレイアウトの回数
+   */
+  public long getPlayoutCount() {
+    return playoutCount;
+  }
+
+  /**
+   * 打ち切ったためにシミュレーションしなかったフレーム数を返す
+   *
+   * @return フレーム数
+   */
+  public long getSkippedFrames() {
+    return skippedFrames;
+  }
+}
@@ -0,0 +1,199 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import structs.FrameData;
+
+import enumerate.Action;
+
+/**
+ * 専用のスレッドで探索を続けるMCTS(先読み)<br>
+ * getInformation()から受け取った最新のFrameDataで予測した状態の木を、フレームの間や技の入力中も広げ続ける<br>
+ * ゲームのスレッドとは最新のFrameData・実行したAction・最善のActionだけをロックを使わずにやり取りするので、processing()は最善のActionを読むだけで済む
+ *
+ * @author Taichi Miyazaki
+ */
+public class Ponderer implements Runnable {
+
+  /** 1回に探索する時間(この間隔で新しいFrameDataや実行したActionを確認する) */
+  public static final long PONDER_SLICE = 2000000;
+
+  /** 探索するFrameDataが無いときに待つ時間 */
+  private static final long IDLE_WAIT = 1000000;
+
+  /** スレッドの停止を待つ時間(ミリ秒) */
+  private static final long JOIN_TIMEOUT = 100;
+
+  private final MctsAi ai;
+  private final boolean playerNumber;
+
+  /** ルート並列化したMCTS(木並列のときはnull) */
+  private final RootParallelMcts rootParallelMcts;
+
+  /** 木並列化したMCTS(ルート並列のときはnull) */
+  private final TreeParallelMcts treeParallelMcts;
+
+  /** ゲームのスレッドから渡された最新のFrameData */
+  private final AtomicReference<FrameData> latestFrameData;
+
+  /** ゲームのスレッドが実行したAction(探索のスレッドが木に反映するまで保持する) */
+  private final AtomicReference<Action> executedAction;
+
+  /** ラウンドの切り替わりなどで木の破棄が要求されたか */
+  private final AtomicBoolean resetRequested;
+
+  /** ルートの世代(advance()とreset()で進め、古いルートの探索結果を見分ける) */
+  private final AtomicInteger generation;
+
+  /** 最後に公開した探索結果(世代が現在のものでなければ読まない) */
+  private final AtomicReference<SearchResult> bestAction;
+
+  /** 探索のスレッド */
+  private final Thread thread;
+
+  private volatile boolean running;
+
+  public Ponderer(MctsAi ai, boolean playerNumber, RootParallelMcts rootParallelMcts,
+      TreeParallelMcts treeParallelMcts) {
+    this.ai = ai;
+    this.playerNumber = playerNumber;
+    this.rootParallelMcts = rootParallelMcts;
+    this.treeParallelMcts = treeParallelMcts;
+
+    this.latestFrameData = new AtomicReference<FrameData>();
+    this.executedAction = new AtomicReference<Action>();
+    this.resetRequested = new AtomicBoolean();
+    this.generation = new AtomicInteger();
+    this.bestAction = new AtomicReference<SearchResult>();
+
+    this.running = true;
+    this.thread = new Thread(this, "MctsAi-ponder");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * 最新のFrameDataを探索のスレッドに渡す(getInformation()で呼び出す)
+   *
+   * @param frameData 最新のFrameData
+   */
+  public void setFrameData(FrameData frameData) {
+    latestFrameData.set(frameData);
+  }
+
+  /**
+   * 現在の木で最多訪問回数のActionを返す
+   *
+   * @return 最善のAction(まだ探索していなければnull)
+   */
+  public Action getBestAction() {
+    SearchResult result = bestAction.get();
+    return result != null && result.generation == generation.get() ? result.action : null;
+  }
+
+  /**
+   * 実行したActionを探索のスレッドに伝え、その部分木を次のルートにさせる
+   *
+   * @param action 実行したAction
+   */
+  public void advance(Action action) {
+    // 探索のスレッドが新しい世代を読んだときには実行したActionが見えるよう、先に渡しておく
+    executedAction.set(action);
+    generation.incrementAndGet();
+  }
+
+  /**
+   * 再利用する木を破棄させる
+   */
+  public void reset() {
+    resetRequested.set(true);
+    generation.incrementAndGet();
+  }
+
+  /**
+   * 探索のスレッドを停止する
+   */
+  public void shutdown() {
+    running = false;
+    thread.interrupt();
+    try {
+      thread.join(JOIN_TIMEOUT);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void run() {
+    FrameData searchedFrameData = null;
+    FrameData aheadFrameData = null;
+
+    while (running) {
+      // 要求を反映する前に世代を読むので、この後に要求されたら探索結果は古いものとして捨てられる
+      int rootGeneration = generation.get();
+
+      if (resetRequested.getAndSet(false)) {
+        if (treeParallelMcts != null) {
+          treeParallelMcts.reset();
+        } else {
+          rootParallelMcts.reset();
+        }
+        searchedFrameData = null;
+      }
+
+      Action executed = executedAction.getAndSet(null);
+      if (executed != null) {
+        if (treeParallelMcts != null) {
+          treeParallelMcts.advance(executed);
+        } else {
+          rootParallelMcts.advance(executed);
+        }
+        // ルートが変わったので、最新のFrameDataで予測し直す
+        searchedFrameData = null;
+      }
+
+      FrameData frameData = latestFrameData.get();
+      if (frameData == null || frameData.getEmptyFlag() || frameData.getRemainingTime() <= 0) {
+        LockSupport.parkNanos(IDLE_WAIT);
+        continue;
+      }
+
+      if (frameData != searchedFrameData) {
+        aheadFrameData = ai.mctsPrepare(frameData);
+        searchedFrameData = frameData;
+      }
+
+      long deadline = System.nanoTime() + PONDER_SLICE;
+      Action action;
+      if (treeParallelMcts != null) {
+        action =
+            treeParallelMcts.mcts(aheadFrameData, ai.getMyActions(), ai.getOppActions(),
+                playerNumber, deadline);
+      } else {
+        action =
+            rootParallelMcts.mcts(aheadFrameData, ai.getMyActions(), ai.getOppActions(), deadline);
+      }
+
+      // 探索中にActionが実行された・木の破棄が要求されたときは、古い木の結果なので公開しない
+      // (確認と公開の間に世代が進んでも、getBestAction()が世代を比べて読まない)
+      SearchResult previous = bestAction.get();
+      if (generation.get() == rootGeneration) {
+        bestAction.compareAndSet(previous, new SearchResult(rootGeneration, action));
+      }
+    }
+  }
+
+  /**
+   * 探索したルートの世代と、その木で最多訪問回数のAction
+   */
+  private static final class SearchResult {
+    private final int generation;
+    private final Action action;
+
+    private SearchResult(int generation, Action action) {
+      this.generation = generation;
+      this.action = action;
+    }
+  }
+}
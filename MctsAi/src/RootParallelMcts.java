@@ -0,0 +1,176 @@
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import structs.FrameData;
+import structs.GameData;
+
+import enumerate.Action;
+
+/**
+ * ルート並列化したMCTS<br>
+ * スレッドごとに独立した木を同じFrameDataから探索し、ルートの訪問回数と評価値を合算して行動を選ぶ<br>
+ * 実行したActionの部分木は残しておき、次のフレームの探索で再利用する<br>
+ * 木はスレッドごとのNodePoolに持つので、探索中にノードのオブジェクトは生成しない<br>
+ * 各スレッドの木はパスの統計量のキャッシュを共有し、同じ状態から同じActionの列で探索した統計量を引き継ぐ
+ *
+ * @author Taichi Miyazaki
+ */
+public class RootParallelMcts {
+
+  /** 探索に利用するスレッド数 */
+  private final int threadNumber;
+
+  /** 呼び出し元以外のスレッドで探索を行うワーカー */
+  private final ExecutorService executor;
+
+  /** スレッドごとの木(先頭は呼び出し元のスレッドが探索する) */
+  private final NodePool[] pools;
+
+  /** 全スレッドの木で共有するパスの統計量のキャッシュ(使わなければnull) */
+  private final PathStatisticsCache cache;
+
+  /**
+   * @param cacheSize キャッシュのエントリの数(0ならキャッシュを使わない)
+   */
+  public RootParallelMcts(int threadNumber, GameData gameData, boolean playerNumber,
+      int cacheSize) {
+    this.threadNumber = Math.max(1, threadNumber);
+    this.cache = cacheSize > 0 ? new PathStatisticsCache(cacheSize) : null;
+
+    // 各スレッドは自分のNodePoolを使うので、SimulatorとRandomはスレッドごとに独立する
+    this.pools = new NodePool[this.threadNumber];
+    for (int i = 0; i < pools.length; i++) {
+      pools[i] = new NodePool(gameData, playerNumber, cache);
+    }
+
+    if (this.threadNumber > 1) {
+      this.executor = Executors.newFixedThreadPool(this.threadNumber - 1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "MctsAi-uct");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    } else {
+      this.executor = null;
+    }
+  }
+
+  /**
+   * ルート並列化したMCTSを行う<br>
+   * スレッド数が1のときは、呼び出し元のスレッドだけで探索する
+   *
+   * @param deadline 探索を終了する時刻(System.nanoTime()基準)
+   * @return 合算した訪問回数が最も多いAction
+   */
+  public Action mcts(FrameData frameData, LinkedList<Action> myActions,
+      LinkedList<Action> oppActions, long deadline) {
+    search(frameData, myActions, oppActions, deadline);
+
+    return NodePool.getBestVisitAction(pools);
+  }
+
+  /**
+   * 行動を選ばずに、再利用する木の探索だけを進める(技の入力中のフレームで利用する)
+   *
+   * @param deadline 探索を終了する時刻(System.nanoTime()基準)
+   */
+  public void search(FrameData frameData, LinkedList<Action> myActions,
+      LinkedList<Action> oppActions, final long deadline) {
+    if (cache != null) {
+      cache.nextAge();
+    }
+    for (NodePool pool : pools) {
+      pool.prepare(frameData, myActions, oppActions);
+    }
+
+    List<Future<?>> futures = new ArrayList<Future<?>>(threadNumber - 1);
+    for (int i = 1; i < threadNumber; i++) {
+      final NodePool pool = pools[i];
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() {
+          pool.searchUntil(deadline);
+          return null;
+        }
+      }));
+    }
+
+    pools[0].searchUntil(deadline);
+
+    awaitAll(futures);
+  }
+
+  /**
+   * ワーカーの探索が終わるまで待つ<br>
+   * 割り込まれても待ち続け、全て終わってから割り込みの状態を戻す(途中で戻ると、ワーカーが書き込んでいる木を読むことになる)。
+   * ワーカーは締め切りの時刻で探索を終えるので、待つのはその時刻と1回のプレイアウトまでになる
+   *
+   * @param futures ワーカーの探索
+   */
+  private static void awaitAll(List<Future<?>> futures) {
+    boolean interrupted = false;
+    for (Future<?> future : futures) {
+      for (;;) {
+        try {
+          future.get();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          e.printStackTrace();
+          break;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * 実行したActionの部分木を、次の探索のルートとして残す
+   *
+   * @param action 実行したAction
+   */
+  public void advance(Action action) {
+    for (NodePool pool : pools) {
+      pool.advance(action);
+    }
+  }
+
+  /**
+   * 再利用する木を破棄する
+   */
+  public void reset() {
+    for (NodePool pool : pools) {
+      pool.clear();
+    }
+  }
+
+  /**
+   * 呼び出し元のスレッドが探索した木を返す
+   *
+   * @return 呼び出し元のスレッドのNodePool
+   */
+  public NodePool getNodePool() {
+    return pools[0];
+  }
+
+  /**
+   * ワーカースレッドを停止する
+   */
+  public void shutdown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+}
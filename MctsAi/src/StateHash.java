@@ -0,0 +1,68 @@
+import structs.CharacterData;
+import structs.FrameData;
+import structs.HitArea;
+
+import fighting.Attack;
+
+import enumerate.Action;
+
+/**
+ * 探索を始める状態のハッシュ値<br>
+ * 両キャラクターのCharacterDataと飛び道具を量子化して求めるので、ほとんど同じ状態は同じハッシュ値になる。
+ * 再利用する木の状態が変わったかの判定と、PathStatisticsCacheのキーに使う
+ *
+ * @author Taichi Miyazaki
+ */
+public final class StateHash {
+
+  /** 座標を量子化する幅 */
+  private static final int POSITION_QUANTUM = 10;
+
+  /** エネルギーを量子化する幅 */
+  private static final int ENERGY_QUANTUM = 10;
+
+  private StateHash() {}
+
+  /**
+   * 探索を始める状態のハッシュ値を返す
+   *
+   * @param frameData 探索を始めるFrameData
+   * @param playerNumber 自分がP1ならtrue
+   * @return ハッシュ値
+   */
+  public static long hash(FrameData frameData, boolean playerNumber) {
+    long h = playerNumber ? 1 : 2;
+    h = hash(h, frameData.getP1());
+    h = hash(h, frameData.getP2());
+
+    for (Attack attack : frameData.getAttack()) {
+      HitArea area = attack.getHitAreaNow();
+      h = mix(h, attack.isPlayerNumber() ? 1 : 2);
+      h = mix(h, area.getL() / POSITION_QUANTUM);
+      h = mix(h, area.getT() / POSITION_QUANTUM);
+      h = mix(h, attack.getSpeedX());
+      h = mix(h, attack.getSpeedY());
+    }
+
+    return h;
+  }
+
+  private static long hash(long h, CharacterData character) {
+    Action action = character.getAction();
+    h = mix(h, character.getX() / POSITION_QUANTUM);
+    h = mix(h, character.getY() / POSITION_QUANTUM);
+    h = mix(h, character.getSpeedX());
+    h = mix(h, character.getSpeedY());
+    h = mix(h, character.getState().ordinal());
+    h = mix(h, action == null ? -1 : action.ordinal());
+    h = mix(h, character.getRemainingFrame());
+    h = mix(h, character.getEnergy() / ENERGY_QUANTUM);
+    h = mix(h, character.isFront() ? 1 : 0);
+    return h;
+  }
+
+  static long mix(long h, long v) {
+    h = (h ^ v) * 0x9E3779B97F4A7C15L;
+    return h ^ (h >>> 29);
+  }
+}
@@ -0,0 +1,175 @@
+import structs.CharacterData;
+import structs.FrameData;
+
+import fighting.Attack;
+
+/**
+ * 1フレームごとの探索時間を決める<br>
+ * getInformation()からinput()までにかかった時間を計測してフレームの残り時間を求め、安全のための余裕を残す<br>
+ * 残り時間のうち実際に使う割合は、キャラクター間の距離・飛び道具・HPとエネルギーから求めた緊迫度で決める
+ *
+ * @author Taichi Miyazaki
+ */
+public class TimeManager {
+
+  /** 1フレームの長さ(60FPS) */
+  public static final long FRAME_TIME = 1000000000L / 60;
+
+  /** 安全のために残す時間の最小値 */
+  public static final long SAFETY_MARGIN = 1500000;
+
+  /** 緊迫度が0のときに使う、残り時間の割合 */
+  public static final double MIN_BUDGET_RATIO = 0.4;
+
+  /** キャラクター(または飛び道具)との距離がこれ以上なら、距離による緊迫度を0とする */
+  public static final int FAR_DISTANCE = 400;
+
+  /** HPの差がこれ以上なら、HPによる緊迫度を0とする */
+  public static final int HP_GAP_RANGE = 200;
+
+  /** 計測値を平滑化するときに、新しい値に掛ける重み */
+  private static final double SMOOTHING = 0.1;
+
+  /** 必殺技を出すのに必要なエネルギー */
+  private final int spSkillEnergy;
+
+  /** 今のフレームでgetInformation()が呼ばれた時刻 */
+  private long frameStart;
+
+  /** getInformation()の呼び出し間隔から求めた1フレームの長さ */
+  private double frameTime = FRAME_TIME;
+
+  /** 探索を終えてからinput()が呼ばれるまでにかかった時間 */
+  private double overhead;
+
+  /** 安全のために残す時間(フレームに間に合わなかったときは広げる) */
+  private long margin = SAFETY_MARGIN;
+
+  /** 探索を終えた時刻(探索していないフレームでは0) */
+  private long searchEnd;
+
+  /** 直近に求めた緊迫度 */
+  private double criticality;
+
+  public TimeManager(int spSkillEnergy) {
+    this.spSkillEnergy = Math.max(1, spSkillEnergy);
+  }
+
+  /**
+   * フレームの開始を記録する(getInformation()で呼び出す)
+   */
+  public void startFrame() {
+    long now = System.nanoTime();
+
+    // ラウンドの切り替わりなどで間隔が大きく空いたときは計測しない
+    long interval = now - frameStart;
+    if (frameStart != 0 && interval < 2 * FRAME_TIME) {
+      frameTime += (interval - frameTime) * SMOOTHING;
+    }
+    frameStart = now;
+  }
+
+  /**
+   * 今のフレームで探索を終える時刻を返す
+   *
+   * @param frameData 今のフレームのFrameData
+   * @param playerNumber 自分がP1ならtrue
+   * @return 探索を終える時刻(System.nanoTime()基準)
+   */
+  public long getDeadline(FrameData frameData, boolean playerNumber) {
+    criticality = getCriticality(frameData, playerNumber);
+
+    long now = System.nanoTime();
+    long headroom = getFrameEnd() - margin - (long) overhead - now;
+    long budget = Math.min(headroom, MctsAi.UCT_TIME);
+    if (budget <= 0) {
+      return now;
+    }
+
+    return now + (long) (budget * (MIN_BUDGET_RATIO + (1 - MIN_BUDGET_RATIO) * criticality));
+  }
+
+  /**
+   * 探索の終了を記録する
+   */
+  public void endSearch() {
+    searchEnd = System.nanoTime();
+  }
+
+  /**
+   * フレームの処理の終了を記録する(input()で呼び出す)<br>
+   * フレームに間に合わなかったときは、超過した分だけ安全のための余裕を広げる
+   */
+  public void endFrame() {
+    if (searchEnd == 0) {
+      return;
+    }
+
+    long now = System.nanoTime();
+    overhead += (now - searchEnd - overhead) * SMOOTHING;
+    searchEnd = 0;
+
+    long overrun = now - getFrameEnd();
+    if (overrun > 0) {
+      margin = Math.min(margin + overrun, FRAME_TIME / 2);
+    } else {
+      margin -= (margin - SAFETY_MARGIN) / 8;
+    }
+  }
+
+  /**
+   * 緊迫度を0から1の値で返す<br>
+   * キャラクター同士か飛び道具と相手が近いほど高く、HPの差が小さいほど、必殺技を出せるエネルギーに近いほど高くなる
+   *
+   * @param frameData FrameData
+   * @param playerNumber 自分がP1ならtrue
+   * @return 緊迫度
+   */
+  public double getCriticality(FrameData frameData, boolean playerNumber) {
+    CharacterData myCharacter = playerNumber ? frameData.getP1() : frameData.getP2();
+    CharacterData oppCharacter = playerNumber ? frameData.getP2() : frameData.getP1();
+
+    double distance =
+        getCloseness(myCharacter.getLeft(), myCharacter.getRight(), oppCharacter.getLeft(),
+            oppCharacter.getRight());
+
+    // 飛び道具は、狙われている側のキャラクターとの距離で評価する
+    double projectile = 0;
+    for (Attack attack : frameData.getAttack()) {
+      CharacterData target = attack.isPlayerNumber() ? frameData.getP2() : frameData.getP1();
+      projectile =
+          Math.max(projectile, getCloseness(attack.getHitAreaNow().getL(), attack.getHitAreaNow()
+              .getR(), target.getLeft(), target.getRight()));
+    }
+
+    double hp =
+        1 - Math.min(Math.abs(myCharacter.getHp() - oppCharacter.getHp()) / (double) HP_GAP_RANGE,
+            1);
+    double energy =
+        Math.min(Math.max(myCharacter.getEnergy(), oppCharacter.getEnergy())
+            / (double) spSkillEnergy, 1);
+
+    return 0.8 * Math.max(distance, projectile) + 0.2 * (hp + energy) / 2;
+  }
+
+  /**
+   * 2つの区間の近さを、重なっていれば1、FAR_DISTANCE以上離れていれば0として返す
+   */
+  private double getCloseness(int left1, int right1, int left2, int right2) {
+    int gap = Math.max(0, Math.max(left1, left2) - Math.min(right1, right2));
+    return 1 - Math.min(gap / (double) FAR_DISTANCE, 1);
+  }
+
+  /**
+   * 直近に求めた緊迫度を返す
+   *
+   * @return 緊迫度
+   */
+  public double getLastCriticality() {
+    return criticality;
+  }
+
+  private long getFrameEnd() {
+    return frameStart + (long) Math.min(frameTime, FRAME_TIME);
+  }
+}
@@ -0,0 +1,189 @@
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import structs.FrameData;
+import structs.GameData;
+
+import enumerate.Action;
+
+/**
+ * 木並列化したMCTS<br>
+ * 全スレッドが1つの木(ParallelNode)を共有し、同じ統計量を使って探索する<br>
+ * 実行したActionの部分木は残しておき、次のフレームの探索で再利用する
+ *
+ * @author Taichi Miyazaki
+ */
+public class TreeParallelMcts {
+
+  /** 探索に利用するスレッド数 */
+  private final int threadNumber;
+
+  /** 呼び出し元以外のスレッドで探索を行うワーカー */
+  private final ExecutorService executor;
+
+  /** スレッドごとの探索用の状態(先頭は呼び出し元のスレッドが利用する) */
+  private final ParallelNode.Worker[] workers;
+
+  /** 再利用する木のルートノード */
+  private ParallelNode rootNode;
+
+  /** ルートノードの探索を始めた状態のハッシュ値 */
+  private long rootHash;
+
+  /** advance()でルートを移してから、まだ探索していないか */
+  private boolean rootMoved;
+
+  public TreeParallelMcts(int threadNumber, GameData gameData, boolean playerNumber) {
+    this.threadNumber = Math.max(1, threadNumber);
+
+    this.workers = new ParallelNode.Worker[this.threadNumber];
+    for (int i = 0; i < workers.length; i++) {
+      workers[i] = new ParallelNode.Worker(gameData, playerNumber);
+    }
+
+    if (this.threadNumber > 1) {
+      this.executor = Executors.newFixedThreadPool(this.threadNumber - 1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "MctsAi-uct");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    } else {
+      this.executor = null;
+    }
+  }
+
+  /**
+   * 木並列化したMCTSを行う
+   *
+   * @param deadline 探索を終了する時刻(System.nanoTime()基準)
+   * @return 最終的なノードの探索回数が多いAction
+   */
+  public Action mcts(FrameData frameData, LinkedList<Action> myActions,
+      LinkedList<Action> oppActions, boolean playerNumber, long deadline) {
+    search(frameData, myActions, oppActions, playerNumber, deadline);
+
+    return rootNode.getBestVisitAction();
+  }
+
+  /**
+   * 行動を選ばずに、再利用する木の探索だけを進める(技の入力中のフレームで利用する)
+   *
+   * @param deadline 探索を終了する時刻(System.nanoTime()基準)
+   */
+  public void search(FrameData frameData, LinkedList<Action> myActions,
+      LinkedList<Action> oppActions, boolean playerNumber, final long deadline) {
+    // MctsAiはAction候補のLinkedListを使い回すので、木には探索ごとの配列を渡す(プレイアウトは添字で引く)
+    Action[] my = myActions.toArray(new Action[myActions.size()]);
+    Action[] opp = oppActions.toArray(new Action[oppActions.size()]);
+
+    long hash = StateHash.hash(frameData, playerNumber);
+    if (rootNode == null) {
+      rootNode = new ParallelNode(frameData, my, opp, playerNumber);
+      rootNode.createNode();
+    } else {
+      // 残した木の統計量は前の状態から探索したものなので、ルートを移したときや状態が変わったときは割り引く
+      if (rootMoved || hash != rootHash) {
+        rootNode.discount();
+      }
+      rootNode.refresh(frameData, my, opp);
+    }
+    rootHash = hash;
+    rootMoved = false;
+
+    for (ParallelNode.Worker worker : workers) {
+      worker.setFrameData(frameData);
+    }
+
+    final ParallelNode root = rootNode;
+
+    List<Future<?>> futures = new ArrayList<Future<?>>(threadNumber - 1);
+    for (int i = 1; i < threadNumber; i++) {
+      final ParallelNode.Worker worker = workers[i];
+      futures.add(executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          root.searchUntil(worker, deadline);
+        }
+      }));
+    }
+
+    root.searchUntil(workers[0], deadline);
+
+    awaitAll(futures);
+  }
+
+  /**
+   * ワーカーの探索が終わるまで待つ<br>
+   * 割り込まれても待ち続け、全て終わってから割り込みの状態を戻す(途中で戻ると、ワーカーが書き込んでいる木を読むことになる)。
+   * ワーカーは締め切りの時刻で探索を終えるので、待つのはその時刻と1回のプレイアウトまでになる
+   *
+   * @param futures ワーカーの探索
+   */
+  private static void awaitAll(List<Future<?>> futures) {
+    boolean interrupted = false;
+    for (Future<?> future : futures) {
+      for (;;) {
+        try {
+          future.get();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          e.printStackTrace();
+          break;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * 実行したActionの部分木を、次の探索のルートとして残す
+   *
+   * @param action 実行したAction
+   */
+  public void advance(Action action) {
+    ParallelNode child = rootNode == null ? null : rootNode.getChild(action);
+    if (child != null) {
+      child.detach();
+    }
+    rootNode = child;
+    rootMoved = true;
+  }
+
+  /**
+   * 再利用する木を破棄する
+   */
+  public void reset() {
+    rootNode = null;
+  }
+
+  /**
+   * 再利用する木のルートノードを返す
+   *
+   * @return ルートノード
+   */
+  public ParallelNode getRootNode() {
+    return rootNode;
+  }
+
+  /**
+   * ワーカースレッドを停止する
+   */
+  public void shutdown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+}
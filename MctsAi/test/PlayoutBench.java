@@ -0,0 +1,128 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import simulator.Simulator;
+import structs.FrameData;
+import structs.GameData;
+
+import enumerate.Action;
+
+/**
+ * プレイアウトの速さを、元のNode.playout()と同じ方法(LinkedListのget(i)で選んだActionを、AIToolKitのSimulatorでシミュレーションし、返ったFrameDataから評価値を求める)と、
+ * NodePool.playout()とParallelNode.playout()(配列から選んだActionをPlayoutSimulatorでシミュレーションする)で比べる<br>
+ * AIToolKitのSimFightingにはリセットが無いので、どの方法でもプレイアウトごとにSimFightingを作り、キャラクターと飛び道具を複製する<br>
+ * 使い方はTestStatesと同じ(java PlayoutBench)。ZEN同士の状態から、地上のAction候補25個の中でプレイアウトする
+ */
+public class PlayoutBench {
+
+  private static final Action[] CANDIDATES = {Action.STAND_D_DF_FC, Action.STAND_D_DB_BA,
+      Action.BACK_STEP, Action.FORWARD_WALK, Action.DASH, Action.JUMP, Action.FOR_JUMP,
+      Action.BACK_JUMP, Action.STAND_GUARD, Action.CROUCH_GUARD, Action.THROW_A, Action.THROW_B,
+      Action.STAND_A, Action.STAND_B, Action.CROUCH_A, Action.CROUCH_B, Action.STAND_FA,
+      Action.STAND_FB, Action.CROUCH_FA, Action.CROUCH_FB, Action.STAND_D_DF_FA,
+      Action.STAND_D_DF_FB, Action.STAND_F_D_DFA, Action.STAND_F_D_DFB, Action.STAND_D_DB_BB};
+
+  /** 1回の計測で、1つの状態から行うプレイアウトの回数 */
+  private static final int PLAYOUTS = 40;
+
+  private static final int ROUNDS = 12;
+
+  /** JITのために捨てる計測の回数 */
+  private static final int WARMUP = 4;
+
+  public static void main(String[] args) throws Exception {
+    GameData gameData = TestStates.createGameData("ZEN", "ZEN");
+    List<FrameData> states = TestStates.createStates(gameData, new Random(5), 50);
+    LinkedList<Action> candidates = new LinkedList<Action>(Arrays.asList(CANDIDATES));
+
+    Baseline baseline = new Baseline(gameData, candidates);
+    NodePool pool = new NodePool(gameData, true);
+    ParallelNode.Worker worker = new ParallelNode.Worker(gameData, true);
+    Action[] candidateArray = candidates.toArray(new Action[candidates.size()]);
+
+    String[] names = {"Node.playout (baseline)", "NodePool.playout", "ParallelNode.playout"};
+    double[][] rates = new double[names.length][ROUNDS];
+    for (int round = 0; round < ROUNDS; round++) {
+      for (int method = 0; method < names.length; method++) {
+        long start = System.nanoTime();
+        for (FrameData frameData : states) {
+          if (method == 0) {
+            baseline.setFrameData(frameData);
+            for (int i = 0; i < PLAYOUTS; i++) {
+              baseline.playout();
+            }
+          } else if (method == 1) {
+            pool.prepare(frameData, candidates, candidates);
+            for (int i = 0; i < PLAYOUTS; i++) {
+              pool.playout(0);
+            }
+          } else {
+            ParallelNode root = new ParallelNode(frameData, candidateArray, candidateArray, true);
+            worker.setFrameData(frameData);
+            for (int i = 0; i < PLAYOUTS; i++) {
+              root.playout(worker);
+            }
+          }
+        }
+        rates[method][round] = (double) states.size() * PLAYOUTS * 1e9 / (System.nanoTime() - start);
+      }
+    }
+
+    for (int method = 0; method < names.length; method++) {
+      double[] measured = Arrays.copyOfRange(rates[method], WARMUP, ROUNDS);
+      Arrays.sort(measured);
+      System.out.printf("%s: %.0f playouts/s (median of %d, %.0f-%.0f)%n", names[method],
+          measured[measured.length / 2], measured.length, measured[0],
+          measured[measured.length - 1]);
+    }
+  }
+
+  /**
+   * 元のNode.playout()と同じプレイアウト
+   */
+  private static class Baseline {
+    private final Simulator simulator;
+    private final LinkedList<Action> myActions;
+    private final LinkedList<Action> oppActions;
+    private final LinkedList<Action> selectedMyActions = new LinkedList<Action>();
+    private final Deque<Action> mAction = new ArrayDeque<Action>();
+    private final Deque<Action> oppAction = new ArrayDeque<Action>();
+    private final Random rnd = new Random();
+    private FrameData frameData;
+    private int myOriginalHp;
+    private int oppOriginalHp;
+
+    Baseline(GameData gameData, LinkedList<Action> actions) {
+      this.simulator = new Simulator(gameData);
+      this.myActions = actions;
+      this.oppActions = actions;
+    }
+
+    void setFrameData(FrameData frameData) {
+      this.frameData = frameData;
+      this.myOriginalHp = frameData.getP1().getHp();
+      this.oppOriginalHp = frameData.getP2().getHp();
+    }
+
+    double playout() {
+      mAction.clear();
+      oppAction.clear();
+      for (int i = 0; i < selectedMyActions.size(); i++) {
+        mAction.add(selectedMyActions.get(i));
+      }
+      for (int i = 0; i < 5 - selectedMyActions.size(); i++) {
+        mAction.add(myActions.get(rnd.nextInt(myActions.size())));
+      }
+      for (int i = 0; i < 5; i++) {
+        oppAction.add(oppActions.get(rnd.nextInt(oppActions.size())));
+      }
+      FrameData simulated =
+          simulator.simulate(frameData, true, mAction, oppAction, MctsAi.SIMULATION_TIME);
+      return (simulated.getP1().getHp() - myOriginalHp) - (simulated.getP2().getHp() - oppOriginalHp);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.Random;
+
+import structs.FrameData;
+import structs.GameData;
+
+import enumerate.Action;
+
+/**
+ * 打ち切りのあるPlayoutSimulator.playout()が、AIToolKitのSimulatorで全フレームをシミュレーションしたときと同じ評価値を返すかを、両方のプレイヤーについて確かめる<br>
+ * プレイアウトはMctsAiと同じく、自分と相手のActionの列をシミュレーションする
+ */
+public class PlayoutSimulatorCheck {
+
+  public static void main(String[] args) throws Exception {
+    Random random = new Random(10);
+    int playouts = 0, damaging = 0;
+    long skipped = 0;
+    for (String playerOne : TestStates.CHARACTERS) {
+      for (String playerTwo : TestStates.CHARACTERS) {
+        GameData gameData = TestStates.createGameData(playerOne, playerTwo);
+        for (int side = 0; side < 2; side++) {
+          boolean player = side == 0;
+          PlayoutSimulator simulator = new PlayoutSimulator(gameData, player);
+          for (FrameData frameData : TestStates.createStates(gameData, random, 10)) {
+            simulator.setFrameData(frameData);
+            for (int n = 0; n < 20; n++) {
+              Action[] myActions = TestStates.pick(random, 1 + random.nextInt(MctsAi.UCT_TREE_DEPTH + 4));
+              Action[] oppActions = TestStates.pick(random, 1 + random.nextInt(5));
+              int expected = simulate(gameData, frameData, player, myActions, oppActions);
+              int value = simulator.playout(toDeque(myActions), toDeque(oppActions), MctsAi.SIMULATION_TIME);
+              if (value != expected) {
+                TestStates.fail(playerOne + " vs " + playerTwo + " P" + (player ? 1 : 2) + " "
+                    + Arrays.toString(myActions) + " against " + Arrays.toString(oppActions) + ": "
+                    + value + " instead of " + expected);
+              }
+              playouts++;
+              if (value != 0) {
+                damaging++;
+              }
+            }
+          }
+          skipped += simulator.getSkippedFrames();
+        }
+      }
+    }
+    if (damaging == 0) {
+      TestStates.fail("no playout dealt damage");
+    }
+    if (skipped == 0) {
+      TestStates.fail("no playout was stopped early");
+    }
+    System.out.println("OK: " + playouts + " playouts, " + damaging + " dealing damage, " + skipped
+        + " frames skipped");
+  }
+
+  /**
+   * AIToolKitのSimulatorで全フレームをシミュレーションした評価値
+   */
+  private static int simulate(GameData gameData, FrameData frameData, boolean player,
+      Action[] myActions, Action[] oppActions) {
+    FrameData simulated = gameData.getSimulator().simulate(frameData, player, toDeque(myActions),
+        toDeque(oppActions), MctsAi.SIMULATION_TIME);
+    return (simulated.getMyCharacter(player).getHp() - frameData.getMyCharacter(player).getHp())
+        - (simulated.getOpponentCharacter(player).getHp()
+            - frameData.getOpponentCharacter(player).getHp());
+  }
+
+  private static Deque<Action> toDeque(Action[] actions) {
+    return new LinkedList<Action>(Arrays.asList(actions));
+  }
+}
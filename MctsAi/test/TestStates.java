@@ -0,0 +1,218 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.Vector;
+
+import structs.CharacterData;
+import structs.FrameData;
+import structs.GameData;
+import structs.HitArea;
+import structs.Key;
+import structs.KeyData;
+import structs.MotionData;
+
+import enumerate.Action;
+import enumerate.State;
+import fighting.Attack;
+
+/**
+ * testディレクトリのチェックが使う、ゲームを起動せずに作るゲームの状態<br>
+ * チェックはプロジェクトのディレクトリから、srcとtestのクラス、AIToolKit.jarとゲームのライブラリをクラスパスに入れて実行する<br>
+ * javac -encoding UTF-8 -cp lib/AIToolKit.jar -d /tmp/check $(find src test -name '*.java')<br>
+ * java -cp /tmp/check:lib/AIToolKit.jar:../FightingICE/lib/javatuples-1.2.jar:../FightingICE/lib/gameLib.jar PlayoutSimulatorCheck<br>
+ * Motion.csvは../FightingICE/data、またはシステムプロパティmctsai.test.dataのディレクトリから読む。
+ * チェックは比べた内容を出力し、最初に違いが見つかると1で終了する
+ */
+final class TestStates {
+
+  static final String[] CHARACTERS = {"ZEN", "GARNET", "LUD"};
+
+  private static final Action[] ACTIONS = Action.values();
+
+  /** 飛び道具を出すAction */
+  private static final Action[] PROJECTILES = {Action.STAND_D_DF_FA, Action.STAND_D_DF_FB,
+      Action.STAND_D_DF_FC, Action.AIR_D_DF_FA, Action.AIR_D_DF_FB};
+
+  private TestStates() {}
+
+  /**
+   * GameDataとCharacterDataはゲームしか作れないので、コンストラクタを呼ばずに作ったインスタンスにフィールドを設定する
+   */
+  static GameData createGameData(String playerOne, String playerTwo) throws IOException {
+    File data = new File(System.getProperty("mctsai.test.data", "../FightingICE/data"));
+    GameData gameData = allocate(GameData.class);
+    set(gameData, "stageXMax", 960);
+    set(gameData, "stageYMax", 640);
+    set(gameData, "playerOneMaxEnergy", 1000);
+    set(gameData, "playerTwoMaxEnergy", 1000);
+    set(gameData, "playerOneMotion", readMotion(new File(data, "character/" + playerOne + "/Motion.csv")));
+    set(gameData, "playerTwoMotion", readMotion(new File(data, "character/" + playerTwo + "/Motion.csv")));
+    set(gameData, "characterName", new String[] {playerOne, playerTwo});
+    ArrayList<Vector<?>> comboTable = new ArrayList<Vector<?>>();
+    comboTable.add(new Vector<Object>());
+    comboTable.add(new Vector<Object>());
+    set(gameData, "comboTable", comboTable);
+    set(gameData, "simulator", new simulator.Simulator(gameData));
+    return gameData;
+  }
+
+  /**
+   * ランダムな位置に立つ2人から、飛び道具で始まることの多いランダムな入力でAIToolKitのシミュレータが進めた状態を返す<br>
+   * 空中のキャラクター、Actionの途中のキャラクター、攻撃を受けているキャラクター、飛び道具のある状態を含む
+   */
+  static List<FrameData> createStates(GameData gameData, Random random, int count) {
+    List<FrameData> states = new ArrayList<FrameData>();
+    for (int n = 0; n < count; n++) {
+      int x1 = 50 + random.nextInt(500);
+      int x2 = x1 + 60 + random.nextInt(350);
+      FrameData state =
+          new FrameData(createCharacter(x1, true, 300 + random.nextInt(100), random.nextInt(400)),
+              createCharacter(x2, false, 300 + random.nextInt(100), random.nextInt(400)), 60000, 1,
+              new LinkedList<Attack>(), new KeyData(new Key[] {new Key(), new Key()}));
+      state = gameData.getSimulator().simulate(state, true, createInputs(random),
+          createInputs(random), 8 + random.nextInt(40));
+      states.add(new FrameData(state.getP1(), state.getP2(), 60000 - random.nextInt(50000), 1,
+          state.getAttack(), state.getKeyData()));
+    }
+    return states;
+  }
+
+  /**
+   * ランダムなActionをcount個返す
+   */
+  static Action[] pick(Random random, int count) {
+    Action[] actions = new Action[count];
+    for (int i = 0; i < count; i++) {
+      actions[i] = ACTIONS[random.nextInt(ACTIONS.length)];
+    }
+    return actions;
+  }
+
+  static void fail(String message) {
+    System.out.println("FAILED: " + message);
+    System.exit(1);
+  }
+
+  private static Deque<Action> createInputs(Random random) {
+    Deque<Action> inputs = new LinkedList<Action>();
+    if (random.nextBoolean()) {
+      inputs.add(PROJECTILES[random.nextInt(PROJECTILES.length)]);
+    }
+    for (int i = random.nextInt(4); i >= 0; i--) {
+      inputs.add(ACTIONS[random.nextInt(ACTIONS.length)]);
+    }
+    return inputs;
+  }
+
+  /**
+   * xに立ち止まっているキャラクター
+   */
+  private static CharacterData createCharacter(int x, boolean front, int hp, int energy) {
+    CharacterData character = allocate(CharacterData.class);
+    set(character, "currentCombo", new Vector<Object>());
+    character.hp = hp;
+    character.energy = energy;
+    character.x = x;
+    character.y = 335;
+    character.front = front;
+    character.action = Action.STAND;
+    character.state = State.STAND;
+    character.remainingFrame = 10;
+    character.control = true;
+    return character;
+  }
+
+  /**
+   * Motion.csvを、GameData.getPlayerOneMotion()と同じくActionの序数で引けるVectorに読む(列はゲームと同じく位置で読む)
+   */
+  private static Vector<MotionData> readMotion(File file) throws IOException {
+    Vector<MotionData> motions = new Vector<MotionData>();
+    motions.setSize(ACTIONS.length);
+    BufferedReader reader = new BufferedReader(new FileReader(file));
+    try {
+      reader.readLine();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] row = line.split(",");
+        Action action;
+        try {
+          action = Action.valueOf(row[0].trim());
+        } catch (IllegalArgumentException e) {
+          continue;
+        }
+        MotionData motion = new MotionData();
+        motion.motionName = action.name();
+        motion.frameNumber = getInt(row, 1);
+        motion.speedX = getInt(row, 2);
+        motion.speedY = getInt(row, 3);
+        motion.hit = new HitArea(getInt(row, 4), getInt(row, 5), getInt(row, 6), getInt(row, 7));
+        motion.state = State.valueOf(row[8].trim());
+        motion.attackHit =
+            new HitArea(getInt(row, 9), getInt(row, 10), getInt(row, 11), getInt(row, 12));
+        motion.attackSpeedX = getInt(row, 13);
+        motion.attackSpeedY = getInt(row, 14);
+        motion.attackStartUp = getInt(row, 15);
+        motion.attackInterval = getInt(row, 16);
+        motion.attackRepeat = getInt(row, 17);
+        motion.attackActive = getInt(row, 18);
+        motion.attackHitDamage = getInt(row, 19);
+        motion.attackGuardDamage = getInt(row, 20);
+        motion.attackStartAddEnergy = getInt(row, 21);
+        motion.attackHitAddEnergy = getInt(row, 22);
+        motion.attackGuardAddEnergy = getInt(row, 23);
+        motion.attackGiveEnergy = getInt(row, 24);
+        motion.attackImpactX = getInt(row, 25);
+        motion.attackImpactY = getInt(row, 26);
+        motion.attackGiveGuardRecov = getInt(row, 27);
+        motion.attackKnockBack = getInt(row, 28);
+        motion.attackHitStop = getInt(row, 29);
+        motion.attackType = getInt(row, 30);
+        motion.attackDownProperty = Boolean.parseBoolean(row[31].trim().toLowerCase());
+        // 32列目は攻撃の画像
+        motion.cancelAbleFrame = getInt(row, 33);
+        motion.cancelAbleMotionLevel = getInt(row, 34);
+        motion.motionLevel = getInt(row, 35);
+        motion.control = Boolean.parseBoolean(row[36].trim().toLowerCase());
+        motion.landingFlag = Boolean.parseBoolean(row[37].trim().toLowerCase());
+        motions.set(action.ordinal(), motion);
+      }
+    } finally {
+      reader.close();
+    }
+    return motions;
+  }
+
+  private static int getInt(String[] row, int column) {
+    return Integer.parseInt(row[column].trim());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T allocate(Class<T> type) {
+    try {
+      Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      Object unsafe = field.get(null);
+      return (T) unsafe.getClass().getMethod("allocateInstance", Class.class).invoke(unsafe, type);
+    } catch (Exception e) {
+      throw new UnsupportedOperationException("cannot create " + type.getName() + " outside the game", e);
+    }
+  }
+
+  private static void set(Object object, String name, Object value) {
+    try {
+      Field field = object.getClass().getDeclaredField(name);
+      field.setAccessible(true);
+      field.set(object, value);
+    } catch (Exception e) {
+      throw new UnsupportedOperationException(
+          "cannot set " + name + " of " + object.getClass().getName(), e);
+    }
+  }
+}
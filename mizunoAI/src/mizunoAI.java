@@ -5,17 +5,20 @@
  * Made compatible with FightingICE version 1.03
  */
 
+import java.io.IOException;
 import java.util.Deque;
 import java.util.EnumSet;
-import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.Vector;
 
+import support.ActHistory;
+import support.ActHistoryFile;
+import support.ActionSpace;
 import support.Command;
+import support.MotionTable;
 import enumerate.Action;
-import enumerate.AttackAction;
 import enumerate.Position;
 import enumerate.State;
+import mizunoAI_simulator.ResolutionError;
 import mizunoAI_simulator.Simulator;
 import structs.*;
 import gameInterface.AIInterface;
@@ -26,8 +29,23 @@ public class mizunoAI implements AIInterface {
 	private static final double K_THRESHOLD = 0.3;
 	/** data number referred by k-*/
 	private static final int THRESHOLD = 3;
+	/** the attacks kept per position relationship, the oldest being evicted first*/
+	private static final int HISTORY_CAPACITY = Integer.getInteger("mizunoai.historyCapacity", 1024);
+	/** the frames the weight of an attack in k-nn halves in (no weighting by default), and the weight of the newest one*/
+	private static final int RECENCY_HALF_LIFE = Integer.getInteger("mizunoai.recencyHalfLife", 0);
+	private static final int RECENCY_WEIGHT = 16;
+	/** keep the histories between matches against the same opponent, and the opponent's AI name when the command line does not give it*/
+	private static final boolean PERSIST_HISTORY = Boolean.parseBoolean(System.getProperty("mizunoai.persistHistory", "true"));
+	private static final String OPPONENT_AI = System.getProperty("mizunoai.opponentAi");
 	/** delay frames number*/
 	private static final double DELAY = 14;
+	/** frame the simulation switches to coarse steps at, and the frames of a coarse step (exact by default)*/
+	private static final int EXACT_FRAMES = Integer.getInteger("mizunoai.exactFrames", 60);
+	private static final int COARSE_STEP = Integer.getInteger("mizunoai.coarseStep", 4);
+	/** threads the round robin of the simulation is spread over (sequential by default)*/
+	private static final int THREADS = Integer.getInteger("mizunoai.threads", 1);
+	/** measure the error of the coarse steps against exact simulation in every decision, and print it at close()*/
+	private static final boolean RESOLUTION_REPORT = Boolean.getBoolean("mizunoai.resolutionReport");
 	/** player's boolean value*/
 	boolean p;
 
@@ -42,18 +60,27 @@ public class mizunoAI implements AIInterface {
 	/** the position relationship between two characters*/
 	Position pos;
 	
-	/**  retaining attack action performed by opponent*/
-	Deque<ActData> oppActData_GG;
-	Deque<ActData> oppActData_GA;
-	Deque<ActData> oppActData_AG;
-	Deque<ActData> oppActData_AA;
+	/**  retaining attack action performed by opponent, indexed by Position ordinal*/
+	ActHistory[] oppActHistory;
+	/** the file the histories are kept in between matches, and whether it is still being loaded*/
+	ActHistoryFile historyFile;
+	boolean historyLoading;
+	/** the actions and the frames of the nearest attacks selected by k-nn*/
+	Action[] nearestAct;
+	int[] nearestFrame;
 	
-	/** a  retaining ground action*/
-	Deque<Action> G_Act;
-	/** a  retaining air action*/
-	Deque<Action> A_Act;
+	/** action classes and energy costs of each character*/
+	ActionSpace myActionSpace;
+	ActionSpace oppActionSpace;
+	/** ground actions, usable ones found by energy cost*/
+	ActionSpace.Moves G_Act;
+	/** air actions, usable ones found by energy cost*/
+	ActionSpace.Moves A_Act;
 	/** a  retaining actions based on the current my position*/
 	Deque<Action> myAct;
+	/** the moves and the number of them currently set to myAct*/
+	ActionSpace.Moves myMoves;
+	int myLegalCount;
 	/** an opponent's action predicted by k-nn*/
 	Deque<Action> oppAct;
 	/** counts the number of the k-nearest data every attack action*/
@@ -62,6 +89,7 @@ public class mizunoAI implements AIInterface {
 	Command cc;
 	/** use simulator package*/
 	Simulator simulator;
+	ResolutionError resolutionError;
 	
 	/** a previous opponent's action*/
 	Action preOppAct;
@@ -71,6 +99,8 @@ public class mizunoAI implements AIInterface {
 	int preRound;
 	/** a current round number*/
 	int nowRound;
+	/** the frames received since initialize(), which the attacks are recorded at*/
+	int frameCount;
 	
 	long time;
 	
@@ -90,15 +120,32 @@ public class mizunoAI implements AIInterface {
 		preRound = 0;
 		nowRound = 0;
 
-		simulator = new Simulator(gd, this.p);
-		this.oppActData_GG = new LinkedList<ActData>();
-		this.oppActData_GA = new LinkedList<ActData>();
-		this.oppActData_AG = new LinkedList<ActData>();
-		this.oppActData_AA = new LinkedList<ActData>();
+		MotionTable p1Motion = new MotionTable(gd.getPlayerOneMotion());
+		MotionTable p2Motion = new MotionTable(gd.getPlayerTwoMotion());
+		simulator = new Simulator(gd, this.p, p1Motion, p2Motion);
+		simulator.setResolution(EXACT_FRAMES, COARSE_STEP);
+		simulator.setParallelism(THREADS);
+		resolutionError = new ResolutionError();
+		this.oppActHistory = new ActHistory[Position.values().length];
+		for(int i = 0 ; i < oppActHistory.length ; i++){
+			oppActHistory[i] = new ActHistory(HISTORY_CAPACITY, K_DISTANCE, THRESHOLD);
+		}
+		this.nearestAct = new Action[THRESHOLD];
+		this.nearestFrame = new int[THRESHOLD];
+		frameCount = 0;
+		if(PERSIST_HISTORY){
+			String opponentAi = (OPPONENT_AI != null)? OPPONENT_AI : ActHistoryFile.getOpponentAiName(this.p);
+			// the attacks of an opponent whose AI is not known would be mixed with the ones of other AIs, so they are not saved
+			historyFile = (opponentAi != null)? new ActHistoryFile(ActHistoryFile.getFile("mizunoAI", opponentAi, gd.getOpponentName(this.p))) : null;
+			loadOppActHistory(ActHistoryFile.find("mizunoAI", opponentAi, gd.getOpponentName(this.p)));
+		}
 		this.myAct = new LinkedList<Action>();
 		this.oppAct = new LinkedList<Action>();
 		checkAct = new int[EnumSet.allOf(Action.class).size()];
 		
+		myActionSpace = new ActionSpace(this.p? p1Motion:p2Motion);
+		oppActionSpace = new ActionSpace(this.p? p2Motion:p1Motion);
+		myMoves = null;
 		setAirGroundAction();
 		
 		return 0;
@@ -116,18 +163,15 @@ public class mizunoAI implements AIInterface {
 			my = fd.getP2();
 			opp = fd.getP1();
 		}
+		if(!fd.getEmptyFlag()) frameCount++;
 		
 		for(int i = 0 ; i < EnumSet.allOf(Action.class).size() ; i++){
 			checkAct[i] = 0;
 		}
 		
+		// the histories are bounded, so they are kept over the rounds
 		nowRound = fd.getRound();
-		if(nowRound != preRound && nowRound != 0 && nowRound%3 == 0){
-			oppActData_GG.clear();
-			oppActData_GA.clear();
-			oppActData_AG.clear();
-			oppActData_AA.clear();
-		}}
+	}
 
 	@Override
 	public synchronized void processing() {
@@ -138,21 +182,12 @@ public class mizunoAI implements AIInterface {
 			if(fd.getRemainingTime() > 0){
 				
 				nowOppAct = opp.getAction();
-				Vector<MotionData> oppMotion = this.p? gd.getPlayerTwoMotion():gd.getPlayerOneMotion();
-				
 				// record an opponent's attack data each time an opponent performs an attack action
-				if(oppMotion.elementAt(opp.getAction().ordinal()).getFrameNumber() == opp.getRemainingFrame()){
-					try{
-							AttackAction.valueOf(nowOppAct.name());
-							
-							if(my.isFront()){
-								ActData act = new ActData(opp.getX()-my.getX(),opp.getY()-my.getY(),nowOppAct);
-								setOppAttackData(act);
-							}else{
-								ActData act = new ActData(my.getX()-opp.getX(),my.getY()-opp.getY(),nowOppAct);
-								setOppAttackData(act);
-							}
-						}catch (Exception e){
+				if(oppActionSpace.getFrameNumber(nowOppAct) == opp.getRemainingFrame() && oppActionSpace.isAttack(nowOppAct)){
+					if(my.isFront()){
+						setOppAttackData(opp.getX()-my.getX(),opp.getY()-my.getY(),nowOppAct);
+					}else{
+						setOppAttackData(my.getX()-opp.getX(),my.getY()-opp.getY(),nowOppAct);
 					}
 				}
 					
@@ -176,7 +211,8 @@ public class mizunoAI implements AIInterface {
 						Action act = Action.CROUCH_GUARD;
 						
 						// predict a next opponent's attack action using k-nn and conduct simulation against the predicted action
-						if(calculateActDistance(getOppAttackData(),opp.getX()-my.getX(),opp.getY()-my.getY())){
+						if(calculateActDistance(getOppAttackHistory(),opp.getX()-my.getX(),opp.getY()-my.getY())){
+							if(RESOLUTION_REPORT) simulator.measureResolutionError(myAct.toArray(new Action[myAct.size()]),oppAct.toArray(new Action[oppAct.size()]),resolutionError);
 							act = simulator.simulate(myAct,oppAct,checkAct);
 						}
 						
@@ -200,10 +236,10 @@ public class mizunoAI implements AIInterface {
 
 	@Override
 	public synchronized void close() {
-		oppActData_GG.clear();
-		oppActData_GA.clear();
-		oppActData_AG.clear();
-		oppActData_AA.clear();
+		if(RESOLUTION_REPORT) System.out.println("coarse simulation: " + resolutionError);
+		if(PERSIST_HISTORY) saveOppActHistory();
+		clearOppActHistory();
+		simulator.close();
 	}
 	
 	/** update round and opponent's action data*/
@@ -213,92 +249,41 @@ public class mizunoAI implements AIInterface {
 		oppAct.clear();
 	}
 	
-	/** count the number of the recorded data within a specific distance from the current relative position*/
-	private synchronized boolean calculateActDistance(Deque<ActData> actData , int x, int y){
-		int threshold = (int)(actData.size()*K_THRESHOLD + 1);
-		Deque<ActData> temp = new LinkedList<ActData>();
-		ActData[] array;
+	/** select the k-nearest recorded data within a specific distance from the current relative position*/
+	private synchronized boolean calculateActDistance(ActHistory history, int x, int y){
+		int threshold = Math.min((int)(history.size()*K_THRESHOLD + 1), THRESHOLD);
 		
-		// calculate distance from the current relative position to all recorded data
-		for(Iterator<ActData> i = actData.iterator() ; i.hasNext() ; ){
-			ActData act = new ActData(i.next());
-			if(my.isFront()) act.setDistance((int)Math.sqrt((act.getX()-x)*(act.getX()-x)+(act.getY()-y)*(act.getY()-y)));
-			else act.setDistance((int)Math.sqrt((act.getX()+x)*(act.getX()+x)+(act.getY()+y)*(act.getY()+y)));
-			if( act.getDistance() < K_DISTANCE) temp.add(act);
-		}
-		
-		if(temp.size() < Math.min(threshold,THRESHOLD)) return false;		
+		// the data are recorded relative to the front of my character, so the current position is mirrored when it faces left
+		int found = my.isFront() ? history.nearest(x, y, threshold, nearestAct, nearestFrame) : history.nearest(-x, -y, threshold, nearestAct, nearestFrame);
+		if(found < threshold) return false;
 		
-		array = new ActData[temp.size()];
-		// execute sort method
-		array = actSort(temp);
 		// predict the next opponent's action using k-nn
-		setOppAct(array, Math.min(threshold,THRESHOLD));
+		setOppAct(nearestAct, nearestFrame, threshold);
 		
 		return true;
 	}
 	
-	/** execute sort method and return array of ActData type*/
-	private synchronized ActData[] actSort(Deque<ActData> actData){
-		ActData[] array = new ActData[actData.size()];
-		
-		for(int i = 0 ; i < array.length ; i ++){
-			array[i] = new ActData(actData.pop());
-		}
-		sort(array);
-		
-		return array;
-	}
-	
-	/** execute the merge algorithm*/
-	private synchronized void merge(ActData[] a1,ActData[] a2,ActData[] a){
-		int i=0,j=0;
-		while(i<a1.length || j<a2.length){
-			if(j>=a2.length || (i<a1.length && a1[i].getDistance()<a2[j].getDistance())){
-				a[i+j].setMenber(a1[i]);
-				i++;
-			}
-			else{
-				a[i+j].setMenber(a2[j]);
-				j++;
-			}
-		}
-	}
-	
-	/** execute the merge sort algorithm*/
-	private synchronized void mergeSort(ActData[] a){
-		if(a.length>1){
-			int m=a.length/2;
-			int n=a.length-m;
-			ActData[] a1=new ActData[m];
-			ActData[] a2=new ActData[n];
-			for(int i=0;i<m;i++) a1[i] = new ActData(a[i]);
-			for(int i=0;i<n;i++) a2[i] = new ActData(a[m+i]);
-			mergeSort(a1);
-			mergeSort(a2);
-			merge(a1,a2,a);
-		}
-	}
-
-	/** execute the sort algorithm*/
-	private synchronized void sort(ActData[] a){
-		mergeSort(a);
-	}
-	
 	/** set my action to a deque based on the current my position*/
 	private synchronized void setMyAct(){
-		if(my.getState() == State.AIR) myAct = A_Act;
-		else myAct = G_Act;		
+		ActionSpace.Moves moves = (my.getState() == State.AIR)? A_Act : G_Act;
+		int count = moves.getLegalCount(my.getEnergy());
+		
+		// the usable actions depend only on their number, so myAct is rebuilt only when it changes
+		if(moves != myMoves || count != myLegalCount){
+			moves.copyTo(count, myAct);
+			myMoves = moves;
+			myLegalCount = count;
+		}
 	}
 	
 	/** set the opponent's next action using k-nn*/
-	private synchronized void setOppAct(ActData[] array,int threshold){
+	private synchronized void setOppAct(Action[] nearest,int[] frames,int threshold){
 		Action[] subAct = Action.values();
 		int max = 1;
 		
-		// count the number of the data every action type 
+		// count the number of the data every action type, weighting the newer data more if recency weighting is on
 		for(int i = 0 ; i < threshold ; i++){
-			checkAct[array[i].getAct().ordinal()] ++;
+			checkAct[nearest[i].ordinal()] += getRecencyWeight(frames[i]);
 		}
 		
 		// predict the opponent's next action by k-nn
@@ -325,58 +310,92 @@ public class mizunoAI implements AIInterface {
 		}
 	}
 	
-	/** get the deque based on the current position relationship*/
-	private synchronized Deque<ActData> getOppAttackData(){
-		switch(pos){
-		case Air_Air: return oppActData_AA;
-		case Air_Ground: return oppActData_AG;
-		case Ground_Air: return oppActData_GA;
-		case Ground_Ground: return oppActData_GG;
+	/** the weight of an attack recorded at the frame, halving every RECENCY_HALF_LIFE frames and at least 1*/
+	private synchronized int getRecencyWeight(int frame){
+		if(RECENCY_HALF_LIFE <= 0) return 1;
+		return Math.max((int)Math.round(RECENCY_WEIGHT*Math.pow(0.5, (double)(frameCount - frame)/RECENCY_HALF_LIFE)), 1);
+	}
+	
+	/** get the history based on the current position relationship*/
+	private synchronized ActHistory getOppAttackHistory(){
+		return oppActHistory[pos.ordinal()];
+	}
+	
+	/** load the histories of the previous matches against the opponent, or the ones built from replays, in the background, as the file can be large*/
+	private synchronized void loadOppActHistory(final ActHistoryFile source){
+		if(source == null) return;
+		historyLoading = true;
+		Thread loader = new Thread(new Runnable(){
+			@Override
+			public void run(){
+				ActHistory[] loaded = null;
+				try{
+					loaded = source.load(HISTORY_CAPACITY, K_DISTANCE, THRESHOLD);
+					if(loaded.length != Position.values().length) throw new IOException(source.getFile() + " has " + loaded.length + " histories, not " + Position.values().length);
+				}catch(IOException e){
+					System.out.println("opponent history: " + e);
+					loaded = null;
+				}finally{
+					setLoadedHistory(source, loaded);
+				}
+			}
+		}, "mizunoAI history loader");
+		loader.setDaemon(true);
+		loader.start();
+	}
+	
+	/** put the loaded histories before the attacks recorded since initialize(), or keep the file if it cannot be loaded*/
+	private synchronized void setLoadedHistory(ActHistoryFile source,ActHistory[] loaded){
+		if(loaded == null){
+			// saving over a file that cannot be loaded would lose the matches in it
+			if(historyFile != null && source.getFile().equals(historyFile.getFile())){
+				System.out.println("opponent history: " + source.getFile() + " is kept, the attacks of this match are not saved");
+				historyFile = null;
+			}
+		}else{
+			for(int i = 0 ; i < loaded.length ; i++){
+				loaded[i].addAll(oppActHistory[i]);
+				oppActHistory[i] = loaded[i];
+			}
+		}
+		historyLoading = false;
+		notifyAll();
+	}
+	
+	/** save the histories once they are loaded, not to drop the previous matches*/
+	private synchronized void saveOppActHistory(){
+		try{
+			while(historyLoading) wait();
+			if(historyFile == null) return;
+			historyFile.save(oppActHistory, frameCount);
+		}catch(InterruptedException e){
+			System.out.println("opponent history: not saved, interrupted while loading");
+		}catch(IOException e){
+			System.out.println("opponent history: " + e);
 		}
-		return oppActData_GG;
 	}
 	
-	/** set data to the deque based on the current position relationship*/
-	private synchronized void setOppAttackData(ActData act){
-		switch(pos){
-		case Air_Air: oppActData_AA.add(act); break;
-		case Air_Ground: oppActData_AG.add(act); break;
-		case Ground_Air: oppActData_GA.add(act); break;
-		case Ground_Ground :oppActData_GG.add(act);break;
+	private synchronized void clearOppActHistory(){
+		for(ActHistory history : oppActHistory){
+			history.clear();
 		}
 	}
 	
+	/** set data to the history based on the current position relationship*/
+	private synchronized void setOppAttackData(int x, int y, Action act){
+		oppActHistory[pos.ordinal()].add(x, y, act, frameCount);
+	}
+	
 	/** set air and ground action to each deque*/
 	private synchronized void setAirGroundAction(){
-		this.G_Act = new LinkedList<Action>();
-		this.A_Act = new LinkedList<Action>();
-		
-		G_Act.add(Action.CROUCH_FA);
-		G_Act.add(Action.STAND_FA);
-		G_Act.add(Action.CROUCH_A);
-		G_Act.add(Action.STAND_A);
-		G_Act.add(Action.THROW_B);
-		G_Act.add(Action.THROW_A);
-		G_Act.add(Action.FOR_JUMP);
-		G_Act.add(Action.JUMP);
-		G_Act.add(Action.BACK_STEP);
-		G_Act.add(Action.STAND_D_DF_FA);
-		G_Act.add(Action.STAND_D_DF_FB);
-		G_Act.add(Action.STAND_F_D_DFA);
-		G_Act.add(Action.STAND_F_D_DFB);
-		G_Act.add(Action.STAND_D_DB_BA);
-		G_Act.add(Action.STAND_D_DB_BB);
-		G_Act.add(Action.STAND_D_DF_FC);
-		
-		A_Act.add(Action.AIR_GUARD);
-		A_Act.add(Action.AIR_A);
-		A_Act.add(Action.AIR_DA);
-		A_Act.add(Action.AIR_FA);
-		A_Act.add(Action.AIR_UA);
-		A_Act.add(Action.AIR_D_DF_FA);
-		A_Act.add(Action.AIR_F_D_DFA);
-		A_Act.add(Action.AIR_D_DB_BA);	
-		
+		G_Act = myActionSpace.compile(myActionSpace.getGround(),
+				Action.CROUCH_FA, Action.STAND_FA, Action.CROUCH_A, Action.STAND_A, Action.THROW_B,
+				Action.THROW_A, Action.FOR_JUMP, Action.JUMP, Action.BACK_STEP, Action.STAND_D_DF_FA,
+				Action.STAND_D_DF_FB, Action.STAND_F_D_DFA, Action.STAND_F_D_DFB, Action.STAND_D_DB_BA,
+				Action.STAND_D_DB_BB, Action.STAND_D_DF_FC);
+		A_Act = myActionSpace.compile(myActionSpace.getAir(),
+				Action.AIR_GUARD, Action.AIR_A, Action.AIR_DA, Action.AIR_FA, Action.AIR_UA, Action.AIR_D_DF_FA,
+				Action.AIR_F_D_DFA, Action.AIR_D_DB_BA);
 	}
 	
 	/** update character's state after 15 frames*/
@@ -384,7 +403,68 @@ public class mizunoAI implements AIInterface {
 		
 		if(one.getAction() == Action.DOWN) one.setRemainingFrame(one.getRemainingFrame()+6);
 		
-		for(int i = 0 ; i < DELAY ; i++)
+		// the same as updateFrames(one, DELAY), computed in one step
+		int frames = (int)DELAY;
+		int y = one.getY();
+		int speedY = one.getSpeedY();
+		// setY() does not move the bottom, so gravity either stops the character in the first frame or accelerates it in every frame
+		if(one.getBottom() >= 320 + 256){
+			y += speedY;
+			slide(one, frames, y >= 320 ? 0 : frames);
+			one.setY(y >= 320 ? 320 : y);
+			one.setSpeedY(0);
+		}
+		else{
+			int landing = getLandingFrame(y, speedY);
+			// after landing the character stays on the ground only if it is not moving up any more
+			if(landing <= frames && speedY + landing < 0){
+				updateFrames(one, frames);
+				return;
+			}
+			if(landing > frames){
+				one.setX(one.getX() + frames*one.getSpeedX());
+				one.setY(y + frames*speedY + frames*(frames-1)/2);
+			}
+			else{
+				slide(one, frames, landing - 1);
+				one.setY(320);
+			}
+			one.setSpeedY(speedY + frames);
+		}
+		one.setRemainingFrame(one.getRemainingFrame()-frames);
+		if(one.getY() >= 320) one.setState(State.STAND);
+	}
+	
+	/** move the character by frames, which is in the air for the first airFrames and on the ground after them*/
+	private void slide(CharacterData one, int frames, int airFrames){
+		int speed = Math.abs(one.getSpeedX());
+		int sign = Integer.signum(one.getSpeedX());
+		if(airFrames >= frames){
+			one.setX(one.getX() + sign*frames*speed);
+			return;
+		}
+		// from the first frame on the ground, friction slows the speed by 1 after moving
+		int sliding = Math.min(frames - airFrames - 1, speed);
+		one.setX(one.getX() + sign*((airFrames + 1)*speed + sliding*speed - sliding*(sliding+1)/2));
+		one.setSpeedX(sign*Math.max(speed - (frames - airFrames), 0));
+	}
+	
+	/** the first frame the character with gravity reaches the ground, or Integer.MAX_VALUE*/
+	private int getLandingFrame(int y, int speedY){
+		// y after moving in frame k is y + k*speedY + k(k-1)/2
+		if(y + speedY >= 320) return 1;
+		double b = 2*speedY - 1;
+		double root = (-b + Math.sqrt(b*b - 8.0*(y - 320)))/2;
+		if(root > DELAY + 1) return Integer.MAX_VALUE;
+		int k = Math.max(2, (int)Math.ceil(root));
+		while(k > 2 && y + (long)(k-1)*speedY + (long)(k-1)*(k-2)/2 >= 320) k--;
+		while(y + (long)k*speedY + (long)k*(k-1)/2 < 320) k++;
+		return k;
+	}
+	
+	/** update character's state by frames, frame by frame*/
+	private void updateFrames(CharacterData one, int frames){
+		for(int i = 0 ; i < frames ; i++)
 		{
 			one.setRemainingFrame(one.getRemainingFrame()-1);
 			one.setX(one.getX() + one.getSpeedX());
@@ -0,0 +1,390 @@
+package mizunoAI_simulator;
+
+import structs.HitArea;
+import support.MotionTable;
+import fighting.Attack;
+
+/**
+ * The immutable part of an attack, shared by every SimAttack of the same action.
+ * The templates of one character are built once by compile().
+ */
+public class AttackTemplate {
+	/** template of actions without an attack*/
+	public static final AttackTemplate EMPTY = new AttackTemplate(null,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,false);
+	/** the number of ints save() writes*/
+	public static final int SIZE = 24;
+	
+	/**
+	 * HitArea`s information and position
+	 */
+	private final HitArea hitAreaSetting;
+
+	/**
+	 * attack action's moving value
+	 */
+	private final int settingSpeedX, settingSpeedY;
+
+	/**
+	 * attack effect start sign (per frame)
+	 */
+	private final int startUp;
+
+	/**
+	 * continuation attack interval 
+	 */
+	private final int interval;
+	
+	/**
+	 * number of times of a continuation attack 
+	 */
+	private final int repeat;
+
+	/**
+	 * attack action`s active time
+	 */
+	private final int active;
+
+	/**
+	 * attack action`s damage
+	 */
+	private final int hitDamage, guardDamage;
+
+	/**
+	 * ExEnergy value
+	 */
+	private final int startAddEnergy, hitAddEnergy, guardAddEnergy, giveEnergy;
+
+	/**
+	 * feedback value
+	 */
+	private final int impactX,impactY;
+
+	/**
+	 * recovertime
+	 */
+	private final int giveGuardRecov;
+
+	/**
+	 * knockback value
+	 */
+	private final int knockBack;
+
+	/**
+	 * hitstop time
+	 */
+	private final int hitStop;
+
+	/**
+	 * attack`s typeA 1=high 2=mid 3=low
+	 */
+	private final int attackType;
+
+	/**
+	 * down flag , 1 = can push down 0=normal hit
+	 */
+	private final boolean downProperty;
+
+	public AttackTemplate(HitArea hitAreaSetting,int settingSpeedX,int settingSpeedY,int startUp,int interval,int repeat,int active,
+			int hitDamage,int guardDamage,int startAddEnergy,int hitAddEnergy,int guardAddEnergy,int giveEnergy,
+			int impactX,int impactY,int giveGuardRecov,int knockBack,int hitStop,
+			int attackType,boolean downProperty){
+		this.hitAreaSetting = hitAreaSetting;
+		this.settingSpeedX = settingSpeedX;
+		this.settingSpeedY = settingSpeedY;
+		this.startUp = startUp;
+		this.interval = interval;
+		this.repeat = repeat;
+		this.active = active;
+		this.hitDamage = hitDamage;
+		this.guardDamage = guardDamage;
+		this.startAddEnergy = startAddEnergy;
+		this.hitAddEnergy = hitAddEnergy;
+		this.guardAddEnergy = guardAddEnergy;
+		this.giveEnergy = giveEnergy;
+		this.impactX = impactX;
+		this.impactY = impactY;
+		this.giveGuardRecov = giveGuardRecov;
+		this.knockBack = knockBack;
+		this.hitStop = hitStop;
+		this.attackType = attackType;
+		this.downProperty = downProperty;
+	}
+	
+	/**
+	 * Builds the attack templates of every action of a character.
+	 * @return templates indexed by Action ordinal
+	 */
+	public static AttackTemplate[] compile(MotionTable motion){
+		AttackTemplate[] templates = new AttackTemplate[motion.frameNumber.length];
+		for(int i = 0 ; i < templates.length ; i++){
+			templates[i] = new AttackTemplate(new HitArea(motion.attackHitL[i], motion.attackHitR[i], motion.attackHitT[i], motion.attackHitB[i]),
+					motion.attackSpeedX[i], motion.attackSpeedY[i], motion.attackStartUp[i], motion.attackInterval[i], motion.attackRepeat[i], motion.attackActive[i],
+					motion.attackHitDamage[i], motion.attackGuardDamage[i], motion.attackStartAddEnergy[i], motion.attackHitAddEnergy[i], motion.attackGuardAddEnergy[i], motion.attackGiveEnergy[i],
+					motion.attackImpactX[i], motion.attackImpactY[i], motion.attackGiveGuardRecov[i], motion.attackKnockBack[i], motion.attackHitStop[i],
+					motion.attackType[i], motion.attackDownProperty[i]);
+		}
+		return templates;
+	}
+	
+	/**
+	 * Builds the template of the attack in the FrameData.
+	 * @param attack the attack of the FrameData
+	 */
+	public AttackTemplate(Attack attack){
+		this(attack.getHitAreaSetting(),
+				attack.getSettingSpeedX(),
+				attack.getSettingSpeedY(),
+				attack.getStartUp(),
+				attack.getInterval(),
+				attack.getRepeat(),
+				attack.getActive(),
+				attack.getHitDamage(),
+				attack.getGuardDamage(),
+				attack.getStartAddEnergy(),
+				attack.getHitAddEnergy(),
+				attack.getGuardAddEnergy(),
+				attack.getGiveEnergy(),
+				attack.getImpactX(),
+				attack.getImpactY(),
+				attack.getGiveGuardRecov(),
+				attack.getKnockBack(),
+				attack.getHitStop(),
+				attack.getAttackType(),
+				attack.isDownProperty());
+	}
+	
+	/**
+	 * Checks whether the attack of the FrameData has exactly the parameters of this template, so that the template can be shared instead of building a new one.
+	 * @param attack the attack of the FrameData
+	 * @return true if every parameter is the same, otherwise false
+	 */
+	public boolean matches(Attack attack){
+		return equals(hitAreaSetting, attack.getHitAreaSetting())
+				&& settingSpeedX == attack.getSettingSpeedX() && settingSpeedY == attack.getSettingSpeedY()
+				&& startUp == attack.getStartUp() && interval == attack.getInterval() && repeat == attack.getRepeat() && active == attack.getActive()
+				&& hitDamage == attack.getHitDamage() && guardDamage == attack.getGuardDamage()
+				&& startAddEnergy == attack.getStartAddEnergy() && hitAddEnergy == attack.getHitAddEnergy()
+				&& guardAddEnergy == attack.getGuardAddEnergy() && giveEnergy == attack.getGiveEnergy()
+				&& impactX == attack.getImpactX() && impactY == attack.getImpactY()
+				&& giveGuardRecov == attack.getGiveGuardRecov() && knockBack == attack.getKnockBack() && hitStop == attack.getHitStop()
+				&& attackType == attack.getAttackType() && downProperty == attack.isDownProperty();
+	}
+	
+	private static boolean equals(HitArea a, HitArea b){
+		if(a == null || b == null) return a == b;
+		return a.getL() == b.getL() && a.getR() == b.getR() && a.getT() == b.getT() && a.getB() == b.getB();
+	}
+
+	/**
+	 * Writes every parameter into the buffer, for a template that is not one of the compiled ones.
+	 * @param buffer the state buffer
+	 * @param offset the position to write from
+	 * @return the position after the template (offset + SIZE)
+	 */
+	public int save(int[] buffer, int offset){
+		buffer[offset++] = hitAreaSetting == null ? 0 : 1;
+		buffer[offset++] = hitAreaSetting == null ? 0 : hitAreaSetting.getL();
+		buffer[offset++] = hitAreaSetting == null ? 0 : hitAreaSetting.getR();
+		buffer[offset++] = hitAreaSetting == null ? 0 : hitAreaSetting.getT();
+		buffer[offset++] = hitAreaSetting == null ? 0 : hitAreaSetting.getB();
+		buffer[offset++] = settingSpeedX;
+		buffer[offset++] = settingSpeedY;
+		buffer[offset++] = startUp;
+		buffer[offset++] = interval;
+		buffer[offset++] = repeat;
+		buffer[offset++] = active;
+		buffer[offset++] = hitDamage;
+		buffer[offset++] = guardDamage;
+		buffer[offset++] = startAddEnergy;
+		buffer[offset++] = hitAddEnergy;
+		buffer[offset++] = guardAddEnergy;
+		buffer[offset++] = giveEnergy;
+		buffer[offset++] = impactX;
+		buffer[offset++] = impactY;
+		buffer[offset++] = giveGuardRecov;
+		buffer[offset++] = knockBack;
+		buffer[offset++] = hitStop;
+		buffer[offset++] = attackType;
+		buffer[offset++] = downProperty ? 1 : 0;
+		return offset;
+	}
+	
+	/**
+	 * Builds the template written by save().
+	 * @param buffer the state buffer
+	 * @param offset the position the template was written from
+	 * @return the template
+	 */
+	public static AttackTemplate load(int[] buffer, int offset){
+		HitArea hitAreaSetting = buffer[offset] == 0 ? null : new HitArea(buffer[offset+1],buffer[offset+2],buffer[offset+3],buffer[offset+4]);
+		int i = offset + 5;
+		return new AttackTemplate(hitAreaSetting,buffer[i],buffer[i+1],buffer[i+2],buffer[i+3],buffer[i+4],buffer[i+5],
+				buffer[i+6],buffer[i+7],buffer[i+8],buffer[i+9],buffer[i+10],buffer[i+11],
+				buffer[i+12],buffer[i+13],buffer[i+14],buffer[i+15],buffer[i+16],
+				buffer[i+17],buffer[i+18] != 0);
+	}
+	
+	/**
+	 * Returns HitArea's setting information.
+	 * @return HitArea's setting information
+	 */
+	public HitArea getHitAreaSetting() {
+		return hitAreaSetting;
+	}
+	
+	/**
+	 * Returns the number of frames in Startup.
+	 * @return the number of frames in Startup
+	 */
+	public int getStartUp() {
+		return startUp;
+	}
+	
+	/**
+	 * not in use!
+	 * @return not in use!
+	 */
+	public int getInterval() {
+		return interval;
+	}
+	
+	/**
+	 * not in use!
+	 * @return not in use! 
+	 */
+	public int getRepeat() {
+		return repeat;
+	}
+	
+	/**
+	 * Returns the number of frames in Active.
+	 * @return the number of frames in Active 
+	 */
+	public int getActive() {
+		return active;
+	}
+	
+	/**
+	 * Returns the damage value to the unguarded opponent hit by this skill.
+	 * @return the damage value to the unguarded opponent hit by this skill  
+	 */
+	public int getHitDamage() {
+		return hitDamage;
+	}
+	
+	/**
+	 * Returns the damage value to the guarded opponent hit by this skill.
+	 * @return the damage value to the guarded opponent hit by this skill
+	 */
+	public int getGuardDamage() {
+		return guardDamage;
+	}
+	
+	/**
+	 * Returns the value of the energy added to the character when it uses this skill.
+	 * @return the value of the energy added to the character when it uses this skill
+	 */
+	public int getStartAddEnergy() {
+		return startAddEnergy;
+	}
+	
+	/**
+	 * Returns the value of the energy added to the character when this skill hits the opponent.
+	 * @return the value of the energy added to the character when this skill hits the opponent
+	 */
+	public int getHitAddEnergy() {
+		return hitAddEnergy;
+	}
+	
+	/**
+	 * Returns the value of the energy added to the character when this skill is blocked by the opponent.
+	 * @return the value of the energy added to the character when this skill is blocked by the opponent 
+	 */
+	public int getGuardAddEnergy() {
+		return guardAddEnergy;
+	}
+	
+	/**
+	 * Returns the value of the energy added to the opponent when it is hit by this skill.
+	 * @return the value of the energy added to the opponent when it is hit by this skill
+	 */
+	public int getGiveEnergy() {
+		return giveEnergy;
+	}
+	
+	/**
+	 * Returns the change in the horizontal speed of the opponent when it is hit by this skill.
+	 * @return the change in the horizontal speed of the opponent when it is hit by this skill
+	 */
+	public int getImpactX() {
+		return impactX;
+	}
+	
+	/**
+	 * Returns the change in the vertical speed of the opponent when it is hit by this skill.
+	 * @return the change in the vertical speed of the opponent when it is hit by this skill
+	 */
+	public int getImpactY() {
+		return impactY;
+	}
+	
+	/**
+	 * Returns the number of frames that the guarded opponent takes to resume to his normal status after it is hit by this skill.
+	 * @return the number of frames that the guarded opponent takes to resume to his normal status after it is hit by this skill
+	 */
+	public int getGiveGuardRecov() {
+		return giveGuardRecov;
+	}
+	
+	/**
+	 * not in use!
+	 * @return not in use! 
+	 */
+	public int getKnockBack() {
+		return knockBack;
+	}
+	
+	/**
+	 * not in use!
+	 * @return not in use! 
+	 */
+	public int getHitStop() {
+		return hitStop;
+	}
+	
+	/**
+	 * Returns the value of the attack's type:
+	 * 1 = high 
+	 * 2 = middle 
+	 * 3 = low 
+	 * 4 = throw
+	 * @return the value of the attack's type
+	 */
+	public int getAttackType() {
+		return attackType;
+	}
+	
+	/**
+	 * Returns the flag whether this skill can push down the opponent when hit.
+	 * @return the flag whether this skill can push down the opponent when hit
+	 */
+	public boolean isDownProperty() {
+		return downProperty;
+	}
+	
+	/**
+	 * Returns the absolute value of the horizontal speed of the attack hit box (zero means the attack hit box will track the character).
+	 * @return the absolute value of the horizontal speed of the attack hit box (zero means the attack hit box will track the character)
+	 */
+	public int getSettingSpeedX() {
+		return settingSpeedX;
+	}
+	
+	/**
+	 * Returns the absolute value of the vertical speed of the attack hit box (zero means the attack hit box will track the character).
+	 * @return the absolute value of the vertical speed of the attack hit box (zero means the attack hit box will track the character) 
+	 */
+	public int getSettingSpeedY() {
+		return settingSpeedY;
+	}
+}
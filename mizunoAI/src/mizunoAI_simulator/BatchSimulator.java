@@ -0,0 +1,842 @@
+package mizunoAI_simulator;
+
+import setting.Properties;
+import enumerate.Action;
+import enumerate.State;
+import support.MotionTable;
+
+/**
+ * Steps many independent fights at once, one frame per call, with the same result as SimFighting.processingFight() for each of them.<br>
+ * The games are held in primitive columns (structure of arrays) instead of SimFighting instances:
+ * character c of game g is at index 2*g+c (0 = P1, 1 = P2), and the projectiles of game g are a ring at index g*projectileCapacity.<br>
+ * The frame is run as phases over a block of games, so the movement of the characters is one tight loop over the columns,
+ * and the rare events (landing, motion end, attacks, hits) follow in separate loops.<br>
+ * A game is set and read with the state layout of SimFighting.save(), so searches can hand states between the two simulators.
+ */
+public class BatchSimulator {
+	private static final Properties prop = new Properties();
+	private static final Action[] ACTIONS = Action.values();
+
+	private static final int STAGE_MAX_X = 960;
+	private static final int MAX_ENERGY = 1000;
+	/** number of games a phase of processingFight() runs over before the next phase*/
+	private static final int BLOCK = 64;
+
+	private static final int STAND = Action.STAND.ordinal();
+	private static final int AIR = Action.AIR.ordinal();
+	private static final int LANDING = Action.LANDING.ordinal();
+	private static final int CHANGE_DOWN = Action.CHANGE_DOWN.ordinal();
+	private static final int DOWN = Action.DOWN.ordinal();
+	private static final int RISE = Action.RISE.ordinal();
+	private static final int STAND_GUARD = Action.STAND_GUARD.ordinal();
+	private static final int CROUCH_GUARD = Action.CROUCH_GUARD.ordinal();
+	private static final int AIR_GUARD = Action.AIR_GUARD.ordinal();
+	private static final int STAND_GUARD_RECOV = Action.STAND_GUARD_RECOV.ordinal();
+	private static final int CROUCH_GUARD_RECOV = Action.CROUCH_GUARD_RECOV.ordinal();
+	private static final int AIR_GUARD_RECOV = Action.AIR_GUARD_RECOV.ordinal();
+	private static final int STAND_RECOV = Action.STAND_RECOV.ordinal();
+	private static final int CROUCH_RECOV = Action.CROUCH_RECOV.ordinal();
+	private static final int AIR_RECOV = Action.AIR_RECOV.ordinal();
+	private static final int THROW_HIT = Action.THROW_HIT.ordinal();
+	private static final int THROW_SUFFER = Action.THROW_SUFFER.ordinal();
+	private static final int STAND_D_DF_FC = Action.STAND_D_DF_FC.ordinal();
+
+	private static final int STATE_STAND = State.STAND.ordinal();
+	private static final int STATE_CROUCH = State.CROUCH.ordinal();
+	private static final int STATE_AIR = State.AIR.ordinal();
+	private static final int STATE_DOWN = State.DOWN.ordinal();
+
+	/** attack template of a character without an attack*/
+	private static final int NO_ATTACK = -1;
+	/** id of AttackTemplate.EMPTY in the template rows*/
+	private static final int EMPTY_TEMPLATE = 0;
+
+	/** offsets in a template row, which is written by AttackTemplate.save()*/
+	private static final int T_HAS_SETTING = 0, T_L = 1, T_R = 2, T_T = 3, T_B = 4, T_SPEED_X = 5, T_SPEED_Y = 6,
+			T_ACTIVE = 10, T_HIT_DAMAGE = 11, T_GUARD_DAMAGE = 12, T_HIT_ADD_ENERGY = 14, T_GUARD_ADD_ENERGY = 15,
+			T_GIVE_ENERGY = 16, T_IMPACT_X = 17, T_IMPACT_Y = 18, T_GIVE_GUARD_RECOV = 19, T_KNOCK_BACK = 20,
+			T_ATTACK_TYPE = 22, T_DOWN_PROPERTY = 23;
+
+	private final int capacity;
+	/** motions of P1 and P2*/
+	private final MotionTable[] motions;
+	/** State ordinal of each action, of P1 and P2*/
+	private final int[][] motionStates;
+
+	/** templates as rows of AttackTemplate.SIZE ints: EMPTY, the compiled ones of P1 and P2, then the ones loaded inline*/
+	private int[] templates;
+	private int templateNumber;
+	/** id of the first compiled template of P1 and P2*/
+	private final int[] templateBase;
+	/** number of compiled templates of P1 and P2*/
+	private final int[] templateCount;
+
+	/** games which are advanced by processingFight()*/
+	private final boolean[] running;
+	/** games the scalar simulator would have thrown on*/
+	private final boolean[] failed;
+
+	// characters, at 2*game+side
+	private final int[] hp, energy, x, y, speedX, speedY, state, action, hitNumber, remainingFrame;
+	private final boolean[] hitConfirm, front, control;
+	/** attack of the character: template id, or NO_ATTACK*/
+	private final int[] attackTemplate;
+	private final int[] attackL, attackR, attackT, attackB, attackFrame, attackSpeedX, attackSpeedY;
+	private final boolean[] attackPlayer;
+
+	/** inputs not yet consumed: the action and how many times it remains, at 2*game+side*/
+	private final int[] inputAction, inputCount;
+
+	// projectiles, a ring per game at game*projectileCapacity, which is a power of two
+	private int projectileCapacity;
+	private final int[] projectileHead, projectileCount;
+	private int[] projectileTemplate, projectileL, projectileR, projectileT, projectileB, projectileFrame, projectileSpeedX, projectileSpeedY;
+	private boolean[] projectilePlayer;
+
+	/**
+	 * @param playerOneMotion motions of P1
+	 * @param playerTwoMotion motions of P2
+	 * @param capacity the number of games
+	 */
+	public BatchSimulator(MotionTable playerOneMotion, MotionTable playerTwoMotion, int capacity){
+		this.capacity = capacity;
+		this.motions = new MotionTable[]{playerOneMotion, playerTwoMotion};
+		this.motionStates = new int[2][];
+		for(int side = 0 ; side < 2 ; side++){
+			State[] states = motions[side].state;
+			motionStates[side] = new int[states.length];
+			for(int i = 0 ; i < states.length ; i++) motionStates[side][i] = states[i] == null ? -1 : states[i].ordinal();
+		}
+
+		this.templateBase = new int[2];
+		this.templateCount = new int[2];
+		AttackTemplate[] one = AttackTemplate.compile(playerOneMotion);
+		AttackTemplate[] two = AttackTemplate.compile(playerTwoMotion);
+		this.templates = new int[(1 + one.length + two.length + 8) * AttackTemplate.SIZE];
+		addTemplate(AttackTemplate.EMPTY);
+		templateBase[0] = templateNumber;
+		templateCount[0] = one.length;
+		for(AttackTemplate template : one) addTemplate(template);
+		templateBase[1] = templateNumber;
+		templateCount[1] = two.length;
+		for(AttackTemplate template : two) addTemplate(template);
+
+		this.running = new boolean[capacity];
+		this.failed = new boolean[capacity];
+
+		int characters = 2 * capacity;
+		hp = new int[characters];
+		energy = new int[characters];
+		x = new int[characters];
+		y = new int[characters];
+		speedX = new int[characters];
+		speedY = new int[characters];
+		state = new int[characters];
+		action = new int[characters];
+		hitNumber = new int[characters];
+		remainingFrame = new int[characters];
+		hitConfirm = new boolean[characters];
+		front = new boolean[characters];
+		control = new boolean[characters];
+		attackTemplate = new int[characters];
+		attackL = new int[characters];
+		attackR = new int[characters];
+		attackT = new int[characters];
+		attackB = new int[characters];
+		attackFrame = new int[characters];
+		attackSpeedX = new int[characters];
+		attackSpeedY = new int[characters];
+		attackPlayer = new boolean[characters];
+		inputAction = new int[characters];
+		inputCount = new int[characters];
+
+		projectileHead = new int[capacity];
+		projectileCount = new int[capacity];
+		allocateProjectiles(4);
+	}
+
+	public int getCapacity(){
+		return capacity;
+	}
+
+	/**
+	 * Sets a game to the state written by SimFighting.save() and starts running it.
+	 * The projectiles must belong to the motions this simulator was built with.
+	 * @param game the game
+	 * @param buffer the state buffer
+	 * @param offset the position the state was written from
+	 * @return the position after the state
+	 */
+	public int load(int game, int[] buffer, int offset){
+		offset = loadCharacter(2 * game, buffer, offset);
+		offset = loadCharacter(2 * game + 1, buffer, offset);
+
+		int attackNumber = buffer[offset++];
+		if(attackNumber > projectileCapacity) allocateProjectiles(Integer.highestOneBit(attackNumber - 1) << 1);
+		projectileHead[game] = 0;
+		projectileCount[game] = attackNumber;
+		for(int i = 0 ; i < attackNumber ; i++){
+			int p = game * projectileCapacity + i;
+			int side = buffer[offset++] != 0 ? 0 : 1;
+			int index = buffer[offset++];
+			if(index == -2){
+				projectileTemplate[p] = findTemplate(buffer, offset);
+				offset += AttackTemplate.SIZE;
+			}
+			else projectileTemplate[p] = getTemplate(side, index);
+			projectileL[p] = buffer[offset++];
+			projectileR[p] = buffer[offset++];
+			projectileT[p] = buffer[offset++];
+			projectileB[p] = buffer[offset++];
+			projectileFrame[p] = buffer[offset++];
+			projectilePlayer[p] = buffer[offset++] != 0;
+			projectileSpeedX[p] = buffer[offset++];
+			projectileSpeedY[p] = buffer[offset++];
+		}
+
+		offset = loadInput(2 * game, buffer, offset);
+		offset = loadInput(2 * game + 1, buffer, offset);
+		running[game] = true;
+		failed[game] = false;
+		return offset;
+	}
+
+	private int loadCharacter(int c, int[] buffer, int offset){
+		hp[c] = buffer[offset++];
+		energy[c] = buffer[offset++];
+		x[c] = buffer[offset++];
+		y[c] = buffer[offset++];
+		speedX[c] = buffer[offset++];
+		speedY[c] = buffer[offset++];
+		state[c] = buffer[offset++];
+		action[c] = buffer[offset++];
+		hitConfirm[c] = buffer[offset++] != 0;
+		hitNumber[c] = buffer[offset++];
+		front[c] = buffer[offset++] != 0;
+		control[c] = buffer[offset++] != 0;
+		remainingFrame[c] = buffer[offset++];
+		if(buffer[offset++] != 0){
+			int index = buffer[offset++];
+			if(index == -2){
+				attackTemplate[c] = findTemplate(buffer, offset);
+				offset += AttackTemplate.SIZE;
+			}
+			else attackTemplate[c] = getTemplate(c & 1, index);
+			attackL[c] = buffer[offset++];
+			attackR[c] = buffer[offset++];
+			attackT[c] = buffer[offset++];
+			attackB[c] = buffer[offset++];
+			attackFrame[c] = buffer[offset++];
+			attackPlayer[c] = buffer[offset++] != 0;
+			attackSpeedX[c] = buffer[offset++];
+			attackSpeedY[c] = buffer[offset++];
+		}
+		else attackTemplate[c] = NO_ATTACK;
+		return offset;
+	}
+
+	private int loadInput(int c, int[] buffer, int offset){
+		int size = buffer[offset++];
+		inputCount[c] = size;
+		for(int i = 0 ; i < size ; i++){
+			int input = buffer[offset++];
+			// SimFighting.setInput() repeats one action, which is all a count can hold
+			if(i > 0 && input != inputAction[c]) throw new IllegalArgumentException("the inputs of a player must repeat one action");
+			inputAction[c] = input;
+		}
+		return offset;
+	}
+
+	/**
+	 * Writes a game in the layout of SimFighting.save(), so that SimFighting.restore() continues it.
+	 * @param game the game
+	 * @param buffer the state buffer, at least getStateSize(game) long after offset
+	 * @param offset the position to write from
+	 * @return the position after the state
+	 */
+	public int save(int game, int[] buffer, int offset){
+		offset = saveCharacter(2 * game, buffer, offset);
+		offset = saveCharacter(2 * game + 1, buffer, offset);
+		buffer[offset++] = projectileCount[game];
+		for(int i = 0 ; i < projectileCount[game] ; i++){
+			int p = getProjectile(game, i);
+			buffer[offset++] = projectilePlayer[p] ? 1 : 0;
+			offset = saveTemplate(projectilePlayer[p] ? 0 : 1, projectileTemplate[p], buffer, offset);
+			buffer[offset++] = projectileL[p];
+			buffer[offset++] = projectileR[p];
+			buffer[offset++] = projectileT[p];
+			buffer[offset++] = projectileB[p];
+			buffer[offset++] = projectileFrame[p];
+			buffer[offset++] = projectilePlayer[p] ? 1 : 0;
+			buffer[offset++] = projectileSpeedX[p];
+			buffer[offset++] = projectileSpeedY[p];
+		}
+		for(int c = 2 * game ; c < 2 * game + 2 ; c++){
+			buffer[offset++] = inputCount[c];
+			for(int i = 0 ; i < inputCount[c] ; i++) buffer[offset++] = inputAction[c];
+		}
+		return offset;
+	}
+
+	private int saveCharacter(int c, int[] buffer, int offset){
+		buffer[offset++] = hp[c];
+		buffer[offset++] = energy[c];
+		buffer[offset++] = x[c];
+		buffer[offset++] = y[c];
+		buffer[offset++] = speedX[c];
+		buffer[offset++] = speedY[c];
+		buffer[offset++] = state[c];
+		buffer[offset++] = action[c];
+		buffer[offset++] = hitConfirm[c] ? 1 : 0;
+		buffer[offset++] = hitNumber[c];
+		buffer[offset++] = front[c] ? 1 : 0;
+		buffer[offset++] = control[c] ? 1 : 0;
+		buffer[offset++] = remainingFrame[c];
+		buffer[offset++] = attackTemplate[c] == NO_ATTACK ? 0 : 1;
+		if(attackTemplate[c] != NO_ATTACK){
+			offset = saveTemplate(c & 1, attackTemplate[c], buffer, offset);
+			buffer[offset++] = attackL[c];
+			buffer[offset++] = attackR[c];
+			buffer[offset++] = attackT[c];
+			buffer[offset++] = attackB[c];
+			buffer[offset++] = attackFrame[c];
+			buffer[offset++] = attackPlayer[c] ? 1 : 0;
+			buffer[offset++] = attackSpeedX[c];
+			buffer[offset++] = attackSpeedY[c];
+		}
+		return offset;
+	}
+
+	private int saveTemplate(int side, int template, int[] buffer, int offset){
+		if(template == EMPTY_TEMPLATE) buffer[offset++] = -1;
+		else if(isCompiled(side, template)) buffer[offset++] = template - templateBase[side];
+		else{
+			buffer[offset++] = -2;
+			System.arraycopy(templates, template * AttackTemplate.SIZE, buffer, offset, AttackTemplate.SIZE);
+			offset += AttackTemplate.SIZE;
+		}
+		return offset;
+	}
+
+	/**
+	 * Returns the number of ints save() writes for the game.
+	 */
+	public int getStateSize(int game){
+		int size = getCharacterSize(2 * game) + getCharacterSize(2 * game + 1) + 3 + inputCount[2 * game] + inputCount[2 * game + 1];
+		for(int i = 0 ; i < projectileCount[game] ; i++){
+			int p = getProjectile(game, i);
+			size += 10 + (isInline(projectilePlayer[p] ? 0 : 1, projectileTemplate[p]) ? AttackTemplate.SIZE : 0);
+		}
+		return size;
+	}
+
+	private int getCharacterSize(int c){
+		if(attackTemplate[c] == NO_ATTACK) return 14;
+		return 23 + (isInline(c & 1, attackTemplate[c]) ? AttackTemplate.SIZE : 0);
+	}
+
+	/**
+	 * Stops advancing the game, e.g. once its result is known.
+	 */
+	public void stop(int game){
+		running[game] = false;
+	}
+
+	public boolean isRunning(int game){
+		return running[game];
+	}
+
+	/**
+	 * Whether SimFighting would have thrown on the game: a character's attack was updated while its template has no hit box,
+	 * which happens with an attack of the FrameData not matching any motion. The game is stopped and its state is not meaningful.
+	 */
+	public boolean isFailed(int game){
+		return failed[game];
+	}
+
+	/**
+	 * Same as SimFighting.isQuiescent(): no input, attack or projectile remains, and both characters are idle.
+	 */
+	public boolean isQuiescent(int game){
+		return projectileCount[game] == 0 && isIdle(2 * game) && isIdle(2 * game + 1);
+	}
+
+	private boolean isIdle(int c){
+		return inputCount[c] == 0 && control[c] && attackTemplate[c] == NO_ATTACK && motions[c & 1].attackType[action[c]] == 0;
+	}
+
+	public int getHp(int game, boolean player){
+		return hp[2 * game + (player ? 0 : 1)];
+	}
+
+	public int getEnergy(int game, boolean player){
+		return energy[2 * game + (player ? 0 : 1)];
+	}
+
+	/**
+	 * Advances every running game by one frame.
+	 */
+	public void processingFight(){
+		// the phases run over a block of games at a time, so that the columns of the block stay in the cache between them
+		for(int from = 0 ; from < capacity ; from += BLOCK){
+			int to = Math.min(from + BLOCK, capacity);
+			moveCharacters(2 * from, 2 * to);
+			updateCharacters(2 * from, 2 * to);
+			for(int game = from ; game < to ; game++){
+				if(running[game]) updateFight(game);
+			}
+			for(int game = from ; game < to ; game++){
+				if(running[game]) endFrame(game);
+			}
+		}
+	}
+
+	/**
+	 * The first half of SimCharacter.update() for all characters: movement, friction, gravity, the frame counter and the energy limit.
+	 */
+	private void moveCharacters(int from, int to){
+		int friction = prop.FRICTION;
+		int gravity = prop.GRAVITY;
+		for(int side = 0 ; side < 2 ; side++){
+			int[] hitB = motions[side].hitB;
+			for(int c = from + side ; c < to ; c += 2){
+				if(!running[c >> 1]) continue;
+				int nextX = x[c] + speedX[c];
+			int nextY = y[c] + speedY[c];
+				int vx = speedX[c];
+				x[c] = nextX;
+				y[c] = nextY;
+				if(nextY >= 320) speedX[c] = vx - Integer.signum(vx) * friction;
+				speedY[c] = hitB[action[c]] + nextY >= 320 + 256 ? 0 : speedY[c] + gravity;
+				remainingFrame[c]--;
+				if(energy[c] > MAX_ENERGY) energy[c] = MAX_ENERGY;
+			}
+		}
+	}
+
+	/**
+	 * The second half of SimCharacter.update() for all characters: landing, the start of an attack and the end of the motion.
+	 */
+	private void updateCharacters(int from, int to){
+		for(int c = from ; c < to ; c++){
+			if(!running[c >> 1]) continue;
+			MotionTable motion = motions[c & 1];
+			if(y[c] >= 320){
+				if(motion.landingFlag[action[c]]){
+					runMotion(c, LANDING);
+					speedY[c] = 0;
+				}
+				y[c] = 320;
+			}
+
+			int now = action[c];
+			if(motion.frameNumber[now] - motion.attackStartUp[now] == remainingFrame[c]) createAttack(c);
+
+			if(remainingFrame[c] <= 0){
+				if(now == CHANGE_DOWN) runMotion(c, DOWN);
+				else if(now == DOWN) runMotion(c, RISE);
+				else if(state[c] == STATE_AIR || y[c] < 320) runMotion(c, AIR);
+				else runMotion(c, STAND);
+			}
+		}
+	}
+
+	private void runMotion(int c, int next){
+		MotionTable motion = motions[c & 1];
+		if(action[c] != next){
+			remainingFrame[c] = motion.frameNumber[next];
+			hitConfirm[c] = false;
+			attackTemplate[c] = NO_ATTACK;
+			hitNumber[c] = 0;
+			energy[c] += motion.attackStartAddEnergy[next];
+		}
+		action[c] = next;
+		state[c] = motionStates[c & 1][next];
+		if(motion.speedX[next] != 0) speedX[c] = front[c] ? motion.speedX[next] : -motion.speedX[next];
+		speedY[c] += motion.speedY[next];
+		control[c] = motion.control[next];
+	}
+
+	/** SimCharacter.createAttackInstance() and SimAttack.materialise()*/
+	private void createAttack(int c){
+		int template = templateBase[c & 1] + action[c];
+		int row = template * AttackTemplate.SIZE;
+		attackTemplate[c] = template;
+		attackFrame[c] = 0;
+		attackPlayer[c] = (c & 1) == 0;
+		placeAttack(c, row);
+	}
+
+	/** places the attack of the character at the character, as SimAttack.materialise() and SimAttack.update(SimCharacter) do*/
+	private void placeAttack(int c, int row){
+		if(front[c]){
+			attackL[c] = x[c] + templates[row + T_L];
+			attackR[c] = x[c] + templates[row + T_R];
+			attackSpeedX[c] = templates[row + T_SPEED_X];
+		}
+		else{
+			attackL[c] = x[c] + 256 - templates[row + T_R];
+			attackR[c] = x[c] + 256 - templates[row + T_L];
+			attackSpeedX[c] = -templates[row + T_SPEED_X];
+		}
+		attackSpeedY[c] = templates[row + T_SPEED_Y];
+		attackT[c] = y[c] + templates[row + T_T];
+		attackB[c] = y[c] + templates[row + T_B];
+	}
+
+	/** the rest of SimFighting.updateCharacter(): projectiles, directions, pushing and the stage ends*/
+	private void updateFight(int game){
+		int one = 2 * game;
+		int two = one + 1;
+		launchProjectile(game, one);
+		launchProjectile(game, two);
+
+		if(control[one]) front[one] = getCenter(one) < getCenter(two);
+		if(control[two]) front[two] = getCenter(two) < getCenter(one);
+
+		// the boxes only move horizontally from here on, so they are computed once and shifted with the characters
+		int l1 = getHitAreaL(one), r1 = getHitAreaR(one), t1 = getHitAreaT(one), b1 = getHitAreaB(one);
+		int l2 = getHitAreaL(two), r2 = getHitAreaR(two), t2 = getHitAreaT(two), b2 = getHitAreaB(two);
+		int dx1 = 0, dx2 = 0;
+		boolean vertical = t1 < b2 && b1 > t2;
+		// pushing
+		if(vertical && l1 < r2 && r1 > l2){
+			int s1 = speedX[one];
+			int s2 = speedX[two];
+			if(front[one] ? s1 > -s2 : -s1 > s2) dx2 = s1 - s2;
+			else if(front[one] ? s1 < -s2 : -s1 < s2) dx1 = s2 - s1;
+			else{
+				dx1 = s2;
+				dx2 = s1;
+			}
+		}
+		// collision
+		if(vertical && l1 + dx1 < r2 + dx2 && r1 + dx1 > l2 + dx2){
+			int c1 = l1 + (r1 - l1) / 2 + dx1;
+			int c2 = l2 + (r2 - l2) / 2 + dx2;
+			int direction = c1 < c2 ? -2 : c1 > c2 ? 2 : front[one] ? -2 : 2;
+			dx1 += direction;
+			dx2 -= direction;
+		}
+		x[one] += dx1 + getStageCorrection(one, l1 + dx1, r1 + dx1);
+		x[two] += dx2 + getStageCorrection(two, l2 + dx2, r2 + dx2);
+	}
+
+	private void launchProjectile(int game, int c){
+		int template = attackTemplate[c];
+		if(template == NO_ATTACK) return;
+		int row = template * AttackTemplate.SIZE;
+		if(templates[row + T_SPEED_X] + templates[row + T_SPEED_Y] == 0) return;
+
+		if(projectileCount[game] == projectileCapacity) allocateProjectiles(2 * projectileCapacity);
+		int p = getProjectile(game, projectileCount[game]++);
+		projectileTemplate[p] = template;
+		projectileL[p] = attackL[c];
+		projectileR[p] = attackR[c];
+		projectileT[p] = attackT[c];
+		projectileB[p] = attackB[c];
+		projectileFrame[p] = 0;
+		projectilePlayer[p] = attackPlayer[c];
+		projectileSpeedX[p] = attackSpeedX[c];
+		projectileSpeedY[p] = attackSpeedY[c];
+		attackTemplate[c] = NO_ATTACK;
+	}
+
+	/** SimFighting.decisionEndStage(): how far the character is moved back into the stage, bouncing it if it is down*/
+	private int getStageCorrection(int c, int l, int r){
+		if(r > STAGE_MAX_X){
+			if(action[c] == DOWN) speedX[c] = -(speedX[c] / 2);
+			return STAGE_MAX_X - r;
+		}
+		else if(l < 0){
+			if(action[c] == DOWN) speedX[c] = -(speedX[c] / 2);
+			return -l;
+		}
+		return 0;
+	}
+
+	/** SimFighting.endFrame(): the inputs, the attacks and the hits*/
+	private void endFrame(int game){
+		int one = 2 * game;
+		int two = one + 1;
+		consumeInput(one);
+		consumeInput(two);
+
+		// short range attacks
+		for(int c = one ; c <= two ; c++){
+			int template = attackTemplate[c];
+			if(template == NO_ATTACK) continue;
+			int row = template * AttackTemplate.SIZE;
+			if(templates[row + T_HAS_SETTING] == 0){
+				// SimAttack.update(SimCharacter) throws on an attack without a hit box
+				failed[game] = true;
+				running[game] = false;
+				return;
+			}
+			placeAttack(c, row);
+			if(++attackFrame[c] > templates[row + T_ACTIVE]) attackTemplate[c] = NO_ATTACK;
+		}
+
+		// projectiles: like attackDeque, the ones which remain are rotated to the back, and each removal shortens the loop
+		int base = game * projectileCapacity;
+		for(int i = 0 ; i < projectileCount[game] ; i++){
+			int p = base + projectileHead[game];
+			if(projectileSpeedX[p] != 0 || projectileSpeedY[p] != 0){
+				projectileL[p] += projectileSpeedX[p];
+				projectileR[p] += projectileSpeedX[p];
+				projectileT[p] += projectileSpeedY[p];
+				projectileB[p] += projectileSpeedY[p];
+			}
+			if(++projectileFrame[p] <= templates[projectileTemplate[p] * AttackTemplate.SIZE + T_ACTIVE]) rotateProjectile(game);
+			else removeProjectile(game);
+		}
+
+		// projectile hits
+		for(int i = 0 ; i < projectileCount[game] ; i++){
+			int p = base + projectileHead[game];
+			int suffer = projectilePlayer[p] ? two : one;
+			if(isHit(suffer, projectileL[p], projectileR[p], projectileT[p], projectileB[p])){
+				removeProjectile(game);
+				hitAttackObject(suffer, suffer ^ 1, projectileTemplate[p]);
+			}
+			else rotateProjectile(game);
+		}
+
+		// short range hits, with the templates taken before either hit changes the motions
+		int p1Attack = attackTemplate[one] != NO_ATTACK && isHit(two, attackL[one], attackR[one], attackT[one], attackB[one]) ? attackTemplate[one] : NO_ATTACK;
+		int p2Attack = attackTemplate[two] != NO_ATTACK && isHit(one, attackL[two], attackR[two], attackT[two], attackB[two]) ? attackTemplate[two] : NO_ATTACK;
+		if(p1Attack != NO_ATTACK){
+			hitAttackObject(two, one, p1Attack);
+			hitAttack(one);
+		}
+		if(p2Attack != NO_ATTACK){
+			hitAttackObject(one, two, p2Attack);
+			hitAttack(two);
+		}
+	}
+
+	private void consumeInput(int c){
+		if(inputCount[c] == 0) return;
+		int next = inputAction[c];
+		if(!isAbleAction(c, next)) return;
+		if(next != STAND_D_DF_FC || energy[c] >= 300){
+			inputCount[c]--;
+			runMotion(c, next);
+		}
+	}
+
+	private boolean isAbleAction(int c, int next){
+		if(control[c]) return true;
+		MotionTable motion = motions[c & 1];
+		int now = action[c];
+		return hitConfirm[c] && motion.cancelAbleFrame[now] <= motion.frameNumber[now] - remainingFrame[c]
+				&& motion.cancelAbleMotionLevel[now] >= motion.motionLevel[next];
+	}
+
+	private boolean isHit(int c, int l, int r, int t, int b){
+		if(state[c] == STATE_DOWN) return false;
+		return getHitAreaL(c) < r && getHitAreaR(c) > l && getHitAreaT(c) < b && getHitAreaB(c) > t;
+	}
+
+	private void hitAttack(int c){
+		hitConfirm[c] = true;
+		hitNumber[c]++;
+		attackTemplate[c] = NO_ATTACK;
+	}
+
+	/** SimCharacter.hitAttackObject(): character c suffers an attack of the other character*/
+	private void hitAttackObject(int c, int other, int template){
+		int row = template * AttackTemplate.SIZE;
+		int attackType = templates[row + T_ATTACK_TYPE];
+		int hitDirection = (getHitAreaL(other) + getHitAreaR(other)) / 2 <= (getHitAreaL(c) + getHitAreaR(c)) / 2 ? 1 : -1;
+
+		boolean guard;
+		int now = action[c];
+		if(now == STAND_GUARD || now == AIR_GUARD){
+			guard = attackType == 1 || attackType == 2;
+			if(guard) runMotion(c, now == STAND_GUARD ? STAND_GUARD_RECOV : AIR_GUARD_RECOV);
+		}
+		else if(now == CROUCH_GUARD){
+			guard = attackType == 1 || attackType == 3;
+			if(guard) runMotion(c, CROUCH_GUARD_RECOV);
+		}
+		else if(now == STAND_GUARD_RECOV || now == CROUCH_GUARD_RECOV || now == AIR_GUARD_RECOV){
+			runMotion(c, now);
+			guard = true;
+		}
+		else guard = false;
+
+		if(guard){
+			hp[c] -= templates[row + T_GUARD_DAMAGE];
+			energy[c] += templates[row + T_GIVE_ENERGY];
+			speedX[c] = hitDirection * templates[row + T_KNOCK_BACK];
+			energy[other] += templates[row + T_GUARD_ADD_ENERGY];
+			remainingFrame[c] = templates[row + T_GIVE_GUARD_RECOV];
+		}
+		else if(attackType == 4){
+			if(state[c] != STATE_AIR && state[c] != STATE_DOWN){
+				runMotion(c, THROW_SUFFER);
+				runMotion(other, THROW_HIT);
+				hp[c] -= templates[row + T_HIT_DAMAGE];
+				energy[c] += templates[row + T_GIVE_ENERGY];
+				energy[other] += templates[row + T_HIT_ADD_ENERGY];
+			}
+		}
+		else{
+			hp[c] -= templates[row + T_HIT_DAMAGE];
+			energy[c] += templates[row + T_GIVE_ENERGY];
+			speedX[c] = hitDirection * templates[row + T_IMPACT_X];
+			speedY[c] = templates[row + T_IMPACT_Y];
+			energy[other] += templates[row + T_HIT_ADD_ENERGY];
+
+			if(templates[row + T_DOWN_PROPERTY] != 0){
+				runMotion(c, CHANGE_DOWN);
+				remainingFrame[c] = motions[c & 1].frameNumber[action[c]];
+			}
+			else if(state[c] == STATE_STAND) runMotion(c, STAND_RECOV);
+			else if(state[c] == STATE_CROUCH) runMotion(c, CROUCH_RECOV);
+			else if(state[c] == STATE_AIR) runMotion(c, AIR_RECOV);
+		}
+	}
+
+	private int getCenter(int c){
+		int l = getHitAreaL(c);
+		return l + (getHitAreaR(c) - l) / 2;
+	}
+
+	private int getHitAreaL(int c){
+		MotionTable motion = motions[c & 1];
+		return front[c] ? motion.hitL[action[c]] + x[c] : 255 - motion.hitR[action[c]] + x[c];
+	}
+
+	private int getHitAreaR(int c){
+		MotionTable motion = motions[c & 1];
+		return front[c] ? motion.hitR[action[c]] + x[c] : 255 - motion.hitL[action[c]] + x[c];
+	}
+
+	private int getHitAreaT(int c){
+		return motions[c & 1].hitT[action[c]] + y[c];
+	}
+
+	private int getHitAreaB(int c){
+		return motions[c & 1].hitB[action[c]] + y[c];
+	}
+
+	/** index of the i-th projectile of the game, from the front of the ring*/
+	private int getProjectile(int game, int i){
+		return game * projectileCapacity + ((projectileHead[game] + i) & (projectileCapacity - 1));
+	}
+
+	/** moves the front projectile to the back, as attackDeque.addLast(attackDeque.removeFirst()) does*/
+	private void rotateProjectile(int game){
+		int from = getProjectile(game, 0);
+		int to = getProjectile(game, projectileCount[game]);
+		if(from != to){
+			projectileTemplate[to] = projectileTemplate[from];
+			projectileL[to] = projectileL[from];
+			projectileR[to] = projectileR[from];
+			projectileT[to] = projectileT[from];
+			projectileB[to] = projectileB[from];
+			projectileFrame[to] = projectileFrame[from];
+			projectilePlayer[to] = projectilePlayer[from];
+			projectileSpeedX[to] = projectileSpeedX[from];
+			projectileSpeedY[to] = projectileSpeedY[from];
+		}
+		projectileHead[game] = (projectileHead[game] + 1) & (projectileCapacity - 1);
+	}
+
+	private void removeProjectile(int game){
+		projectileHead[game] = (projectileHead[game] + 1) & (projectileCapacity - 1);
+		projectileCount[game]--;
+	}
+
+	/** (re)allocates the projectile rings, keeping the projectiles of every game in order from the start of its ring*/
+	private void allocateProjectiles(int newCapacity){
+		int[] template = new int[capacity * newCapacity];
+		int[] l = new int[capacity * newCapacity];
+		int[] r = new int[capacity * newCapacity];
+		int[] t = new int[capacity * newCapacity];
+		int[] b = new int[capacity * newCapacity];
+		int[] frame = new int[capacity * newCapacity];
+		int[] sx = new int[capacity * newCapacity];
+		int[] sy = new int[capacity * newCapacity];
+		boolean[] player = new boolean[capacity * newCapacity];
+		if(projectileTemplate != null){
+			for(int game = 0 ; game < capacity ; game++){
+				for(int i = 0 ; i < projectileCount[game] ; i++){
+					int from = getProjectile(game, i);
+					int to = game * newCapacity + i;
+					template[to] = projectileTemplate[from];
+					l[to] = projectileL[from];
+					r[to] = projectileR[from];
+					t[to] = projectileT[from];
+					b[to] = projectileB[from];
+					frame[to] = projectileFrame[from];
+					sx[to] = projectileSpeedX[from];
+					sy[to] = projectileSpeedY[from];
+					player[to] = projectilePlayer[from];
+				}
+				projectileHead[game] = 0;
+			}
+		}
+		projectileCapacity = newCapacity;
+		projectileTemplate = template;
+		projectileL = l;
+		projectileR = r;
+		projectileT = t;
+		projectileB = b;
+		projectileFrame = frame;
+		projectileSpeedX = sx;
+		projectileSpeedY = sy;
+		projectilePlayer = player;
+	}
+
+	private void addTemplate(AttackTemplate template){
+		ensureTemplates();
+		template.save(templates, templateNumber++ * AttackTemplate.SIZE);
+	}
+
+	private void ensureTemplates(){
+		if((templateNumber + 1) * AttackTemplate.SIZE > templates.length){
+			int[] grown = new int[templates.length * 2];
+			System.arraycopy(templates, 0, grown, 0, templates.length);
+			templates = grown;
+		}
+	}
+
+	/** id of a compiled template, by its index written by SimAttack.save()*/
+	private int getTemplate(int side, int index){
+		if(index == -1) return EMPTY_TEMPLATE;
+		if(index < 0 || index >= templateCount[side]) throw new IllegalArgumentException("unknown attack template " + index);
+		return templateBase[side] + index;
+	}
+
+	/** id of the inline template written in the buffer, shared with an inline template loaded before*/
+	private int findTemplate(int[] buffer, int offset){
+		int first = templateBase[1] + templateCount[1];
+		for(int template = first ; template < templateNumber ; template++){
+			int row = template * AttackTemplate.SIZE;
+			int i = 0;
+			while(i < AttackTemplate.SIZE && templates[row + i] == buffer[offset + i]) i++;
+			if(i == AttackTemplate.SIZE) return template;
+		}
+		ensureTemplates();
+		System.arraycopy(buffer, offset, templates, templateNumber * AttackTemplate.SIZE, AttackTemplate.SIZE);
+		return templateNumber++;
+	}
+
+	private boolean isCompiled(int side, int template){
+		return template >= templateBase[side] && template < templateBase[side] + templateCount[side];
+	}
+
+	private boolean isInline(int side, int template){
+		return template != EMPTY_TEMPLATE && !isCompiled(side, template);
+	}
+
+	/**
+	 * Returns the action of the character in the game.
+	 */
+	public Action getAction(int game, boolean player){
+		return ACTIONS[action[2 * game + (player ? 0 : 1)]];
+	}
+}
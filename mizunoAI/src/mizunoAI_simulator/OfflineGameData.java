@@ -0,0 +1,86 @@
+package mizunoAI_simulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Vector;
+
+import structs.CharacterData;
+import structs.GameData;
+import simulator.Simulator;
+import support.MotionTable;
+
+/**
+ * GameData and CharacterData for the tools that run outside the game, like SimulatorComparison.<br>
+ * Both can only be made from the game's characters, so their fields are set on instances made without a constructor.
+ * The GameData has the motions, the stage size, the energy limits and a simulator of AIToolKit, which is what the simulators use of it.
+ */
+public class OfflineGameData {
+	private static final Object UNSAFE = getUnsafe();
+
+	private OfflineGameData(){
+	}
+
+	private static Object getUnsafe(){
+		try{
+			Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			return field.get(null);
+		}catch(Exception e){
+			return null;
+		}
+	}
+
+	/**
+	 * Returns a GameData of two characters, with the motions read from the data directory of the game.
+	 * @param dataDirectory the data directory of the game
+	 * @param playerOne the character of P1
+	 * @param playerTwo the character of P2
+	 */
+	public static GameData create(File dataDirectory, String playerOne, String playerTwo) throws IOException{
+		GameData gameData = allocate(GameData.class);
+		set(gameData, "stageXMax", 960);
+		set(gameData, "stageYMax", 640);
+		set(gameData, "playerOneMaxEnergy", 1000);
+		set(gameData, "playerTwoMaxEnergy", 1000);
+		set(gameData, "playerOneMotion", MotionTable.read(new File(dataDirectory, "character/" + playerOne + "/Motion.csv")));
+		set(gameData, "playerTwoMotion", MotionTable.read(new File(dataDirectory, "character/" + playerTwo + "/Motion.csv")));
+		set(gameData, "characterName", new String[]{playerOne, playerTwo});
+		ArrayList<Vector<?>> comboTable = new ArrayList<Vector<?>>();
+		comboTable.add(new Vector<Object>());
+		comboTable.add(new Vector<Object>());
+		set(gameData, "comboTable", comboTable);
+		set(gameData, "simulator", new Simulator(gameData));
+		return gameData;
+	}
+
+	/**
+	 * Returns a CharacterData whose fields are all 0 or null but the combo, to be set by the caller.
+	 */
+	public static CharacterData createCharacter(){
+		CharacterData character = allocate(CharacterData.class);
+		set(character, "currentCombo", new Vector<Object>());
+		return character;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T allocate(Class<T> type){
+		if(UNSAFE == null) throw new UnsupportedOperationException("cannot create " + type.getName() + " outside the game");
+		try{
+			return (T) UNSAFE.getClass().getMethod("allocateInstance", Class.class).invoke(UNSAFE, type);
+		}catch(Exception e){
+			throw new UnsupportedOperationException("cannot create " + type.getName() + " outside the game", e);
+		}
+	}
+
+	private static void set(Object object, String name, Object value){
+		try{
+			Field field = object.getClass().getDeclaredField(name);
+			field.setAccessible(true);
+			field.set(object, value);
+		}catch(Exception e){
+			throw new UnsupportedOperationException("cannot set " + name + " of " + object.getClass().getName(), e);
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package mizunoAI_simulator;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import enumerate.Action;
+
+/**
+ * The frames of a replay file written by FightingICE (log/replay/*.dat), read into columns indexed by [player][frame], P1 being 0.<br>
+ * The file starts with the characters of the two players, followed by one record per player and frame:
+ * front, remaining frames, action, HP, energy, x, y and the keys, in the order gamestate.Replay reads them.<br>
+ * The speeds, the states and the attacks are not recorded.
+ */
+public class ReplayLog {
+	/** the characters in the order the game numbers them in a replay*/
+	private static final String[] CHARACTER = {"ZEN", "GARNET", "LUD", "KFM"};
+	private static final Action[] ACTIONS = Action.values();
+	/** the bytes of the characters at the start of the file, and of a frame of both players*/
+	private static final int HEADER_SIZE = 4 * 2;
+	private static final int FRAME_SIZE = (1 + 1 + 1 + 4 + 4 + 4 + 4 + 1) * 2;
+
+	private final String[] characterName = new String[2];
+	private int frameNumber;
+
+	private boolean[][] front = new boolean[2][];
+	private int[][] remainingFrame = new int[2][];
+	private Action[][] action = new Action[2][];
+	private int[][] hp = new int[2][];
+	private int[][] energy = new int[2][];
+	private int[][] x = new int[2][];
+	private int[][] y = new int[2][];
+	private int[][] key = new int[2][];
+
+	/**
+	 * Reads a replay file. A file cut off in the middle of a frame ends at the last whole frame.
+	 * @param file the replay file
+	 * @throws IOException if the file cannot be read, or has a frame with an action the game does not have
+	 */
+	public ReplayLog(File file) throws IOException{
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try{
+			for(int i = 0 ; i < 2 ; i++){
+				int character = input.readInt();
+				characterName[i] = character >= 0 && character < CHARACTER.length ? CHARACTER[character] : null;
+			}
+			ensureCapacity(1024);
+			try{
+				while(true){
+					if(frameNumber == x[0].length) ensureCapacity(frameNumber * 2);
+					for(int i = 0 ; i < 2 ; i++){
+						front[i][frameNumber] = input.readBoolean();
+						remainingFrame[i][frameNumber] = input.readByte();
+						int act = input.readByte();
+						if(act < 0 || act >= ACTIONS.length) throw new IOException(file + ": action " + act + " of P" + (i + 1) + " in frame " + frameNumber + " is not an action, the file is not a replay");
+						action[i][frameNumber] = ACTIONS[act];
+						hp[i][frameNumber] = input.readInt();
+						energy[i][frameNumber] = input.readInt();
+						x[i][frameNumber] = input.readInt();
+						y[i][frameNumber] = input.readInt();
+						key[i][frameNumber] = input.readByte();
+					}
+					frameNumber++;
+				}
+			}catch(EOFException e){
+				// the replay has no frame count, it ends with the file
+			}
+		}finally{
+			input.close();
+		}
+	}
+
+	/**
+	 * Returns the number of whole frames in a replay file of the length.
+	 */
+	public static int getFrameNumber(long length){
+		return (int)Math.max((length - HEADER_SIZE) / FRAME_SIZE, 0);
+	}
+
+	/**
+	 * Returns the length of the header and the frames of a replay file.
+	 */
+	public static long getLength(int frameNumber){
+		return HEADER_SIZE + (long)FRAME_SIZE * frameNumber;
+	}
+
+	private void ensureCapacity(int capacity){
+		for(int i = 0 ; i < 2 ; i++){
+			front[i] = front[i] == null ? new boolean[capacity] : Arrays.copyOf(front[i], capacity);
+			remainingFrame[i] = remainingFrame[i] == null ? new int[capacity] : Arrays.copyOf(remainingFrame[i], capacity);
+			action[i] = action[i] == null ? new Action[capacity] : Arrays.copyOf(action[i], capacity);
+			hp[i] = hp[i] == null ? new int[capacity] : Arrays.copyOf(hp[i], capacity);
+			energy[i] = energy[i] == null ? new int[capacity] : Arrays.copyOf(energy[i], capacity);
+			x[i] = x[i] == null ? new int[capacity] : Arrays.copyOf(x[i], capacity);
+			y[i] = y[i] == null ? new int[capacity] : Arrays.copyOf(y[i], capacity);
+			key[i] = key[i] == null ? new int[capacity] : Arrays.copyOf(key[i], capacity);
+		}
+	}
+
+	private static int index(boolean player){
+		return player ? 0 : 1;
+	}
+
+	/**
+	 * Returns the name of the character of the player, or null for a character the game did not know.
+	 */
+	public String getCharacterName(boolean player){
+		return characterName[index(player)];
+	}
+
+	public int getFrameNumber(){
+		return frameNumber;
+	}
+
+	public boolean isFront(boolean player, int frame){
+		return front[index(player)][frame];
+	}
+
+	public int getRemainingFrame(boolean player, int frame){
+		return remainingFrame[index(player)][frame];
+	}
+
+	public Action getAction(boolean player, int frame){
+		return action[index(player)][frame];
+	}
+
+	public int getHp(boolean player, int frame){
+		return hp[index(player)][frame];
+	}
+
+	public int getEnergy(boolean player, int frame){
+		return energy[index(player)][frame];
+	}
+
+	public int getX(boolean player, int frame){
+		return x[index(player)][frame];
+	}
+
+	public int getY(boolean player, int frame){
+		return y[index(player)][frame];
+	}
+
+	/**
+	 * Returns the keys as bits, A = 1, B = 2, C = 4, D = 8, L = 16, R = 32 and U = 64.
+	 */
+	public int getKey(boolean player, int frame){
+		return key[index(player)][frame];
+	}
+}
@@ -0,0 +1,76 @@
+package mizunoAI_simulator;
+
+/**
+ * The error of the evaluation values simulated with coarse steps against exact simulation, accumulated by Simulator.measureResolutionError().<br>
+ * It is read to choose the frame the coarse steps start at and their size: the speed gained is the ratio of the steps, and the cost is the error.
+ */
+public class ResolutionError {
+	/** the number of pairs of actions compared*/
+	private long pairs;
+	private long absoluteErrorSum;
+	private int maxAbsoluteError;
+	/** pairs whose evaluation value has a different sign, which changes whether the action looks good or bad*/
+	private long signErrors;
+	/** steps simulated exactly and with the coarse steps*/
+	private long exactSteps;
+	private long coarseSteps;
+
+	/**
+	 * Adds the result of one pair of actions.
+	 * @param exact the evaluation value simulated exactly
+	 * @param coarse the evaluation value simulated with the coarse steps
+	 */
+	public void add(int exact, int coarse){
+		int error = Math.abs(coarse - exact);
+		pairs++;
+		absoluteErrorSum += error;
+		maxAbsoluteError = Math.max(maxAbsoluteError, error);
+		if(Integer.signum(exact) != Integer.signum(coarse)) signErrors++;
+	}
+
+	/**
+	 * Adds the steps the two simulations took.
+	 */
+	public void addSteps(long exact, long coarse){
+		exactSteps += exact;
+		coarseSteps += coarse;
+	}
+
+	public long getPairs(){
+		return pairs;
+	}
+
+	public double getMeanAbsoluteError(){
+		return pairs == 0 ? 0 : (double) absoluteErrorSum / pairs;
+	}
+
+	public int getMaxAbsoluteError(){
+		return maxAbsoluteError;
+	}
+
+	public double getSignErrorRate(){
+		return pairs == 0 ? 0 : (double) signErrors / pairs;
+	}
+
+	/**
+	 * Returns the steps with the coarse steps per exact step, the share of the simulation cost left.
+	 */
+	public double getStepRatio(){
+		return exactSteps == 0 ? 1 : (double) coarseSteps / exactSteps;
+	}
+
+	public void clear(){
+		pairs = 0;
+		absoluteErrorSum = 0;
+		maxAbsoluteError = 0;
+		signErrors = 0;
+		exactSteps = 0;
+		coarseSteps = 0;
+	}
+
+	@Override
+	public String toString(){
+		return String.format("pairs %d, mean error %.2f, max error %d, sign errors %.1f%%, steps %.1f%% of exact",
+				pairs, getMeanAbsoluteError(), maxAbsoluteError, 100*getSignErrorRate(), 100*getStepRatio());
+	}
+}
@@ -3,7 +3,16 @@ package mizunoAI_simulator;
 import structs.HitArea;
 import fighting.Attack;
 
+/**
+ * A live attack. The immutable parameters are shared through an AttackTemplate,
+ * so an instance only holds its hit box, frame counter, speed and owner side.
+ */
 public class SimAttack {
+	/**
+	 * the immutable parameters of this attack
+	 */
+	private AttackTemplate template;
+
 	/**
 	 * refresh the information per frame,and check the result of attack
 	 */
@@ -13,182 +22,176 @@ public class SimAttack {
 	 * the number of frame
 	 */
 	private	int nowFrame;
-	
+
 	/**
 	 * player side`s flag
 	 */
 	private	boolean playerNumber;
 
-	/**
-	 * HitArea`s information and position
-	 */
-	private	HitArea hitAreaSetting;
-
-	/**
-	 * attack action's moving value
-	 */
-	private int settingSpeedX, settingSpeedY;
-
 	/**
 	 * attack action's moving value
 	 */
 	private int speedX, speedY;
 
-	/**
-	 * attack effect start sign (per frame)
-	 */
-	private	int startUp;
-
-	/**
-	 * continuation attack interval 
-	 */
-	private	int interval;
-	
-	/**
-	 * number of times of a continuation attack 
-	 */
-	private	int repeat;
+	public SimAttack() {
+		this.template = AttackTemplate.EMPTY;
+		this.hitAreaNow = new HitArea();
+	}
 
-	/**
-	 * attack action`s active time
-	 */
-	private	int active;
+	public SimAttack(mizunoAI_simulator.SimAttack attack){
+		if(attack == null) this.template = AttackTemplate.EMPTY;
+		else{
+			hitAreaNow = new HitArea();
+			set(attack);
+		}
+	}
 
-	/**
-	 * attack action`s damage
-	 */
-	private	int hitDamage, guardDamage;
+	public SimAttack(Attack attack){
+		if(attack == null) this.template = AttackTemplate.EMPTY;
+		else{
+			hitAreaNow = new HitArea();
+			set(attack);
+		}
+	}
 
-	/**
-	 * ExEnergy value
-	 */
-	private	int startAddEnergy, hitAddEnergy, guardAddEnergy, giveEnergy;
+	public SimAttack(HitArea hitAreaInput,int SpeedXInput,int SpeedYInput,int InvokeInput,int IntervalInput,int RepeatInput,int activeInput,
+			int HDamegeInput,int GDamageInput,int SAddEnergyInput,int HAddEnergyInput,int GAddEnergyInput,int GiveEnergyInput,
+			int ImpactXInput,int ImpactYInput,int GiveGuardRecovInput,int KnockBackInput, int HitStopInput,
+			int AttackTypeInput,boolean DownPropInput)
+	{
+		this.hitAreaNow = new HitArea();
+		this.template = new AttackTemplate(hitAreaInput,SpeedXInput,SpeedYInput,InvokeInput,IntervalInput,RepeatInput,activeInput,
+				HDamegeInput,GDamageInput,SAddEnergyInput,HAddEnergyInput,GAddEnergyInput,GiveEnergyInput,
+				ImpactXInput,ImpactYInput,GiveGuardRecovInput,KnockBackInput,HitStopInput,
+				AttackTypeInput,DownPropInput);
+	}
 
 	/**
-	 * feedback value
+	 * Copies the attack into this instance, so that a pooled instance can be reused instead of allocating a copy.
+	 * The template is shared, and like the copy constructor, nowFrame starts again from 0.
+	 * @param attack the attack to copy
 	 */
-	private	int impactX,impactY;
+	public void set(mizunoAI_simulator.SimAttack attack){
+		template = attack.template;
+		hitAreaNow.setParameters(attack.getHitAreaNow());
+		nowFrame = 0;
+		playerNumber = attack.isPlayerNumber();
+		speedX = attack.getSpeedX();
+		speedY = attack.getSpeedY();
+	}
 
 	/**
-	 * recovertime
+	 * Copies the attack of the FrameData into this instance. nowFrame starts again from 0.
+	 * @param attack the attack to copy
 	 */
-	private	int giveGuardRecov;
+	public void set(Attack attack){
+		set(attack, new AttackTemplate(attack));
+	}
 
 	/**
-	 * knockback value
+	 * Copies the attack of the FrameData into this instance, sharing a template known to have its parameters.
+	 * @param attack the attack to copy
+	 * @param template the template matching the attack
 	 */
-	private	int knockBack;
+	public void set(Attack attack,AttackTemplate template){
+		this.template = template;
+		hitAreaNow.setParameters(attack.getHitAreaNow());
+		nowFrame = 0;
+		playerNumber = attack.isPlayerNumber();
+		speedX = attack.getSpeedX();
+		speedY = attack.getSpeedY();
+	}
 
 	/**
-	 * hitstop time
+	 * Starts a new attack of the template in this instance. The hit box is placed by materialise().
+	 * @param template the template of the action which has the attack
 	 */
-	private	int hitStop;
+	public void set(AttackTemplate template){
+		this.template = template;
+		nowFrame = 0;
+		playerNumber = false;
+		speedX = 0;
+		speedY = 0;
+	}
 
-	/**
-	 * attack`s typeA 1=high 2=mid 3=low
-	 */
-	private	int attackType;
+	public AttackTemplate getTemplate() {
+		return template;
+	}
 
+	/** template index written for AttackTemplate.EMPTY*/
+	private static final int EMPTY_TEMPLATE = -1;
+	/** template index written for a template which follows in the buffer*/
+	private static final int INLINE_TEMPLATE = -2;
+	
 	/**
-	 * down flag , 1 = can push down 0=normal hit
+	 * Returns the number of ints save() writes.
+	 * @param templates the compiled templates of the character which owns this attack
 	 */
-	private	boolean downProperty;
-
-	public SimAttack() {
-		active = 0;
-		this.hitAreaNow = new HitArea();
+	public int getStateSize(AttackTemplate[] templates){
+		return 9 + (indexOf(templates) == INLINE_TEMPLATE ? AttackTemplate.SIZE : 0);
 	}
 	
-	public SimAttack(mizunoAI_simulator.SimAttack attack){
-		if(attack == null){}
-		else{
-			hitAreaNow = new HitArea();
-			hitAreaNow.setParameters(attack.getHitAreaNow());
-			playerNumber = attack.isPlayerNumber();
-			hitAreaSetting = attack.getHitAreaSetting();
-			settingSpeedX = attack.getSettingSpeedX();
-			settingSpeedY = attack.getSettingSpeedY();
-			speedX = attack.getSpeedX();
-			speedY = attack.getSpeedY();
-			startUp = attack.getStartUp();
-			interval = attack.getInterval();
-			repeat = attack.getRepeat();
-			active = attack.getActive();
-			hitDamage = attack.getHitDamage();
-			guardDamage = attack.getGuardDamage();
-			startAddEnergy = attack.getStartAddEnergy();
-			hitAddEnergy = attack.getHitAddEnergy();
-			guardAddEnergy = attack.getGuardAddEnergy();
-			giveEnergy = attack.getGiveEnergy();
-			impactX = attack.getImpactX();
-			impactY = attack.getImpactY();
-			giveGuardRecov = attack.getGiveGuardRecov();
-			knockBack = attack.getKnockBack();
-			hitStop = attack.getHitStop();
-			attackType = attack.getAttackType();
-			downProperty = attack.isDownProperty();
-		}
+	/**
+	 * Writes the state of this attack into the buffer.
+	 * A compiled template is written as its index, and any other template by its parameters.
+	 * @param buffer the state buffer
+	 * @param offset the position to write from
+	 * @param templates the compiled templates of the character which owns this attack
+	 * @return the position after this attack
+	 */
+	public int save(int[] buffer, int offset, AttackTemplate[] templates){
+		int index = indexOf(templates);
+		buffer[offset++] = index;
+		if(index == INLINE_TEMPLATE) offset = template.save(buffer, offset);
+		buffer[offset++] = hitAreaNow.getL();
+		buffer[offset++] = hitAreaNow.getR();
+		buffer[offset++] = hitAreaNow.getT();
+		buffer[offset++] = hitAreaNow.getB();
+		buffer[offset++] = nowFrame;
+		buffer[offset++] = playerNumber ? 1 : 0;
+		buffer[offset++] = speedX;
+		buffer[offset++] = speedY;
+		return offset;
 	}
 	
-	public SimAttack(Attack attack){
-		if(attack == null){}
-		else{
-			hitAreaNow = new HitArea();
-			hitAreaNow.setParameters(attack.getHitAreaNow());
-			playerNumber = attack.isPlayerNumber();
-			hitAreaSetting = attack.getHitAreaSetting();
-			settingSpeedX = attack.getSettingSpeedX();
-			settingSpeedY = attack.getSettingSpeedY();
-			speedX = attack.getSpeedX();
-			speedY = attack.getSpeedY();
-			startUp = attack.getStartUp();
-			interval = attack.getInterval();
-			repeat = attack.getRepeat();
-			active = attack.getActive();
-			hitDamage = attack.getHitDamage();
-			guardDamage = attack.getGuardDamage();
-			startAddEnergy = attack.getStartAddEnergy();
-			hitAddEnergy = attack.getHitAddEnergy();
-			guardAddEnergy = attack.getGuardAddEnergy();
-			giveEnergy = attack.getGiveEnergy();
-			impactX = attack.getImpactX();
-			impactY = attack.getImpactY();
-			giveGuardRecov = attack.getGiveGuardRecov();
-			knockBack = attack.getKnockBack();
-			hitStop = attack.getHitStop();
-			attackType = attack.getAttackType();
-			downProperty = attack.isDownProperty();
+	/**
+	 * Loads the state written by save() into this instance.
+	 * @param buffer the state buffer
+	 * @param offset the position the attack was written from
+	 * @param templates the compiled templates of the character which owns this attack
+	 * @return the position after this attack
+	 */
+	public int restore(int[] buffer, int offset, AttackTemplate[] templates){
+		int index = buffer[offset++];
+		if(index == INLINE_TEMPLATE){
+			template = AttackTemplate.load(buffer, offset);
+			offset += AttackTemplate.SIZE;
+		}
+		else template = index == EMPTY_TEMPLATE ? AttackTemplate.EMPTY : templates[index];
+		int L = buffer[offset++];
+		int R = buffer[offset++];
+		int T = buffer[offset++];
+		int B = buffer[offset++];
+		// the box keeps its size while the attack lives, so it can usually be moved in place
+		if(hitAreaNow.getR() - hitAreaNow.getL() == R - L && hitAreaNow.getB() - hitAreaNow.getT() == B - T){
+			hitAreaNow.move(L - hitAreaNow.getL(), T - hitAreaNow.getT());
 		}
+		else hitAreaNow.setParameters(new HitArea(L,R,T,B));
+		nowFrame = buffer[offset++];
+		playerNumber = buffer[offset++] != 0;
+		speedX = buffer[offset++];
+		speedY = buffer[offset++];
+		return offset;
 	}
 	
-	public SimAttack(HitArea hitAreaInput,int SpeedXInput,int SpeedYInput,int InvokeInput,int IntervalInput,int RepeatInput,int activeInput,
-			int HDamegeInput,int GDamageInput,int SAddEnergyInput,int HAddEnergyInput,int GAddEnergyInput,int GiveEnergyInput,
-			int ImpactXInput,int ImpactYInput,int GiveGuardRecovInput,int KnockBackInput, int HitStopInput,
-			int AttackTypeInput,boolean DownPropInput)
-	{
-		this.hitAreaNow = new HitArea();
-		hitAreaSetting = hitAreaInput;
-		settingSpeedX = SpeedXInput;
-		settingSpeedY = SpeedYInput;
-		startUp = InvokeInput;
-		interval = IntervalInput;
-		repeat = RepeatInput;
-		active = activeInput;
-		hitDamage = HDamegeInput;
-		guardDamage = GDamageInput;
-		startAddEnergy = SAddEnergyInput;
-		hitAddEnergy = HAddEnergyInput;
-		guardAddEnergy = GAddEnergyInput;
-		giveEnergy = GiveEnergyInput;
-		impactX = ImpactXInput;
-		impactY = ImpactYInput;
-		giveGuardRecov = GiveGuardRecovInput;
-		knockBack = KnockBackInput;
-		hitStop = HitStopInput;
-		attackType = AttackTypeInput;
-		downProperty = DownPropInput;
+	private int indexOf(AttackTemplate[] templates){
+		if(template == AttackTemplate.EMPTY) return EMPTY_TEMPLATE;
+		for(int i = 0 ; i < templates.length ; i++){
+			if(templates[i] == template) return i;
+		}
+		return INLINE_TEMPLATE;
 	}
-	
+
 	/**
 	 * This method receives the player side's flag, player's position and player's direction. 
 	 * It sets the parameters of a new attack instance. 
@@ -200,29 +203,29 @@ public class SimAttack {
 	public void materialise(boolean PlayerNum,int CharacterX , int CharacterY , boolean CharacterDirection)
 	{
 		int L,R,T,B;
+		HitArea hitAreaSetting = template.getHitAreaSetting();
 		playerNumber = PlayerNum;
 		if(CharacterDirection)
 		{
 			L = CharacterX + hitAreaSetting.getL();
 			R = CharacterX + hitAreaSetting.getR();
-			speedX = settingSpeedX;
-			speedY = settingSpeedY;
+			speedX = template.getSettingSpeedX();
+			speedY = template.getSettingSpeedY();
 		
 		}
 		else
 		{
 			L = CharacterX + 256 - hitAreaSetting.getR();
 			R = CharacterX + 256 - hitAreaSetting.getL();
-			speedX = -settingSpeedX;
-			speedY = settingSpeedY;
+			speedX = -template.getSettingSpeedX();
+			speedY = template.getSettingSpeedY();
 		}
 		T = CharacterY + hitAreaSetting.getT();
 		B = CharacterY + hitAreaSetting.getB();
 		
-		{
-			HitArea hit = new HitArea(L,R,T,B);
-			hitAreaNow.setParameters(hit);
-		}
+		// the box keeps the size of the setting in both directions, so move it to (L,T) in place
+		hitAreaNow.setParameters(hitAreaSetting);
+		hitAreaNow.move(L - hitAreaSetting.getL(), T - hitAreaSetting.getT());
 		nowFrame = 0;
 		
 	}
@@ -232,7 +235,7 @@ public class SimAttack {
 	 * @return true if it is a projectile, otherwise false 
 	 */
 	public boolean checkProjectile(){
-		if((settingSpeedX+settingSpeedY)==0) return false;
+		if((template.getSettingSpeedX()+template.getSettingSpeedY())==0) return false;
 		else return true;
 	}
 	
@@ -247,7 +250,7 @@ public class SimAttack {
 		}
 		nowFrame++;
 
-		if(nowFrame > active) return false;
+		if(nowFrame > template.getActive()) return false;
 
 		return true;
 	}
@@ -260,13 +263,14 @@ public class SimAttack {
 	public boolean update(SimCharacter character)
 	{
 		int L,R,T,B;
+		HitArea hitAreaSetting = template.getHitAreaSetting();
 		
 		if(character.isFront())
 		{
 			L = character.getX() + hitAreaSetting.getL();
 			R = character.getX() + hitAreaSetting.getR();
-			speedX = settingSpeedX;
-			speedY = settingSpeedY;
+			speedX = template.getSettingSpeedX();
+			speedY = template.getSettingSpeedY();
 
 		}
 		
@@ -274,38 +278,58 @@ public class SimAttack {
 		{
 			L = character.getX() + 256 - hitAreaSetting.getR();
 			R = character.getX() + 256 - hitAreaSetting.getL();
-			speedX = -settingSpeedX;
-			speedY = settingSpeedY;
+			speedX = -template.getSettingSpeedX();
+			speedY = template.getSettingSpeedY();
 		}
 		T = character.getY() + hitAreaSetting.getT();
 		B = character.getY() + hitAreaSetting.getB();
 
-		{
-			HitArea hit = new HitArea(L,R,T,B);
-			hitAreaNow.setParameters(hit);
-		}
+		// the box keeps the size of the setting in both directions, so move it to (L,T) in place
+		hitAreaNow.setParameters(hitAreaSetting);
+		hitAreaNow.move(L - hitAreaSetting.getL(), T - hitAreaSetting.getT());
 		
 		nowFrame++;
 
-		if(nowFrame > active) return false;
+		if(nowFrame > template.getActive()) return false;
 
 		return true;
 	}
 	
 	/**
-	 * Returns HitArea's setting information.
-	 * @return HitArea's setting information
+	 * Approximates frames calls of update() for the projectile in one step.
+	 * @param frames the number of frames
+	 * @return true if this attack is in the active stage, otherwise false
 	 */
-	public HitArea getHitAreaSetting() {
-		return hitAreaSetting;
+	public boolean update(int frames)
+	{
+		if(speedX != 0 || speedY != 0){
+			hitAreaNow.move(frames*speedX, frames*speedY);
+		}
+		nowFrame += frames;
+
+		return nowFrame <= template.getActive();
 	}
+	
+	/**
+	 * Approximates frames calls of update(character) in one step: the attack is placed at the character once, and ages by the frames.
+	 * @param character the character using this attack
+	 * @param frames the number of frames
+	 * @return true if this attack is in the active stage, otherwise false
+	 */
+	public boolean update(SimCharacter character, int frames)
+	{
+		update(character);
+		nowFrame += frames - 1;
 
+		return nowFrame <= template.getActive();
+	}
+	
 	/**
-	 * Sets HitArea's setting information.
-	 * @param hitAreaSetting HitArea's setting information 
+	 * Returns HitArea's setting information.
+	 * @return HitArea's setting information
 	 */
-	public void setHitAreaSetting(HitArea hitAreaSetting) {
-		this.hitAreaSetting = hitAreaSetting;
+	public HitArea getHitAreaSetting() {
+		return template.getHitAreaSetting();
 	}
 	
 	/**
@@ -323,7 +347,7 @@ public class SimAttack {
 	public void setHitAreaNow(HitArea hitAreaNow) {
 		this.hitAreaNow = hitAreaNow;
 	}
-
+	
 	/**
 	 * Returns the number of frames since this attack was used.
 	 * @return the number of frames since this attack was used 
@@ -331,7 +355,7 @@ public class SimAttack {
 	public int getNowFrame() {
 		return nowFrame;
 	}
-
+	
 	/**
 	 * Sets the number of frames since this attack was used. 
 	 * @param nowFrame the number of frames since this attack was used 
@@ -339,7 +363,7 @@ public class SimAttack {
 	public void setNowFrame(int nowFrame) {
 		this.nowFrame = nowFrame;
 	}
-
+	
 	/**
 	 * Returns the player side's flag.
 	 * @return the player side's flag 
@@ -347,7 +371,7 @@ public class SimAttack {
 	public boolean isPlayerNumber() {
 		return playerNumber;
 	}
-
+	
 	/**
 	 * Sets the player side's flag.
 	 * @param playerNumber the player side's flag
@@ -355,7 +379,7 @@ public class SimAttack {
 	public void setPlayerNumber(boolean playerNumber) {
 		this.playerNumber = playerNumber;
 	}
-
+	
 	/**
 	 * Returns the horizontal speed of the attack hit box (minus when moving left and plus when moving right).
 	 * @return the horizontal speed of the attack hit box (minus when moving left and plus when moving right) 
@@ -363,7 +387,7 @@ public class SimAttack {
 	public int getSpeedX() {
 		return speedX;
 	}
-
+	
 	/**
 	 * Sets the horizontal speed of the attack hit box (minus when moving left and plus when moving right).
 	 * @param speed_x the horizontal speed of the attack hit box (minus when moving left and plus when moving right) 
@@ -371,7 +395,7 @@ public class SimAttack {
 	public void setSpeedX(int speed_x) {
 		this.speedX = speed_x;
 	}
-
+	
 	/**
 	 * Returns the vertical speed of the attack hit box (minus when moving up and plus when moving down).
 	 * @return the vertical speed of the attack hit box (minus when moving up and plus when moving down) 
@@ -379,7 +403,7 @@ public class SimAttack {
 	public int getSpeedY() {
 		return speedY;
 	}
-
+	
 	/**
 	 * Sets the vertical speed of the attack hit box (minus when moving up and plus when moving down).
 	 * @param speed_y the vertical speed of the attack hit box (minus when moving up and plus when moving down) 
@@ -387,21 +411,13 @@ public class SimAttack {
 	public void setSpeedY(int speed_y) {
 		this.speedY = speed_y;
 	}
-
+	
 	/**
 	 * Returns the number of frames in Startup.
 	 * @return the number of frames in Startup
 	 */
 	public int getStartUp() {
-		return startUp;
-	}
-
-	/**
-	 * Sets the number of frames in Startup.
-	 * @param startUp the number of frames in Startup
-	 */
-	public void setStartUp(int startUp) {
-		this.startUp = startUp;
+		return template.getStartUp();
 	}
 	
 	/**
@@ -409,31 +425,15 @@ public class SimAttack {
 	 * @return not in use!
 	 */
 	public int getInterval() {
-		return interval;
+		return template.getInterval();
 	}
 	
-	/**
-	 * not in use!
-	 * @param interval not in use! 
-	 */
-	public void setInterval(int interval) {
-		this.interval = interval;
-	}
-
 	/**
 	 * not in use!
 	 * @return not in use! 
 	 */
 	public int getRepeat() {
-		return repeat;
-	}
-	
-	/**
-	 * not in use!
-	 * @param repeat not in use! 
-	 */
-	public void setRepeat(int repeat) {
-		this.repeat = repeat;
+		return template.getRepeat();
 	}
 	
 	/**
@@ -441,47 +441,23 @@ public class SimAttack {
 	 * @return the number of frames in Active 
 	 */
 	public int getActive() {
-		return active;
-	}
-
-	/**
-	 * Sets the number of frames in Active.
-	 * @param active the number of frames in Active 
-	 */
-	public void setActive(int active) {
-		this.active = active;
+		return template.getActive();
 	}
-
+	
 	/**
 	 * Returns the damage value to the unguarded opponent hit by this skill.
 	 * @return the damage value to the unguarded opponent hit by this skill  
 	 */
 	public int getHitDamage() {
-		return hitDamage;
-	}
-
-	/**
-	 * Sets the damage value to the unguarded opponent hit by this skill.
-	 * @param hitDamage the damage value to the unguarded opponent hit by this skill 
-	 */
-	public void setHitDamage(int hitDamage) {
-		this.hitDamage = hitDamage;
+		return template.getHitDamage();
 	}
-
+	
 	/**
 	 * Returns the damage value to the guarded opponent hit by this skill.
 	 * @return the damage value to the guarded opponent hit by this skill
 	 */
 	public int getGuardDamage() {
-		return guardDamage;
-	}
-
-	/**
-	 * Sets the damage value to the guarded opponent hit by this skill.
-	 * @param guardDamage the damage value to the guarded opponent hit by this skill
-	 */
-	public void setGuardDamage(int guardDamage) {
-		this.guardDamage = guardDamage;
+		return template.getGuardDamage();
 	}
 	
 	/**
@@ -489,15 +465,7 @@ public class SimAttack {
 	 * @return the value of the energy added to the character when it uses this skill
 	 */
 	public int getStartAddEnergy() {
-		return startAddEnergy;
-	}
-
-	/**
-	 * Sets the value of energy added to the character when it uses this skill.
-	 * @param startAddEnergy the value of the energy added to the character when it uses this skill
-	 */
-	public void setStartAddEnergy(int startAddEnergy) {
-		this.startAddEnergy = startAddEnergy;
+		return template.getStartAddEnergy();
 	}
 	
 	/**
@@ -505,129 +473,65 @@ public class SimAttack {
 	 * @return the value of the energy added to the character when this skill hits the opponent
 	 */
 	public int getHitAddEnergy() {
-		return hitAddEnergy;
+		return template.getHitAddEnergy();
 	}
-
-	/**
-	 * Sets the value of the energy added to the character when this skill hits the opponent.
-	 * @param hitAddEnergy the value of the energy added to the character when this skill hits the opponent
-	 */
-	public void setHitAddEnergy(int hitAddEnergy) {
-		this.hitAddEnergy = hitAddEnergy;
-	}
-
+	
 	/**
 	 * Returns the value of the energy added to the character when this skill is blocked by the opponent.
 	 * @return the value of the energy added to the character when this skill is blocked by the opponent 
 	 */
 	public int getGuardAddEnergy() {
-		return guardAddEnergy;
+		return template.getGuardAddEnergy();
 	}
-
-	/**
-	 * Sets the value of the energy added to the character when this skill is blocked by the opponent.
-	 * @param guardAddEnergy the value of the energy added to the character when this skill is blocked by the opponent 
-	 */
-	public void setGuardAddEnergy(int guardAddEnergy) {
-		this.guardAddEnergy = guardAddEnergy;
-	}
-
+	
 	/**
 	 * Returns the value of the energy added to the opponent when it is hit by this skill.
 	 * @return the value of the energy added to the opponent when it is hit by this skill
 	 */
 	public int getGiveEnergy() {
-		return giveEnergy;
+		return template.getGiveEnergy();
 	}
-
-	/**
-	 * Sets the value of the energy added to the opponent when it is hit by this skill.
-	 * @param giveEnergy the value of the energy added to the opponent when it is hit by this skill
-	 */
-	public void setGiveEnergy(int giveEnergy) {
-		this.giveEnergy = giveEnergy;
-	}
-
+	
 	/**
 	 * Returns the change in the horizontal speed of the opponent when it is hit by this skill.
 	 * @return the change in the horizontal speed of the opponent when it is hit by this skill
 	 */
 	public int getImpactX() {
-		return impactX;
+		return template.getImpactX();
 	}
-
-	/**
-	 * Sets the change in the horizontal speed of the opponent when it is hit by this skill.
-	 * @param impactX the change in the horizontal speed of the opponent when it is hit by this skill
-	 */
-	public void setImpactX(int impactX) {
-		this.impactX = impactX;
-	}
-
+	
 	/**
 	 * Returns the change in the vertical speed of the opponent when it is hit by this skill.
 	 * @return the change in the vertical speed of the opponent when it is hit by this skill
 	 */
 	public int getImpactY() {
-		return impactY;
+		return template.getImpactY();
 	}
-
-	/**
-	 * Sets the change in the vertical speed of the opponent when it is hit by this skill.
-	 * @param impactY the change in the vertical speed of the opponent when it is hit by this skill
-	 */
-	public void setImpactY(int impactY) {
-		this.impactY = impactY;
-	}
-
+	
 	/**
 	 * Returns the number of frames that the guarded opponent takes to resume to his normal status after it is hit by this skill.
 	 * @return the number of frames that the guarded opponent takes to resume to his normal status after it is hit by this skill
 	 */
 	public int getGiveGuardRecov() {
-		return giveGuardRecov;
-	}
-
-	/**
-	 * Sets the number of frames that the guarded opponent takes to resume to his normal status after it is hit by this skill.
-	 * @param giveGuardRecov the number of frames that the guarded opponent takes to resume to his normal status after it is hit by this skill
-	 */
-	public void setGiveGuardRecov(int giveGuardRecov) {
-		this.giveGuardRecov = giveGuardRecov;
+		return template.getGiveGuardRecov();
 	}
-
+	
 	/**
 	 * not in use!
 	 * @return not in use! 
 	 */
 	public int getKnockBack() {
-		return knockBack;
-	}
-
-	/**
-	 * not in use!
-	 * @param knockBack not in use! 
-	 */
-	public void setKnockBack(int knockBack) {
-		this.knockBack = knockBack;
+		return template.getKnockBack();
 	}
-
+	
 	/**
 	 * not in use!
 	 * @return not in use! 
 	 */
 	public int getHitStop() {
-		return hitStop;
-	}
-
-	/**
-	 * not in use!
-	 * @param hitStop not in use! 
-	 */
-	public void setHitStop(int hitStop) {
-		this.hitStop = hitStop;
+		return template.getHitStop();
 	}
-
+	
 	/**
 	 * Returns the value of the attack's type:
 	 * 1 = high 
@@ -637,66 +541,30 @@ public class SimAttack {
 	 * @return the value of the attack's type
 	 */
 	public int getAttackType() {
-		return attackType;
-	}
-
-	/**
-	 * Sets the value of the attack's type:
-	 * 1 = high 
-	 * 2 = middle 
-	 * 3 = low 
-	 * 4 = throw
-	 * @param attackType the value of the attack's type
-	 */
-	public void setAttackType(int attackType) {
-		this.attackType = attackType;
+		return template.getAttackType();
 	}
-
+	
 	/**
 	 * Returns the flag whether this skill can push down the opponent when hit.
 	 * @return the flag whether this skill can push down the opponent when hit
 	 */
 	public boolean isDownProperty() {
-		return downProperty;
-	}
-
-	/**
-	 * Sets the flag whether this skill can push down the opponent when hit.
-	 * @param downProperty the flag whether this skill can push down the opponent when hit
-	 */
-	public void setDownProperty(boolean downProperty) {
-		this.downProperty = downProperty;
+		return template.isDownProperty();
 	}
-
+	
 	/**
 	 * Returns the absolute value of the horizontal speed of the attack hit box (zero means the attack hit box will track the character).
 	 * @return the absolute value of the horizontal speed of the attack hit box (zero means the attack hit box will track the character)
 	 */
 	public int getSettingSpeedX() {
-		return settingSpeedX;
-	}
-
-	/**
-	 * Sets the absolute value of the horizontal speed of the attack hit box (zero means the attack hit box will track the character).
-	 * @param settingSpeedX the absolute value of the horizontal speed of the attack hit box (zero means the attack hit box will track the character)
-	 */
-	public void setSettingSpeedX(int settingSpeedX) {
-		this.settingSpeedX = settingSpeedX;
+		return template.getSettingSpeedX();
 	}
-
+	
 	/**
 	 * Returns the absolute value of the vertical speed of the attack hit box (zero means the attack hit box will track the character).
 	 * @return the absolute value of the vertical speed of the attack hit box (zero means the attack hit box will track the character) 
 	 */
 	public int getSettingSpeedY() {
-		return settingSpeedY;
-	}
-
-	/**
-	 * Sets the absolute value of the vertical speed of the attack hit box (zero means the attack hit box will track the character).
-	 * @param settingSpeedY the absolute value of the vertical speed of the attack hit box (zero means the attack hit box will track the character)
-	 */
-	public void setSettingSpeedY(int settingSpeedY) {
-		this.settingSpeedY = settingSpeedY;
+		return template.getSettingSpeedY();
 	}
-}
+}
\ No newline at end of file
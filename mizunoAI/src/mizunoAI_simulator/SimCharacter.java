@@ -7,7 +7,9 @@ import structs.MotionData;
 import structs.CharacterData;
 import enumerate.Action;
 import enumerate.State;
+import fighting.Attack;
 import mizunoAI_simulator.SimAttack;
+import support.MotionTable;
 
 public class SimCharacter {
 	/**
@@ -77,17 +79,49 @@ public class SimCharacter {
 	 */
 	private int maxEnergy;
 	/**
-	 * MotionData of this character.
-	 * One motion can be access with method playerOneMotion.elementAt(index).
-	 * ex. playerOneMotion.elementAt(Action.STAND_A.ordinal()).getSpeedX();
+	 * MotionData of this character compiled into columns.
+	 * One motion can be access with its Action ordinal.
+	 * ex. motion.speedX[Action.STAND_A.ordinal()];
 	 */
-	private Vector<MotionData> motionVector;
+	private MotionTable motion;
 	/**
 	 * game setting properties
 	 */
-	private Properties prop;
+	private static final Properties prop = new Properties();
+	/**
+	 * actions and states indexed by ordinal, to restore a saved state
+	 */
+	private static final Action[] ACTIONS = Action.values();
+	private static final State[] STATES = State.values();
+	/**
+	 * The instance the attack of this character is kept in, reused by every attack instead of allocating a copy.
+	 */
+	private final SimAttack attackBuffer;
+	/**
+	 * Attack templates of this character indexed by Action ordinal, built once from the MotionTable.
+	 */
+	private final AttackTemplate[] attackTemplates;
 	
 	public SimCharacter(CharacterData characterData,Vector<MotionData> motionData,boolean player){
+		this(new MotionTable(motionData),player);
+		reset(characterData);
+	}
+	
+	/**
+	 * Creates a character to be loaded by reset().
+	 */
+	public SimCharacter(MotionTable motion,boolean player){
+		this.playerNumber = player;
+		this.maxEnergy = 1000;
+		this.motion = motion;
+		this.attackBuffer = new SimAttack();
+		this.attackTemplates = AttackTemplate.compile(motion);
+	}
+	
+	/**
+	 * Reloads the character from the CharacterData in place, so that one instance serves every simulation.
+	 */
+	public void reset(CharacterData characterData){
 		this.x = characterData.getX();
 		this.y = characterData.getY();
 		this.hp = characterData.getHp();
@@ -101,81 +135,130 @@ public class SimCharacter {
 		this.front = characterData.isFront();
 		this.control = characterData.isControl();
 		this.remainingFrame = characterData.getRemainingFrame();
-		if(characterData.getAttack() != null)this.attack = new SimAttack(characterData.getAttack());
+		// CharacterData.getAttack() returns a new copy on every call, and copies a missing attack into one without a hit area
+		Attack characterAttack = characterData.getAttack();
+		// the attack usually belongs to the current action
+		AttackTemplate template = characterAttack != null ? findTemplate(characterAttack,characterData.getAction()) : AttackTemplate.EMPTY;
+		if(template != AttackTemplate.EMPTY){
+			attackBuffer.set(characterAttack,template);
+			this.attack = attackBuffer;
+		}
 		else this.attack = null;
-		this.playerNumber = player;
-		this.maxEnergy = 1000;
-		this.motionVector = motionData;
-		this.prop = new Properties();
+	}
+	
+	/**
+	 * Returns the number of ints save() writes.
+	 */
+	public int getStateSize(){
+		return 14 + (attack == null ? 0 : attack.getStateSize(attackTemplates));
+	}
+	
+	/**
+	 * Writes the state of this character into the buffer, so that it can be restored later instead of simulated again.
+	 * The motions and the side of the character are not written.
+	 * @param buffer the state buffer
+	 * @param offset the position to write from
+	 * @return the position after this character
+	 */
+	public int save(int[] buffer, int offset){
+		buffer[offset++] = hp;
+		buffer[offset++] = energy;
+		buffer[offset++] = x;
+		buffer[offset++] = y;
+		buffer[offset++] = speedX;
+		buffer[offset++] = speedY;
+		buffer[offset++] = state.ordinal();
+		buffer[offset++] = action.ordinal();
+		buffer[offset++] = hitConfirm ? 1 : 0;
+		buffer[offset++] = hitNumber;
+		buffer[offset++] = front ? 1 : 0;
+		buffer[offset++] = control ? 1 : 0;
+		buffer[offset++] = remainingFrame;
+		buffer[offset++] = attack == null ? 0 : 1;
+		if(attack != null) offset = attack.save(buffer, offset, attackTemplates);
+		return offset;
+	}
+	
+	/**
+	 * Loads the state written by save() into this instance.
+	 * @param buffer the state buffer
+	 * @param offset the position the character was written from
+	 * @return the position after this character
+	 */
+	public int restore(int[] buffer, int offset){
+		this.hp = buffer[offset++];
+		this.energy = buffer[offset++];
+		this.x = buffer[offset++];
+		this.y = buffer[offset++];
+		this.speedX = buffer[offset++];
+		this.speedY = buffer[offset++];
+		this.state = STATES[buffer[offset++]];
+		this.action = ACTIONS[buffer[offset++]];
+		this.hitConfirm = buffer[offset++] != 0;
+		this.hitNumber = buffer[offset++];
+		this.front = buffer[offset++] != 0;
+		this.control = buffer[offset++] != 0;
+		this.remainingFrame = buffer[offset++];
+		if(buffer[offset++] != 0){
+			offset = attackBuffer.restore(buffer, offset, attackTemplates);
+			this.attack = attackBuffer;
+		}
+		else this.attack = null;
+		return offset;
+	}
+	
+	/**
+	 * Finds the compiled template which has exactly the parameters of the attack, so that it can be shared instead of building a new one.
+	 * @param attack an attack of this character in the FrameData
+	 * @param action the action the attack probably belongs to, checked first
+	 * @return the template matching the attack, or a new one if none matches
+	 */
+	public AttackTemplate findTemplate(Attack attack,Action action){
+		if(action != null && attackTemplates[action.ordinal()].matches(attack)) return attackTemplates[action.ordinal()];
+		if(AttackTemplate.EMPTY.matches(attack)) return AttackTemplate.EMPTY;
+		for(AttackTemplate template : attackTemplates){
+			if(template.matches(attack)) return template;
 		}
+		return new AttackTemplate(attack);
+	}
+	
+	/**
+	 * Returns the compiled attack templates, which the projectiles of this character are saved against.
+	 */
+	AttackTemplate[] getAttackTemplates(){
+		return attackTemplates;
+	}
 	
-	public SimAttack runMotion(Action action){
+	public void runMotion(Action action){
 		if(getAction() != action){
-			setRemainingFrame(motionVector.elementAt(action.ordinal()).getFrameNumber());
+			setRemainingFrame(motion.frameNumber[action.ordinal()]);
 			setHitConfirm(false);
 			setAttack(null);
 			setHitNumber(0);
-			setEnergy(getEnergy()+motionVector.elementAt(action.ordinal()).getAttackStartAddEnergy());
+			setEnergy(getEnergy()+motion.attackStartAddEnergy[action.ordinal()]);
 		}
 		setAction(action);
-		setState(motionVector.elementAt(action.ordinal()).getState());
-		if(motionVector.elementAt(action.ordinal()).getSpeedX() != 0){
+		setState(motion.state[action.ordinal()]);
+		if(motion.speedX[action.ordinal()] != 0){
 			if(isFront()){
-				setSpeedX(motionVector.elementAt(action.ordinal()).getSpeedX());
+				setSpeedX(motion.speedX[action.ordinal()]);
 			}
 			else{
-				setSpeedX(-motionVector.elementAt(action.ordinal()).getSpeedX());
+				setSpeedX(-motion.speedX[action.ordinal()]);
 			}
 		}
-		setSpeedY(getSpeedY() + motionVector.elementAt(action.ordinal()).getSpeedY());
-		setControl(motionVector.elementAt(action.ordinal()).isControl());
-		SimAttack attack;
-		
-		//System.out.println(action.name());
-		
-		if(motionVector.elementAt(action.ordinal()).getAttackType() != 0){
-		
-			attack = new SimAttack(motionVector.elementAt(action.ordinal()).getAttackHit(),
-					motionVector.elementAt(action.ordinal()).getAttackSpeedX(),motionVector.elementAt(action.ordinal()).getAttackSpeedY(),
-					motionVector.elementAt(action.ordinal()).getAttackStartUp(),motionVector.elementAt(action.ordinal()).getAttackInterval(),
-					motionVector.elementAt(action.ordinal()).getAttackRepeat(),motionVector.elementAt(action.ordinal()).getAttackActive(),
-					motionVector.elementAt(action.ordinal()).getAttackHitDamage(),motionVector.elementAt(action.ordinal()).getAttackGuardDamage(),
-					motionVector.elementAt(action.ordinal()).getAttackStartAddEnergy(),motionVector.elementAt(action.ordinal()).getAttackHitAddEnergy(),motionVector.elementAt(action.ordinal()).getAttackGuardAddEnergy(),
-					motionVector.elementAt(action.ordinal()).getAttackGiveEnergy(),
-					motionVector.elementAt(action.ordinal()).getAttackImpactX(),motionVector.elementAt(action.ordinal()).getAttackImpactY(),
-					motionVector.elementAt(action.ordinal()).getAttackGiveGuardRecov(),
-					motionVector.elementAt(action.ordinal()).getAttackKnockBack(),
-					motionVector.elementAt(action.ordinal()).getAttackHitStop(),
-					motionVector.elementAt(action.ordinal()).getAttackType(),
-					motionVector.elementAt(action.ordinal()).isAttackDownProperty());
-		}
-		else{
-			attack = null;
-		}
-		
-		return attack;
+		setSpeedY(getSpeedY() + motion.speedY[action.ordinal()]);
+		setControl(motion.control[action.ordinal()]);
 	}
 	
 	public void createAttackInstance(){
-		if(invokeDecision())
-		{	
-			SimAttack attack = new SimAttack(motionVector.elementAt(action.ordinal()).getAttackHit(),
-					motionVector.elementAt(action.ordinal()).getAttackSpeedX(),motionVector.elementAt(action.ordinal()).getAttackSpeedY(),
-					motionVector.elementAt(action.ordinal()).getAttackStartUp(),motionVector.elementAt(action.ordinal()).getAttackInterval(),
-					motionVector.elementAt(action.ordinal()).getAttackRepeat(),motionVector.elementAt(action.ordinal()).getAttackActive(),
-					motionVector.elementAt(action.ordinal()).getAttackHitDamage(),motionVector.elementAt(action.ordinal()).getAttackGuardDamage(),
-					motionVector.elementAt(action.ordinal()).getAttackStartAddEnergy(),motionVector.elementAt(action.ordinal()).getAttackHitAddEnergy(),motionVector.elementAt(action.ordinal()).getAttackGuardAddEnergy(),
-					motionVector.elementAt(action.ordinal()).getAttackGiveEnergy(),
-					motionVector.elementAt(action.ordinal()).getAttackImpactX(),motionVector.elementAt(action.ordinal()).getAttackImpactY(),
-					motionVector.elementAt(action.ordinal()).getAttackGiveGuardRecov(),
-					motionVector.elementAt(action.ordinal()).getAttackKnockBack(),
-					motionVector.elementAt(action.ordinal()).getAttackHitStop(),
-					motionVector.elementAt(action.ordinal()).getAttackType(),
-					motionVector.elementAt(action.ordinal()).isAttackDownProperty());
-			SimAttack obj = new SimAttack(attack);
-			obj.materialise(playerNumber,x,y,front);
-			setAttack(obj);
-		}
+		if(invokeDecision()) startAttack();
+	}
+	
+	private void startAttack(){
+		attackBuffer.set(attackTemplates[action.ordinal()]);
+		attackBuffer.materialise(playerNumber,x,y,front);
+		this.attack = attackBuffer;
 	}
 	
 	public void destroyAttackInstance(){
@@ -269,7 +352,7 @@ public class SimCharacter {
 
 				if(attackObject.isDownProperty()){
 					runMotion(Action.CHANGE_DOWN);
-					setRemainingFrame(motionVector.elementAt(action.ordinal()).getFrameNumber());
+					setRemainingFrame(motion.frameNumber[action.ordinal()]);
 				}else{
 				
 					switch(getState())
@@ -298,12 +381,12 @@ public class SimCharacter {
 	}
 	
 	public boolean invokeDecision(){
-		if((getMotionVector().elementAt(getAction().ordinal()).getFrameNumber() - getMotionVector().elementAt(getAction().ordinal()).getAttackStartUp()) == getRemainingFrame()) return true;
+		if((motion.frameNumber[getAction().ordinal()] - motion.attackStartUp[getAction().ordinal()]) == getRemainingFrame()) return true;
 		else return false;
 	}
 	
 	public boolean durationDecision(){
-		if((getMotionVector().elementAt(getAction().ordinal()).getFrameNumber() - getMotionVector().elementAt(getAction().ordinal()).getAttackActive()) >= getRemainingFrame()) return true;
+		if((motion.frameNumber[getAction().ordinal()] - motion.attackActive[getAction().ordinal()]) >= getRemainingFrame()) return true;
 		else return false;
 	}
 	
@@ -319,7 +402,7 @@ public class SimCharacter {
 		if(getEnergy() > getMaxEnergy()) setEnergy(getMaxEnergy());
 		
 		if(getY() >= 320){
-			if(motionVector.elementAt(getAction().ordinal()).isLandingFlag()){
+			if(motion.landingFlag[getAction().ordinal()]){
 				runMotion(Action.LANDING);
 				setSpeedY(0);
 			}
@@ -328,20 +411,138 @@ public class SimCharacter {
 		
 		createAttackInstance();
 		
-		if(getRemainingFrame() <= 0){
-			if(getAction() == Action.CHANGE_DOWN){
-				runMotion(Action.DOWN);
-			}
-			else if(getAction() == Action.DOWN){
-				runMotion(Action.RISE);
+		if(getRemainingFrame() <= 0) endMotion();
+	}
+	
+	/**
+	 * Approximates frames calls of update() in one step, for the coarse mode of SimFighting.<br>
+	 * The movement is integrated at once, and the landing, the start of the attack and the end of the motion are checked once at the end:
+	 * an attack starting inside the span starts at its end, and a motion ending inside it is followed by the next one, which is charged the frames it overran.
+	 * @param frames the number of frames
+	 */
+	public void update(int frames){
+		Action startAction = action;
+		int startRemaining = remainingFrame;
+		
+		if(isResting()){
+			x += getStepDistanceX(frames);
+			if(y >= 320){
+				int speed = Math.abs(speedX);
+				speedX = Integer.signum(speedX) * Math.max(speed - frames*prop.FRICTION, 0);
 			}
-			else if(getState() == State.AIR || getY() < 320){
-				runMotion(Action.AIR);
+		}
+		else{
+			// the parabola, cut at the ground by the landing below
+			x += frames*speedX;
+			y = getFlyingY(frames);
+			speedY += frames*prop.GRAVITY;
+		}
+		remainingFrame -= frames;
+		if(energy > maxEnergy) energy = maxEnergy;
+		
+		if(y >= 320){
+			if(motion.landingFlag[action.ordinal()]){
+				runMotion(Action.LANDING);
+				speedY = 0;
 			}
-			else{
-				runMotion(Action.STAND);
+			y = 320;
+		}
+		
+		// the attack starts if the frame it starts at was passed in the span
+		int invoke = motion.frameNumber[action.ordinal()] - motion.attackStartUp[action.ordinal()];
+		if(action == startAction ? (remainingFrame <= invoke && invoke < startRemaining) : invokeDecision()) startAttack();
+		
+		if(remainingFrame <= 0){
+			int overrun = remainingFrame;
+			Action ended = action;
+			endMotion();
+			if(action != ended) remainingFrame += overrun;
+		}
+	}
+	
+	private void endMotion(){
+		if(getAction() == Action.CHANGE_DOWN){
+			runMotion(Action.DOWN);
+		}
+		else if(getAction() == Action.DOWN){
+			runMotion(Action.RISE);
+		}
+		else if(getState() == State.AIR || getY() < 320){
+			runMotion(Action.AIR);
+		}
+		else{
+			runMotion(Action.STAND);
+		}
+	}
+	
+	/**
+	 * Returns how many of the next frames can be skipped by step() instead of update():
+	 * the frames before the motion ends or the attack starts, while the character rests without landing, or flies without reaching the ground.
+	 * The attack, the inputs and the other character are checked by SimFighting.
+	 * @param limit the maximum number of frames
+	 * @return the number of frames, 0 if update() is needed now
+	 */
+	public int getSteadyFrames(int limit){
+		int now = action.ordinal();
+		int frames = Math.min(limit, remainingFrame - 1);
+		int invoke = remainingFrame - (motion.frameNumber[now] - motion.attackStartUp[now]);
+		if(invoke >= 1) frames = Math.min(frames, invoke - 1);
+		// friction slowing the character past 0 is not handled
+		if(frames < 1 || (prop.FRICTION != 1 && speedX % prop.FRICTION != 0)) return 0;
+		
+		if(isResting()){
+			if(y >= 320 && motion.landingFlag[now]) return 0;
+			return frames;
+		}
+		// y after moving is below the ground and the gravity stays, checked at both ends of the parabola
+		int ceiling = Math.min(320, 320 + 256 - motion.hitB[now]);
+		if(getFlyingY(1) >= ceiling) return 0;
+		while(getFlyingY(frames) >= ceiling) frames--;
+		return frames;
+	}
+	
+	/**
+	 * Runs update() frames times in one step. Only valid for the frames getSteadyFrames() returns.
+	 * @param frames the number of frames
+	 */
+	public void step(int frames){
+		x += getStepDistanceX(frames);
+		if(isResting()){
+			if(y >= 320){
+				int speed = Math.abs(speedX);
+				speedX = Integer.signum(speedX) * Math.max(speed - frames*prop.FRICTION, 0);
+				y = 320;
 			}
 		}
+		else{
+			y = getFlyingY(frames);
+			speedY += frames*prop.GRAVITY;
+		}
+		remainingFrame -= frames;
+		if(energy > maxEnergy) energy = maxEnergy;
+	}
+	
+	/**
+	 * Returns how far step(frames) moves the character. The friction only slows it down, so it never goes further in between.
+	 */
+	public int getStepDistanceX(int frames){
+		if(isResting() && y >= 320){
+			// on the ground the friction slows the character down to 0
+			int speed = Math.abs(speedX);
+			int moving = Math.min(frames, speed / prop.FRICTION);
+			return Integer.signum(speedX) * (moving*speed - prop.FRICTION*moving*(moving-1)/2);
+		}
+		return frames*speedX;
+	}
+	
+	/** the gravity keeps the vertical speed 0*/
+	private boolean isResting(){
+		return speedY == 0 && motion.hitB[action.ordinal()] + Math.min(y, 320) >= 320 + 256;
+	}
+	
+	/** y after moving in the frames-th frame while flying*/
+	private int getFlyingY(int frames){
+		return y + frames*speedY + prop.GRAVITY*frames*(frames-1)/2;
 	}
 	
 	public void moveX(int relativePosition){
@@ -464,39 +665,39 @@ public class SimCharacter {
 	public int getHitAreaR(){
 		if(this.isFront())
 		{
-			return motionVector.elementAt((this.getAction()).ordinal()).getHit().getR() + x;
+			return motion.hitR[getAction().ordinal()] + x;
 		}
 		else
 		{
-			return 255 - motionVector.elementAt((this.getAction()).ordinal()).getHit().getL() + x;
+			return 255 - motion.hitL[getAction().ordinal()] + x;
 		}
 	}
 	public int getHitAreaL(){
 		if(this.isFront())
 		{
-			return motionVector.elementAt((this.getAction()).ordinal()).getHit().getL() + x;
+			return motion.hitL[getAction().ordinal()] + x;
 		}
 		else
 		{
-			return 255 - motionVector.elementAt((this.getAction()).ordinal()).getHit().getR() + x;
+			return 255 - motion.hitR[getAction().ordinal()] + x;
 		}
 	}
 	public int getHitAreaT(){
-		return motionVector.elementAt((this.getAction()).ordinal()).getHit().getT() + y;		
+		return motion.hitT[getAction().ordinal()] + y;		
 	}
 	public int getHitAreaB(){
-		return motionVector.elementAt((this.getAction()).ordinal()).getHit().getB() + y;		
+		return motion.hitB[getAction().ordinal()] + y;		
 	}
-	public Vector<MotionData> getMotionVector() {
-		return motionVector;
+	public MotionTable getMotionTable() {
+		return motion;
 	}
 	public SimAttack getAttack() {
 		return attack;
 	}
 	public void setAttack(SimAttack attack) {
 		if(attack != null){
-			SimAttack temp = new SimAttack(attack);
-			this.attack = temp;
+			attackBuffer.set(attack);
+			this.attack = attackBuffer;
 		}
 		else{
 			this.attack = null;
@@ -1,19 +1,25 @@
 package mizunoAI_simulator;
 
+import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
+import structs.HitArea;
 import structs.Key;
 import structs.KeyData;
 import transform.Transform;
 import enumerate.Action;
+import fighting.Attack;
 import enumerate.State;
 import mizunoAI_simulator.SimCharacter;
 import mizunoAI_simulator.SimAttack;
+import support.MotionTable;
 
 public class SimFighting {
 
 	private static final int INPUT_LIMIT = 30;
+	private static final Action[] ACTIONS = Action.values();
 	private final static int SIMULATE_LIMIT = 60;
 	private int stageMaxX;
 	private int stageMaxY;
@@ -22,25 +28,272 @@ public class SimFighting {
 	private Deque<SimAttack> attackDeque;
 	private Deque<Action> one;
 	private Deque<Action> two;
+	/** projectiles no longer in attackDeque, reused by the next projectile*/
+	private Deque<SimAttack> attackPool;
+	/** copies of the short distance attacks hitting in this frame*/
+	private SimAttack p1Attack;
+	private SimAttack p2Attack;
+	/** frames of the step being simulated, more than 1 in processingCoarse(), whose hits are detected on the areas swept in the step*/
+	private int sweptFrames = 1;
+	/** positions of the characters before the step of processingCoarse()*/
+	private int startX1, startY1, startX2, startY2;
 	
-	public SimFighting(mizunoAI_simulator.SimCharacter P1,mizunoAI_simulator.SimCharacter P2,Deque<SimAttack> attackDeque,Action one ,Action two){
+	/**
+	 * Creates a fighting to be loaded by reset(). The characters are reloaded by their own reset().
+	 */
+	public SimFighting(mizunoAI_simulator.SimCharacter P1,mizunoAI_simulator.SimCharacter P2){
 		playerOneCharacter = P1;
 		playerTwoCharacter = P2;
-		this.attackDeque = attackDeque;
-		this.one = new LinkedList<Action>();
-		this.two = new LinkedList<Action>();
-		for(int i = 0;i<3;i++){
-			this.one.add(one);
-			this.two.add(two);
-		}
+		this.attackDeque = new ArrayDeque<SimAttack>();
+		this.attackPool = new ArrayDeque<SimAttack>();
+		this.one = new ArrayDeque<Action>();
+		this.two = new ArrayDeque<Action>();
+		this.p1Attack = new SimAttack();
+		this.p2Attack = new SimAttack();
 		stageMaxX = 960;
 		stageMaxY = 640;
 	}
+	
+	/**
+	 * Reloads the projectiles and the inputs in place, so that one instance serves every simulation.
+	 * @param attacks projectiles of the FrameData
+	 * @param one action of P1
+	 * @param two action of P2
+	 */
+	public void reset(Deque<Attack> attacks,Action one ,Action two){
+		while(!attackDeque.isEmpty()) attackPool.push(attackDeque.removeFirst());
+		for(Attack attack : attacks){
+			SimAttack simAttack = obtainAttack();
+			simAttack.set(attack,getOwner(attack.isPlayerNumber()).findTemplate(attack,null));
+			attackDeque.addLast(simAttack);
+		}
+		setInput(true,one);
+		setInput(false,two);
+	}
+	
+	/**
+	 * Replaces the inputs of one side.
+	 * @param player true for P1, false for P2
+	 * @param action the action to input, or null for no input
+	 */
+	public void setInput(boolean player,Action action){
+		Deque<Action> input = player ? one : two;
+		input.clear();
+		if(action == null) return;
+		for(int i = 0;i<3;i++){
+			input.add(action);
+		}
+	}
+	
+	/**
+	 * Replaces the inputs of one side with a sequence of actions, each taken once as soon as the character can take it.
+	 * @param player true for P1, false for P2
+	 * @param actions the actions in the order to input them
+	 */
+	public void setInputs(boolean player,Collection<Action> actions){
+		Deque<Action> input = player ? one : two;
+		input.clear();
+		input.addAll(actions);
+	}
+	
+	private SimAttack obtainAttack(){
+		if(attackPool.isEmpty()) return new SimAttack();
+		return attackPool.pop();
+	}
+	
+	/**
+	 * Returns the number of ints save() writes for the current state.
+	 */
+	public int getStateSize(){
+		int size = playerOneCharacter.getStateSize() + playerTwoCharacter.getStateSize() + 3 + one.size() + two.size();
+		for(SimAttack attack : attackDeque) size += 1 + attack.getStateSize(getOwner(attack).getAttackTemplates());
+		return size;
+	}
+	
+	/**
+	 * Writes the whole state of the fighting into a new buffer.
+	 * @return the state buffer
+	 */
+	public int[] save(){
+		int[] buffer = new int[getStateSize()];
+		save(buffer, 0);
+		return buffer;
+	}
+	
+	/**
+	 * Writes the whole state of the fighting, the characters, the projectiles and the inputs not yet consumed, into the buffer.
+	 * Restoring it lets a search continue from this frame without simulating the frames before it again.
+	 * @param buffer the state buffer, at least getStateSize() long after offset
+	 * @param offset the position to write from
+	 * @return the position after the state
+	 */
+	public int save(int[] buffer, int offset){
+		offset = playerOneCharacter.save(buffer, offset);
+		offset = playerTwoCharacter.save(buffer, offset);
+		buffer[offset++] = attackDeque.size();
+		for(SimAttack attack : attackDeque){
+			// the side comes first, so that restore() knows whose templates to read the attack with
+			buffer[offset++] = attack.isPlayerNumber() ? 1 : 0;
+			offset = attack.save(buffer, offset, getOwner(attack).getAttackTemplates());
+		}
+		offset = save(one, buffer, offset);
+		offset = save(two, buffer, offset);
+		return offset;
+	}
+	
+	/**
+	 * Loads the state written by save() in place. The projectiles are taken from the pool, so restoring does not allocate.
+	 * @param buffer the state buffer
+	 * @param offset the position the state was written from
+	 * @return the position after the state
+	 */
+	public int restore(int[] buffer, int offset){
+		offset = playerOneCharacter.restore(buffer, offset);
+		offset = playerTwoCharacter.restore(buffer, offset);
+		while(!attackDeque.isEmpty()) attackPool.push(attackDeque.removeFirst());
+		int attackNumber = buffer[offset++];
+		for(int i = 0 ; i < attackNumber ; i++){
+			SimAttack attack = obtainAttack();
+			boolean playerNumber = buffer[offset++] != 0;
+			offset = attack.restore(buffer, offset, getOwner(playerNumber).getAttackTemplates());
+			attackDeque.addLast(attack);
+		}
+		offset = restore(one, buffer, offset);
+		offset = restore(two, buffer, offset);
+		return offset;
+	}
+	
+	private SimCharacter getOwner(SimAttack attack){
+		return getOwner(attack.isPlayerNumber());
+	}
+	
+	private SimCharacter getOwner(boolean playerNumber){
+		return playerNumber ? playerOneCharacter : playerTwoCharacter;
+	}
+	
+	private static int save(Deque<Action> actions, int[] buffer, int offset){
+		buffer[offset++] = actions.size();
+		for(Action action : actions) buffer[offset++] = action.ordinal();
+		return offset;
+	}
+	
+	private static int restore(Deque<Action> actions, int[] buffer, int offset){
+		actions.clear();
+		int size = buffer[offset++];
+		for(int i = 0 ; i < size ; i++) actions.addLast(ACTIONS[buffer[offset++]]);
+		return offset;
+	}
 
 	public void processingFight(){
+		beginFrame();
+		endFrame();
+	}
+	
+	/**
+	 * Simulates at least one frame and up to limit frames.<br>
+	 * While no attack or projectile exists, no input can be taken and the characters cannot touch each other or the end of the stage,
+	 * the frames only move the characters, so they are skipped in one step until the next landing, motion end or attack start.
+	 * @param limit the maximum number of frames
+	 * @return the number of frames simulated
+	 */
+	public int processingFight(int limit){
+		int frames = getSteadyFrames(limit);
+		if(frames < 2){
+			processingFight();
+			return 1;
+		}
+		playerOneCharacter.step(frames);
+		playerTwoCharacter.step(frames);
+		return frames;
+	}
+	
+	private int getSteadyFrames(int limit){
+		if(!attackDeque.isEmpty() || playerOneCharacter.getAttack() != null || playerTwoCharacter.getAttack() != null) return 0;
+		int frames = playerOneCharacter.getSteadyFrames(limit);
+		if(frames >= 2) frames = playerTwoCharacter.getSteadyFrames(frames);
+		if(frames < 2) return 0;
+		if(!isSteady(playerOneCharacter,playerTwoCharacter,one) || !isSteady(playerTwoCharacter,playerOneCharacter,two)) return 0;
 		
+		while(frames >= 2 && !isApart(frames)) frames /= 2;
+		return frames;
+	}
+	
+	/**
+	 * The character cannot take the input, and does not turn around.
+	 */
+	private boolean isSteady(SimCharacter character,SimCharacter other,Deque<Action> input){
+		if(!character.isControl()) return input.isEmpty() || !character.isHitConfirm();
+		if(!input.isEmpty()) return false;
+		// frontDecision() turns it to the other character in every frame
+		return character.isFront() == (getCenter(character) < getCenter(other));
+	}
+	
+	private int getCenter(SimCharacter character){
+		return character.getHitAreaL()+(character.getHitAreaR()-character.getHitAreaL())/2;
+	}
+	
+	/**
+	 * The characters keep apart and in the stage for the frames. Each of them moves only one way, so the ends are enough.
+	 */
+	private boolean isApart(int frames){
+		int d1 = Math.abs(playerOneCharacter.getStepDistanceX(frames));
+		int d2 = Math.abs(playerTwoCharacter.getStepDistanceX(frames));
+		int l1 = playerOneCharacter.getHitAreaL(), r1 = playerOneCharacter.getHitAreaR();
+		int l2 = playerTwoCharacter.getHitAreaL(), r2 = playerTwoCharacter.getHitAreaR();
+		if(l1 - d1 < 0 || r1 + d1 > stageMaxX || l2 - d2 < 0 || r2 + d2 > stageMaxX) return false;
+		return r1 + d1 <= l2 - d2 || r2 + d2 <= l1 - d1;
+	}
+	
+	/**
+	 * The first half of processingFight(), which moves the characters before the inputs are read.
+	 * The inputs can be changed before endFrame() to branch at this frame.
+	 */
+	public void beginFrame(){
 		updateCharacter();
+	}
+	
+	/**
+	 * The second half of processingFight(), which reads the inputs and calculates the attacks.
+	 */
+	public void endFrame(){
+		consumeInputs();
+		
+		calculationAttackParameter(1);
 
+		calculationHit();
+		
+	}
+	
+	/**
+	 * Approximates frames frames (2 to 4 are meant) in one step, for the part of a simulation far from its start, where the accuracy matters less.<br>
+	 * The characters move by SimCharacter.update(frames), the attacks and projectiles age and move by the whole span,
+	 * the pushing between the characters is scaled by the frames, and the inputs are read once.<br>
+	 * Hits are resolved conservatively: a character and an attack hit if the areas they swept in the span overlap,
+	 * so a hit between two frames is not missed, but a near miss can count as a hit.
+	 * @param frames the number of frames, processingFight() for 1
+	 */
+	public void processingCoarse(int frames){
+		if(frames <= 1){
+			processingFight();
+			return;
+		}
+		startX1 = playerOneCharacter.getX();
+		startY1 = playerOneCharacter.getY();
+		startX2 = playerTwoCharacter.getX();
+		startY2 = playerTwoCharacter.getY();
+		
+		playerOneCharacter.update(frames);
+		playerTwoCharacter.update(frames);
+		interactCharacters(frames);
+		
+		consumeInputs();
+		calculationAttackParameter(frames);
+		sweptFrames = frames;
+		calculationHit();
+		sweptFrames = 1;
+	}
+	
+	private void consumeInputs(){
 		if(!one.isEmpty()){
 			if(ableAction(playerOneCharacter,one.getFirst())){
 				if(one.getFirst() != Action.STAND_D_DF_FC || playerOneCharacter.getEnergy() >= 300) playerOneCharacter.runMotion(one.pop());
@@ -52,45 +305,72 @@ public class SimFighting {
 				if(two.getFirst() != Action.STAND_D_DF_FC || playerTwoCharacter.getEnergy() >= 300) playerTwoCharacter.runMotion(two.pop());
 			}
 		}
-		
-		calculationAttackParameter();
-
-		calculationHit();
-		
+	}
+	
+	/**
+	 * The exchange is over once both inputs are consumed, no attack or projectile remains and both characters are in a controllable motion without an attack.
+	 * From then on no hit can occur, so HP cannot change any more.
+	 * @return simulation can stop or not
+	 */
+	public boolean isQuiescent(){
+		return one.isEmpty() && two.isEmpty() && attackDeque.isEmpty() && isIdle(playerOneCharacter) && isIdle(playerTwoCharacter);
+	}
+	
+	/**
+	 * Checks whether the character can take an input in this frame, called between beginFrame() and endFrame().
+	 * While neither character can, the frame is the same whatever the inputs are.
+	 * @param player true for P1, false for P2
+	 * @return the character can take some action or not
+	 */
+	public boolean canInput(boolean player){
+		SimCharacter character = player ? playerOneCharacter : playerTwoCharacter;
+		if(character.isControl()) return true;
+		MotionTable motion = character.getMotionTable();
+		int now = character.getAction().ordinal();
+		return character.isHitConfirm() && motion.cancelAbleFrame[now] <= motion.frameNumber[now]-character.getRemainingFrame();
+	}
+	
+	private boolean isIdle(SimCharacter character){
+		return character.isControl() && character.getAttack() == null
+				&& character.getMotionTable().attackType[character.getAction().ordinal()] == 0;
 	}
 	
 	/**
 	 * This methods calculate parameter of Attack object's.
+	 * @param frames the frames of the step. An attack started in the step has lived only its last frame
 	 */
-	private void calculationAttackParameter(){
+	private void calculationAttackParameter(int frames){
 		// update coordinate of Attacks(short distance)
 		if(playerOneCharacter.getAttack() != null) {
-			if(!playerOneCharacter.getAttack().update(playerOneCharacter)) playerOneCharacter.destroyAttackInstance();
+			if(!updateAttack(playerOneCharacter,frames)) playerOneCharacter.destroyAttackInstance();
 		}
 		if(playerTwoCharacter.getAttack() != null) {
-			if(!playerTwoCharacter.getAttack().update(playerTwoCharacter)) playerTwoCharacter.destroyAttackInstance();
+			if(!updateAttack(playerTwoCharacter,frames)) playerTwoCharacter.destroyAttackInstance();
 		}
 		
 		// update coordinate of Attacks(long distance)
 		for(int i = 0 ; i < attackDeque.size() ; i++){
+			SimAttack attack = attackDeque.getFirst();
 			// if attack's nowFrame reach end of duration, remove it.
-			if(attackDeque.getFirst().update()){
+			if(frames == 1 || attack.getNowFrame() == 0 ? attack.update() : attack.update(frames)){
 				attackDeque.addLast(attackDeque.removeFirst());
 			}
-			else attackDeque.removeFirst();
+			else attackPool.push(attackDeque.removeFirst());
 		}		
 	}
 
 	/**
 	 * This method calculates collision effect.
 	 */
+	private boolean updateAttack(SimCharacter character,int frames){
+		SimAttack attack = character.getAttack();
+		if(frames == 1 || attack.getNowFrame() == 0) return attack.update(character);
+		return attack.update(character,frames);
+	}
+	
 	private void calculationHit(){
 		boolean p1AttackCheck = false;
 		boolean p2AttackCheck = false;
-		SimAttack p1Attack, p2Attack;
-		
-		p1Attack = new SimAttack(playerOneCharacter.getAttack());
-		p2Attack = new SimAttack(playerTwoCharacter.getAttack());
 		
 		// long distance attack
 				// see deque element in order and calculation collision effect
@@ -99,14 +379,14 @@ public class SimFighting {
 					if(!attackDeque.getFirst().isPlayerNumber())
 					{
 						// if attack hit character, run guard or hit motion and remove this attack. 
-						if(detectionHit(playerOneCharacter , attackDeque.getFirst())) playerOneCharacter.hitAttackObject(playerTwoCharacter, attackDeque.removeFirst());
+						if(detectionHit(playerOneCharacter , attackDeque.getFirst())) hitProjectile(playerOneCharacter, playerTwoCharacter);
 						else attackDeque.addLast(attackDeque.removeFirst());
 					}
 					// attack = 1P suffer = 2P
 					else
 					{
 						// if attack hit character, run guard or hit motion and remove this attack. 
-						if(detectionHit(playerTwoCharacter , attackDeque.getFirst())) playerTwoCharacter.hitAttackObject(playerOneCharacter, attackDeque.removeFirst());
+						if(detectionHit(playerTwoCharacter , attackDeque.getFirst())) hitProjectile(playerTwoCharacter, playerOneCharacter);
 						else attackDeque.addLast(attackDeque.removeFirst());
 					}
 				}	
@@ -127,6 +407,10 @@ public class SimFighting {
 					}
 				}
 				
+				// copy the attacks before either hit changes the motions
+				if(p1AttackCheck) p1Attack.set(playerOneCharacter.getAttack());
+				if(p2AttackCheck) p2Attack.set(playerTwoCharacter.getAttack());
+				
 				if(p1AttackCheck){
 					// if attack hit character, run guard or hit motion and remove this attack. 
 					playerTwoCharacter.hitAttackObject(playerOneCharacter,p1Attack);
@@ -142,6 +426,15 @@ public class SimFighting {
 				}
 	}
 	
+	/**
+	 * The first projectile in attackDeque hits the character. It is removed and kept for reuse.
+	 */
+	private void hitProjectile(SimCharacter suffer, SimCharacter attacker){
+		SimAttack projectile = attackDeque.removeFirst();
+		suffer.hitAttackObject(attacker, projectile);
+		attackPool.push(projectile);
+	}
+	
 	/**
 	 * Calculate collision.
 	 * @param characterObj
@@ -151,6 +444,8 @@ public class SimFighting {
 	private boolean detectionHit(SimCharacter characterObj, SimAttack attackOjb){
 		if(characterObj.getState() == State.DOWN){
 			return false;
+		}else if(sweptFrames > 1){
+			return detectionSweptHit(characterObj,attackOjb);
 		}else if(characterObj.getHitAreaL() < attackOjb.getHitAreaNow().getR() && characterObj.getHitAreaR() > attackOjb.getHitAreaNow().getL() && characterObj.getHitAreaT() < attackOjb.getHitAreaNow().getB() && characterObj.getHitAreaB() > attackOjb.getHitAreaNow().getT()){
 			return true;
 		}else if(characterObj.getHitAreaL() < attackOjb.getHitAreaNow().getR() && characterObj.getHitAreaT() < attackOjb.getHitAreaNow().getB() && characterObj.getHitAreaR() > attackOjb.getHitAreaNow().getL() && characterObj.getHitAreaB() > attackOjb.getHitAreaNow().getT()){
@@ -160,15 +455,48 @@ public class SimFighting {
 		}	
 	}
 	
+	/**
+	 * Checks whether the areas the character and the attack swept in the step of processingCoarse() overlap.
+	 * Each area is the box now extended back by how far it moved in the step.
+	 */
+	private boolean detectionSweptHit(SimCharacter character, SimAttack attack){
+		boolean one = character == playerOneCharacter;
+		int cdx = character.getX() - (one ? startX1 : startX2);
+		int cdy = character.getY() - (one ? startY1 : startY2);
+		int adx, ady;
+		if(attack.getNowFrame() <= 1){
+			// started at the end of the step
+			adx = 0;
+			ady = 0;
+		}
+		else if(attack == playerOneCharacter.getAttack() || attack == playerTwoCharacter.getAttack()){
+			// a short distance attack follows its character
+			boolean owner = attack == playerOneCharacter.getAttack();
+			adx = (owner ? playerOneCharacter.getX() - startX1 : playerTwoCharacter.getX() - startX2);
+			ady = (owner ? playerOneCharacter.getY() - startY1 : playerTwoCharacter.getY() - startY2);
+		}
+		else{
+			adx = sweptFrames*attack.getSpeedX();
+			ady = sweptFrames*attack.getSpeedY();
+		}
+		HitArea area = attack.getHitAreaNow();
+		return character.getHitAreaL() - Math.max(cdx,0) < area.getR() + Math.max(-adx,0)
+				&& character.getHitAreaR() + Math.max(-cdx,0) > area.getL() - Math.max(adx,0)
+				&& character.getHitAreaT() - Math.max(cdy,0) < area.getB() + Math.max(-ady,0)
+				&& character.getHitAreaB() + Math.max(-cdy,0) > area.getT() - Math.max(ady,0);
+	}
+	
 	/**
 	 * @param character
 	 * @param action
 	 * @return Character is able to act or not.
 	 */
 	private boolean ableAction(SimCharacter character, Action action){
-		boolean checkFrame = (character.getMotionVector().elementAt(character.getAction().ordinal()).getCancelAbleFrame() <= character.getMotionVector().elementAt(character.getAction().ordinal()).getFrameNumber()-character.getRemainingFrame());
+		MotionTable motion = character.getMotionTable();
+		int now = character.getAction().ordinal();
+		boolean checkFrame = (motion.cancelAbleFrame[now] <= motion.frameNumber[now]-character.getRemainingFrame());
 
-		boolean checkAction	= (character.getMotionVector().elementAt(character.getAction().ordinal()).getCancelAbleMotionLevel()>=character.getMotionVector().elementAt(action.ordinal()).getMotionLevel());
+		boolean checkAction	= (motion.cancelAbleMotionLevel[now]>=motion.motionLevel[action.ordinal()]);
 		if(character.isControl())
 		{
 			return true;
@@ -185,18 +513,28 @@ public class SimFighting {
 		// update each character.
 		playerOneCharacter.update();
 		playerTwoCharacter.update();
+		interactCharacters(1);
+	}
+	
+	/**
+	 * The rest of updateCharacter(): projectiles, directions, pushing and the ends of the stage.
+	 * @param frames the frames of the step, by which the pushing is scaled
+	 */
+	private void interactCharacters(int frames){
 
 		// enque object attack if the data is missile decision
 		if(playerOneCharacter.getAttack() != null) {
 			if(playerOneCharacter.getAttack().checkProjectile()){
-				SimAttack obj = new SimAttack(playerOneCharacter.getAttack());
+				SimAttack obj = obtainAttack();
+				obj.set(playerOneCharacter.getAttack());
 				attackDeque.addLast(obj);
 				playerOneCharacter.destroyAttackInstance();
 			}
 		}
 		if(playerTwoCharacter.getAttack() != null) {
 			if(playerTwoCharacter.getAttack().checkProjectile()){
-				SimAttack obj = new SimAttack(playerTwoCharacter.getAttack());
+				SimAttack obj = obtainAttack();
+				obj.set(playerTwoCharacter.getAttack());
 				attackDeque.addLast(obj);
 				playerTwoCharacter.destroyAttackInstance();
 			}
@@ -212,9 +550,9 @@ public class SimFighting {
 												playerOneCharacter.getHitAreaL()+(playerOneCharacter.getHitAreaR()-playerOneCharacter.getHitAreaL())/2);
 
 		// run pushing effect
-		detectionPush(playerOneCharacter,playerTwoCharacter);
+		detectionPush(playerOneCharacter,playerTwoCharacter,frames);
 		// run collision of first and second character.
-		detectionFusion(playerOneCharacter,playerTwoCharacter);
+		detectionFusion(playerOneCharacter,playerTwoCharacter,frames);
 		// run effect when character's are in the end of stage.
 		decisionEndStage();
 	}
@@ -223,33 +561,34 @@ public class SimFighting {
 	 * Characters push each other
 	 * @param Player1
 	 * @param Player2
+	 * @param frames the frames of the step
 	 */
-	private void detectionPush(SimCharacter Player1, SimCharacter Player2){
+	private void detectionPush(SimCharacter Player1, SimCharacter Player2, int frames){
 		// whether the conflict of first and second player or not?
 		if(Player1.getHitAreaL() < Player2.getHitAreaR() && Player1.getHitAreaT() < Player2.getHitAreaB() && Player1.getHitAreaR() > Player2.getHitAreaL() && Player1.getHitAreaB() > Player2.getHitAreaT()){
 			// P1��P2��
 			if(Player1.isFront()){
 				if(Player1.getSpeedX() > -Player2.getSpeedX()){
-					Player2.moveX(pushMovement(Player1.getSpeedX(), Player2.getSpeedX()));
+					Player2.moveX(frames*pushMovement(Player1.getSpeedX(), Player2.getSpeedX()));
 				}
 				else if(Player1.getSpeedX() < -Player2.getSpeedX()){
-					Player1.moveX(pushMovement(Player2.getSpeedX(), Player1.getSpeedX()));
+					Player1.moveX(frames*pushMovement(Player2.getSpeedX(), Player1.getSpeedX()));
 				}
 				else{
-					Player1.moveX(Player2.getSpeedX());
-					Player2.moveX(Player1.getSpeedX());
+					Player1.moveX(frames*Player2.getSpeedX());
+					Player2.moveX(frames*Player1.getSpeedX());
 				}
 			}
 			else{
 				if(-Player1.getSpeedX() > Player2.getSpeedX()){
-					Player2.moveX(pushMovement(Player1.getSpeedX(), Player2.getSpeedX()));
+					Player2.moveX(frames*pushMovement(Player1.getSpeedX(), Player2.getSpeedX()));
 				}
 				else if(-Player1.getSpeedX() < Player2.getSpeedX()){
-					Player1.moveX(pushMovement(Player2.getSpeedX(), Player1.getSpeedX()));
+					Player1.moveX(frames*pushMovement(Player2.getSpeedX(), Player1.getSpeedX()));
 				}
 				else{
-					Player1.moveX(Player2.getSpeedX());
-					Player2.moveX(Player1.getSpeedX());
+					Player1.moveX(frames*Player2.getSpeedX());
+					Player2.moveX(frames*Player1.getSpeedX());
 				}
 			}
 		}
@@ -259,28 +598,29 @@ public class SimFighting {
 	 * A determination is made in case of a state such as that overlap almost character to move the character.
 	 * @param Player1
 	 * @param Player2
+	 * @param frames the frames of the step
 	 */
-	private void detectionFusion(SimCharacter Player1, SimCharacter Player2){
+	private void detectionFusion(SimCharacter Player1, SimCharacter Player2, int frames){
 		// whether the conflict of first and second player or not?
 		if( Player1.getHitAreaL() < Player2.getHitAreaR() && Player1.getHitAreaT() < Player2.getHitAreaB() && Player1.getHitAreaR() > Player2.getHitAreaL() && Player1.getHitAreaB() > Player2.getHitAreaT()){
 			// if first player is left
 			if((Player1.getHitAreaL() + (Player1.getHitAreaR() - Player1.getHitAreaL()) / 2) 
 					< (Player2.getHitAreaL() + (Player2.getHitAreaR()-Player2.getHitAreaL()) / 2)){
-				Player1.moveX(-2);
-				Player2.moveX(2);
+				Player1.moveX(-2*frames);
+				Player2.moveX(2*frames);
 			// if second player is left 
 			}else if((Player1.getHitAreaL() + (Player1.getHitAreaR() - Player1.getHitAreaL()) / 2) 
 					> (Player2.getHitAreaL() + (Player2.getHitAreaR()-Player2.getHitAreaL()) / 2)){
-				Player1.moveX(2);
-				Player2.moveX(-2);
+				Player1.moveX(2*frames);
+				Player2.moveX(-2*frames);
 			}else{
 				if(Player1.isFront()){
-					Player1.moveX(-2);
-					Player2.moveX(2);
+					Player1.moveX(-2*frames);
+					Player2.moveX(2*frames);
 				}
 				else{
-					Player1.moveX(2);
-					Player2.moveX(-2);
+					Player1.moveX(2*frames);
+					Player2.moveX(-2*frames);
 				}
 			}
 		}
@@ -1,20 +1,25 @@
 package mizunoAI_simulator;
 
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.EnumSet;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Vector;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import structs.FrameData;
 import structs.GameData;
 import structs.CharacterData;
-import structs.MotionData;
 import enumerate.Action;
-import fighting.Attack;
+import support.MotionTable;
 
 public class Simulator {
-	/** simulation time length*/
+	/** maximum simulation time length*/
 	private final static int SIMULATE_LIMIT = 60;
 	
 	private GameData gameData;
@@ -23,15 +28,71 @@ public class Simulator {
 	
 	private boolean player;
 	
+	/** characters and fighting reused by every simulation, reloaded from the FrameData in place*/
+	private SimCharacter simMyCharacter;
+	private SimCharacter simOppCharacter;
+	private SimFighting simFighting;
+	
+	/** motions of my character*/
+	private MotionTable myMotion;
+	private MotionTable playerOneMotion;
+	private MotionTable playerTwoMotion;
+	
+	/** the state of the FrameData, loaded by setFrameData()*/
+	private int[] initialState = new int[64];
+	
+	/** states saved at the frames simulate(Action[],Action[]) branches at, for the first and the second side to branch*/
+	private int[][] branchStates = new int[2][64];
+	
+	/** the number of steps simulate(Action[],Action[]) has simulated, a skipped span counting as one, to compare with simulating every pair*/
+	private long simulatedFrames;
+	
+	/** frames simulated exactly before the coarse steps start, SIMULATE_LIMIT for none*/
+	private int exactFrames = SIMULATE_LIMIT;
+	/** frames of a coarse step*/
+	private int coarseStep = 1;
+	
+	/** the threads simulate(Action[],Action[]) spreads the pairs over, and a simulator of its own for each of them, null for sequential simulation*/
+	private ExecutorService executor;
+	private Simulator[] workers;
+	
 	/** create GameData for simulation*/
 	public Simulator(GameData gameData,boolean player){
+		this(gameData,player,new MotionTable(gameData.getPlayerOneMotion()),new MotionTable(gameData.getPlayerTwoMotion()));
+	}
+	
+	/** create GameData for simulation, sharing the motion tables the AI has already compiled*/
+	public Simulator(GameData gameData,boolean player,MotionTable playerOneMotion,MotionTable playerTwoMotion){
 		this.gameData = gameData;
 		this.player = player;
+		this.playerOneMotion = playerOneMotion;
+		this.playerTwoMotion = playerTwoMotion;
+		
+		if(player){
+			myMotion = playerOneMotion;
+			simMyCharacter = new SimCharacter(playerOneMotion,true);
+			simOppCharacter = new SimCharacter(playerTwoMotion,false);
+			simFighting = new SimFighting(simMyCharacter,simOppCharacter);
+		}else{
+			myMotion = playerTwoMotion;
+			simMyCharacter = new SimCharacter(playerTwoMotion,false);
+			simOppCharacter = new SimCharacter(playerOneMotion,true);
+			simFighting = new SimFighting(simOppCharacter,simMyCharacter);
+		}
 	}
 	
-	/** set FrameData*/
+	/** set FrameData, and load it into the simulator once for every simulation from it*/
 	public void setFrameData(FrameData frameData){
 		this.frameData = frameData;
+		
+		// the getters of FrameData and CharacterData copy the attacks on every call, so the loaded state is saved and restored instead.
+		// The projectiles are read from one copy, so each of them is loaded once (test/mizunoAI_simulator/SimulatorReuseCheck)
+		simMyCharacter.reset(player ? frameData.getP1() : frameData.getP2());
+		simOppCharacter.reset(player ? frameData.getP2() : frameData.getP1());
+		simFighting.reset(frameData.getAttack(),null,null);
+		int size = simFighting.getStateSize();
+		if(initialState.length < size) initialState = new int[size * 2];
+		simFighting.save(initialState,0);
 	}
 	
 	/** simulate and calculate evaluation value when an AI conducts the myAction against the oppAction*/
@@ -40,69 +101,270 @@ public class Simulator {
 		CharacterData myCharacter;
 		CharacterData oppCharacter;
 		
-		Vector<MotionData> myMotionData;
-		Vector<MotionData> oppMotionData;
-		
 		int mySaveHp;
 		int oppSaveHp;
 		
-		mizunoAI_simulator.SimCharacter simMyCharacter;
-		mizunoAI_simulator.SimCharacter simOppCharacter;
-		mizunoAI_simulator.SimFighting simFighting;
-		
-		// copy
 		if(player){
 			myCharacter = frameData.getP1();
-			myMotionData = gameData.getPlayerOneMotion();
-			
 			oppCharacter = frameData.getP2();
-			oppMotionData = gameData.getPlayerTwoMotion();
 		}else{
 			myCharacter = frameData.getP2();
-			myMotionData = gameData.getPlayerTwoMotion();
-			
 			oppCharacter = frameData.getP1();
-			oppMotionData = gameData.getPlayerOneMotion();
 		}
 	
 		// if my character's energy is shortage
-		if(myCharacter.energy + myMotionData.elementAt(myAction.ordinal()).attackStartAddEnergy < 0) return -1000;
+		if(myCharacter.energy + myMotion.attackStartAddEnergy[myAction.ordinal()] < 0) return -1000;
 		
 		// set AI's HP before simulation
 		mySaveHp = myCharacter.getHp();
 		oppSaveHp = oppCharacter.getHp();
 		
-		// create CharacterData for simulation
-		simMyCharacter = new mizunoAI_simulator.SimCharacter(myCharacter,myMotionData,player);
-		simOppCharacter = new mizunoAI_simulator.SimCharacter(oppCharacter,oppMotionData,!player);
-		// simAttack is the projectileData of two characters
-		Deque<mizunoAI_simulator.SimAttack> simAttack = new LinkedList<mizunoAI_simulator.SimAttack>();
-		int size = frameData.getAttack().size();
-		// copy attackData to simAttack
-		for(int i = 0 ; i < size ; i++){
-			Attack temp = frameData.getAttack().pop();
-			SimAttack tempSimAttack = new SimAttack(temp);
-			simAttack.addLast(tempSimAttack);
-			frameData.getAttack().add(temp);
-		}
-		
-		// initialize FightingData
-		if(player){
-			simFighting = new mizunoAI_simulator.SimFighting(simMyCharacter,simOppCharacter,simAttack,myAction,oppAction);
-		}
-		else{
-			simFighting = new mizunoAI_simulator.SimFighting(simOppCharacter,simMyCharacter,simAttack,oppAction,myAction);
-		}
+		// reload the characters, the projectiles and the inputs for simulation
+		simFighting.restore(initialState,0);
+		simFighting.setInput(player,myAction);
+		simFighting.setInput(!player,oppAction);
 		
-		// simulate the game for SIMULATE_LIMIT frames
-		for(int i = 0 ; i < SIMULATE_LIMIT ; i++){
-			simFighting.processingFight();
+		// simulate the game for up to SIMULATE_LIMIT frames, stopping once the exchange is over
+		for(int i = 0 ; i < SIMULATE_LIMIT ; ){
+			i = step(i);
+			if(simFighting.isQuiescent()) break;
 		}
 		
 		// calculate the evaluation value of the myAction
 		return (simMyCharacter.getHp() - mySaveHp) - (simOppCharacter.getHp() - oppSaveHp) ;
 	}
 	
+	/**
+	 * simulate every pair of the myActions and the oppActions, and calculate the evaluation values as simulate(Action,Action) does.<br>
+	 * Until a character can take an input, the frames are the same for every pair, so they are simulated once and saved.<br>
+	 * The simulation branches for the actions of the side that can take an input first, and each branch again for the actions of the other side.
+	 * @return result[i][j] is the evaluation value of myActions[i] against oppActions[j]
+	 */
+	public int[][] simulate(Action[] myActions,Action[] oppActions){
+		final int[][] result = new int[myActions.length][oppActions.length];
+		final CharacterData myCharacter = player ? frameData.getP1() : frameData.getP2();
+		final CharacterData oppCharacter = player ? frameData.getP2() : frameData.getP1();
+		
+		simFighting.restore(initialState,0);
+		
+		// the shared prefix, up to the first frame a character can take an input
+		final int frame = advance(0,true,true);
+		final boolean myFirst = frame < SIMULATE_LIMIT && simFighting.canInput(player);
+		final boolean oppFirst = frame < SIMULATE_LIMIT && simFighting.canInput(!player);
+		saveBranch(0);
+		
+		int pairs = myActions.length * oppActions.length;
+		if(executor == null || pairs < 2){
+			simulatePairs(branchStates[0],frame,myFirst,oppFirst,myActions,oppActions,0,pairs,result,myCharacter,oppCharacter);
+			return result;
+		}
+		
+		// each worker simulates a block of the pairs in the sequential order from the shared prefix, so the values are the same as the sequential ones
+		final int[] prefix = branchStates[0];
+		List<Callable<Long>> tasks = new ArrayList<Callable<Long>>();
+		int blocks = Math.min(workers.length,pairs);
+		for(int k = 0 ; k < blocks ; k++){
+			final Simulator worker = workers[k];
+			final int from = (int)((long)pairs * k / blocks);
+			final int to = (int)((long)pairs * (k + 1) / blocks);
+			final Action[] my = myActions;
+			final Action[] opp = oppActions;
+			worker.setResolution(exactFrames,coarseStep);
+			tasks.add(new Callable<Long>(){
+				@Override
+				public Long call(){
+					long frames = worker.simulatedFrames;
+					worker.simulatePairs(prefix,frame,myFirst,oppFirst,my,opp,from,to,result,myCharacter,oppCharacter);
+					return worker.simulatedFrames - frames;
+				}
+			});
+		}
+		try{
+			for(Future<Long> future : executor.invokeAll(tasks)) simulatedFrames += future.get();
+		}catch(InterruptedException e){
+			// the game thread is being stopped. The tasks cancelled may still be simulating on the workers and writing to result,
+			// so the pool is given up and the pairs are simulated here, on the simulator of this thread, into a result of their own
+			Thread.currentThread().interrupt();
+			close();
+			int[][] own = new int[myActions.length][oppActions.length];
+			simulatePairs(prefix,frame,myFirst,oppFirst,myActions,oppActions,0,pairs,own,myCharacter,oppCharacter);
+			return own;
+		}catch(ExecutionException e){
+			if(e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			if(e.getCause() instanceof Error) throw (Error) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+		return result;
+	}
+	
+	/**
+	 * simulate the pairs from the from-th to the to-th, counting the pairs of the first action of the side that can take an input first as the first ones.<br>
+	 * The simulation branches from the prefix for the actions of the side that can take an input first, and each branch again for the actions of the other side.
+	 * @param prefix the state saved at the frame the first side can take an input
+	 */
+	private void simulatePairs(int[] prefix,int frame,boolean myFirst,boolean oppFirst,Action[] myActions,Action[] oppActions,int from,int to,
+			int[][] result,CharacterData myCharacter,CharacterData oppCharacter){
+		Action[] firstActions = myFirst ? myActions : oppActions;
+		Action[] secondActions = myFirst ? oppActions : myActions;
+		int branched = -1;
+		int secondFrame = SIMULATE_LIMIT;
+		
+		for(int pair = from ; pair < to ; pair++){
+			int i = pair / secondActions.length;
+			int j = pair % secondActions.length;
+			if(i != branched){
+				simFighting.restore(prefix,0);
+				secondFrame = SIMULATE_LIMIT;
+				if(frame < SIMULATE_LIMIT){
+					simFighting.setInput(myFirst == player,firstActions[i]);
+					// unless both sides branch at the same frame, the frames until the other side can take an input are the same for its every action
+					if(!(myFirst && oppFirst)){
+						simFighting.endFrame();
+						secondFrame = advance(frame + 1,!myFirst,myFirst);
+					}
+				}
+				saveBranch(1);
+				branched = i;
+			}
+			
+			restoreBranch(1);
+			if(frame < SIMULATE_LIMIT && myFirst && oppFirst){
+				simFighting.setInput(!player,secondActions[j]);
+				simFighting.endFrame();
+				setResult(result,myActions,i,j,finish(frame + 1),myCharacter,oppCharacter);
+				continue;
+			}
+			int end = secondFrame;
+			if(secondFrame < SIMULATE_LIMIT){
+				simFighting.setInput(myFirst != player,secondActions[j]);
+				simFighting.endFrame();
+				end = finish(secondFrame + 1);
+			}
+			setResult(result,myActions,myFirst ? i : j,myFirst ? j : i,end,myCharacter,oppCharacter);
+		}
+	}
+	
+	/**
+	 * Spreads the pairs of simulate(Action[],Action[]) over a fixed pool of threads, each with a simulator of its own.
+	 * The evaluation values are the same as the sequential ones, so the action chosen is too.
+	 * If the calling thread is interrupted while waiting for the pool, the pool is given up and the simulation is sequential from then on.
+	 * @param threads the threads, 1 or less for sequential simulation
+	 */
+	public void setParallelism(int threads){
+		close();
+		if(threads <= 1) return;
+		
+		workers = new Simulator[threads];
+		for(int i = 0 ; i < threads ; i++) workers[i] = new Simulator(gameData,player,playerOneMotion,playerTwoMotion);
+		executor = Executors.newFixedThreadPool(threads,new ThreadFactory(){
+			@Override
+			public Thread newThread(Runnable runnable){
+				// the pool must not keep the game running after the AI is closed
+				Thread thread = new Thread(runnable,"mizunoAI simulator");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+	
+	/** stop the threads of setParallelism()*/
+	public void close(){
+		if(executor != null) executor.shutdownNow();
+		executor = null;
+		workers = null;
+	}
+	
+	/**
+	 * simulate whole frames until the given sides can take an input, and stop in the middle of that frame.
+	 * @return the frame stopped at, or SIMULATE_LIMIT
+	 */
+	private int advance(int frame,boolean my,boolean opp){
+		for(; frame < SIMULATE_LIMIT ; frame++){
+			simFighting.beginFrame();
+			simulatedFrames++;
+			if((my && simFighting.canInput(player)) || (opp && simFighting.canInput(!player))) return frame;
+			simFighting.endFrame();
+		}
+		return SIMULATE_LIMIT;
+	}
+	
+	/**
+	 * simulate the remaining frames after both sides have their inputs, stopping once the exchange is over.
+	 */
+	private int finish(int frame){
+		if(simFighting.isQuiescent()) return frame;
+		while(frame < SIMULATE_LIMIT){
+			frame = step(frame);
+			simulatedFrames++;
+			if(simFighting.isQuiescent()) break;
+		}
+		return frame;
+	}
+	
+	/**
+	 * simulate one step from the frame: exact before exactFrames, and a coarse step of coarseStep frames from it on.
+	 * @return the frame after the step
+	 */
+	private int step(int frame){
+		if(frame < exactFrames) return frame + simFighting.processingFight(Math.min(exactFrames,SIMULATE_LIMIT) - frame);
+		int frames = Math.min(coarseStep,SIMULATE_LIMIT - frame);
+		simFighting.processingCoarse(frames);
+		return frame + frames;
+	}
+	
+	/**
+	 * Simulates the frames from exactFrames on in coarse steps of coarseStep frames (SimFighting.processingCoarse()),
+	 * trading the accuracy of the late frames for speed. The frames until both inputs are taken are always exact.
+	 * @param exactFrames the frame the coarse steps start at, SIMULATE_LIMIT or more for exact simulation only
+	 * @param coarseStep the frames of a coarse step, 2 to 4 are meant
+	 */
+	public void setResolution(int exactFrames,int coarseStep){
+		this.exactFrames = exactFrames;
+		this.coarseStep = Math.max(coarseStep,1);
+	}
+	
+	/**
+	 * Simulates every pair exactly and with the current resolution as simulate(Action[],Action[]) does, and adds the difference to the error.
+	 * @param error the error to add to
+	 * @return the evaluation values with the current resolution
+	 */
+	public int[][] measureResolutionError(Action[] myActions,Action[] oppActions,ResolutionError error){
+		int resolution = exactFrames;
+		long steps = simulatedFrames;
+		exactFrames = SIMULATE_LIMIT;
+		int[][] exact = simulate(myActions,oppActions);
+		long exactSteps = simulatedFrames - steps;
+		exactFrames = resolution;
+		
+		steps = simulatedFrames;
+		int[][] result = simulate(myActions,oppActions);
+		error.addSteps(exactSteps,simulatedFrames - steps);
+		for(int i = 0 ; i < myActions.length ; i++){
+			for(int j = 0 ; j < oppActions.length ; j++) error.add(exact[i][j],result[i][j]);
+		}
+		return result;
+	}
+	
+	private void setResult(int[][] result,Action[] myActions,int i,int j,int frame,CharacterData myCharacter,CharacterData oppCharacter){
+		// if my character's energy is shortage
+		if(myCharacter.energy + myMotion.attackStartAddEnergy[myActions[i].ordinal()] < 0) result[i][j] = -1000;
+		else result[i][j] = (simMyCharacter.getHp() - myCharacter.getHp()) - (simOppCharacter.getHp() - oppCharacter.getHp());
+	}
+	
+	private void saveBranch(int level){
+		int size = simFighting.getStateSize();
+		if(branchStates[level].length < size) branchStates[level] = new int[size * 2];
+		simFighting.save(branchStates[level],0);
+	}
+	
+	private void restoreBranch(int level){
+		simFighting.restore(branchStates[level],0);
+	}
+	
+	public long getSimulatedFrames(){
+		return simulatedFrames;
+	}
+	
 	/** not in use*/
 	public int[][] allSimulate(){
 		
@@ -145,15 +407,13 @@ public class Simulator {
 		
 		my = 0;
 		
-		// execute simulation by a round robin
-		for(Iterator<Action> i = myActData.iterator();i.hasNext();my++){
-			Action myAct = i.next();
-			for(Iterator<Action> j = oppActData.iterator();j.hasNext();){
-				Action oppAct = j.next();
-				int resultTemp = this.simulate(myAct,oppAct);
-				result[my][0] += resultTemp*check[oppAct.ordinal()];
+		// execute simulation by a round robin, sharing the frames before the actions diverge
+		Action[] oppActions = oppActData.toArray(new Action[oppActData.size()]);
+		int[][] matrix = this.simulate(myActData.toArray(new Action[myActionSize]),oppActions);
+		for(my = 0 ; my < myActionSize ; my++){
+			for(int opp = 0 ; opp < oppActions.length ; opp++){
+				result[my][0] += matrix[my][opp]*check[oppActions[opp].ordinal()];
 			}
-			
 		}
 		
 		// search the maximum evaluation value and set the ordinal
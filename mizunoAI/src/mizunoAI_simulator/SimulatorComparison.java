@@ -0,0 +1,349 @@
+package mizunoAI_simulator;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import structs.CharacterData;
+import structs.FrameData;
+import structs.GameData;
+import structs.Key;
+import structs.KeyData;
+import enumerate.Action;
+import fighting.Attack;
+import support.MotionTable;
+
+/**
+ * Runs the simulator of AIToolKit (simulator.Simulator, used by MctsAi and JerryMizunoAI) and the simulator of this package
+ * forward from the states recorded in replay files, and compares both with the frames the game recorded after them.<br>
+ * A state is started from every stride frames, the frames of the window that follows are simulated with the actions the players started in it as inputs,
+ * and the HP, the position and the action of both characters at the end are compared with the replay.<br>
+ * The replay lacks part of the state, so it is rebuilt: the speeds from the last move, the state and the control from the motion.
+ * States in which a character has a live attack are skipped, because the attack cannot be rebuilt, and projectiles are not recorded at all.
+ * The inputs are given as a sequence taken as soon as possible, which is how the AIs use both simulators, so an input can be taken earlier than it was in the game.
+ * This part of the divergence is common to both simulators.<br>
+ * It is run in the directory of the game: java mizunoAI_simulator.SimulatorComparison [replay file or directory] [frames] [stride]
+ */
+public class SimulatorComparison {
+	/** the actions the game starts by itself, which are not inputs*/
+	private static final EnumSet<Action> REACTIONS = EnumSet.of(Action.NEUTRAL, Action.STAND, Action.AIR,
+			Action.STAND_GUARD_RECOV, Action.CROUCH_GUARD_RECOV, Action.AIR_GUARD_RECOV,
+			Action.STAND_RECOV, Action.CROUCH_RECOV, Action.AIR_RECOV, Action.CHANGE_DOWN, Action.DOWN,
+			Action.RISE, Action.LANDING, Action.THROW_HIT, Action.THROW_SUFFER);
+	/** the remaining time given to the toolkit, which only counts it down*/
+	private static final long REMAINING_TIME = 60000;
+
+	private final GameData gameData;
+	/** frames simulated from each state*/
+	private final int frames;
+	/** frames between the states simulated*/
+	private final int stride;
+
+	private final MotionTable playerOneMotion;
+	private final MotionTable playerTwoMotion;
+	private final SimCharacter playerOneCharacter;
+	private final SimCharacter playerTwoCharacter;
+	private final SimFighting simFighting;
+	private final Deque<Attack> noAttack = new LinkedList<Attack>();
+
+	/**
+	 * @param gameData the GameData of the characters compared, with a simulator of AIToolKit
+	 * @param frames frames simulated from each state
+	 * @param stride frames between the states simulated
+	 */
+	public SimulatorComparison(GameData gameData, int frames, int stride){
+		this.gameData = gameData;
+		this.frames = frames;
+		this.stride = Math.max(stride, 1);
+		playerOneMotion = new MotionTable(gameData.getPlayerOneMotion());
+		playerTwoMotion = new MotionTable(gameData.getPlayerTwoMotion());
+		playerOneCharacter = new SimCharacter(playerOneMotion, true);
+		playerTwoCharacter = new SimCharacter(playerTwoMotion, false);
+		simFighting = new SimFighting(playerOneCharacter, playerTwoCharacter);
+	}
+
+	public static void main(String[] args) throws IOException{
+		File path = new File(args.length > 0 ? args[0] : "log/replay");
+		int frames = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+		int stride = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		System.out.println(compare(path, new File("data"), frames, stride));
+	}
+
+	/**
+	 * Compares the simulators on a replay file, or on every replay file in a directory, and returns the report, one line per file and one for the total.
+	 * @param path a replay file or a directory of them
+	 * @param dataDirectory the data directory of the game, which the motions of the characters are read from
+	 * @param frames frames simulated from each state
+	 * @param stride frames between the states simulated
+	 * @return the report
+	 */
+	public static String compare(File path, File dataDirectory, int frames, int stride) throws IOException{
+		File[] files = path.isDirectory() ? path.listFiles(new FileFilter(){
+			@Override
+			public boolean accept(File file){
+				return file.isFile() && file.getName().endsWith(".dat");
+			}
+		}) : new File[]{path};
+		if(files == null) throw new IOException("cannot list " + path);
+		Arrays.sort(files);
+
+		// a comparison for each pair of characters, made when a replay of them is first read
+		Map<String, SimulatorComparison> comparisons = new HashMap<String, SimulatorComparison>();
+		StringBuilder report = new StringBuilder();
+		Divergence toolkitTotal = new Divergence();
+		Divergence sourceTotal = new Divergence();
+		for(File file : files){
+			ReplayLog replay;
+			try{
+				replay = new ReplayLog(file);
+			}catch(IOException e){
+				// the message names the file
+				report.append(e.getMessage()).append('\n');
+				continue;
+			}
+			String playerOne = replay.getCharacterName(true);
+			String playerTwo = replay.getCharacterName(false);
+			if(playerOne == null || playerTwo == null){
+				report.append(file.getName()).append(": skipped, unknown characters\n");
+				continue;
+			}
+			SimulatorComparison comparison = comparisons.get(playerOne + " " + playerTwo);
+			if(comparison == null){
+				comparison = new SimulatorComparison(OfflineGameData.create(dataDirectory, playerOne, playerTwo), frames, stride);
+				comparisons.put(playerOne + " " + playerTwo, comparison);
+			}
+			Divergence toolkit = new Divergence();
+			Divergence source = new Divergence();
+			comparison.compare(replay, toolkit, source);
+			report.append(file.getName()).append(":\n  toolkit  ").append(toolkit).append("\n  mizunoAI ").append(source).append('\n');
+			toolkitTotal.add(toolkit);
+			sourceTotal.add(source);
+		}
+		report.append("total:\n  toolkit  ").append(toolkitTotal).append("\n  mizunoAI ").append(sourceTotal);
+		return report.toString();
+	}
+
+	/**
+	 * Simulates every stride-th state of the replay with both simulators, and adds the divergences.
+	 * @param replay a replay of the characters of the GameData
+	 * @param toolkit the divergence of the simulator of AIToolKit
+	 * @param source the divergence of the simulator of this package
+	 */
+	public void compare(ReplayLog replay, Divergence toolkit, Divergence source){
+		simulator.Simulator toolkitSimulator = gameData.getSimulator();
+		Deque<Action> one = new LinkedList<Action>();
+		Deque<Action> two = new LinkedList<Action>();
+
+		for(int start = 1 ; start + frames < replay.getFrameNumber() ; start += stride){
+			if(!isComparable(replay, start)) continue;
+			int end = start + frames;
+			CharacterData p1 = setCharacterData(replay, true, start, OfflineGameData.createCharacter());
+			CharacterData p2 = setCharacterData(replay, false, start, OfflineGameData.createCharacter());
+			getInputs(replay, true, start, one);
+			getInputs(replay, false, start, two);
+
+			FrameData frameData = new FrameData(p1, p2, REMAINING_TIME, 1, noAttack, new KeyData(new Key[]{new Key(), new Key()}));
+			long time = System.nanoTime();
+			try{
+				// the toolkit consumes the inputs it is given
+				FrameData result = toolkitSimulator.simulate(frameData, true, new LinkedList<Action>(one), new LinkedList<Action>(two), frames);
+				toolkit.addTime(frames, System.nanoTime() - time);
+				toolkit.add(replay, true, end, result.getP1().getHp(), result.getP1().getX(), result.getP1().getY(), result.getP1().getAction());
+				toolkit.add(replay, false, end, result.getP2().getHp(), result.getP2().getX(), result.getP2().getY(), result.getP2().getAction());
+			}catch(RuntimeException e){
+				toolkit.addFailure();
+			}
+
+			time = System.nanoTime();
+			try{
+				playerOneCharacter.reset(p1);
+				playerTwoCharacter.reset(p2);
+				simFighting.reset(noAttack, null, null);
+				simFighting.setInputs(true, one);
+				simFighting.setInputs(false, two);
+				for(int i = 0 ; i < frames ; ){
+					i += simFighting.processingFight(frames - i);
+				}
+				source.addTime(frames, System.nanoTime() - time);
+				source.add(replay, true, end, playerOneCharacter.getHp(), playerOneCharacter.getX(), playerOneCharacter.getY(), playerOneCharacter.getAction());
+				source.add(replay, false, end, playerTwoCharacter.getHp(), playerTwoCharacter.getX(), playerTwoCharacter.getY(), playerTwoCharacter.getAction());
+			}catch(RuntimeException e){
+				source.addFailure();
+			}
+		}
+	}
+
+	/**
+	 * The window from the start is inside one round, and the start state has no attack which cannot be rebuilt.
+	 */
+	private boolean isComparable(ReplayLog replay, int start){
+		// every round begins with frames of NEUTRAL
+		for(int frame = start - 1 ; frame <= start + frames ; frame++){
+			if(replay.getAction(true, frame) == Action.NEUTRAL || replay.getAction(false, frame) == Action.NEUTRAL) return false;
+		}
+		return !isAttacking(replay, true, start) && !isAttacking(replay, false, start);
+	}
+
+	/**
+	 * The character has an attack started by its motion and not yet over.
+	 */
+	private boolean isAttacking(ReplayLog replay, boolean player, int frame){
+		MotionTable motion = getMotion(player);
+		int i = replay.getAction(player, frame).ordinal();
+		if(motion.attackType[i] == 0) return false;
+		int invoke = motion.frameNumber[i] - motion.attackStartUp[i];
+		int remainingFrame = replay.getRemainingFrame(player, frame);
+		return remainingFrame <= invoke && remainingFrame > invoke - motion.attackActive[i];
+	}
+
+	/**
+	 * The action of the character started in the frame.
+	 */
+	private boolean isStarted(ReplayLog replay, boolean player, int frame){
+		return replay.getAction(player, frame) != replay.getAction(player, frame - 1)
+				|| replay.getRemainingFrame(player, frame) > replay.getRemainingFrame(player, frame - 1);
+	}
+
+	/**
+	 * Sets the actions the player started in the window from the start to inputs.
+	 */
+	private void getInputs(ReplayLog replay, boolean player, int start, Deque<Action> inputs){
+		inputs.clear();
+		for(int frame = start + 1 ; frame <= start + frames ; frame++){
+			Action action = replay.getAction(player, frame);
+			if(isStarted(replay, player, frame) && !REACTIONS.contains(action)) inputs.add(action);
+		}
+	}
+
+	/**
+	 * Overwrites the character with the player in the frame.
+	 * @return the character
+	 */
+	private CharacterData setCharacterData(ReplayLog replay, boolean player, int frame, CharacterData character){
+		MotionTable motion = getMotion(player);
+		Action action = replay.getAction(player, frame);
+		int i = action.ordinal();
+		character.hp = replay.getHp(player, frame);
+		character.energy = replay.getEnergy(player, frame);
+		character.x = replay.getX(player, frame);
+		character.y = replay.getY(player, frame);
+		character.front = replay.isFront(player, frame);
+		character.action = action;
+		character.state = motion.state[i];
+		character.control = motion.control[i];
+		character.remainingFrame = replay.getRemainingFrame(player, frame);
+		character.attack = null;
+		character.left = character.front ? motion.hitL[i] + character.x : 255 - motion.hitR[i] + character.x;
+		character.right = character.front ? motion.hitR[i] + character.x : 255 - motion.hitL[i] + character.x;
+		character.top = motion.hitT[i] + character.y;
+		character.bottom = motion.hitB[i] + character.y;
+
+		// the speeds are what the character moved by in the frame, changed by the friction and the gravity after the move
+		int speedX = character.x - replay.getX(player, frame - 1);
+		int speedY = character.y - replay.getY(player, frame - 1);
+		if(character.y >= 320) speedX -= Integer.signum(speedX);
+		speedY = character.bottom >= 320 + 256 ? 0 : speedY + 1;
+		// an action started in the frame sets its speeds after the move
+		if(isStarted(replay, player, frame)){
+			if(motion.speedX[i] != 0) speedX = character.front ? motion.speedX[i] : -motion.speedX[i];
+			speedY += motion.speedY[i];
+		}
+		character.speedX = speedX;
+		character.speedY = speedY;
+		return character;
+	}
+
+	private MotionTable getMotion(boolean player){
+		return player ? playerOneMotion : playerTwoMotion;
+	}
+
+	/**
+	 * The divergence of one simulator from the replays, accumulated over the characters at the end of the windows, and the speed of the simulator.
+	 */
+	public static class Divergence {
+		/** characters compared, two per window*/
+		private long characters;
+		private long hpErrorSum;
+		private long xErrorSum;
+		private long yErrorSum;
+		private long actionMatches;
+		/** windows the simulator threw an exception in*/
+		private long failures;
+		private long frames;
+		private long nanoTime;
+
+		/**
+		 * Adds a character simulated to the frame.
+		 */
+		public void add(ReplayLog replay, boolean player, int frame, int hp, int x, int y, Action action){
+			characters++;
+			hpErrorSum += Math.abs(hp - replay.getHp(player, frame));
+			xErrorSum += Math.abs(x - replay.getX(player, frame));
+			yErrorSum += Math.abs(y - replay.getY(player, frame));
+			if(action == replay.getAction(player, frame)) actionMatches++;
+		}
+
+		public void addTime(long frames, long nanoTime){
+			this.frames += frames;
+			this.nanoTime += nanoTime;
+		}
+
+		public void addFailure(){
+			failures++;
+		}
+
+		public void add(Divergence divergence){
+			characters += divergence.characters;
+			hpErrorSum += divergence.hpErrorSum;
+			xErrorSum += divergence.xErrorSum;
+			yErrorSum += divergence.yErrorSum;
+			actionMatches += divergence.actionMatches;
+			failures += divergence.failures;
+			frames += divergence.frames;
+			nanoTime += divergence.nanoTime;
+		}
+
+		public long getWindows(){
+			return characters / 2;
+		}
+
+		public double getMeanHpError(){
+			return characters == 0 ? 0 : (double) hpErrorSum / characters;
+		}
+
+		public double getMeanXError(){
+			return characters == 0 ? 0 : (double) xErrorSum / characters;
+		}
+
+		public double getMeanYError(){
+			return characters == 0 ? 0 : (double) yErrorSum / characters;
+		}
+
+		public double getActionMatchRate(){
+			return characters == 0 ? 0 : (double) actionMatches / characters;
+		}
+
+		public long getFailures(){
+			return failures;
+		}
+
+		/**
+		 * Returns the frames simulated per second.
+		 */
+		public double getFrameRate(){
+			return nanoTime == 0 ? 0 : frames * 1e9 / nanoTime;
+		}
+
+		@Override
+		public String toString(){
+			return String.format("windows %d, failures %d, hp error %.2f, x error %.1f, y error %.1f, actions matched %.1f%%, %.0f frames/s",
+					getWindows(), failures, getMeanHpError(), getMeanXError(), getMeanYError(), 100*getActionMatchRate(), getFrameRate());
+		}
+	}
+}
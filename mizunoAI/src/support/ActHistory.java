@@ -0,0 +1,123 @@
+package support;
+
+import enumerate.Action;
+
+/**
+ * The newest attacks the opponent performed in one Position, kept in a ring of primitive columns of a fixed capacity.<br>
+ * When it is full, adding an attack evicts the oldest one, from the ring and from the ActIndex over them,
+ * so the history follows the opponent without growing and without allocating once the index has warmed up.
+ */
+public class ActHistory {
+	private static final Action[] ACTIONS = Action.values();
+
+	private final int capacity;
+	/** the relative positions, the actions as ordinals and the frames of the attacks, at the slot sequence % capacity*/
+	private final int[] x;
+	private final int[] y;
+	private final byte[] action;
+	private final int[] frame;
+	/** the slot of the oldest attack and the number of attacks kept*/
+	private int oldest;
+	private int size;
+	private final ActIndex index;
+
+	/**
+	 * @param capacity the most attacks kept
+	 * @param radius the distance an attack must be nearer than to be selected
+	 * @param depth the most attacks a query can select
+	 */
+	public ActHistory(int capacity, int radius, int depth){
+		this.capacity = capacity;
+		this.x = new int[capacity];
+		this.y = new int[capacity];
+		this.action = new byte[capacity];
+		this.frame = new int[capacity];
+		this.index = new ActIndex(radius, depth);
+	}
+
+	/**
+	 * Records an attack the opponent performed at the relative position, evicting the oldest one when the history is full.
+	 * @param frame the frame the attack was performed at
+	 */
+	public void add(int x, int y, Action action, int frame){
+		if(size == capacity){
+			index.remove(this.x[oldest], this.y[oldest]);
+			oldest = (oldest + 1) % capacity;
+			size--;
+		}
+		int slot = (oldest + size) % capacity;
+		this.x[slot] = x;
+		this.y[slot] = y;
+		this.action[slot] = (byte)action.ordinal();
+		this.frame[slot] = frame;
+		size++;
+		index.add(x, y, action);
+	}
+
+	/**
+	 * Records the attacks of the history after the ones of this, oldest first.
+	 */
+	public void addAll(ActHistory history){
+		for(int i = 0 ; i < history.size() ; i++){
+			add(history.getX(i), history.getY(i), history.getAction(i), history.getFrame(i));
+		}
+	}
+
+	/**
+	 * Removes every attack.
+	 */
+	public void clear(){
+		oldest = 0;
+		size = 0;
+		index.clear();
+	}
+
+	/**
+	 * Returns the number of attacks kept.
+	 */
+	public int size(){
+		return size;
+	}
+
+	public int getCapacity(){
+		return capacity;
+	}
+
+	/**
+	 * Selects the k attacks nearest to the relative position among the ones nearer than the radius, as ActIndex.nearest() does.
+	 * @param frames the frames of the attacks selected are set to it unless it is null
+	 * @return the number of attacks nearer than the radius
+	 */
+	public int nearest(int x, int y, int k, Action[] actions, int[] frames){
+		int found = index.nearest(x, y, k, actions);
+		if(frames != null){
+			// the index numbers the attacks in the order added, which is the order of the slots
+			for(int i = 0 ; i < Math.min(found, k) ; i++){
+				frames[i] = frame[index.getSequence(i) % capacity];
+			}
+		}
+		return found;
+	}
+
+	/** the i-th attack kept, the oldest being 0*/
+	public int getX(int i){
+		return x[getSlot(i)];
+	}
+
+	public int getY(int i){
+		return y[getSlot(i)];
+	}
+
+	public Action getAction(int i){
+		return ACTIONS[action[getSlot(i)]];
+	}
+
+	public int getFrame(int i){
+		return frame[getSlot(i)];
+	}
+
+	private int getSlot(int i){
+		if(i < 0 || i >= size) throw new IndexOutOfBoundsException("attack " + i + " of " + size);
+		return (oldest + i) % capacity;
+	}
+}
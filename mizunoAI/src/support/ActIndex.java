@@ -0,0 +1,215 @@
+package support;
+
+import java.util.Arrays;
+
+import enumerate.Action;
+
+/**
+ * The opponent's attacks recorded in one Position, indexed by the relative position (x, y) they were performed at.<br>
+ * The positions are bucketed into a uniform grid of cells as wide as the search radius, so a query looks only at the 3x3 cells around it.<br>
+ * A cell keeps each distinct position once, with the number of attacks performed there and only the newest ones of them.
+ * The older attacks at a position can never be selected before the newer ones, so repeating the same attack does not make the queries slower.
+ */
+public class ActIndex {
+	/** the grid covers relative positions from -EXTENT to EXTENT, and its outer cells take the positions beyond*/
+	private static final int EXTENT = 1024;
+
+	/** the distance an attack must be nearer than to be selected, which is also the width of a cell*/
+	private final int radius;
+	/** the attacks kept per position, the most a query can select*/
+	private final int depth;
+	private final int columns;
+	/** distinct positions of each cell, created when the cell is first used*/
+	private final Point[][] cells;
+	private final int[] cellSize;
+	/** the number of attacks added since clear() and not removed*/
+	private int size;
+	/** the number of the next attack, the attacks being numbered from 0 in the order added since clear()*/
+	private int sequence;
+
+	/** the attacks selected by the query, nearest first*/
+	private final int[] selectedDistance;
+	private final int[] selectedSequence;
+
+	/**
+	 * @param radius the distance an attack must be nearer than to be selected
+	 * @param depth the most attacks a query can select
+	 */
+	public ActIndex(int radius, int depth){
+		this.radius = radius;
+		this.depth = depth;
+		this.columns = 2*EXTENT/radius + 1;
+		this.cells = new Point[columns*columns][];
+		this.cellSize = new int[columns*columns];
+		this.selectedDistance = new int[depth];
+		this.selectedSequence = new int[depth];
+	}
+
+	/** a distinct position and the newest attacks at it*/
+	private static class Point {
+		private int x;
+		private int y;
+		/** the attacks performed at this position*/
+		private int count;
+		/** the newest attacks as a ring, the newest one at newest*/
+		private final int[] sequence;
+		private final Action[] action;
+		private int newest;
+
+		private Point(int depth){
+			sequence = new int[depth];
+			action = new Action[depth];
+		}
+	}
+
+	/**
+	 * Records an attack the opponent performed at the relative position.
+	 */
+	public void add(int x, int y, Action action){
+		int cell = getCell(getColumn(x), getColumn(y));
+		Point[] points = cells[cell];
+		int pointNumber = cellSize[cell];
+		Point point = null;
+		for(int i = 0 ; i < pointNumber ; i++){
+			if(points[i].x == x && points[i].y == y){
+				point = points[i];
+				break;
+			}
+		}
+		if(point == null){
+			if(points == null) points = cells[cell] = new Point[4];
+			else if(pointNumber == points.length) points = cells[cell] = Arrays.copyOf(points, pointNumber*2);
+			// the points of a cleared cell are reused
+			if(points[pointNumber] == null) points[pointNumber] = new Point(depth);
+			point = points[pointNumber];
+			cellSize[cell]++;
+			point.x = x;
+			point.y = y;
+			point.count = 0;
+		}
+		point.count++;
+		point.newest = (point.newest + 1) % depth;
+		point.sequence[point.newest] = sequence++;
+		point.action[point.newest] = action;
+		size++;
+	}
+
+	/**
+	 * Removes the oldest attack recorded at the relative position.
+	 * The ring of the point reads only its newest count attacks, so lowering the count leaves the oldest one out.
+	 */
+	public void remove(int x, int y){
+		int cell = getCell(getColumn(x), getColumn(y));
+		Point[] points = cells[cell];
+		int pointNumber = cellSize[cell];
+		for(int i = 0 ; i < pointNumber ; i++){
+			Point point = points[i];
+			if(point.x != x || point.y != y) continue;
+
+			point.count--;
+			size--;
+			if(point.count == 0){
+				// the empty point is moved behind the used ones to be reused
+				points[i] = points[pointNumber - 1];
+				points[pointNumber - 1] = point;
+				cellSize[cell]--;
+			}
+			return;
+		}
+		throw new IllegalArgumentException("no attack at (" + x + ", " + y + ")");
+	}
+
+	/**
+	 * Removes every attack. The cells are kept for the attacks added next.
+	 */
+	public void clear(){
+		Arrays.fill(cellSize, 0);
+		size = 0;
+		sequence = 0;
+	}
+
+	/**
+	 * Returns the number of attacks added since clear() and not removed.
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Selects the k attacks nearest to the relative position among the ones nearer than the radius, the newer one first among attacks as near.
+	 * The distance is the Euclidean distance truncated to an int, as the k-nn has always measured it.
+	 * @param x the relative x
+	 * @param y the relative y
+	 * @param k the number of attacks to select, up to the depth
+	 * @param actions the actions of the attacks selected are set to it, nearest first
+	 * @return the number of attacks nearer than the radius, of which the first k at most are selected
+	 */
+	public int nearest(int x, int y, int k, Action[] actions){
+		if(k < 1 || k > depth) throw new IllegalArgumentException("k " + k + " is not from 1 to the depth " + depth);
+
+		int column = getColumn(x);
+		int row = getColumn(y);
+		int found = 0;
+		int selected = 0;
+		for(int j = Math.max(row - 1, 0) ; j <= Math.min(row + 1, columns - 1) ; j++){
+			for(int i = Math.max(column - 1, 0) ; i <= Math.min(column + 1, columns - 1) ; i++){
+				int cell = getCell(i, j);
+				Point[] points = cells[cell];
+				for(int p = 0 ; p < cellSize[cell] ; p++){
+					Point point = points[p];
+					int dx = point.x - x;
+					int dy = point.y - y;
+					int squared = dx*dx + dy*dy;
+					if(squared >= radius*radius) continue;
+
+					found += point.count;
+					int distance = (int)Math.sqrt(squared);
+					// the attacks at a point are as near, so once one is not selected the older ones are not either
+					for(int a = 0 ; a < Math.min(point.count, depth) ; a++){
+						int slot = (point.newest - a + depth) % depth;
+						if(!select(distance, point.sequence[slot], point.action[slot], k, selected, actions)) break;
+						if(selected < k) selected++;
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Inserts the attack into the selection if it is among the k nearest so far.
+	 * @return whether it was inserted
+	 */
+	private boolean select(int distance, int sequence, Action action, int k, int selected, Action[] actions){
+		if(selected == k && !isBefore(distance, sequence, selectedDistance[k-1], selectedSequence[k-1])) return false;
+		int i = Math.min(selected, k-1);
+		for( ; i > 0 && isBefore(distance, sequence, selectedDistance[i-1], selectedSequence[i-1]) ; i--){
+			selectedDistance[i] = selectedDistance[i-1];
+			selectedSequence[i] = selectedSequence[i-1];
+			actions[i] = actions[i-1];
+		}
+		selectedDistance[i] = distance;
+		selectedSequence[i] = sequence;
+		actions[i] = action;
+		return true;
+	}
+
+	/**
+	 * Returns the number of the i-th attack the last query selected, the attacks being numbered from 0 in the order added since clear().
+	 */
+	public int getSequence(int i){
+		return selectedSequence[i];
+	}
+
+	private static boolean isBefore(int distance, int sequence, int otherDistance, int otherSequence){
+		return distance < otherDistance || (distance == otherDistance && sequence > otherSequence);
+	}
+
+	private int getColumn(int position){
+		return (Math.max(-EXTENT, Math.min(position, EXTENT)) + EXTENT)/radius;
+	}
+
+	private int getCell(int column, int row){
+		return row*columns + column;
+	}
+}
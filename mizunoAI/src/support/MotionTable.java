@@ -0,0 +1,229 @@
+package support;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+
+import structs.HitArea;
+import structs.MotionData;
+import enumerate.Action;
+import enumerate.State;
+
+/**
+ * MotionData of one character compiled into flat columns indexed by Action ordinal.<br>
+ * The simulator of mizunoAI and the action spaces of mizunoAI and JerryMizunoAI read a column with one array access instead of a synchronized Vector lookup and a getter.<br>
+ * The columns must not be modified.
+ */
+public class MotionTable {
+	private static final Action[] ACTIONS = Action.values();
+
+	/** whether the character has the motion*/
+	public final boolean[] defined;
+
+	public final int[] frameNumber;
+	public final int[] speedX;
+	public final int[] speedY;
+	/** hit box of the character*/
+	public final int[] hitL, hitR, hitT, hitB;
+	public final State[] state;
+
+	/** hit box of the attack*/
+	public final int[] attackHitL, attackHitR, attackHitT, attackHitB;
+	public final int[] attackSpeedX;
+	public final int[] attackSpeedY;
+	public final int[] attackStartUp;
+	public final int[] attackInterval;
+	public final int[] attackRepeat;
+	public final int[] attackActive;
+	public final int[] attackHitDamage;
+	public final int[] attackGuardDamage;
+	public final int[] attackStartAddEnergy;
+	public final int[] attackHitAddEnergy;
+	public final int[] attackGuardAddEnergy;
+	public final int[] attackGiveEnergy;
+	public final int[] attackImpactX;
+	public final int[] attackImpactY;
+	public final int[] attackGiveGuardRecov;
+	public final int[] attackKnockBack;
+	public final int[] attackHitStop;
+	/** 0 = no attack, 1 = high, 2 = middle, 3 = low, 4 = throw*/
+	public final int[] attackType;
+	public final boolean[] attackDownProperty;
+
+	public final int[] cancelAbleFrame;
+	public final int[] cancelAbleMotionLevel;
+	public final int[] motionLevel;
+	public final boolean[] control;
+	public final boolean[] landingFlag;
+
+	/**
+	 * Compiles the MotionData of a character (GameData.getPlayerOneMotion() etc.).
+	 */
+	public MotionTable(List<MotionData> motionData){
+		int size = Math.max(motionData.size(), ACTIONS.length);
+		defined = new boolean[size];
+		frameNumber = new int[size];
+		speedX = new int[size];
+		speedY = new int[size];
+		hitL = new int[size];
+		hitR = new int[size];
+		hitT = new int[size];
+		hitB = new int[size];
+		state = new State[size];
+		attackHitL = new int[size];
+		attackHitR = new int[size];
+		attackHitT = new int[size];
+		attackHitB = new int[size];
+		attackSpeedX = new int[size];
+		attackSpeedY = new int[size];
+		attackStartUp = new int[size];
+		attackInterval = new int[size];
+		attackRepeat = new int[size];
+		attackActive = new int[size];
+		attackHitDamage = new int[size];
+		attackGuardDamage = new int[size];
+		attackStartAddEnergy = new int[size];
+		attackHitAddEnergy = new int[size];
+		attackGuardAddEnergy = new int[size];
+		attackGiveEnergy = new int[size];
+		attackImpactX = new int[size];
+		attackImpactY = new int[size];
+		attackGiveGuardRecov = new int[size];
+		attackKnockBack = new int[size];
+		attackHitStop = new int[size];
+		attackType = new int[size];
+		attackDownProperty = new boolean[size];
+		cancelAbleFrame = new int[size];
+		cancelAbleMotionLevel = new int[size];
+		motionLevel = new int[size];
+		control = new boolean[size];
+		landingFlag = new boolean[size];
+
+		for(int i = 0 ; i < motionData.size() ; i++){
+			MotionData motion = motionData.get(i);
+			if(motion == null) continue;
+
+			defined[i] = true;
+			frameNumber[i] = motion.getFrameNumber();
+			speedX[i] = motion.getSpeedX();
+			speedY[i] = motion.getSpeedY();
+			hitL[i] = motion.getHit().getL();
+			hitR[i] = motion.getHit().getR();
+			hitT[i] = motion.getHit().getT();
+			hitB[i] = motion.getHit().getB();
+			state[i] = motion.getState();
+			attackHitL[i] = motion.getAttackHit().getL();
+			attackHitR[i] = motion.getAttackHit().getR();
+			attackHitT[i] = motion.getAttackHit().getT();
+			attackHitB[i] = motion.getAttackHit().getB();
+			attackSpeedX[i] = motion.getAttackSpeedX();
+			attackSpeedY[i] = motion.getAttackSpeedY();
+			attackStartUp[i] = motion.getAttackStartUp();
+			attackInterval[i] = motion.getAttackInterval();
+			attackRepeat[i] = motion.getAttackRepeat();
+			attackActive[i] = motion.getAttackActive();
+			attackHitDamage[i] = motion.getAttackHitDamage();
+			attackGuardDamage[i] = motion.getAttackGuardDamage();
+			attackStartAddEnergy[i] = motion.getAttackStartAddEnergy();
+			attackHitAddEnergy[i] = motion.getAttackHitAddEnergy();
+			attackGuardAddEnergy[i] = motion.getAttackGuardAddEnergy();
+			attackGiveEnergy[i] = motion.getAttackGiveEnergy();
+			attackImpactX[i] = motion.getAttackImpactX();
+			attackImpactY[i] = motion.getAttackImpactY();
+			attackGiveGuardRecov[i] = motion.getAttackGiveGuardRecov();
+			attackKnockBack[i] = motion.getAttackKnockBack();
+			attackHitStop[i] = motion.getAttackHitStop();
+			attackType[i] = motion.getAttackType();
+			attackDownProperty[i] = motion.isAttackDownProperty();
+			cancelAbleFrame[i] = motion.getCancelAbleFrame();
+			cancelAbleMotionLevel[i] = motion.getCancelAbleMotionLevel();
+			motionLevel[i] = motion.getMotionLevel();
+			control[i] = motion.isControl();
+			landingFlag[i] = motion.isLandingFlag();
+		}
+	}
+
+	/**
+	 * Loads a table directly from a Motion.csv file (data/character/[name]/Motion.csv), for use without GameData.
+	 * Columns are read by position like the game's loader, and rows of unknown motions are skipped.
+	 * @param file Motion.csv of a character
+	 * @return the compiled table
+	 */
+	public static MotionTable load(File file) throws IOException{
+		return new MotionTable(read(file));
+	}
+
+	/**
+	 * Reads the MotionData of a Motion.csv file into a Vector indexed by Action ordinal, like GameData.getPlayerOneMotion() returns.
+	 * @param file Motion.csv of a character
+	 * @return the motions, null for the actions the file does not have
+	 */
+	public static Vector<MotionData> read(File file) throws IOException{
+		MotionData[] motions = new MotionData[ACTIONS.length];
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try{
+			// the header names differ between characters, so columns are read by position as the game does
+			reader.readLine();
+			String line;
+			while((line = reader.readLine()) != null){
+				String[] row = line.split(",");
+				Action action;
+				try{
+					action = Action.valueOf(row[0].trim());
+				}catch(IllegalArgumentException e){
+					continue;
+				}
+
+				MotionData motion = new MotionData();
+				motion.motionName = action.name();
+				motion.frameNumber = getInt(row, 1);
+				motion.speedX = getInt(row, 2);
+				motion.speedY = getInt(row, 3);
+				motion.hit = new HitArea(getInt(row, 4), getInt(row, 5), getInt(row, 6), getInt(row, 7));
+				motion.state = State.valueOf(row[8].trim());
+				motion.attackHit = new HitArea(getInt(row, 9), getInt(row, 10), getInt(row, 11), getInt(row, 12));
+				motion.attackSpeedX = getInt(row, 13);
+				motion.attackSpeedY = getInt(row, 14);
+				motion.attackStartUp = getInt(row, 15);
+				motion.attackInterval = getInt(row, 16);
+				motion.attackRepeat = getInt(row, 17);
+				motion.attackActive = getInt(row, 18);
+				motion.attackHitDamage = getInt(row, 19);
+				motion.attackGuardDamage = getInt(row, 20);
+				motion.attackStartAddEnergy = getInt(row, 21);
+				motion.attackHitAddEnergy = getInt(row, 22);
+				motion.attackGuardAddEnergy = getInt(row, 23);
+				motion.attackGiveEnergy = getInt(row, 24);
+				motion.attackImpactX = getInt(row, 25);
+				motion.attackImpactY = getInt(row, 26);
+				motion.attackGiveGuardRecov = getInt(row, 27);
+				motion.attackKnockBack = getInt(row, 28);
+				motion.attackHitStop = getInt(row, 29);
+				motion.attackType = getInt(row, 30);
+				motion.attackDownProperty = getBoolean(row, 31);
+				// column 32 is the image of the attack
+				motion.cancelAbleFrame = getInt(row, 33);
+				motion.cancelAbleMotionLevel = getInt(row, 34);
+				motion.motionLevel = getInt(row, 35);
+				motion.control = getBoolean(row, 36);
+				motion.landingFlag = getBoolean(row, 37);
+				motions[action.ordinal()] = motion;
+			}
+		}finally{
+			reader.close();
+		}
+		return new Vector<MotionData>(Arrays.asList(motions));
+	}
+
+	private static int getInt(String[] row, int column){
+		return Integer.parseInt(row[column].trim());
+	}
+
+	private static boolean getBoolean(String[] row, int column){
+		return Boolean.parseBoolean(row[column].trim());
+	}
+}
@@ -0,0 +1,418 @@
+package support;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import mizunoAI_simulator.ReplayLog;
+import enumerate.Action;
+import enumerate.Position;
+import enumerate.State;
+
+/**
+ * Builds the attack histories the k-nn of mizunoAI and JerryMizunoAI starts from out of replay files,
+ * one for every AI and character playing in them and one for every character (data/aiData/replays/[AI]_[character].dat, see ActHistoryFile).<br>
+ * An attack is detected as mizunoAI.processing() detects it, on the first frame of an attack action, and recorded relative to the front of the other character.
+ * Its Position is taken from the states of the characters DELAY frames later, which processing() predicts by simulation.
+ * The AI names are taken from the name of the replay file ([date]_Log [P1]_[P2][game].dat), the name of P2 being the part after the last _.
+ * The attacks of a replay whose AI names cannot be read only go to the histories of every AI, not to one shared by the unknown AIs.<br>
+ * The replays are read in parallel and merged in the order of their files, oldest first.
+ * The replays already built are listed in data/aiData/replays/replays.txt with the frames built and a hash of their content, so that the next build reads only the new ones.
+ * A replay that has grown since, because the game was still writing it, adds only its new frames, and a copy of a replay built under another name adds nothing.<br>
+ * It is run in the directory of the game: java support.ReplayHistoryBuilder [replay directory] [threads]
+ */
+public class ReplayHistoryBuilder {
+	/** the frames processing() simulates the states forward by*/
+	private static final int DELAY = 14;
+	/** the k-nn parameters of the histories, which only their indexes use*/
+	private static final int K_DISTANCE = 50;
+	private static final int THRESHOLD = 3;
+	private static final Action[] ACTIONS = Action.values();
+	private static final Position[] POSITIONS = Position.values();
+
+	/** the most attacks kept per history*/
+	private final int capacity;
+	private final File listFile = new File("data/aiData/" + ActHistoryFile.REPLAY_AI, "replays.txt");
+	/** the motion of each character, loaded when a replay of it is first read*/
+	private final Map<String, MotionTable> motions = new HashMap<String, MotionTable>();
+	private final Map<String, ActionSpace> actionSpaces = new HashMap<String, ActionSpace>();
+
+	/** the histories of the build, by file*/
+	private final Map<File, ActHistory[]> histories = new TreeMap<File, ActHistory[]>();
+	/** the frame the next replay starts at, the attacks of the histories loaded being before 0*/
+	private int clock;
+
+	/**
+	 * @param capacity the most attacks kept per history, at least the capacity of the AIs
+	 */
+	public ReplayHistoryBuilder(int capacity){
+		this.capacity = capacity;
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException{
+		File directory = new File(args.length > 0 ? args[0] : "log/replay");
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		System.out.println(new ReplayHistoryBuilder(Integer.getInteger("mizunoai.historyCapacity", 1024)).build(directory, threads));
+	}
+
+	/** the attacks found in one replay, as columns*/
+	private static class Attacks {
+		private final String[] aiName;
+		private final String[] characterName = new String[2];
+		/** the frame the attacks were searched from, the frames before having been built already*/
+		private final int start;
+		private int frameNumber;
+		/** the hash of the frames read*/
+		private String hash;
+		private int size;
+		private int[] player = new int[256];
+		private int[] x = new int[256];
+		private int[] y = new int[256];
+		private int[] position = new int[256];
+		private int[] action = new int[256];
+		private int[] frame = new int[256];
+
+		private Attacks(String[] aiName, int start){
+			this.aiName = aiName;
+			this.start = start;
+		}
+
+		private void add(int player, int x, int y, Position position, Action action, int frame){
+			if(size == this.x.length){
+				this.player = Arrays.copyOf(this.player, size*2);
+				this.x = Arrays.copyOf(this.x, size*2);
+				this.y = Arrays.copyOf(this.y, size*2);
+				this.position = Arrays.copyOf(this.position, size*2);
+				this.action = Arrays.copyOf(this.action, size*2);
+				this.frame = Arrays.copyOf(this.frame, size*2);
+			}
+			this.player[size] = player;
+			this.x[size] = x;
+			this.y[size] = y;
+			this.position[size] = position.ordinal();
+			this.action[size] = action.ordinal();
+			this.frame[size] = frame;
+			size++;
+		}
+	}
+
+	/** a replay already built: the frames built and the hash of their content, null for a replay listed before the hashes*/
+	private static class Built {
+		private final int frameNumber;
+		private final String hash;
+
+		private Built(int frameNumber, String hash){
+			this.frameNumber = frameNumber;
+			this.hash = hash;
+		}
+	}
+
+	/**
+	 * Adds the replay files of the directory not built yet to the histories, and saves the histories changed.
+	 * @param directory the directory of the replay files
+	 * @param threads the replays read at once
+	 * @return the report, one line per replay and one per history saved
+	 */
+	public String build(File directory, int threads) throws IOException, InterruptedException{
+		File[] files = directory.listFiles(new FileFilter(){
+			@Override
+			public boolean accept(File file){
+				return file.isFile() && file.getName().endsWith(".dat");
+			}
+		});
+		if(files == null) throw new IOException("cannot list " + directory);
+		// the attacks are added oldest first, so the replays are merged in the order they were written
+		Arrays.sort(files, new Comparator<File>(){
+			@Override
+			public int compare(File a, File b){
+				if(a.lastModified() != b.lastModified()) return a.lastModified() < b.lastModified() ? -1 : 1;
+				return a.getName().compareTo(b.getName());
+			}
+		});
+
+		Map<String, Built> built = readList();
+		Set<String> builtHashes = new HashSet<String>();
+		for(Built replay : built.values()) builtHashes.add(replay.hash);
+		List<File> newFiles = new ArrayList<File>();
+		final List<Integer> starts = new ArrayList<Integer>();
+		for(File file : files){
+			Built replay = built.get(file.getName());
+			int frameNumber = ReplayLog.getFrameNumber(file.length());
+			if(replay != null && replay.frameNumber >= frameNumber) continue;
+			// a replay that has grown adds only the frames after the ones built, unless the frames built have changed too
+			int start = 0;
+			if(replay != null && (replay.hash == null || replay.hash.equals(hash(file, replay.frameNumber)))) start = replay.frameNumber;
+			newFiles.add(file);
+			starts.add(start);
+		}
+		StringBuilder report = new StringBuilder();
+		report.append(newFiles.size()).append(" new of ").append(files.length).append(" replays\n");
+		if(newFiles.isEmpty()) return report.toString();
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(threads, 1));
+		try{
+			List<Future<Attacks>> futures = new ArrayList<Future<Attacks>>();
+			for(int i = 0 ; i < newFiles.size() ; i++){
+				final File file = newFiles.get(i);
+				final int start = starts.get(i);
+				futures.add(executor.submit(new Callable<Attacks>(){
+					@Override
+					public Attacks call() throws IOException{
+						return extract(file, start);
+					}
+				}));
+			}
+			// the replays are merged in order whichever finishes first, so the histories do not depend on the threads
+			for(int i = 0 ; i < newFiles.size() ; i++){
+				File file = newFiles.get(i);
+				Attacks attacks;
+				try{
+					attacks = futures.get(i).get();
+				}catch(ExecutionException e){
+					// a replay that cannot be read is not listed, so the next build tries it again
+					report.append(file.getName()).append(": ").append(e.getCause()).append('\n');
+					continue;
+				}
+				if(attacks.start == 0 && builtHashes.contains(attacks.hash)){
+					report.append(file.getName()).append(": skipped, built under another name\n");
+				}else if(attacks.characterName[0] == null || attacks.characterName[1] == null){
+					report.append(file.getName()).append(": skipped, unknown characters\n");
+				}else{
+					merge(attacks);
+					report.append(file.getName()).append(": ").append(attacks.size).append(" attacks");
+					if(attacks.start > 0) report.append(" in the frames from ").append(attacks.start);
+					report.append(" of ")
+							.append(getAiName(attacks.aiName[0])).append(" (").append(attacks.characterName[0]).append(") and ")
+							.append(getAiName(attacks.aiName[1])).append(" (").append(attacks.characterName[1]).append(")\n");
+				}
+				built.put(file.getName(), new Built(attacks.frameNumber, attacks.hash));
+				builtHashes.add(attacks.hash);
+			}
+		}finally{
+			executor.shutdown();
+		}
+
+		// the ages of every history grow by the frames of the new replays, as if all the replays were built at once
+		File[] historyFiles = listFile.getAbsoluteFile().getParentFile().listFiles(new FileFilter(){
+			@Override
+			public boolean accept(File file){
+				return file.isFile() && file.getName().endsWith(".dat");
+			}
+		});
+		if(historyFiles != null){
+			for(File file : historyFiles) getHistories(new File(listFile.getParentFile(), file.getName()));
+		}
+		for(Map.Entry<File, ActHistory[]> entry : histories.entrySet()){
+			new ActHistoryFile(entry.getKey()).save(entry.getValue(), clock);
+			report.append(entry.getKey().getName()).append(":");
+			for(ActHistory history : entry.getValue()) report.append(' ').append(history.size());
+			report.append('\n');
+		}
+		writeList(built);
+		return report.toString();
+	}
+
+	/**
+	 * Reads the attacks of both players in a replay, from the start frame on.
+	 * @return the attacks, none if a character of the replay is unknown
+	 */
+	private Attacks extract(File file, int start) throws IOException{
+		ReplayLog replay = new ReplayLog(file);
+		Attacks attacks = new Attacks(getAiNames(file.getName()), start);
+		attacks.frameNumber = replay.getFrameNumber();
+		attacks.hash = hash(file, replay.getFrameNumber());
+		MotionTable[] motion = new MotionTable[2];
+		ActionSpace[] actionSpace = new ActionSpace[2];
+		for(int i = 0 ; i < 2 ; i++){
+			attacks.characterName[i] = replay.getCharacterName(i == 0);
+			if(attacks.characterName[i] == null) return attacks;
+			motion[i] = getMotion(attacks.characterName[i]);
+			actionSpace[i] = getActionSpace(attacks.characterName[i]);
+		}
+
+		for(int frame = start ; frame < replay.getFrameNumber() ; frame++){
+			for(int i = 0 ; i < 2 ; i++){
+				boolean opp = i == 0;
+				boolean my = !opp;
+				Action action = replay.getAction(opp, frame);
+				// the replay keeps the remaining frames as a byte
+				if((byte)actionSpace[i].getFrameNumber(action) != replay.getRemainingFrame(opp, frame) || !actionSpace[i].isAttack(action)) continue;
+
+				int x = replay.getX(opp, frame) - replay.getX(my, frame);
+				int y = replay.getY(opp, frame) - replay.getY(my, frame);
+				if(!replay.isFront(my, frame)){
+					x = -x;
+					y = -y;
+				}
+				int delayed = Math.min(frame + DELAY - 1, replay.getFrameNumber() - 1);
+				boolean myAir = motion[1-i].state[replay.getAction(my, delayed).ordinal()] == State.AIR;
+				boolean oppAir = motion[i].state[replay.getAction(opp, delayed).ordinal()] == State.AIR;
+				attacks.add(i, x, y, getPosition(myAir, oppAir), action, frame);
+			}
+		}
+		return attacks;
+	}
+
+	/** the Position as mizunoAI.setPosition() sets it*/
+	private static Position getPosition(boolean myAir, boolean oppAir){
+		if(myAir) return oppAir ? Position.Air_Air : Position.Air_Ground;
+		return oppAir ? Position.Ground_Air : Position.Ground_Ground;
+	}
+
+	/** add the attacks to the histories of their AI and character, and of any AI with their character*/
+	private void merge(Attacks attacks) throws IOException{
+		for(int i = 0 ; i < attacks.size ; i++){
+			String characterName = attacks.characterName[attacks.player[i]];
+			Action action = ACTIONS[attacks.action[i]];
+			int position = attacks.position[i];
+			int frame = clock + attacks.frame[i] - attacks.start;
+			String aiName = attacks.aiName[attacks.player[i]];
+			if(aiName != null) getHistories(ActHistoryFile.getFile(ActHistoryFile.REPLAY_AI, aiName, characterName))[position].add(attacks.x[i], attacks.y[i], action, frame);
+			getHistories(ActHistoryFile.getFile(ActHistoryFile.REPLAY_AI, ActHistoryFile.ANY_AI, characterName))[position].add(attacks.x[i], attacks.y[i], action, frame);
+		}
+		clock += attacks.frameNumber - attacks.start;
+	}
+
+	/** the histories of the file, loaded when they are first used*/
+	private ActHistory[] getHistories(File file) throws IOException{
+		ActHistory[] result = histories.get(file);
+		if(result == null){
+			ActHistoryFile historyFile = new ActHistoryFile(file);
+			if(historyFile.exists()){
+				result = historyFile.load(capacity, K_DISTANCE, THRESHOLD);
+				if(result.length != POSITIONS.length) throw new IOException(file + " has " + result.length + " histories");
+			}else{
+				result = new ActHistory[POSITIONS.length];
+				for(int i = 0 ; i < result.length ; i++) result[i] = new ActHistory(capacity, K_DISTANCE, THRESHOLD);
+			}
+			histories.put(file, result);
+		}
+		return result;
+	}
+
+	private synchronized MotionTable getMotion(String characterName) throws IOException{
+		MotionTable motion = motions.get(characterName);
+		if(motion == null){
+			motion = MotionTable.load(new File("data/character/" + characterName + "/Motion.csv"));
+			motions.put(characterName, motion);
+		}
+		return motion;
+	}
+
+	private synchronized ActionSpace getActionSpace(String characterName) throws IOException{
+		ActionSpace actionSpace = actionSpaces.get(characterName);
+		if(actionSpace == null){
+			actionSpace = new ActionSpace(getMotion(characterName));
+			actionSpaces.put(characterName, actionSpace);
+		}
+		return actionSpace;
+	}
+
+	/**
+	 * Returns the AI names of P1 and P2 in the name of a replay file, or nulls if they cannot be read.
+	 */
+	private static String[] getAiNames(String fileName){
+		int start = fileName.indexOf("Log ");
+		int end = fileName.lastIndexOf(".dat");
+		if(start < 0 || end < start + 4) return new String[2];
+		// the game adds the number of the game to the name of P2
+		String names = fileName.substring(start + 4, end).replaceAll("[0-9]+$", "");
+		int separator = names.lastIndexOf('_');
+		if(separator < 0) return new String[2];
+		return new String[]{names.substring(0, separator), names.substring(separator + 1)};
+	}
+
+	private static String getAiName(String aiName){
+		return aiName == null ? "an unknown AI" : aiName;
+	}
+
+	/**
+	 * Returns the hash of the header and the first frames of a replay file, as a hex string.
+	 */
+	private static String hash(File file, int frameNumber) throws IOException{
+		MessageDigest digest;
+		try{
+			digest = MessageDigest.getInstance("SHA-256");
+		}catch(NoSuchAlgorithmException e){
+			throw new IllegalStateException(e);
+		}
+		long remaining = ReplayLog.getLength(frameNumber);
+		byte[] buffer = new byte[8192];
+		InputStream input = new BufferedInputStream(new FileInputStream(file));
+		try{
+			while(remaining > 0){
+				int read = input.read(buffer, 0, (int)Math.min(buffer.length, remaining));
+				if(read < 0) throw new IOException(file + " is shorter than " + frameNumber + " frames");
+				digest.update(buffer, 0, read);
+				remaining -= read;
+			}
+		}finally{
+			input.close();
+		}
+		StringBuilder hex = new StringBuilder();
+		for(byte b : digest.digest()) hex.append(String.format("%02x", b));
+		return hex.toString();
+	}
+
+	/** the replay files already built, by name*/
+	private Map<String, Built> readList() throws IOException{
+		Map<String, Built> built = new TreeMap<String, Built>();
+		if(!listFile.isFile()) return built;
+		BufferedReader reader = new BufferedReader(new FileReader(listFile));
+		try{
+			String line;
+			while((line = reader.readLine()) != null){
+				String[] columns = line.split("\t");
+				try{
+					if(columns.length == 3){
+						built.put(columns[0], new Built(Integer.parseInt(columns[1]), columns[2]));
+					}else if(columns.length == 2){
+						// a list written before the hashes has the lengths of the files, whose frames are taken as built
+						built.put(columns[0], new Built(ReplayLog.getFrameNumber(Long.parseLong(columns[1])), null));
+					}
+				}catch(NumberFormatException e){
+					// a broken line is built again
+				}
+			}
+		}finally{
+			reader.close();
+		}
+		return built;
+	}
+
+	private void writeList(Map<String, Built> built) throws IOException{
+		File directory = listFile.getAbsoluteFile().getParentFile();
+		if(!directory.isDirectory() && !directory.mkdirs()) throw new IOException("cannot create " + directory);
+		PrintWriter writer = new PrintWriter(new FileWriter(listFile));
+		try{
+			for(Map.Entry<String, Built> entry : built.entrySet()){
+				writer.println(entry.getKey() + "\t" + entry.getValue().frameNumber + "\t" + entry.getValue().hash);
+			}
+		}finally{
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+import structs.CharacterData;
+import enumerate.Action;
+import enumerate.State;
+import mizunoAI_simulator.OfflineGameData;
+
+/**
+ * Checks that mizunoAI.update(), which moves a character over the delay frames in one step, gives the character the frame-by-frame loop gives:
+ * the DELAY frames of moving, friction and gravity with frictionEffect() and gravityEffect(), landing on the ground at 320.<br>
+ * The characters are grounded and airborne, moving up and down at every speed of the grid, with the bottom below and above the stage
+ * (gravity holds a character whose bottom is at 576 or lower), and some of them are down.
+ * Run like the other checks, with the classes of src and test on the class path: java UpdateCheck
+ */
+public class UpdateCheck {
+	private static final int DELAY = 14;
+	private static final int GROUND_Y = 320;
+	private static final int[] BOTTOMS = {0, 400, 575, 576, 700};
+
+	public static void main(String[] args){
+		mizunoAI ai = new mizunoAI();
+		int characters = 0, grounded = 0, airborne = 0, landing = 0;
+		for(int y = -300 ; y <= GROUND_Y ; y += 4){
+			for(int speedY = -40 ; speedY <= 25 ; speedY++){
+				for(int speedX = -12 ; speedX <= 12 ; speedX += 3){
+					for(int bottom : BOTTOMS){
+						for(int down = 0 ; down < 2 ; down++){
+							CharacterData expected = createCharacter(y, speedX, speedY, bottom, down == 1);
+							CharacterData actual = createCharacter(y, speedX, speedY, bottom, down == 1);
+							updateFrames(ai, expected);
+							ai.update(actual);
+							check(y, speedX, speedY, bottom, down == 1, expected, actual);
+							characters++;
+							if(y == GROUND_Y) grounded++;
+							else airborne++;
+							if(y < GROUND_Y && expected.getY() == GROUND_Y) landing++;
+						}
+					}
+				}
+			}
+		}
+		if(grounded == 0 || airborne == 0 || landing == 0) fail("no character was on the ground, in the air or landed");
+		System.out.println("OK: " + characters + " characters, " + grounded + " on the ground, " + airborne + " in the air, " + landing + " of them landing");
+	}
+
+	/** the frame-by-frame update() of mizunoAI before it was computed in one step*/
+	private static void updateFrames(mizunoAI ai, CharacterData one){
+		if(one.getAction() == Action.DOWN) one.setRemainingFrame(one.getRemainingFrame()+6);
+		for(int i = 0 ; i < DELAY ; i++){
+			one.setRemainingFrame(one.getRemainingFrame()-1);
+			one.setX(one.getX() + one.getSpeedX());
+			one.setY(one.getY() + one.getSpeedY());
+			ai.frictionEffect(one);
+			ai.gravityEffect(one);
+			if(one.getY() >= GROUND_Y){
+				one.setY(GROUND_Y);
+				one.setState(State.STAND);
+			}
+		}
+	}
+
+	private static CharacterData createCharacter(int y, int speedX, int speedY, int bottom, boolean down){
+		CharacterData character = OfflineGameData.createCharacter();
+		character.x = 400;
+		character.y = y;
+		character.speedX = speedX;
+		character.speedY = speedY;
+		character.bottom = bottom;
+		character.action = down ? Action.DOWN : (y < GROUND_Y ? Action.JUMP : Action.STAND);
+		character.state = y < GROUND_Y ? State.AIR : State.STAND;
+		character.remainingFrame = 20;
+		return character;
+	}
+
+	private static void check(int y, int speedX, int speedY, int bottom, boolean down, CharacterData expected, CharacterData actual){
+		if(expected.getX() != actual.getX() || expected.getY() != actual.getY() || expected.getSpeedX() != actual.getSpeedX()
+				|| expected.getSpeedY() != actual.getSpeedY() || expected.getState() != actual.getState() || expected.getRemainingFrame() != actual.getRemainingFrame()){
+			fail("y " + y + ", speed (" + speedX + ", " + speedY + "), bottom " + bottom + (down ? ", down" : "") + ": " + describe(actual) + " instead of " + describe(expected));
+		}
+	}
+
+	private static String describe(CharacterData character){
+		return "x " + character.getX() + " y " + character.getY() + " speed (" + character.getSpeedX() + ", " + character.getSpeedY() + ") "
+				+ character.getState() + " remaining " + character.getRemainingFrame();
+	}
+
+	private static void fail(String message){
+		System.out.println("FAILED: " + message);
+		System.exit(1);
+	}
+}
@@ -0,0 +1,88 @@
+package mizunoAI_simulator;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import structs.FrameData;
+import structs.GameData;
+import enumerate.Action;
+import support.MotionTable;
+
+/**
+ * Measures the simulated frames per second of one core for K games stepped by K SimFighting instances and by one BatchSimulator.<br>
+ * Both start every round from the same saved states of TestStates (ZEN vs ZEN) and simulate FRAMES frames. The time is the CPU time of the thread,
+ * and the median of the rounds after WARMUP is printed. Run like the checks: java mizunoAI_simulator.BatchSimulatorBench [K...]
+ */
+public class BatchSimulatorBench {
+	private static final int[] DEFAULT_GAMES = {64, 256, 1024};
+	private static final int FRAMES = 60;
+	private static final int ROUNDS = 14;
+	private static final int WARMUP = 4;
+	private static final Action[] ACTIONS = Action.values();
+
+	public static void main(String[] args) throws Exception{
+		int[] counts = DEFAULT_GAMES;
+		if(args.length > 0){
+			counts = new int[args.length];
+			for(int i = 0 ; i < args.length ; i++) counts[i] = Integer.parseInt(args[i]);
+		}
+		GameData gameData = TestStates.createGameData("ZEN", "ZEN");
+		MotionTable one = new MotionTable(gameData.getPlayerOneMotion());
+		MotionTable two = new MotionTable(gameData.getPlayerTwoMotion());
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+		for(int count : counts){
+			Random random = new Random(18);
+			List<FrameData> states = TestStates.createStates(gameData, random, count);
+			SimFighting[] fightings = new SimFighting[count];
+			int[][] saved = new int[count][];
+			for(int game = 0 ; game < count ; game++){
+				SimCharacter playerOne = new SimCharacter(one, true);
+				SimCharacter playerTwo = new SimCharacter(two, false);
+				playerOne.reset(states.get(game).getP1());
+				playerTwo.reset(states.get(game).getP2());
+				fightings[game] = new SimFighting(playerOne, playerTwo);
+				fightings[game].reset(states.get(game).getAttack(), ACTIONS[random.nextInt(ACTIONS.length)], ACTIONS[random.nextInt(ACTIONS.length)]);
+				saved[game] = fightings[game].save();
+			}
+			BatchSimulator batch = new BatchSimulator(one, two, count);
+			int[] buffer = new int[4096];
+
+			double[] scalarRates = new double[ROUNDS], batchRates = new double[ROUNDS];
+			for(int round = 0 ; round < ROUNDS ; round++){
+				long hpScalar = 0, hpBatch = 0;
+				long start = bean.getCurrentThreadCpuTime();
+				for(int game = 0 ; game < count ; game++) fightings[game].restore(saved[game], 0);
+				for(int frame = 0 ; frame < FRAMES ; frame++){
+					for(SimFighting fighting : fightings) fighting.processingFight();
+				}
+				for(int game = 0 ; game < count ; game++){
+					fightings[game].save(buffer, 0);
+					hpScalar += buffer[0];
+				}
+				scalarRates[round] = (double) count * FRAMES * 1e9 / (bean.getCurrentThreadCpuTime() - start);
+
+				start = bean.getCurrentThreadCpuTime();
+				for(int game = 0 ; game < count ; game++) batch.load(game, saved[game], 0);
+				for(int frame = 0 ; frame < FRAMES ; frame++) batch.processingFight();
+				for(int game = 0 ; game < count ; game++){
+					batch.save(game, buffer, 0);
+					hpBatch += buffer[0];
+				}
+				batchRates[round] = (double) count * FRAMES * 1e9 / (bean.getCurrentThreadCpuTime() - start);
+				if(hpScalar != hpBatch) TestStates.fail("the batch ended in other states than SimFighting for K=" + count);
+			}
+			double scalar = median(scalarRates), batched = median(batchRates);
+			System.out.printf("K=%d: SimFighting %.2f Mframes/s, BatchSimulator %.2f Mframes/s (x%.2f)%n", count, scalar / 1e6, batched / 1e6, batched / scalar);
+		}
+	}
+
+	private static double median(double[] rates){
+		double[] measured = Arrays.copyOfRange(rates, WARMUP, rates.length);
+		Arrays.sort(measured);
+		return (measured[measured.length / 2 - 1] + measured[measured.length / 2]) / 2;
+	}
+}
@@ -0,0 +1,100 @@
+package mizunoAI_simulator;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import structs.FrameData;
+import structs.GameData;
+import enumerate.Action;
+import support.MotionTable;
+
+/**
+ * Checks that BatchSimulator steps every game of the batch to the state SimFighting.processingFight() reaches, compared with save() after every frame.<br>
+ * The games start from the states of TestStates, with several projectiles and characters in the air, and get new random inputs every INPUT_INTERVAL frames.
+ * A game whose scalar simulation throws has to be reported by isFailed() and is left out from then on.
+ */
+public class BatchSimulatorCheck {
+	private static final int GAMES = 60;
+	private static final int FRAMES = 180;
+	private static final int INPUT_INTERVAL = 15;
+	private static final Action[] ACTIONS = Action.values();
+
+	public static void main(String[] args) throws Exception{
+		Random random = new Random(18);
+		int games = 0, frames = 0, failed = 0, projectileFrames = 0, airborne = 0, maxProjectiles = 0;
+		int[] buffer = new int[4096];
+		for(String playerOne : TestStates.CHARACTERS){
+			for(String playerTwo : TestStates.CHARACTERS){
+				GameData gameData = TestStates.createGameData(playerOne, playerTwo);
+				MotionTable one = new MotionTable(gameData.getPlayerOneMotion());
+				MotionTable two = new MotionTable(gameData.getPlayerTwoMotion());
+				SimCharacter playerOneCharacter = new SimCharacter(one, true);
+				SimCharacter playerTwoCharacter = new SimCharacter(two, false);
+				SimFighting fighting = new SimFighting(playerOneCharacter, playerTwoCharacter);
+				BatchSimulator batch = new BatchSimulator(one, two, GAMES);
+
+				List<FrameData> states = TestStates.createStates(gameData, random, GAMES);
+				int[][] expected = new int[GAMES][];
+				boolean[] stopped = new boolean[GAMES];
+				for(int game = 0 ; game < GAMES ; game++){
+					FrameData frameData = states.get(game);
+					if(TestStates.isAirborne(frameData)) airborne++;
+					playerOneCharacter.reset(frameData.getP1());
+					playerTwoCharacter.reset(frameData.getP2());
+					fighting.reset(frameData.getAttack(), pick(random), pick(random));
+					expected[game] = fighting.save();
+					batch.load(game, expected[game], 0);
+					games++;
+				}
+
+				for(int frame = 0 ; frame < FRAMES ; frame++){
+					if(frame > 0 && frame % INPUT_INTERVAL == 0){
+						for(int game = 0 ; game < GAMES ; game++){
+							if(stopped[game]) continue;
+							fighting.restore(expected[game], 0);
+							if(random.nextBoolean()) fighting.setInput(true, pick(random));
+							if(random.nextBoolean()) fighting.setInput(false, pick(random));
+							expected[game] = fighting.save();
+							batch.load(game, expected[game], 0);
+						}
+					}
+
+					batch.processingFight();
+					for(int game = 0 ; game < GAMES ; game++){
+						if(stopped[game]) continue;
+						String name = playerOne + " vs " + playerTwo + " game " + game + " frame " + frame;
+						fighting.restore(expected[game], 0);
+						try{
+							fighting.processingFight();
+						}catch(RuntimeException e){
+							if(!batch.isFailed(game)) TestStates.fail(name + ": SimFighting threw " + e + " but the batch went on");
+							stopped[game] = true;
+							failed++;
+							continue;
+						}
+						if(batch.isFailed(game)) TestStates.fail(name + ": the batch failed a game SimFighting simulated");
+
+						expected[game] = fighting.save();
+						int size = batch.save(game, buffer, 0);
+						if(size != batch.getStateSize(game) || !Arrays.equals(expected[game], Arrays.copyOf(buffer, size))){
+							TestStates.fail(name + ":\n" + Arrays.toString(Arrays.copyOf(buffer, size)) + " instead of\n" + Arrays.toString(expected[game]));
+						}
+						frames++;
+						// save() writes the number of projectiles right after the two characters
+						int projectiles = expected[game][playerOneCharacter.getStateSize() + playerTwoCharacter.getStateSize()];
+						if(projectiles > 0) projectileFrames++;
+						maxProjectiles = Math.max(maxProjectiles, projectiles);
+					}
+				}
+			}
+		}
+		if(maxProjectiles < 2 || airborne == 0) TestStates.fail("the games have no multi-projectile or airborne case");
+		System.out.println("OK: " + games + " games (" + airborne + " starting in the air), " + frames + " frames (" + projectileFrames + " with projectiles, up to "
+				+ maxProjectiles + "), " + failed + " games failed by both simulators");
+	}
+
+	private static Action pick(Random random){
+		return ACTIONS[random.nextInt(ACTIONS.length)];
+	}
+}
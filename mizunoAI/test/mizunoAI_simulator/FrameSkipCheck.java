@@ -0,0 +1,66 @@
+package mizunoAI_simulator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import structs.FrameData;
+import structs.GameData;
+import enumerate.Action;
+import support.MotionTable;
+
+/**
+ * Checks that SimFighting.processingFight(limit), which skips the frames that only move the characters in one step,
+ * leaves the same state as processingFight() for every frame, after every step it takes.
+ */
+public class FrameSkipCheck {
+	private static final int SIMULATE_LIMIT = 60;
+	private static final Action[] ACTIONS = Action.values();
+
+	public static void main(String[] args) throws Exception{
+		Random random = new Random(17);
+		int runs = 0, steps = 0, skips = 0, skippedFrames = 0;
+		for(String playerOne : TestStates.CHARACTERS){
+			for(String playerTwo : TestStates.CHARACTERS){
+				GameData gameData = TestStates.createGameData(playerOne, playerTwo);
+				MotionTable one = new MotionTable(gameData.getPlayerOneMotion());
+				MotionTable two = new MotionTable(gameData.getPlayerTwoMotion());
+
+				for(FrameData frameData : TestStates.createStates(gameData, random, 40)){
+					for(int k = 0 ; k < 20 ; k++){
+						// no input for a side in some runs, as the frames after both inputs are taken
+						Action first = random.nextInt(4) == 0 ? null : ACTIONS[random.nextInt(ACTIONS.length)];
+						Action second = random.nextInt(4) == 0 ? null : ACTIONS[random.nextInt(ACTIONS.length)];
+						SimFighting skipping = load(frameData, one, two, first, second);
+						SimFighting exact = load(frameData, one, two, first, second);
+						for(int frame = 0 ; frame < SIMULATE_LIMIT ; ){
+							int frames = skipping.processingFight(SIMULATE_LIMIT - frame);
+							for(int i = 0 ; i < frames ; i++) exact.processingFight();
+							if(!Arrays.equals(skipping.save(), exact.save())){
+								TestStates.fail(playerOne + " vs " + playerTwo + " " + first + " vs " + second + ": the states differ after the step of " + frames + " frames from frame " + frame);
+							}
+							if(frames >= 2){
+								skips++;
+								skippedFrames += frames - 1;
+							}
+							frame += frames;
+							steps++;
+						}
+						runs++;
+					}
+				}
+			}
+		}
+		if(skips == 0) TestStates.fail("no step skipped frames");
+		System.out.println("OK: " + runs + " runs, " + steps + " steps, " + skips + " of them skipping " + skippedFrames + " frames");
+	}
+
+	private static SimFighting load(FrameData frameData, MotionTable one, MotionTable two, Action first, Action second){
+		SimCharacter playerOne = new SimCharacter(one, true);
+		SimCharacter playerTwo = new SimCharacter(two, false);
+		playerOne.reset(frameData.getP1());
+		playerTwo.reset(frameData.getP2());
+		SimFighting fighting = new SimFighting(playerOne, playerTwo);
+		fighting.reset(frameData.getAttack(), first, second);
+		return fighting;
+	}
+}
@@ -0,0 +1,95 @@
+package mizunoAI_simulator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import structs.FrameData;
+import structs.GameData;
+import enumerate.Action;
+import support.MotionTable;
+
+/**
+ * Checks that simulate(Action[],Action[]) spread over the threads of setParallelism() gives the evaluation values of the sequential simulation,
+ * for both players and with coarse steps.<br>
+ * A simulator whose thread is interrupted while waiting for its pool has to give the sequential values too, and keep giving them without the pool.
+ */
+public class ParallelSimulatorCheck {
+	private static final int[] THREADS = {2, 3, 5};
+	private static final Action[] ACTIONS = Action.values();
+
+	public static void main(String[] args) throws Exception{
+		Random random = new Random(25);
+		int states = 0, rounds = 0, interrupted = 0, abandonedPools = 0, damaging = 0;
+		for(String playerOne : TestStates.CHARACTERS){
+			for(String playerTwo : TestStates.CHARACTERS){
+				GameData gameData = TestStates.createGameData(playerOne, playerTwo);
+				MotionTable one = new MotionTable(gameData.getPlayerOneMotion());
+				MotionTable two = new MotionTable(gameData.getPlayerTwoMotion());
+
+				for(int side = 0 ; side < 2 ; side++){
+					boolean player = side == 0;
+					Simulator sequential = new Simulator(gameData, player, one, two);
+					Simulator[] parallel = new Simulator[THREADS.length];
+					for(int i = 0 ; i < parallel.length ; i++){
+						parallel[i] = new Simulator(gameData, player, one, two);
+						parallel[i].setParallelism(THREADS[i]);
+					}
+					// given up after the first interrupt, so sequential for the rest of the states
+					Simulator abandoned = new Simulator(gameData, player, one, two);
+					abandoned.setParallelism(4);
+					boolean pooled = true;
+
+					for(FrameData frameData : TestStates.createStates(gameData, random, 15)){
+						states++;
+						Action[] myActions = pick(random, 1 + random.nextInt(20));
+						Action[] oppActions = pick(random, 1 + random.nextInt(4));
+						int exactFrames = random.nextBoolean() ? 60 : 10 + random.nextInt(40);
+						int coarseStep = 1 + random.nextInt(4);
+						sequential.setResolution(exactFrames, coarseStep);
+						sequential.setFrameData(frameData);
+						int[][] expected = sequential.simulate(myActions, oppActions);
+						for(int[] row : expected) for(int value : row) if(value != 0) damaging++;
+
+						for(int i = 0 ; i < parallel.length ; i++){
+							parallel[i].setResolution(exactFrames, coarseStep);
+							parallel[i].setFrameData(frameData);
+							check(playerOne + " vs " + playerTwo + " P" + (player ? 1 : 2) + " on " + THREADS[i] + " threads", expected, parallel[i].simulate(myActions, oppActions));
+							rounds++;
+						}
+
+						abandoned.setResolution(exactFrames, coarseStep);
+						abandoned.setFrameData(frameData);
+						// the first round robin of several pairs is interrupted while the pool simulates it
+						boolean interrupt = (pooled && myActions.length * oppActions.length >= 2) || random.nextInt(4) == 0;
+						if(interrupt && pooled && myActions.length * oppActions.length >= 2){
+							pooled = false;
+							abandonedPools++;
+						}
+						if(interrupt) Thread.currentThread().interrupt();
+						int[][] values = abandoned.simulate(myActions, oppActions);
+						if(interrupt){
+							if(!Thread.interrupted()) TestStates.fail("the simulator cleared the interrupt of its thread");
+							interrupted++;
+						}
+						check(playerOne + " vs " + playerTwo + " P" + (player ? 1 : 2) + (interrupt ? " interrupted" : pooled ? " on its pool" : " after its pool was given up"), expected, values);
+					}
+					for(Simulator simulator : parallel) simulator.close();
+					abandoned.close();
+				}
+			}
+		}
+		if(abandonedPools == 0) TestStates.fail("no pool was interrupted");
+		if(damaging == 0) TestStates.fail("no pair dealt damage");
+		System.out.println("OK: " + states + " states, " + rounds + " parallel round robins, " + interrupted + " interrupted ones (" + abandonedPools + " pools given up), " + damaging + " pairs dealing damage");
+	}
+
+	private static void check(String name, int[][] expected, int[][] values){
+		if(!Arrays.deepEquals(expected, values)) TestStates.fail(name + ": " + Arrays.deepToString(values) + " instead of " + Arrays.deepToString(expected));
+	}
+
+	private static Action[] pick(Random random, int count){
+		Action[] actions = new Action[count];
+		for(int i = 0 ; i < count ; i++) actions[i] = ACTIONS[random.nextInt(ACTIONS.length)];
+		return actions;
+	}
+}
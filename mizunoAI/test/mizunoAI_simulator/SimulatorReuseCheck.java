@@ -0,0 +1,135 @@
+package mizunoAI_simulator;
+
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import structs.CharacterData;
+import structs.FrameData;
+import structs.GameData;
+import enumerate.Action;
+import fighting.Attack;
+import support.MotionTable;
+
+/**
+ * Checks that one Simulator reused for every state, with its early stop and its branching, gives the evaluation values of simulating every pair
+ * on new characters for all SIMULATE_LIMIT frames.<br>
+ * Every projectile of the FrameData has to be loaded once, in its order. The simulator of the baseline loaded the first projectile as many times as there were projectiles,
+ * since FrameData.getAttack() returns a new copy on every call, so the pairs of the states with several projectiles are also simulated that way
+ * and some of them have to give other values. The states include several projectiles and characters in the air.
+ */
+public class SimulatorReuseCheck {
+	private static final int SIMULATE_LIMIT = 60;
+	private static final int STATES = 300;
+	private static final Action[] ACTIONS = Action.values();
+
+	public static void main(String[] args) throws Exception{
+		Random random = new Random(11);
+		int states = 0, pairs = 0, multiProjectile = 0, airborne = 0, baselineDiffers = 0;
+		for(String playerOne : TestStates.CHARACTERS){
+			for(String playerTwo : TestStates.CHARACTERS){
+				GameData gameData = TestStates.createGameData(playerOne, playerTwo);
+				MotionTable one = new MotionTable(gameData.getPlayerOneMotion());
+				MotionTable two = new MotionTable(gameData.getPlayerTwoMotion());
+				Simulator[] simulators = {new Simulator(gameData, true, one, two), new Simulator(gameData, false, one, two)};
+
+				for(FrameData frameData : TestStates.createStates(gameData, random, STATES / 9)){
+					states++;
+					if(frameData.getAttack().size() >= 2) multiProjectile++;
+					if(TestStates.isAirborne(frameData)) airborne++;
+					checkProjectiles(frameData, one, two);
+
+					for(int side = 0 ; side < 2 ; side++){
+						boolean player = side == 0;
+						Simulator simulator = simulators[side];
+						simulator.setFrameData(frameData);
+						Action[] myActions = pick(random, 12);
+						Action[] oppActions = pick(random, 6);
+						int[][] values = simulator.simulate(myActions, oppActions);
+						for(int i = 0 ; i < myActions.length ; i++){
+							for(int j = 0 ; j < oppActions.length ; j++){
+								int expected = simulate(frameData, frameData.getAttack(), player, one, two, myActions[i], oppActions[j]);
+								int value = simulator.simulate(myActions[i], oppActions[j]);
+								if(value != expected || values[i][j] != expected){
+									TestStates.fail(playerOne + " vs " + playerTwo + " P" + (player ? 1 : 2) + " " + myActions[i] + " vs " + oppActions[j]
+											+ " with " + frameData.getAttack().size() + " projectiles: expected " + expected + ", simulate(Action,Action) " + value
+											+ ", simulate(Action[],Action[]) " + values[i][j]);
+								}
+								pairs++;
+								if(frameData.getAttack().size() >= 2 && simulate(frameData, repeatFirst(frameData), player, one, two, myActions[i], oppActions[j]) != expected) baselineDiffers++;
+							}
+						}
+					}
+				}
+			}
+		}
+		if(multiProjectile == 0 || airborne == 0) TestStates.fail("the states have no multi-projectile or airborne case");
+		if(baselineDiffers == 0) TestStates.fail("loading the first projectile for each one, as the baseline did, gave the same values");
+		System.out.println("OK: " + states + " states (" + multiProjectile + " with several projectiles, " + airborne + " airborne), " + pairs + " pairs, "
+				+ baselineDiffers + " of them scored otherwise with the baseline's projectiles");
+	}
+
+	/** load the FrameData into new characters and check that the fighting holds each of its projectiles once, in the order of the FrameData*/
+	private static void checkProjectiles(FrameData frameData, MotionTable one, MotionTable two){
+		SimCharacter playerOne = new SimCharacter(one, true);
+		SimCharacter playerTwo = new SimCharacter(two, false);
+		playerOne.reset(frameData.getP1());
+		playerTwo.reset(frameData.getP2());
+		SimFighting fighting = new SimFighting(playerOne, playerTwo);
+		// save() writes the number of projectiles right after the two characters, then the projectiles
+		int characters = playerOne.getStateSize() + playerTwo.getStateSize();
+		fighting.reset(frameData.getAttack(), null, null);
+		int[] state = fighting.save();
+		if(state[characters] != frameData.getAttack().size()) TestStates.fail(frameData.getAttack().size() + " projectiles loaded as " + state[characters]);
+
+		// the projectiles saved one at a time, in the order of the FrameData
+		int[] projectiles = new int[0];
+		for(Attack attack : frameData.getAttack()){
+			Deque<Attack> single = new LinkedList<Attack>();
+			single.add(attack);
+			fighting.reset(single, null, null);
+			int[] saved = fighting.save();
+			int length = projectiles.length;
+			projectiles = Arrays.copyOf(projectiles, length + saved.length - characters - 3);
+			System.arraycopy(saved, characters + 1, projectiles, length, saved.length - characters - 3);
+		}
+		if(!Arrays.equals(projectiles, Arrays.copyOfRange(state, characters + 1, characters + 1 + projectiles.length))){
+			TestStates.fail("the projectiles " + Arrays.toString(projectiles) + " loaded as " + Arrays.toString(Arrays.copyOfRange(state, characters + 1, state.length - 2)));
+		}
+	}
+
+	/** the projectiles the simulator of the baseline loaded: the first one of the FrameData, once for each projectile*/
+	private static Deque<Attack> repeatFirst(FrameData frameData){
+		Deque<Attack> attacks = new LinkedList<Attack>();
+		for(int i = frameData.getAttack().size() ; i > 0 ; i--) attacks.add(frameData.getAttack().getFirst());
+		return attacks;
+	}
+
+	/** the evaluation value of simulate(Action,Action) with the projectiles, simulated on new characters for every frame of SIMULATE_LIMIT*/
+	private static int simulate(FrameData frameData, Deque<Attack> attacks, boolean player, MotionTable one, MotionTable two, Action myAction, Action oppAction){
+		CharacterData myCharacter = player ? frameData.getP1() : frameData.getP2();
+		CharacterData oppCharacter = player ? frameData.getP2() : frameData.getP1();
+		MotionTable myMotion = player ? one : two;
+		if(myCharacter.getEnergy() + myMotion.attackStartAddEnergy[myAction.ordinal()] < 0) return -1000;
+
+		SimCharacter playerOne = new SimCharacter(one, true);
+		SimCharacter playerTwo = new SimCharacter(two, false);
+		playerOne.reset(frameData.getP1());
+		playerTwo.reset(frameData.getP2());
+		SimFighting fighting = new SimFighting(playerOne, playerTwo);
+		fighting.reset(attacks, player ? myAction : oppAction, player ? oppAction : myAction);
+		for(int i = 0 ; i < SIMULATE_LIMIT ; i++) fighting.processingFight();
+
+		SimCharacter my = player ? playerOne : playerTwo;
+		SimCharacter opp = player ? playerTwo : playerOne;
+		return (my.getHp() - myCharacter.getHp()) - (opp.getHp() - oppCharacter.getHp());
+	}
+
+	private static Action[] pick(Random random, int count){
+		Action[] actions = new Action[count];
+		for(int i = 0 ; i < count ; i++) actions[i] = ACTIONS[random.nextInt(ACTIONS.length)];
+		return actions;
+	}
+}
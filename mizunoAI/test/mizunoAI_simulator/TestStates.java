@@ -0,0 +1,102 @@
+package mizunoAI_simulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import structs.CharacterData;
+import structs.FrameData;
+import structs.GameData;
+import structs.Key;
+import structs.KeyData;
+import enumerate.Action;
+import enumerate.State;
+import fighting.Attack;
+
+/**
+ * Game states for the checks of the test directory, made without running the game.<br>
+ * The checks are run from the project directory, with the classes of src and test, AIToolKit.jar and the game's libraries on the class path:<br>
+ * javac -cp AIToolKit.jar -d /tmp/check $(find src test -name '*.java')<br>
+ * java -cp /tmp/check:AIToolKit.jar:../FightingICE/lib/javatuples-1.2.jar:../FightingICE/lib/gameLib.jar mizunoAI_simulator.SimulatorReuseCheck<br>
+ * Motion.csv is read from ../FightingICE/data, or from the directory of the system property mizunoai.test.data.
+ * A check prints what it compared and exits with 1 on the first difference.
+ */
+final class TestStates {
+	static final String[] CHARACTERS = {"ZEN", "GARNET", "LUD"};
+	/** the y of a character standing on the ground*/
+	static final int GROUND_Y = 335;
+	/** actions that put a projectile on the stage*/
+	private static final Action[] PROJECTILES = {Action.STAND_D_DF_FA, Action.STAND_D_DF_FB, Action.STAND_D_DF_FC, Action.AIR_D_DF_FA, Action.AIR_D_DF_FB};
+	private static final Action[] ACTIONS = Action.values();
+
+	private TestStates(){
+	}
+
+	static GameData createGameData(String playerOne, String playerTwo) throws IOException{
+		return OfflineGameData.create(new File(System.getProperty("mizunoai.test.data", "../FightingICE/data")), playerOne, playerTwo);
+	}
+
+	/** a character standing still at x*/
+	static CharacterData createCharacter(int x, boolean front, int hp, int energy){
+		CharacterData character = OfflineGameData.createCharacter();
+		character.hp = hp;
+		character.energy = energy;
+		character.x = x;
+		character.y = GROUND_Y;
+		character.front = front;
+		character.action = Action.STAND;
+		character.state = State.STAND;
+		character.remainingFrame = 10;
+		character.control = true;
+		return character;
+	}
+
+	/**
+	 * Returns states reached by the toolkit simulator from random standing positions, with random inputs that often start with a projectile.
+	 * The states have characters in the air, in the middle of actions and under attacks, and up to three projectiles.
+	 */
+	static List<FrameData> createStates(GameData gameData, Random random, int count) throws Exception{
+		List<FrameData> states = new ArrayList<FrameData>(count);
+		while(states.size() < count){
+			int x1 = 50 + random.nextInt(500);
+			int x2 = x1 + 60 + random.nextInt(350);
+			CharacterData one = createCharacter(x1, true, 300 + random.nextInt(100), random.nextInt(400));
+			CharacterData two = createCharacter(x2, false, 300 + random.nextInt(100), random.nextInt(400));
+			FrameData state = new FrameData(one, two, 60000, 1, new LinkedList<Attack>(), new KeyData(new Key[]{new Key(), new Key()}));
+			// a few short rollouts one after another, so that the projectiles of one can still fly when the next puts more on the stage
+			for(int i = random.nextInt(3) ; i >= 0 ; i--){
+				state = gameData.getSimulator().simulate(state, true, createInputs(random), createInputs(random), 8 + random.nextInt(25));
+			}
+			states.add(new FrameData(state.getP1(), state.getP2(), 60000 - random.nextInt(50000), 1, state.getAttack(), state.getKeyData()));
+		}
+		return states;
+	}
+
+	private static Deque<Action> createInputs(Random random){
+		Deque<Action> inputs = new LinkedList<Action>();
+		// half of the inputs start with a projectile, so both sides often have one on the stage
+		if(random.nextBoolean()){
+			Action projectile = PROJECTILES[random.nextInt(PROJECTILES.length)];
+			if(projectile.name().startsWith("AIR_")) inputs.add(random.nextBoolean() ? Action.JUMP : Action.FOR_JUMP);
+			inputs.add(projectile);
+		}
+		for(int i = random.nextInt(4) ; i >= 0 ; i--){
+			inputs.add(random.nextInt(3) == 0 ? PROJECTILES[random.nextInt(PROJECTILES.length)] : ACTIONS[random.nextInt(ACTIONS.length)]);
+		}
+		return inputs;
+	}
+
+	static boolean isAirborne(FrameData state){
+		return state.getP1().getState() == State.AIR || state.getP2().getState() == State.AIR;
+	}
+
+	/** fail the check*/
+	static void fail(String message){
+		System.out.println("FAILED: " + message);
+		System.exit(1);
+	}
+}
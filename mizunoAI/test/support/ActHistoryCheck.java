@@ -0,0 +1,141 @@
+package support;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import structs.ActData;
+import enumerate.Action;
+
+/**
+ * Checks that ActHistory and its ActIndex select the attacks the k-nn of mizunoAI and JerryMizunoAI selected before them,
+ * by computing the distances to every recorded attack and merge sorting the ones nearer than K_DISTANCE (calculateActDistance()).<br>
+ * The old scan runs on the newest attacks kept by the history, so the eviction of a full history is checked too.
+ * The histories have attacks piled on the same positions, far outside the grid of the index, and both sides of the query.<br>
+ * It is run with the classes of src and test and AIToolKit.jar on the class path: java support.ActHistoryCheck
+ */
+public class ActHistoryCheck {
+	private static final int K_DISTANCE = 50;
+	private static final double K_THRESHOLD = 0.3;
+	private static final int THRESHOLD = 3;
+	private static final Action[] ACTIONS = Action.values();
+
+	public static void main(String[] args){
+		Random random = new Random(21);
+		long queries = 0, selected = 0, evicted = 0;
+		for(int trial = 0 ; trial < 300 ; trial++){
+			int capacity = 1 + random.nextInt(random.nextBoolean() ? 10 : 300);
+			ActHistory history = new ActHistory(capacity, K_DISTANCE, THRESHOLD);
+			// the attacks the old scan sees, and their frames
+			Deque<ActData> actData = new LinkedList<ActData>();
+			List<Integer> frames = new ArrayList<Integer>();
+			int spread = 20 + random.nextInt(400);
+			int frame = 0;
+			for(int n = random.nextInt(600) ; n > 0 ; n--){
+				int x = random.nextInt(3) == 0 ? 40 : random.nextInt(spread) - spread/2;
+				int y = random.nextInt(4) == 0 ? 0 : random.nextInt(spread/2 + 1) - spread/4;
+				if(random.nextInt(50) == 0) x = 1500 - random.nextInt(100);
+				Action action = ACTIONS[random.nextInt(8)];
+				history.add(x, y, action, frame);
+				actData.add(new ActData(x, y, action));
+				frames.add(frame);
+				if(actData.size() > capacity){
+					actData.removeFirst();
+					frames.remove(0);
+					evicted++;
+				}
+				frame += 1 + random.nextInt(3);
+				if(history.size() != actData.size()) fail("the history keeps " + history.size() + " attacks, not " + actData.size());
+
+				for(int q = 0 ; q < 3 ; q++){
+					int qx = random.nextInt(20) == 0 ? 1500 : random.nextInt(spread) - spread/2;
+					int qy = random.nextInt(spread/2 + 1) - spread/4;
+					boolean front = random.nextBoolean();
+					int k = Math.min((int)(history.size()*K_THRESHOLD + 1), THRESHOLD);
+					Action[] expected = calculateActDistance(actData, front, qx, qy);
+					Action[] nearest = new Action[THRESHOLD];
+					int[] nearestFrame = new int[THRESHOLD];
+					int found = front ? history.nearest(qx, qy, k, nearest, nearestFrame) : history.nearest(-qx, -qy, k, nearest, nearestFrame);
+					queries++;
+					if(expected == null){
+						if(found >= k) fail("the history selects " + found + " attacks at " + qx + ", " + qy + " where the scan selects none");
+						continue;
+					}
+					if(found < k) fail("the history selects " + found + " attacks at " + qx + ", " + qy + " where the scan selects " + k);
+					for(int i = 0 ; i < k ; i++){
+						if(nearest[i] != expected[i]) fail("the " + i + "th nearest attack at " + qx + ", " + qy + " is " + nearest[i] + ", not " + expected[i]);
+						int slot = frames.indexOf(nearestFrame[i]);
+						if(slot < 0 || history.getAction(slot) != nearest[i]) fail("the frame " + nearestFrame[i] + " of the " + i + "th nearest attack is not of " + nearest[i]);
+					}
+					selected++;
+				}
+			}
+			Iterator<ActData> act = actData.iterator();
+			for(int i = 0 ; i < history.size() ; i++){
+				if(history.getAction(i) != act.next().getAct()) fail("the history does not keep the attacks in the order added");
+			}
+		}
+		if(evicted == 0) fail("no history was full");
+		System.out.println("OK: " + queries + " queries, " + selected + " of them selecting attacks, " + evicted + " attacks evicted");
+	}
+
+	/**
+	 * The k-nn of calculateActDistance() before ActIndex: the distances to every attack, and a merge sort of the ones nearer than K_DISTANCE.
+	 * @return the k nearest actions, or null if fewer than k attacks are near
+	 */
+	private static Action[] calculateActDistance(Deque<ActData> actData, boolean front, int x, int y){
+		int threshold = (int)(actData.size()*K_THRESHOLD + 1);
+		Deque<ActData> temp = new LinkedList<ActData>();
+		for(ActData data : actData){
+			ActData act = new ActData(data);
+			if(front) act.setDistance((int)Math.sqrt((act.getX()-x)*(act.getX()-x)+(act.getY()-y)*(act.getY()-y)));
+			else act.setDistance((int)Math.sqrt((act.getX()+x)*(act.getX()+x)+(act.getY()+y)*(act.getY()+y)));
+			if(act.getDistance() < K_DISTANCE) temp.add(act);
+		}
+		int k = Math.min(threshold, THRESHOLD);
+		if(temp.size() < k) return null;
+
+		ActData[] array = new ActData[temp.size()];
+		for(int i = 0 ; i < array.length ; i++) array[i] = new ActData(temp.pop());
+		mergeSort(array);
+		Action[] nearest = new Action[k];
+		for(int i = 0 ; i < k ; i++) nearest[i] = array[i].getAct();
+		return nearest;
+	}
+
+	private static void merge(ActData[] a1, ActData[] a2, ActData[] a){
+		int i=0,j=0;
+		while(i<a1.length || j<a2.length){
+			if(j>=a2.length || (i<a1.length && a1[i].getDistance()<a2[j].getDistance())){
+				a[i+j].setMenber(a1[i]);
+				i++;
+			}
+			else{
+				a[i+j].setMenber(a2[j]);
+				j++;
+			}
+		}
+	}
+
+	private static void mergeSort(ActData[] a){
+		if(a.length>1){
+			int m=a.length/2;
+			int n=a.length-m;
+			ActData[] a1=new ActData[m];
+			ActData[] a2=new ActData[n];
+			for(int i=0;i<m;i++) a1[i] = new ActData(a[i]);
+			for(int i=0;i<n;i++) a2[i] = new ActData(a[m+i]);
+			mergeSort(a1);
+			mergeSort(a2);
+			merge(a1,a2,a);
+		}
+	}
+
+	private static void fail(String message){
+		System.out.println("FAILED: " + message);
+		System.exit(1);
+	}
+}